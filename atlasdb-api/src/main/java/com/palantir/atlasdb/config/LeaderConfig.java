@@ -77,6 +77,25 @@ public abstract class LeaderConfig {
         return 5000L;
     }
 
+    /**
+     * How long the leader may answer leadership checks without contacting a quorum after its leadership was last
+     * confirmed. Acceptors refuse to elect a new leader for this long after each confirmation, so this must be the
+     * same on all nodes. Leader leases are disabled if this is zero.
+     */
+    @Value.Default
+    public long leaderLeaseDurationMs() {
+        return 0L;
+    }
+
+    /**
+     * The maximum amount by which clocks on different nodes may drift apart over one lease duration.
+     * The leader stops relying on its lease this much earlier than the acceptors stop honouring it.
+     */
+    @Value.Default
+    public long leaderLeaseClockDriftMs() {
+        return 100L;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(quorumSize() > leaders().size() / 2,
@@ -91,6 +110,10 @@ public abstract class LeaderConfig {
                 "Learner log directory '%s' does not exist and cannot be created.", learnerLogDir());
         Preconditions.checkArgument(acceptorLogDir().exists() || acceptorLogDir().mkdirs(),
                 "Acceptor log directory '%s' does not exist and cannot be created.", acceptorLogDir());
+        Preconditions.checkArgument(leaderLeaseDurationMs() >= 0,
+                "Leader lease duration must not be negative; found '%s'.", leaderLeaseDurationMs());
+        Preconditions.checkArgument(leaderLeaseClockDriftMs() >= 0,
+                "Leader lease clock drift must not be negative; found '%s'.", leaderLeaseClockDriftMs());
     }
 
     @JsonIgnore
@@ -87,6 +87,24 @@ public interface TransactionManager extends AutoCloseable {
      */
     <T, E extends Exception> T runTaskReadOnly(TransactionTask<T, E> task) throws E;
 
+    /**
+     * This will open and run a read only transaction that may read a slightly stale snapshot: it may not see writes
+     * that committed shortly before it started, including writes made by the caller. In exchange, most such
+     * transactions do not need a fresh timestamp from the timestamp service.
+     * <p>
+     * Only use this for reads that can tolerate staleness; use {@link #runTaskReadOnly(TransactionTask)} otherwise.
+     * Transaction managers that cannot serve stale reads run the task as {@link #runTaskReadOnly(TransactionTask)}.
+     *
+     * @param task task to run
+     *
+     * @return value returned by task
+     *
+     * @throws IllegalStateException if the transaction manager has been closed.
+     */
+    default <T, E extends Exception> T runTaskReadOnlyWithStaleness(TransactionTask<T, E> task) throws E {
+        return runTaskReadOnly(task);
+    }
+
     /**
      * Most AtlasDB TransactionManagers will provide {@link Transaction} objects that have less than full
      * serializability. The most common is snapshot isolation (SI).  SI has a start timestamp and a commit timestamp
@@ -58,6 +58,28 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 100;
     }
 
+    /**
+     * If true, the number of concurrent requests to each host adapts to how the host is coping, between one and
+     * {@link #maxConnectionBurstSize()}. The limit backs off when requests to the host slow down or time out, and
+     * requests over it are queued briefly and then rejected rather than piling up on an overloaded host. Requests
+     * to the transactions table are admitted ahead of others, and sweep and scrub get at most half of the limit.
+     */
+    @Value.Default
+    public boolean adaptiveConcurrencyLimiting() {
+        return false;
+    }
+
+    /**
+     * The proportion of {@link #maxConnectionBurstSize()} connections to each host that background work, such as
+     * sweep, scrub and KVS migration, may use at once. Background requests over this wait up to
+     * {@link #socketTimeoutMillis()} for another background request to finish, and are then retried as if the pool
+     * were full, so the remaining connections are always available to foreground transactions.
+     */
+    @Value.Default
+    public double backgroundConnectionProportion() {
+        return 0.5;
+    }
+
     /**
      * The proportion of {@link #poolSize()} connections that are checked approximately
      * every {@link #timeBetweenConnectionEvictionRunsSeconds()} seconds to see if has been idle at least
@@ -205,6 +227,16 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 64;
     }
 
+    /**
+     * The number of token ranges that a single range scan reads concurrently. If this is greater than one, range
+     * scans are split at the boundaries of the token ranges in the ring, and each sub-range is read from one of its
+     * replicas. The default of one reads each range sequentially.
+     */
+    @Value.Default
+    public int rangeScanParallelism() {
+        return 1;
+    }
+
     @Value.Default
     public boolean scyllaDb() {
         return false;
@@ -238,5 +270,8 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         double evictionCheckProportion = proportionConnectionsToCheckPerEvictionRun();
         Preconditions.checkArgument(evictionCheckProportion > 0.01 && evictionCheckProportion <= 1,
                 "'proportionConnectionsToCheckPerEvictionRun' must be between 0.01 and 1");
+        Preconditions.checkArgument(rangeScanParallelism() >= 1, "'rangeScanParallelism' must be at least 1");
+        Preconditions.checkArgument(backgroundConnectionProportion() > 0 && backgroundConnectionProportion() <= 1,
+                "'backgroundConnectionProportion' must be greater than 0 and at most 1");
     }
 }
@@ -17,15 +17,20 @@ package com.palantir.atlasdb.keyvalue.cassandra;
 
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.cassandra.thrift.Cassandra.Client;
+import org.apache.cassandra.thrift.TimedOutException;
+import org.apache.cassandra.thrift.UnavailableException;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.thrift.protocol.TProtocolException;
@@ -40,8 +45,11 @@ import com.codahale.metrics.Gauge;
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
+import com.palantir.atlasdb.util.AdaptiveConcurrencyLimiter;
+import com.palantir.atlasdb.util.KvsCallPriority;
 import com.palantir.atlasdb.util.MetricsManager;
 import com.palantir.common.base.FunctionCheckedException;
+import com.palantir.common.base.Throwables;
 import com.palantir.common.pooling.PoolingContainer;
 
 public class CassandraClientPoolingContainer implements PoolingContainer<Client> {
@@ -53,11 +61,20 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
     private final AtomicLong count = new AtomicLong();
     private final AtomicInteger openRequests = new AtomicInteger();
     private final GenericObjectPool<Client> clientPool;
+    private final Optional<AdaptiveConcurrencyLimiter> concurrencyLimiter;
+    private final int maxBackgroundConnections;
+    private final Semaphore backgroundConnections;
 
     public CassandraClientPoolingContainer(InetSocketAddress host, CassandraKeyValueServiceConfig config) {
         this.host = host;
         this.config = config;
         this.clientPool = createClientPool();
+        this.concurrencyLimiter = createConcurrencyLimiter();
+        this.maxBackgroundConnections = Math.max(1,
+                (int) (config.maxConnectionBurstSize() * config.backgroundConnectionProportion()));
+        this.backgroundConnections = new Semaphore(maxBackgroundConnections);
+        registerMetric(host.getHostString(), "numBackgroundActive",
+                () -> maxBackgroundConnections - backgroundConnections.availablePermits());
     }
 
     public InetSocketAddress getHost() {
@@ -94,7 +111,7 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
                 + " - " + count.getAndIncrement());
         try {
             openRequests.getAndIncrement();
-            return runWithGoodResource(fn);
+            return runInLane(fn);
         } catch (Throwable t) {
             log.warn("Error occurred talking to host '{}': {}", host, t.toString());
             throw t;
@@ -110,6 +127,58 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
                 + "to ensure the TTransportException type is propagated correctly.");
     }
 
+    /**
+     * Background requests only get a share of the connections, so that they cannot crowd out foreground requests.
+     * A background request waits for its share for no longer than a borrow from the pool may take, and then fails
+     * like a borrow from a full pool, so that it is retried with backoff.
+     */
+    private <V, K extends Exception> V runInLane(FunctionCheckedException<Client, V, K> fn) throws K {
+        if (KvsCallPriority.current() != KvsCallPriority.BACKGROUND) {
+            return runWithinConcurrencyLimit(fn);
+        }
+        try {
+            if (!backgroundConnections.tryAcquire(clientPool.getMaxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                throw new NoSuchElementException("Timed out waiting for one of the " + maxBackgroundConnections
+                        + " connections to host " + host + " that background requests may use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+        try {
+            return runWithinConcurrencyLimit(fn);
+        } finally {
+            backgroundConnections.release();
+        }
+    }
+
+    private <V, K extends Exception> V runWithinConcurrencyLimit(FunctionCheckedException<Client, V, K> fn)
+            throws K {
+        if (!concurrencyLimiter.isPresent()) {
+            return runWithGoodResource(fn);
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.get().acquire(KvsCallPriority.current());
+        try {
+            V result = runWithGoodResource(fn);
+            permit.success();
+            return result;
+        } catch (Throwable t) {
+            if (isOverloadException(t)) {
+                permit.dropped();
+            } else {
+                permit.ignore();
+            }
+            throw t;
+        }
+    }
+
+    private static boolean isOverloadException(Throwable throwable) {
+        return throwable instanceof TimedOutException
+                || throwable instanceof UnavailableException
+                || throwable instanceof SocketTimeoutException
+                || throwable.getCause() instanceof SocketTimeoutException;
+    }
+
     @SuppressWarnings("unchecked")
     private <V, K extends Exception> V runWithGoodResource(FunctionCheckedException<Client, V, K> fn)
             throws K {
@@ -250,6 +319,16 @@ public class CassandraClientPoolingContainer implements PoolingContainer<Client>
         return pool;
     }
 
+    private Optional<AdaptiveConcurrencyLimiter> createConcurrencyLimiter() {
+        if (!config.adaptiveConcurrencyLimiting()) {
+            return Optional.empty();
+        }
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.create(
+                "cassandra host " + host.getHostString(), 1, config.maxConnectionBurstSize());
+        limiter.registerMetrics(metricsManager, CassandraClientPoolingContainer.class, host.getHostString());
+        return Optional.of(limiter);
+    }
+
     private void registerMetrics(GenericObjectPool<Client> pool, String metricPrefix) {
         registerMetric(metricPrefix, "meanActiveTimeMillis", pool::getMeanActiveTimeMillis);
         registerMetric(metricPrefix, "meanIdleTimeMillis", pool::getMeanIdleTimeMillis);
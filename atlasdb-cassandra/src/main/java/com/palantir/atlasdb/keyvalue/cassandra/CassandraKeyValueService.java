@@ -31,6 +31,7 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -109,20 +110,23 @@ import com.palantir.atlasdb.keyvalue.cassandra.paging.CassandraRangePagingIterab
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnFetchMode;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ColumnGetter;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.CqlColumnGetter;
+import com.palantir.atlasdb.keyvalue.cassandra.paging.ParallelRangeIterator;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.RowGetter;
 import com.palantir.atlasdb.keyvalue.cassandra.paging.ThriftColumnGetter;
 import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
-import com.palantir.atlasdb.keyvalue.impl.GetCandidateCellsForSweepingShim;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.atlasdb.util.AnnotatedCallable;
 import com.palantir.atlasdb.util.AnnotationType;
+import com.palantir.atlasdb.util.KvsCallPriority;
 import com.palantir.common.annotation.Idempotent;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.FunctionCheckedException;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.exception.PalantirRuntimeException;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.UnsafeArg;
@@ -167,6 +171,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
 
     private final TracingQueryRunner queryRunner;
     private final CassandraTables cassandraTables;
+    private final ExecutorService rangeScanExecutor;
 
     public static CassandraKeyValueService create(
             CassandraKeyValueServiceConfigManager configManager,
@@ -207,6 +212,8 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
 
         this.queryRunner = new TracingQueryRunner(log, tracingPrefs);
         this.cassandraTables = new CassandraTables(clientPool, configManager);
+        this.rangeScanExecutor = KvsCallPriority.wrap(PTExecutors.newCachedThreadPool(
+                new NamedThreadFactory("Atlas Cassandra KVS range scan", true)));
     }
 
     private LockLeader whoIsTheLockCreator() {
@@ -1355,6 +1362,9 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
      *
      * Remember to close any {@link ClosableIterator}s you get in a finally block.
      *
+     * If {@link CassandraKeyValueServiceConfig#rangeScanParallelism()} is greater than one, the range is split at
+     * token range boundaries and up to that many sub-ranges are read concurrently, still returning rows in order.
+     *
      * @param rangeRequest the range to load.
      * @param timestamp specifies the maximum timestamp (exclusive) at which to retrieve each row's value.
      */
@@ -1364,7 +1374,26 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             TableReference tableRef,
             RangeRequest rangeRequest,
             long timestamp) {
-        return getRangeWithPageCreator(tableRef, rangeRequest, timestamp, readConsistency, ValueExtractor::create);
+        return getRangeWithPageCreator(
+                tableRef, rangeRequest, timestamp, readConsistency, ValueExtractor::create, true);
+    }
+
+    /**
+     * Like {@link #getRange}, but rows are returned in the order in which they are read rather than in key order.
+     * <p>
+     * If {@link CassandraKeyValueServiceConfig#rangeScanParallelism()} is greater than one, this lets a full table
+     * scan consume rows from every sub-range as soon as they arrive, instead of waiting for earlier sub-ranges.
+     *
+     * @param rangeRequest the range to load.
+     * @param timestamp specifies the maximum timestamp (exclusive) at which to retrieve each row's value.
+     */
+    @Idempotent
+    public ClosableIterator<RowResult<Value>> getRangeUnordered(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return getRangeWithPageCreator(
+                tableRef, rangeRequest, timestamp, readConsistency, ValueExtractor::create, false);
     }
 
     /**
@@ -1396,10 +1425,15 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                 deleteConsistency);
     }
 
+    /**
+     * Pages through the cell names and timestamps of the requested range using {@link #getRangeOfTimestamps}, so
+     * values are not transferred. If the request asks whether the latest value of each cell is empty, only the
+     * latest value of each cell in a batch is fetched.
+     */
     @Override
     public ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(TableReference tableRef,
             CandidateCellForSweepingRequest request) {
-        return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+        return new GetCandidateCellsForSweeping(this).getCandidateCellsForSweeping(tableRef, request);
     }
 
     private ClosableIterator<RowResult<Set<Long>>> getTimestampsInBatchesWithPageCreator(
@@ -1413,7 +1447,8 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         CqlExecutor cqlExecutor = new CqlExecutor(clientPool, consistency);
         ColumnGetter columnGetter = new CqlColumnGetter(cqlExecutor, tableRef, columnBatchSize);
 
-        return getRangeWithPageCreator(rowGetter, columnGetter, rangeRequest, TimestampExtractor::new, timestamp);
+        return getRangeWithPageCreator(
+                rowGetter, columnGetter, rangeRequest, TimestampExtractor::new, timestamp, true);
     }
 
     private <T> ClosableIterator<RowResult<T>> getRangeWithPageCreator(
@@ -1421,11 +1456,13 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             RangeRequest rangeRequest,
             long timestamp,
             ConsistencyLevel consistency,
-            Supplier<ResultsExtractor<T>> resultsExtractor) {
+            Supplier<ResultsExtractor<T>> resultsExtractor,
+            boolean preserveOrder) {
         RowGetter rowGetter = new RowGetter(clientPool, queryRunner, consistency, tableRef, ColumnFetchMode.FETCH_ALL);
         ColumnGetter columnGetter = new ThriftColumnGetter();
 
-        return getRangeWithPageCreator(rowGetter, columnGetter, rangeRequest, resultsExtractor, timestamp);
+        return getRangeWithPageCreator(
+                rowGetter, columnGetter, rangeRequest, resultsExtractor, timestamp, preserveOrder);
     }
 
     private <T> ClosableIterator<RowResult<T>> getRangeWithPageCreator(
@@ -1433,7 +1470,8 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             ColumnGetter columnGetter,
             RangeRequest rangeRequest,
             Supplier<ResultsExtractor<T>> resultsExtractor,
-            long timestamp) {
+            long timestamp,
+            boolean preserveOrder) {
         if (rangeRequest.isReverse()) {
             throw new UnsupportedOperationException();
         }
@@ -1441,6 +1479,20 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
             return ClosableIterators.wrap(ImmutableList.<RowResult<T>>of().iterator());
         }
 
+        int parallelism = configManager.getConfig().rangeScanParallelism();
+        if (parallelism > 1) {
+            List<RangeRequest> subRanges =
+                    CassandraKeyValueServices.splitAtTokenRangeBoundaries(rangeRequest, clientPool.tokenMap);
+            if (subRanges.size() > 1) {
+                List<CassandraRangePagingIterable<T>> scans = Lists.transform(subRanges, subRange ->
+                        new CassandraRangePagingIterable<>(
+                                rowGetter, columnGetter, subRange, resultsExtractor, timestamp));
+                int batchSize = rangeRequest.getBatchHint() == null ? 100 : rangeRequest.getBatchHint();
+                return new ParallelRangeIterator<>(
+                        scans, rangeScanExecutor, parallelism, batchSize, preserveOrder);
+            }
+        }
+
         CassandraRangePagingIterable<T> rowResults = new CassandraRangePagingIterable<>(
                 rowGetter,
                 columnGetter,
@@ -1946,6 +1998,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
      */
     @Override
     public void close() {
+        rangeScanExecutor.shutdownNow();
         clientPool.shutdown();
         if (compactionManager.isPresent()) {
             compactionManager.get().close();
@@ -33,15 +33,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.BoundType;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPool.LightweightOppToken;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.visitor.Visitor;
@@ -307,4 +315,35 @@ public final class CassandraKeyValueServices {
         return false;
     }
 
+    /**
+     * Splits the given range at the first key of each token range in the ring, so that each returned sub-range is
+     * owned by a single set of replicas. Sub-ranges are returned in key order.
+     */
+    static List<RangeRequest> splitAtTokenRangeBoundaries(
+            RangeRequest rangeRequest,
+            RangeMap<LightweightOppToken, ?> tokenMap) {
+        byte[] startInclusive = rangeRequest.getStartInclusive();
+        byte[] endExclusive = rangeRequest.getEndExclusive();
+        List<RangeRequest> subRanges = Lists.newArrayList();
+        for (Range<LightweightOppToken> tokenRange : tokenMap.asMapOfRanges().keySet()) {
+            if (!tokenRange.hasLowerBound()) {
+                continue;
+            }
+            byte[] firstKey = tokenRange.lowerBoundType() == BoundType.CLOSED
+                    ? tokenRange.lowerEndpoint().bytes
+                    : Bytes.concat(tokenRange.lowerEndpoint().bytes, new byte[] {0});
+            if (UnsignedBytes.lexicographicalComparator().compare(firstKey, startInclusive) > 0
+                    && (endExclusive.length == 0
+                        || UnsignedBytes.lexicographicalComparator().compare(firstKey, endExclusive) < 0)) {
+                subRanges.add(rangeRequest.getBuilder()
+                        .startRowInclusive(startInclusive)
+                        .endRowExclusive(firstKey)
+                        .build());
+                startInclusive = firstKey;
+            }
+        }
+        subRanges.add(rangeRequest.getBuilder().startRowInclusive(startInclusive).build());
+        return subRanges;
+    }
+
 }
@@ -21,22 +21,43 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
+import org.apache.cassandra.thrift.Cassandra;
 import org.apache.cassandra.thrift.Compression;
 import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.thrift.CqlResult;
 import org.apache.cassandra.thrift.CqlRow;
+import org.apache.cassandra.thrift.InvalidRequestException;
 import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.common.base.Throwables;
 
 public class CqlExecutor {
-    private CassandraClientPool clientPool;
-    private ConsistencyLevel consistency;
+    private static final Logger log = LoggerFactory.getLogger(CqlExecutor.class);
+
+    private static final String COLUMNS_FOR_ROW_QUERY =
+            "SELECT column1, column2 FROM %s WHERE key = ? LIMIT ?;";
+    private static final String TIMESTAMPS_FOR_ROW_AND_COLUMN_QUERY =
+            "SELECT column1, column2 FROM %s WHERE key = ? AND column1 = ? AND column2 > ? LIMIT ?;";
+    private static final String NEXT_COLUMNS_FOR_ROW_QUERY =
+            "SELECT column1, column2 FROM %s WHERE key = ? AND column1 > ? LIMIT ?;";
+
+    private final CassandraClientPool clientPool;
+    private final ConsistencyLevel consistency;
+
+    // Prepared statement ids are node-local state, so they are tracked per host and per query string.
+    private final ConcurrentMap<InetSocketAddress, ConcurrentMap<String, Integer>> preparedQueryIdsByHost =
+            Maps.newConcurrentMap();
 
     CqlExecutor(CassandraClientPool clientPool, ConsistencyLevel consistency) {
         this.clientPool = clientPool;
@@ -50,12 +71,9 @@ public class CqlExecutor {
      * @return up to <code>limit</code> cells that match the row name
      */
     List<CellWithTimestamp> getColumnsForRow(TableReference tableRef, byte[] row, int limit) {
-        String query = String.format(
-                "SELECT column1, column2 FROM %s WHERE key = %s LIMIT %s;",
-                getQuotedTableName(tableRef),
-                CassandraKeyValueServices.encodeAsHex(row),
-                limit);
-        CqlResult cqlResult = executeQueryOnHost(query, getHostForRow(row));
+        String query = String.format(COLUMNS_FOR_ROW_QUERY, getQuotedTableName(tableRef));
+        List<ByteBuffer> values = ImmutableList.of(ByteBuffer.wrap(row), toByteBuffer(limit));
+        CqlResult cqlResult = executePreparedQueryOnHost(query, values, getHostForRow(row));
         return getCells(row, cqlResult);
     }
 
@@ -75,14 +93,13 @@ public class CqlExecutor {
             long maxTimestampExclusive,
             int limit) {
         long invertedTimestamp = ~maxTimestampExclusive;
-        String query = String.format(
-                "SELECT column1, column2 FROM %s WHERE key = %s AND column1 = %s AND column2 > %s LIMIT %s;",
-                getQuotedTableName(tableRef),
-                CassandraKeyValueServices.encodeAsHex(row),
-                CassandraKeyValueServices.encodeAsHex(column),
-                invertedTimestamp,
-                limit);
-        CqlResult cqlResult = executeQueryOnHost(query, getHostForRow(row));
+        String query = String.format(TIMESTAMPS_FOR_ROW_AND_COLUMN_QUERY, getQuotedTableName(tableRef));
+        List<ByteBuffer> values = ImmutableList.of(
+                ByteBuffer.wrap(row),
+                ByteBuffer.wrap(column),
+                ByteBuffer.wrap(PtBytes.toBytes(invertedTimestamp)),
+                toByteBuffer(limit));
+        CqlResult cqlResult = executePreparedQueryOnHost(query, values, getHostForRow(row));
         return getCells(row, cqlResult);
     }
 
@@ -99,13 +116,12 @@ public class CqlExecutor {
             byte[] row,
             byte[] previousColumn,
             int limit) {
-        String query = String.format(
-                "SELECT column1, column2 FROM %s WHERE key = %s AND column1 > %s LIMIT %s;",
-                getQuotedTableName(tableRef),
-                CassandraKeyValueServices.encodeAsHex(row),
-                CassandraKeyValueServices.encodeAsHex(previousColumn),
-                limit);
-        CqlResult cqlResult = executeQueryOnHost(query, getHostForRow(row));
+        String query = String.format(NEXT_COLUMNS_FOR_ROW_QUERY, getQuotedTableName(tableRef));
+        List<ByteBuffer> values = ImmutableList.of(
+                ByteBuffer.wrap(row),
+                ByteBuffer.wrap(previousColumn),
+                toByteBuffer(limit));
+        CqlResult cqlResult = executePreparedQueryOnHost(query, values, getHostForRow(row));
         return getCells(row, cqlResult);
     }
 
@@ -113,20 +129,39 @@ public class CqlExecutor {
         return clientPool.getRandomHostForKey(row);
     }
 
-    private CqlResult executeQueryOnHost(String query, InetSocketAddress host) {
-        ByteBuffer queryBytes = ByteBuffer.wrap(query.getBytes(StandardCharsets.UTF_8));
-        return executeQueryOnHost(queryBytes, host);
-    }
-
-    private CqlResult executeQueryOnHost(ByteBuffer queryBytes, InetSocketAddress host) {
+    private CqlResult executePreparedQueryOnHost(String query, List<ByteBuffer> values, InetSocketAddress host) {
+        ConcurrentMap<String, Integer> preparedQueryIds =
+                preparedQueryIdsByHost.computeIfAbsent(host, unused -> Maps.newConcurrentMap());
         try {
-            return clientPool.runWithRetryOnHost(host, client ->
-                    client.execute_cql3_query(queryBytes, Compression.NONE, consistency));
+            return clientPool.runWithRetryOnHost(host, client -> {
+                Integer queryId = preparedQueryIds.get(query);
+                if (queryId != null) {
+                    try {
+                        return client.execute_prepared_cql3_query(queryId, values, consistency);
+                    } catch (InvalidRequestException e) {
+                        // The host may have evicted the statement, or the pool may have redirected the query to a
+                        // host that has not seen it yet. Either way, re-preparing is the cure.
+                        log.debug("Re-preparing query {} after its prepared id was rejected.", query, e);
+                    }
+                }
+                int newQueryId = prepare(client, query);
+                preparedQueryIds.put(query, newQueryId);
+                return client.execute_prepared_cql3_query(newQueryId, values, consistency);
+            });
         } catch (TException e) {
             throw Throwables.throwUncheckedException(e);
         }
     }
 
+    private static int prepare(Cassandra.Client client, String query) throws TException {
+        ByteBuffer queryBytes = ByteBuffer.wrap(query.getBytes(StandardCharsets.UTF_8));
+        return client.prepare_cql3_query(queryBytes, Compression.NONE).getItemId();
+    }
+
+    private static ByteBuffer toByteBuffer(int value) {
+        return ByteBuffer.wrap(Ints.toByteArray(value));
+    }
+
     private String getQuotedTableName(TableReference tableRef) {
         return "\"" + CassandraKeyValueService.internalTableName(tableRef) + "\"";
     }
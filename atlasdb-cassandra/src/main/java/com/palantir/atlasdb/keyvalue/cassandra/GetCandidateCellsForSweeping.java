@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.CandidateCellsForSweeping;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+
+/**
+ * Computes sweep candidates from a single paged pass over cell names and timestamps.
+ * <p>
+ * Unlike {@link com.palantir.atlasdb.keyvalue.impl.GetCandidateCellsForSweepingShim}, which reads every version of
+ * every value alongside the timestamps, values are only read when the request needs to know whether the latest
+ * value is empty, and then only the latest value of each cell in the current batch is fetched.
+ */
+final class GetCandidateCellsForSweeping {
+    private final KeyValueService keyValueService;
+
+    GetCandidateCellsForSweeping(KeyValueService keyValueService) {
+        this.keyValueService = keyValueService;
+    }
+
+    ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(
+            TableReference tableRef,
+            CandidateCellForSweepingRequest request) {
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(request.startRowInclusive())
+                .batchHint(request.batchSizeHint().orElse(AtlasDbConstants.DEFAULT_SWEEP_CANDIDATE_BATCH_HINT))
+                .build();
+        ClosableIterator<RowResult<Set<Long>>> tsResults =
+                keyValueService.getRangeOfTimestamps(tableRef, range, request.sweepTimestamp());
+        MutableLong numExamined = new MutableLong(0);
+        Set<Long> timestampsToIgnore = ImmutableSet.copyOf(Longs.asList(request.timestampsToIgnore()));
+        Iterator<List<RowResult<Set<Long>>>> tsBatches = Iterators.partition(tsResults, range.getBatchHint());
+        Iterator<List<CandidateCellForSweeping>> candidates = Iterators.transform(tsBatches, tsBatch -> {
+            Map<Cell, long[]> sortedTimestampsByCell = Maps.newLinkedHashMap();
+            for (RowResult<Set<Long>> rr : tsBatch) {
+                for (Map.Entry<byte[], Set<Long>> e : rr.getColumns().entrySet()) {
+                    long[] timestamps = Longs.toArray(Sets.difference(e.getValue(), timestampsToIgnore));
+                    Arrays.sort(timestamps);
+                    sortedTimestampsByCell.put(Cell.create(rr.getRowName(), e.getKey()), timestamps);
+                }
+            }
+            Set<Cell> cellsWithEmptyLatestValue = getCellsWithEmptyLatestValue(
+                    tableRef, sortedTimestampsByCell.keySet(), request);
+            List<CandidateCellForSweeping> candidateBatch =
+                    Lists.newArrayListWithCapacity(sortedTimestampsByCell.size());
+            for (Map.Entry<Cell, long[]> e : sortedTimestampsByCell.entrySet()) {
+                long[] timestamps = e.getValue();
+                boolean latestValEmpty = cellsWithEmptyLatestValue.contains(e.getKey());
+                numExamined.add(timestamps.length);
+                candidateBatch.add(CandidateCellsForSweeping.create(
+                        e.getKey(), timestamps, latestValEmpty, numExamined.longValue(), request));
+            }
+            return candidateBatch;
+        });
+        return ClosableIterators.wrap(candidates, tsResults);
+    }
+
+    private Set<Cell> getCellsWithEmptyLatestValue(
+            TableReference tableRef,
+            Set<Cell> cells,
+            CandidateCellForSweepingRequest request) {
+        if (!request.shouldCheckIfLatestValueIsEmpty() || cells.isEmpty()) {
+            return ImmutableSet.of();
+        }
+        Map<Cell, Long> timestampByCell = Maps.asMap(cells, cell -> request.sweepTimestamp());
+        Map<Cell, Value> latestValues = keyValueService.get(tableRef, timestampByCell);
+        return Maps.filterValues(latestValues, value -> value.getContents().length == 0).keySet();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Reads several disjoint sub-ranges of a range scan concurrently, with at most {@code parallelism} sub-ranges in
+ * flight at once.
+ * <p>
+ * Each sub-range is drained on the given executor into a small bounded buffer of row batches, so a slow consumer
+ * applies back-pressure to the scans rather than letting rows pile up in memory. If {@code preserveOrder} is set,
+ * sub-ranges must be supplied in key order and rows are returned in key order; otherwise rows are returned in the
+ * order in which their batches arrive. The iterator must be closed to stop any scans that are still in flight.
+ */
+public final class ParallelRangeIterator<T> extends AbstractIterator<RowResult<T>>
+        implements ClosableIterator<RowResult<T>> {
+    private static final int BATCHES_BUFFERED_PER_SCAN = 2;
+    private static final Object END_OF_SCAN = new Object();
+
+    private final Iterator<? extends Iterable<RowResult<T>>> scansToStart;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final boolean preserveOrder;
+
+    private final Deque<BlockingQueue<Object>> bufferedScans = new ArrayDeque<>();
+    private final List<Future<?>> runningScans = Lists.newArrayList();
+    private final BlockingQueue<Object> sharedBuffer;
+    private Iterator<RowResult<T>> currentBatch = Collections.emptyIterator();
+    private int scansInFlight = 0;
+
+    public ParallelRangeIterator(
+            List<? extends Iterable<RowResult<T>>> scans,
+            ExecutorService executor,
+            int parallelism,
+            int batchSize,
+            boolean preserveOrder) {
+        Preconditions.checkArgument(parallelism >= 1, "parallelism must be at least 1");
+        this.scansToStart = scans.iterator();
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.preserveOrder = preserveOrder;
+        this.sharedBuffer = preserveOrder ? null : new ArrayBlockingQueue<>(parallelism * BATCHES_BUFFERED_PER_SCAN);
+        for (int i = 0; i < parallelism && scansToStart.hasNext(); i++) {
+            startNextScan();
+        }
+    }
+
+    @Override
+    protected RowResult<T> computeNext() {
+        while (!currentBatch.hasNext()) {
+            if (scansInFlight == 0) {
+                return endOfData();
+            }
+            Object next = takeNextFromBuffer();
+            if (next == END_OF_SCAN) {
+                scansInFlight--;
+                if (preserveOrder) {
+                    bufferedScans.removeFirst();
+                }
+                if (scansToStart.hasNext()) {
+                    startNextScan();
+                }
+            } else if (next instanceof Throwable) {
+                close();
+                throw Throwables.rewrapAndThrowUncheckedException((Throwable) next);
+            } else {
+                @SuppressWarnings("unchecked")
+                List<RowResult<T>> batch = (List<RowResult<T>>) next;
+                currentBatch = batch.iterator();
+            }
+        }
+        return currentBatch.next();
+    }
+
+    @Override
+    public void close() {
+        for (Future<?> scan : runningScans) {
+            scan.cancel(true);
+        }
+        runningScans.clear();
+        bufferedScans.clear();
+        scansInFlight = 0;
+        currentBatch = Collections.emptyIterator();
+    }
+
+    private void startNextScan() {
+        Iterable<RowResult<T>> scan = scansToStart.next();
+        BlockingQueue<Object> buffer;
+        if (preserveOrder) {
+            buffer = new ArrayBlockingQueue<>(BATCHES_BUFFERED_PER_SCAN);
+            bufferedScans.addLast(buffer);
+        } else {
+            buffer = sharedBuffer;
+        }
+        scansInFlight++;
+        runningScans.add(executor.submit(() -> drainInto(scan, buffer)));
+    }
+
+    private void drainInto(Iterable<RowResult<T>> scan, BlockingQueue<Object> buffer) {
+        try {
+            try {
+                Iterator<List<RowResult<T>>> batches = Iterators.partition(scan.iterator(), batchSize);
+                while (batches.hasNext()) {
+                    buffer.put(batches.next());
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Throwable t) {
+                buffer.put(t);
+                return;
+            }
+            buffer.put(END_OF_SCAN);
+        } catch (InterruptedException e) {
+            // The iterator was closed while this scan was waiting for buffer space.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object takeNextFromBuffer() {
+        BlockingQueue<Object> buffer = preserveOrder ? bufferedScans.getFirst() : sharedBuffer;
+        try {
+            return buffer.take();
+        } catch (InterruptedException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableRangeMap;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientPool.LightweightOppToken;
+
+public class CassandraKeyValueServicesTest {
+    private static final byte[] B = PtBytes.toBytes("b");
+    private static final byte[] M = PtBytes.toBytes("m");
+    private static final byte[] T = PtBytes.toBytes("t");
+
+    // Three token ranges, (t, +inf) wrapping around to [-inf, b], then (b, m] and (m, t].
+    private static final RangeMap<LightweightOppToken, String> RING =
+            ImmutableRangeMap.<LightweightOppToken, String>builder()
+                    .put(Range.atMost(token(B)), "host1")
+                    .put(Range.openClosed(token(B), token(M)), "host2")
+                    .put(Range.openClosed(token(M), token(T)), "host3")
+                    .put(Range.greaterThan(token(T)), "host1")
+                    .build();
+
+    @Test
+    public void splitsFullRangeAtFirstKeyOfEachTokenRange() {
+        List<RangeRequest> subRanges = CassandraKeyValueServices.splitAtTokenRangeBoundaries(
+                RangeRequest.builder().batchHint(7).build(), RING);
+
+        assertThat(subRanges).containsExactly(
+                range(PtBytes.EMPTY_BYTE_ARRAY, successor(B)),
+                range(successor(B), successor(M)),
+                range(successor(M), successor(T)),
+                range(successor(T), PtBytes.EMPTY_BYTE_ARRAY));
+    }
+
+    @Test
+    public void onlySplitsWithinRequestedRange() {
+        byte[] start = PtBytes.toBytes("c");
+        byte[] end = PtBytes.toBytes("p");
+        List<RangeRequest> subRanges = CassandraKeyValueServices.splitAtTokenRangeBoundaries(
+                RangeRequest.builder().startRowInclusive(start).endRowExclusive(end).batchHint(7).build(), RING);
+
+        assertThat(subRanges).containsExactly(
+                range(start, successor(M)),
+                range(successor(M), end));
+    }
+
+    @Test
+    public void doesNotSplitSingleTokenRangeRing() {
+        RangeRequest request = RangeRequest.builder().batchHint(7).build();
+
+        assertThat(CassandraKeyValueServices.splitAtTokenRangeBoundaries(
+                request, ImmutableRangeMap.of(Range.<LightweightOppToken>all(), "host1")))
+                .containsExactly(request);
+    }
+
+    private static RangeRequest range(byte[] startInclusive, byte[] endExclusive) {
+        return RangeRequest.builder()
+                .startRowInclusive(startInclusive)
+                .endRowExclusive(endExclusive)
+                .batchHint(7)
+                .build();
+    }
+
+    private static byte[] successor(byte[] key) {
+        byte[] successor = new byte[key.length + 1];
+        System.arraycopy(key, 0, successor, 0, key.length);
+        return successor;
+    }
+
+    private static LightweightOppToken token(byte[] key) {
+        return new LightweightOppToken(key);
+    }
+}
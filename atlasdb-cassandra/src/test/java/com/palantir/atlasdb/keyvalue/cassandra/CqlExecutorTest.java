@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.Compression;
+import org.apache.cassandra.thrift.ConsistencyLevel;
+import org.apache.cassandra.thrift.CqlPreparedResult;
+import org.apache.cassandra.thrift.CqlResult;
+import org.apache.cassandra.thrift.InvalidRequestException;
+import org.apache.thrift.TException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.common.base.FunctionCheckedException;
+
+public class CqlExecutorTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+    private static final TableReference OTHER_TABLE = TableReference.createFromFullyQualifiedName("ns.other");
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final byte[] COLUMN = PtBytes.toBytes("column");
+    private static final InetSocketAddress HOST = new InetSocketAddress("localhost", 9160);
+    private static final int QUERY_ID = 7;
+    private static final int LIMIT = 100;
+
+    private final CassandraClientPool clientPool = mock(CassandraClientPool.class);
+    private final Cassandra.Client client = mock(Cassandra.Client.class);
+    private final CqlExecutor executor = new CqlExecutor(clientPool, ConsistencyLevel.QUORUM);
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws TException {
+        when(clientPool.getRandomHostForKey(any(byte[].class))).thenReturn(HOST);
+        when(clientPool.runWithRetryOnHost(eq(HOST), any(FunctionCheckedException.class))).thenAnswer(invocation ->
+                ((FunctionCheckedException<Cassandra.Client, ?, ?>) invocation.getArguments()[1]).apply(client));
+        when(client.prepare_cql3_query(any(ByteBuffer.class), eq(Compression.NONE)))
+                .thenReturn(new CqlPreparedResult().setItemId(QUERY_ID));
+        when(client.execute_prepared_cql3_query(anyInt(), anyListOf(ByteBuffer.class), eq(ConsistencyLevel.QUORUM)))
+                .thenReturn(new CqlResult().setRows(ImmutableList.of()));
+    }
+
+    @Test
+    public void preparesEachQueryOnceAndExecutesItManyTimes() throws TException {
+        for (int i = 0; i < 3; i++) {
+            executor.getColumnsForRow(TABLE, ROW, LIMIT);
+        }
+
+        verify(client, times(1)).prepare_cql3_query(any(ByteBuffer.class), eq(Compression.NONE));
+        verify(client, times(3)).execute_prepared_cql3_query(
+                eq(QUERY_ID), anyListOf(ByteBuffer.class), eq(ConsistencyLevel.QUORUM));
+    }
+
+    @Test
+    public void preparesDistinctQueriesAndTablesSeparately() throws TException {
+        executor.getColumnsForRow(TABLE, ROW, LIMIT);
+        executor.getColumnsForRow(OTHER_TABLE, ROW, LIMIT);
+        executor.getNextColumnsForRow(TABLE, ROW, COLUMN, LIMIT);
+        executor.getTimestampsForRowAndColumn(TABLE, ROW, COLUMN, 10L, LIMIT);
+        executor.getColumnsForRow(TABLE, ROW, LIMIT + 1);
+
+        verify(client, times(4)).prepare_cql3_query(any(ByteBuffer.class), eq(Compression.NONE));
+        verify(client, times(5)).execute_prepared_cql3_query(
+                eq(QUERY_ID), anyListOf(ByteBuffer.class), eq(ConsistencyLevel.QUORUM));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bindsKeysAndTimestampsAsBinaryParameters() throws TException {
+        executor.getTimestampsForRowAndColumn(TABLE, ROW, COLUMN, 10L, LIMIT);
+
+        ArgumentCaptor<ByteBuffer> query = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(client).prepare_cql3_query(query.capture(), eq(Compression.NONE));
+        assertThat(StandardCharsets.UTF_8.decode(query.getValue()).toString())
+                .doesNotContain("0x")
+                .contains("key = ? AND column1 = ? AND column2 > ? LIMIT ?");
+
+        ArgumentCaptor<List> values = ArgumentCaptor.forClass(List.class);
+        verify(client).execute_prepared_cql3_query(eq(QUERY_ID), values.capture(), eq(ConsistencyLevel.QUORUM));
+        assertThat((List<ByteBuffer>) values.getValue()).containsExactly(
+                ByteBuffer.wrap(ROW),
+                ByteBuffer.wrap(COLUMN),
+                ByteBuffer.wrap(PtBytes.toBytes(~10L)),
+                ByteBuffer.wrap(Ints.toByteArray(LIMIT)));
+    }
+
+    @Test
+    public void rePreparesQueryWhenHostRejectsPreparedId() throws TException {
+        executor.getColumnsForRow(TABLE, ROW, LIMIT);
+        when(client.execute_prepared_cql3_query(anyInt(), anyListOf(ByteBuffer.class), eq(ConsistencyLevel.QUORUM)))
+                .thenThrow(new InvalidRequestException("Prepared query with ID 7 not found"))
+                .thenReturn(new CqlResult().setRows(ImmutableList.of()));
+
+        executor.getColumnsForRow(TABLE, ROW, LIMIT);
+
+        verify(client, times(2)).prepare_cql3_query(any(ByteBuffer.class), eq(Compression.NONE));
+        verify(client, times(3)).execute_prepared_cql3_query(
+                eq(QUERY_ID), anyListOf(ByteBuffer.class), eq(ConsistencyLevel.QUORUM));
+    }
+}
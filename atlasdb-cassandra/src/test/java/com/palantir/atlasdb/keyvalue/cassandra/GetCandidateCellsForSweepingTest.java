@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.GetCandidateCellsForSweepingShim;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.common.base.ClosableIterator;
+
+public class GetCandidateCellsForSweepingTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("test.candidates");
+    private static final long SWEEP_TIMESTAMP = 80L;
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+
+    @Before
+    public void setUp() {
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        Random random = new Random(0);
+        for (int row = 0; row < 40; row++) {
+            for (int col = 0; col < 3; col++) {
+                Cell cell = Cell.create(Ints.toByteArray(row), Ints.toByteArray(col));
+                if (random.nextInt(5) == 0) {
+                    kvs.addGarbageCollectionSentinelValues(TABLE, ImmutableSet.of(cell));
+                }
+                int numVersions = random.nextInt(4);
+                for (int version = 0; version < numVersions; version++) {
+                    long timestamp = 10L + random.nextInt(100);
+                    byte[] contents = random.nextInt(3) == 0 ? PtBytes.EMPTY_BYTE_ARRAY : new byte[] {1};
+                    kvs.put(TABLE, ImmutableMap.of(cell, contents), timestamp);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void returnsTheSameCandidatesAsTheShim() {
+        for (boolean thorough : new boolean[] {true, false}) {
+            for (int batchSizeHint : new int[] {1, 7, 1000}) {
+                for (long minUncommittedStartTimestamp : new long[] {0L, 50L, SWEEP_TIMESTAMP}) {
+                    CandidateCellForSweepingRequest request = ImmutableCandidateCellForSweepingRequest.builder()
+                            .startRowInclusive(PtBytes.EMPTY_BYTE_ARRAY)
+                            .batchSizeHint(batchSizeHint)
+                            .minUncommittedStartTimestamp(minUncommittedStartTimestamp)
+                            .sweepTimestamp(SWEEP_TIMESTAMP)
+                            .shouldCheckIfLatestValueIsEmpty(thorough)
+                            .timestampsToIgnore(thorough ? new long[0] : new long[] {Value.INVALID_VALUE_TIMESTAMP})
+                            .build();
+
+                    List<CandidateCellForSweeping> expected = getAll(
+                            new GetCandidateCellsForSweepingShim(kvs).getCandidateCellsForSweeping(TABLE, request));
+                    List<CandidateCellForSweeping> actual = getAll(
+                            new GetCandidateCellsForSweeping(kvs).getCandidateCellsForSweeping(TABLE, request));
+
+                    assertThat(expected).isNotEmpty();
+                    assertThat(actual).as("candidates for %s", request).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    private static List<CandidateCellForSweeping> getAll(ClosableIterator<List<CandidateCellForSweeping>> batches) {
+        List<CandidateCellForSweeping> candidates = Lists.newArrayList();
+        try (ClosableIterator<List<CandidateCellForSweeping>> iterator = batches) {
+            iterator.forEachRemaining(candidates::addAll);
+        }
+        return candidates;
+    }
+}
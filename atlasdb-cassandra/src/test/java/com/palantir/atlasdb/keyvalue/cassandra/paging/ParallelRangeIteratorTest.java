@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra.paging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+
+public class ParallelRangeIteratorTest {
+    private static final int BATCH_SIZE = 3;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void returnsRowsInKeyOrderWhenPreservingOrder() {
+        List<List<RowResult<Integer>>> scans = ImmutableList.of(rows(0, 10), rows(10, 11), rows(11, 30));
+
+        try (ParallelRangeIterator<Integer> iterator =
+                new ParallelRangeIterator<>(scans, executor, 2, BATCH_SIZE, true)) {
+            assertThat(rowKeys(iterator)).containsExactlyElementsOf(range(0, 30));
+        }
+    }
+
+    @Test
+    public void returnsAllRowsWhenNotPreservingOrder() {
+        List<List<RowResult<Integer>>> scans = ImmutableList.of(rows(0, 10), rows(10, 11), rows(11, 30));
+
+        try (ParallelRangeIterator<Integer> iterator =
+                new ParallelRangeIterator<>(scans, executor, 2, BATCH_SIZE, false)) {
+            assertThat(rowKeys(iterator)).containsOnlyElementsOf(range(0, 30)).hasSize(30);
+        }
+    }
+
+    @Test
+    public void returnsRowsFromLaterScansWhileEarlierScansAreBlockedWhenNotPreservingOrder() {
+        CountDownLatch firstScanMayProceed = new CountDownLatch(1);
+        Iterable<RowResult<Integer>> blockedScan = () -> {
+            Uninterruptibles.awaitUninterruptibly(firstScanMayProceed);
+            return rows(0, 1).iterator();
+        };
+        List<Iterable<RowResult<Integer>>> scans = ImmutableList.of(blockedScan, rows(1, 2));
+
+        try (ParallelRangeIterator<Integer> iterator =
+                new ParallelRangeIterator<>(scans, executor, 2, BATCH_SIZE, false)) {
+            assertThat(key(iterator.next())).isEqualTo(1);
+            firstScanMayProceed.countDown();
+            assertThat(key(iterator.next())).isEqualTo(0);
+            assertThat(iterator.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void runsAtMostParallelismScansAtOnce() {
+        int[] running = new int[1];
+        int[] maxRunning = new int[1];
+        List<Iterable<RowResult<Integer>>> scans = IntStream.range(0, 10)
+                .mapToObj(i -> (Iterable<RowResult<Integer>>) () -> {
+                    synchronized (running) {
+                        running[0]++;
+                        maxRunning[0] = Math.max(maxRunning[0], running[0]);
+                    }
+                    Uninterruptibles.sleepUninterruptibly(5, TimeUnit.MILLISECONDS);
+                    synchronized (running) {
+                        running[0]--;
+                    }
+                    return rows(i, i + 1).iterator();
+                })
+                .collect(Collectors.toList());
+
+        try (ParallelRangeIterator<Integer> iterator =
+                new ParallelRangeIterator<>(scans, executor, 3, BATCH_SIZE, true)) {
+            assertThat(rowKeys(iterator)).containsExactlyElementsOf(range(0, 10));
+        }
+        assertThat(maxRunning[0]).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    public void propagatesScanFailures() {
+        Iterable<RowResult<Integer>> failingScan = () -> {
+            throw new IllegalStateException("scan failed");
+        };
+        List<Iterable<RowResult<Integer>>> scans = ImmutableList.of(rows(0, 5), failingScan);
+
+        try (ParallelRangeIterator<Integer> iterator =
+                new ParallelRangeIterator<>(scans, executor, 2, BATCH_SIZE, true)) {
+            assertThatThrownBy(() -> Iterators.size(iterator))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("scan failed");
+        }
+    }
+
+    @Test
+    public void closingStopsScansBlockedOnAFullBuffer() throws InterruptedException {
+        Iterable<RowResult<Integer>> endlessScan = () -> Iterators.transform(
+                Iterators.cycle(0), i -> Iterables.getOnlyElement(rows(i, i + 1)));
+        ParallelRangeIterator<Integer> iterator =
+                new ParallelRangeIterator<>(ImmutableList.of(endlessScan), executor, 1, BATCH_SIZE, true);
+        assertThat(key(iterator.next())).isEqualTo(0);
+
+        iterator.close();
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static List<RowResult<Integer>> rows(int fromInclusive, int toExclusive) {
+        return range(fromInclusive, toExclusive).stream()
+                .map(i -> RowResult.create(Ints.toByteArray(i),
+                        ImmutableSortedMap.<byte[], Integer>orderedBy(UnsignedBytes.lexicographicalComparator())
+                                .put(new byte[] {0}, i)
+                                .build()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> range(int fromInclusive, int toExclusive) {
+        return IntStream.range(fromInclusive, toExclusive).boxed().collect(Collectors.toList());
+    }
+
+    private static List<Integer> rowKeys(ParallelRangeIterator<Integer> iterator) {
+        return Lists.newArrayList(Iterators.transform(iterator, ParallelRangeIteratorTest::key));
+    }
+
+    private static int key(RowResult<Integer> row) {
+        return Ints.fromByteArray(row.getRowName());
+    }
+}
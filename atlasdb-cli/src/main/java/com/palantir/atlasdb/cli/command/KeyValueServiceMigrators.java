@@ -81,7 +81,8 @@ public final class KeyValueServiceMigrators {
                         //
                     }
                 },
-                ImmutableSet.of());
+                ImmutableSet.of(),
+                migratorSpec.maxBytesPerSecond());
     }
 
     @VisibleForTesting
@@ -112,10 +113,17 @@ public final class KeyValueServiceMigrators {
             return 100;
         }
 
+        @Value.Default
+        public long maxBytesPerSecond() {
+            return KeyValueServiceMigrator.UNLIMITED_BYTES_PER_SECOND;
+        }
+
         @Value.Check
         void check() {
             Preconditions.checkArgument(threads() > 0, "Threads used for migration should be positive.");
             Preconditions.checkArgument(batchSize() > 0, "Batch size used for migration should be positive.");
+            Preconditions.checkArgument(maxBytesPerSecond() >= 0,
+                    "Maximum bytes per second used for migration should not be negative.");
         }
     }
 }
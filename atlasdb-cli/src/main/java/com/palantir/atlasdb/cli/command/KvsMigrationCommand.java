@@ -73,6 +73,14 @@ public class KvsMigrationCommand implements Callable<Integer> {
             arity = 1)
     private int batchSize = 100;
 
+    @Option(name = {"--maxBytesPerSecond"},
+            title = "MAX BYTES PER SECOND",
+            description = "approximate limit on the number of bytes copied per second, across all threads;"
+                    + " 0 (the default) means unlimited",
+            required = false,
+            arity = 1)
+    private long maxBytesPerSecond = KeyValueServiceMigrator.UNLIMITED_BYTES_PER_SECOND;
+
     @Option(name = {"-s", "--setup"},
             description = "Setup migration by dropping and creating tables.")
     private boolean setup = false;
@@ -174,6 +182,7 @@ public class KvsMigrationCommand implements Callable<Integer> {
                 .toServices(toServices)
                 .threads(threads)
                 .batchSize(batchSize)
+                .maxBytesPerSecond(maxBytesPerSecond)
                 .build());
     }
 }
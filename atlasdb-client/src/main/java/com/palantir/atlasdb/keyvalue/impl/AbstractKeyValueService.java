@@ -60,6 +60,7 @@ import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.logging.LoggingArgs;
+import com.palantir.atlasdb.util.PriorityLanesExecutorService;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.Maps2;
@@ -97,13 +98,14 @@ public abstract class AbstractKeyValueService implements KeyValueService {
     /**
      * @param threadNamePrefix thread name prefix
      * @param poolSize fixed thread pool size
-     * @return a new fixed size thread pool with a keep alive time of 1 minute.
+     * @return a new fixed size thread pool with a keep alive time of 1 minute, which schedules tasks in lanes by the
+     * {@link com.palantir.atlasdb.util.KvsCallPriority} of the thread that submitted them.
      */
     protected static ExecutorService createFixedThreadPool(String threadNamePrefix, int poolSize) {
         ThreadPoolExecutor executor = PTExecutors.newFixedThreadPool(poolSize,
                 new NamedThreadFactory(threadNamePrefix, false));
         executor.setKeepAliveTime(1, TimeUnit.MINUTES);
-        return Tracers.wrap(executor);
+        return Tracers.wrap(PriorityLanesExecutorService.create(executor, poolSize));
     }
 
     @Override
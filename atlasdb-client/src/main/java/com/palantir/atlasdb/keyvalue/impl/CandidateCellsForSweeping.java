@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.Value;
+
+/**
+ * Decides which cells are worth sweeping, for the key value services that compute sweep candidates themselves.
+ */
+public final class CandidateCellsForSweeping {
+    private static final long[] EMPTY_LONG_ARRAY = new long[0];
+
+    private CandidateCellsForSweeping() {
+        // utility
+    }
+
+    /**
+     * Returns the sweep candidate for a cell with the given timestamps, which must be sorted and exclude the
+     * timestamps the request asks to ignore. The timestamps are left out if the cell has nothing to sweep.
+     */
+    public static CandidateCellForSweeping create(
+            Cell cell,
+            long[] sortedTimestamps,
+            boolean latestValueEmpty,
+            long numCellTsPairsExamined,
+            CandidateCellForSweepingRequest request) {
+        boolean candidate = isCandidate(sortedTimestamps, latestValueEmpty, request);
+        return ImmutableCandidateCellForSweeping.builder()
+                .cell(cell)
+                .sortedTimestamps(candidate ? sortedTimestamps : EMPTY_LONG_ARRAY)
+                .isLatestValueEmpty(latestValueEmpty)
+                .numCellsTsPairsExamined(numCellTsPairsExamined)
+                .build();
+    }
+
+    private static boolean isCandidate(long[] timestamps,
+                                       boolean lastValEmpty,
+                                       CandidateCellForSweepingRequest request) {
+        return timestamps.length > 1
+            || (request.shouldCheckIfLatestValueIsEmpty() && lastValEmpty)
+            || (timestamps.length == 1 && timestampIsPotentiallySweepable(timestamps[0], request));
+    }
+
+    private static boolean timestampIsPotentiallySweepable(long ts, CandidateCellForSweepingRequest request) {
+        return ts == Value.INVALID_VALUE_TIMESTAMP || ts >= request.minUncommittedStartTimestamp();
+    }
+}
@@ -0,0 +1,791 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
+import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetException;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ClusterAvailabilityStatus;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.annotation.Output;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.remoting2.tracing.Tracers;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * In-memory (non-durable) key-value store that keeps each table as a list of immutable {@link SortedCellChunk}s.
+ * <p>
+ * Compared to {@link InMemoryKeyValueService}, cells are stored in flat primitive arrays rather than as one boxed key
+ * per version, and lookups are binary searches over those arrays. Writes to a table are serialized and replace the
+ * affected chunks copy-on-write, publishing a new chunk list with a single volatile write; reads never lock and
+ * always see a consistent snapshot of the table, including range iterators, which keep reading the snapshot that was
+ * current when they were created.
+ * <p>
+ * Intended for testing use only.
+ */
+@ThreadSafe
+public class ChunkedInMemoryKeyValueService extends AbstractKeyValueService {
+    @VisibleForTesting
+    static final int DEFAULT_MAX_CHUNK_SIZE = 512;
+
+    private static final Comparator<byte[]> UNSIGNED_BYTES = UnsignedBytes.lexicographicalComparator();
+
+    private final ConcurrentMap<TableReference, Table> tables = Maps.newConcurrentMap();
+    private final ConcurrentMap<TableReference, byte[]> tableMetadata = Maps.newConcurrentMap();
+    private final int maxChunkSize;
+    private volatile boolean createTablesAutomatically;
+
+    public ChunkedInMemoryKeyValueService(boolean createTablesAutomatically) {
+        this(createTablesAutomatically,
+                Tracers.wrap(PTExecutors.newFixedThreadPool(16, PTExecutors.newNamedThreadFactory(true))));
+    }
+
+    public ChunkedInMemoryKeyValueService(boolean createTablesAutomatically,
+                                          ExecutorService executor) {
+        this(createTablesAutomatically, executor, DEFAULT_MAX_CHUNK_SIZE);
+    }
+
+    @VisibleForTesting
+    ChunkedInMemoryKeyValueService(boolean createTablesAutomatically,
+                                   ExecutorService executor,
+                                   int maxChunkSize) {
+        super(executor);
+        Preconditions.checkArgument(maxChunkSize >= 2, "maxChunkSize must be at least 2, but was %s", maxChunkSize);
+        this.createTablesAutomatically = createTablesAutomatically;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection, long timestamp) {
+        SortedCellChunk[] chunks = getTable(tableRef).chunks;
+        Map<Cell, Value> result = Maps.newHashMap();
+        for (byte[] row : rows) {
+            Cursor cursor = Cursor.ceiling(chunks, row, ArrayUtils.EMPTY_BYTE_ARRAY, Long.MIN_VALUE);
+            while (cursor.isValid() && cursor.rowEquals(row)) {
+                byte[] col = cursor.column();
+                if (columnSelection.contains(col)) {
+                    getLatestVersionOfCell(cursor, row, col, timestamp, result);
+                }
+                cursor.skipCell(row, col);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        SortedCellChunk[] chunks = getTable(tableRef).chunks;
+        Map<Cell, Value> result = Maps.newHashMap();
+        for (Map.Entry<Cell, Long> e : timestampByCell.entrySet()) {
+            Cell cell = e.getKey();
+            Cursor cursor = Cursor.ceiling(chunks, cell.getRowName(), cell.getColumnName(), e.getValue());
+            cursor.previous();
+            if (cursor.isValid() && cursor.cellEquals(cell.getRowName(), cell.getColumnName())) {
+                result.put(cell, Value.createWithCopyOfData(cursor.value(), cursor.timestamp()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        return KeyValueServices.getFirstBatchForRangesUsingGetRange(this, tableRef, rangeRequests, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(
+            TableReference tableRef,
+            RangeRequest range,
+            long timestamp) {
+        return getRangeInternal(tableRef, range,
+                (cursor, row, col) -> latestVersionOfCell(cursor, row, col, timestamp));
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(
+            TableReference tableRef,
+            RangeRequest range,
+            long timestamp) {
+        return getRangeInternal(tableRef, range, (cursor, row, col) -> {
+            Set<Long> timestamps = null;
+            while (cursor.isValid() && cursor.cellEquals(row, col) && cursor.timestamp() < timestamp) {
+                if (timestamps == null) {
+                    timestamps = new TreeSet<>();
+                }
+                timestamps.add(cursor.timestamp());
+                cursor.next();
+            }
+            return timestamps;
+        });
+    }
+
+    @Override
+    public ClosableIterator<List<CandidateCellForSweeping>> getCandidateCellsForSweeping(TableReference tableRef,
+            CandidateCellForSweepingRequest request) {
+        return new GetCandidateCellsForSweepingShim(this).getCandidateCellsForSweeping(tableRef, request);
+    }
+
+    private <T> ClosableIterator<RowResult<T>> getRangeInternal(TableReference tableRef,
+                                                                RangeRequest range,
+                                                                ResultProducer<T> resultProducer) {
+        SortedCellChunk[] chunks = getTable(tableRef).chunks;
+        byte[] start = range.getStartInclusive();
+        byte[] end = range.getEndExclusive();
+        if (range.isReverse()) {
+            Cursor initial = start.length == 0
+                    ? Cursor.last(chunks)
+                    : Cursor.lastRowAtOrBefore(chunks, start);
+            return ClosableIterators.wrap(new AbstractIterator<RowResult<T>>() {
+                private Cursor cursor = initial;
+
+                @Override
+                protected RowResult<T> computeNext() {
+                    while (cursor.isValid()) {
+                        byte[] row = cursor.row();
+                        if (end.length != 0 && UNSIGNED_BYTES.compare(row, end) <= 0) {
+                            break;
+                        }
+                        Cursor rowCursor = Cursor.ceiling(chunks, row, ArrayUtils.EMPTY_BYTE_ARRAY, Long.MIN_VALUE);
+                        cursor = rowCursor.copy();
+                        cursor.previous();
+                        RowResult<T> result = readRow(rowCursor, row, range, resultProducer);
+                        if (result != null) {
+                            return result;
+                        }
+                    }
+                    return endOfData();
+                }
+            });
+        }
+        Cursor initial = Cursor.ceiling(chunks, start, ArrayUtils.EMPTY_BYTE_ARRAY, Long.MIN_VALUE);
+        return ClosableIterators.wrap(new AbstractIterator<RowResult<T>>() {
+            private final Cursor cursor = initial;
+
+            @Override
+            protected RowResult<T> computeNext() {
+                while (cursor.isValid()) {
+                    byte[] row = cursor.row();
+                    if (end.length != 0 && UNSIGNED_BYTES.compare(row, end) >= 0) {
+                        break;
+                    }
+                    RowResult<T> result = readRow(cursor, row, range, resultProducer);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                return endOfData();
+            }
+        });
+    }
+
+    /**
+     * Reads every cell of the row the cursor is positioned at, leaving the cursor at the start of the next row.
+     * Returns null if no cell of the row produced a result.
+     */
+    @Nullable
+    private static <T> RowResult<T> readRow(Cursor cursor,
+                                            byte[] row,
+                                            RangeRequest range,
+                                            ResultProducer<T> resultProducer) {
+        ImmutableSortedMap.Builder<byte[], T> columns = ImmutableSortedMap.orderedBy(UNSIGNED_BYTES);
+        boolean empty = true;
+        while (cursor.isValid() && cursor.rowEquals(row)) {
+            byte[] col = cursor.column();
+            if (range.containsColumn(col)) {
+                T result = resultProducer.apply(cursor, row, col);
+                if (result != null) {
+                    columns.put(col, result);
+                    empty = false;
+                }
+            }
+            cursor.skipCell(row, col);
+        }
+        return empty ? null : RowResult.create(row, columns.build());
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        SortedCellChunk[] chunks = getTable(tableRef).chunks;
+        ColumnRangeSelection columnRangeSelection = new ColumnRangeSelection(
+                batchColumnRangeSelection.getStartCol(),
+                batchColumnRangeSelection.getEndCol());
+        Map<byte[], RowColumnRangeIterator> result = Maps.newHashMap();
+        for (byte[] row : rows) {
+            result.put(row, getColumnRangeForSingleRow(chunks, row, columnRangeSelection, timestamp));
+        }
+        return result;
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef,
+                                                     Iterable<byte[]> rows,
+                                                     ColumnRangeSelection columnRangeSelection,
+                                                     int cellBatchHint,
+                                                     long timestamp) {
+        SortedCellChunk[] chunks = getTable(tableRef).chunks;
+        Iterator<RowColumnRangeIterator> rowColumnRanges =
+                Iterators.transform(rows.iterator(),
+                        row -> getColumnRangeForSingleRow(chunks, row, columnRangeSelection, timestamp));
+        return new LocalRowColumnRangeIterator(Iterators.concat(rowColumnRanges));
+    }
+
+    private static RowColumnRangeIterator getColumnRangeForSingleRow(SortedCellChunk[] chunks,
+                                                                     byte[] row,
+                                                                     ColumnRangeSelection columnRangeSelection,
+                                                                     long timestamp) {
+        Map<Cell, Value> rowResults = new LinkedHashMap<>();
+        byte[] endCol = columnRangeSelection.getEndCol();
+        Cursor cursor = Cursor.ceiling(chunks, row, columnRangeSelection.getStartCol(), Long.MIN_VALUE);
+        while (cursor.isValid() && cursor.rowEquals(row)) {
+            byte[] col = cursor.column();
+            if (endCol.length != 0 && UNSIGNED_BYTES.compare(col, endCol) >= 0) {
+                break;
+            }
+            getLatestVersionOfCell(cursor, row, col, timestamp, rowResults);
+            cursor.skipCell(row, col);
+        }
+        return new LocalRowColumnRangeIterator(rowResults.entrySet().iterator());
+    }
+
+    private static void getLatestVersionOfCell(Cursor cursor, byte[] row, byte[] col, long timestamp,
+                                               @Output Map<Cell, Value> result) {
+        Value latest = latestVersionOfCell(cursor, row, col, timestamp);
+        if (latest != null) {
+            result.put(Cell.create(row, col), latest);
+        }
+    }
+
+    @Nullable
+    private static Value latestVersionOfCell(Cursor cursor, byte[] row, byte[] col, long timestamp) {
+        byte[] latestContents = null;
+        long latestTimestamp = 0L;
+        while (cursor.isValid() && cursor.cellEquals(row, col) && cursor.timestamp() < timestamp) {
+            latestContents = cursor.value();
+            latestTimestamp = cursor.timestamp();
+            cursor.next();
+        }
+        return latestContents == null ? null : Value.createWithCopyOfData(latestContents, latestTimestamp);
+    }
+
+    private interface ResultProducer<T> {
+        /**
+         * Consumes some prefix of the versions of the given cell, starting at the cursor.
+         */
+        @Nullable T apply(Cursor cursor, byte[] row, byte[] col);
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        putInternal(tableRef, KeyValueServices.toConstantTimestampValues(values.entrySet(), timestamp), false);
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        putInternal(tableRef, values.entries(), false);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values)
+            throws KeyAlreadyExistsException {
+        putInternal(tableRef,
+                KeyValueServices.toConstantTimestampValues(values.entrySet(), AtlasDbConstants.TRANSACTION_TS),
+                true);
+    }
+
+    private void putInternal(
+            TableReference tableRef,
+            Collection<Map.Entry<Cell, Value>> values,
+            boolean doNotOverwriteWithSameValue) {
+        List<Write> writes = new ArrayList<>(values.size());
+        for (Map.Entry<Cell, Value> e : values) {
+            writes.add(Write.put(e.getKey(), e.getValue().getTimestamp(), copyOf(e.getValue().getContents())));
+        }
+        writes.sort(Write.KEY_ORDER);
+
+        Table table = getTable(tableRef);
+        synchronized (table) {
+            SortedCellChunk[] chunks = table.chunks;
+            Write previous = null;
+            for (Write write : writes) {
+                byte[] existing = previous != null && previous.sameKey(write)
+                        ? previous.value
+                        : table.lookup(chunks, write);
+                if (existing != null && (doNotOverwriteWithSameValue || !Arrays.equals(existing, write.value))) {
+                    throw new KeyAlreadyExistsException("We already have a value for this timestamp");
+                }
+                previous = write;
+            }
+            table.apply(chunks, writes);
+        }
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest request) throws CheckAndSetException {
+        TableReference tableRef = request.table();
+        Table table = getTable(tableRef);
+        Cell cell = request.cell();
+        Optional<byte[]> oldValue = request.oldValue();
+        Write write = Write.put(cell, AtlasDbConstants.TRANSACTION_TS, copyOf(request.newValue()));
+
+        synchronized (table) {
+            SortedCellChunk[] chunks = table.chunks;
+            byte[] storedValue = table.lookup(chunks, write);
+            if (oldValue.isPresent()) {
+                if (!Arrays.equals(storedValue, oldValue.get())) {
+                    throwCheckAndSetException(cell, tableRef, oldValue.get(), storedValue);
+                }
+            } else if (storedValue != null) {
+                throwCheckAndSetException(cell, tableRef, null, storedValue);
+            }
+            table.apply(chunks, ImmutableList.of(write));
+        }
+    }
+
+    private void throwCheckAndSetException(Cell cell, TableReference tableRef, byte[] expected, byte[] actual) {
+        ImmutableList<byte[]> actuals = actual == null ? ImmutableList.of() : ImmutableList.of(copyOf(actual));
+        throw new CheckAndSetException(cell, tableRef, expected, actuals);
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        List<Write> writes = new ArrayList<>(keys.size());
+        for (Map.Entry<Cell, Long> e : keys.entries()) {
+            writes.add(Write.delete(e.getKey(), e.getValue()));
+        }
+        writes.sort(Write.KEY_ORDER);
+
+        Table table = getTable(tableRef);
+        synchronized (table) {
+            table.apply(table.chunks, writes);
+        }
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long ts) {
+        SortedCellChunk[] chunks = getTable(tableRef).chunks;
+        Multimap<Cell, Long> multimap = HashMultimap.create();
+        for (Cell cell : cells) {
+            byte[] row = cell.getRowName();
+            byte[] col = cell.getColumnName();
+            Cursor cursor = Cursor.ceiling(chunks, row, col, Long.MIN_VALUE);
+            while (cursor.isValid() && cursor.cellEquals(row, col) && cursor.timestamp() < ts) {
+                multimap.put(cell, cursor.timestamp());
+                cursor.next();
+            }
+        }
+        return multimap;
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Iterable<Cell> cells) {
+        List<Write> writes = new ArrayList<>();
+        for (Cell cell : cells) {
+            writes.add(Write.put(cell, Value.INVALID_VALUE_TIMESTAMP, ArrayUtils.EMPTY_BYTE_ARRAY));
+        }
+        writes.sort(Write.KEY_ORDER);
+
+        Table table = getTable(tableRef);
+        synchronized (table) {
+            table.apply(table.chunks, writes);
+        }
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        tables.remove(tableRef);
+        tableMetadata.remove(tableRef);
+    }
+
+    @Override
+    public void truncateTable(TableReference tableRef) {
+        Table table = tables.get(tableRef);
+        if (table != null) {
+            synchronized (table) {
+                table.chunks = new SortedCellChunk[0];
+            }
+        } else {
+            throw new IllegalStateException(
+                    String.format("Truncate called on a table (%s) that did not exist", tableRef));
+        }
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] metadata) {
+        tables.putIfAbsent(tableRef, new Table(maxChunkSize));
+        putMetadataForTable(tableRef, metadata);
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        if (!tables.containsKey(tableRef)) {
+            throw new IllegalArgumentException("No such table " + tableRef);
+        }
+        tableMetadata.put(tableRef, metadata);
+    }
+
+    @Override
+    public byte[] getMetadataForTable(TableReference tableRef) {
+        if (!tables.containsKey(tableRef)) {
+            return AtlasDbConstants.EMPTY_TABLE_METADATA;
+        }
+        byte[] ret = tableMetadata.get(tableRef);
+        return ret == null ? ArrayUtils.EMPTY_BYTE_ARRAY : ret;
+    }
+
+    @Override
+    public Set<TableReference> getAllTableNames() {
+        return ImmutableSet.copyOf(tables.keySet());
+    }
+
+    @Override
+    public void compactInternally(TableReference tableRef) {
+        // nothing to do
+    }
+
+    @Override
+    public ClusterAvailabilityStatus getClusterAvailabilityStatus() {
+        return ClusterAvailabilityStatus.ALL_AVAILABLE;
+    }
+
+    private static byte[] copyOf(byte[] contents) {
+        return Arrays.copyOf(contents, contents.length);
+    }
+
+    private Table getTable(TableReference tableRef) {
+        if (createTablesAutomatically && !tables.containsKey(tableRef)) {
+            createTable(tableRef, AtlasDbConstants.EMPTY_TABLE_METADATA);
+        }
+        Table table = tables.get(tableRef);
+        if (table == null) {
+            throw new IllegalArgumentException("table " + tableRef.getQualifiedName() + " does not exist");
+        }
+        return table;
+    }
+
+    /**
+     * A table is an ordered array of non-empty chunks whose key ranges do not overlap. The array is never modified
+     * once published; writers build a replacement while holding the table's monitor.
+     */
+    private static final class Table {
+        private final int maxChunkSize;
+
+        // Only written while holding the table's monitor.
+        private volatile SortedCellChunk[] chunks = new SortedCellChunk[0];
+
+        Table(int maxChunkSize) {
+            this.maxChunkSize = maxChunkSize;
+        }
+
+        @Nullable
+        byte[] lookup(SortedCellChunk[] snapshot, Write write) {
+            Cursor cursor = Cursor.ceiling(snapshot, write.row, write.col, write.timestamp);
+            if (cursor.isValid() && cursor.compare(write.row, write.col, write.timestamp) == 0) {
+                return cursor.value();
+            }
+            return null;
+        }
+
+        /**
+         * Merges the sorted writes into the given snapshot, which must be the current one, and publishes the result.
+         * Only chunks that receive at least one write are rebuilt.
+         */
+        void apply(SortedCellChunk[] snapshot, List<Write> writes) {
+            if (writes.isEmpty()) {
+                return;
+            }
+            writes = withoutDuplicateKeys(writes);
+            List<SortedCellChunk> result = new ArrayList<>(snapshot.length + 1);
+            int from = 0;
+            if (snapshot.length == 0) {
+                merge(SortedCellChunk.EMPTY, writes, result);
+            }
+            for (int c = 0; c < snapshot.length; c++) {
+                int to = writes.size();
+                if (c + 1 < snapshot.length) {
+                    to = from;
+                    while (to < writes.size() && writes.get(to).compareTo(snapshot[c + 1], 0) < 0) {
+                        to++;
+                    }
+                }
+                if (to == from) {
+                    result.add(snapshot[c]);
+                } else {
+                    merge(snapshot[c], writes.subList(from, to), result);
+                    from = to;
+                }
+            }
+            chunks = result.toArray(new SortedCellChunk[result.size()]);
+        }
+
+        /**
+         * Keeps only the last of any run of writes to the same key.
+         */
+        private static List<Write> withoutDuplicateKeys(List<Write> writes) {
+            List<Write> result = new ArrayList<>(writes.size());
+            for (int i = 0; i < writes.size(); i++) {
+                if (i + 1 == writes.size() || !writes.get(i).sameKey(writes.get(i + 1))) {
+                    result.add(writes.get(i));
+                }
+            }
+            return result;
+        }
+
+        private void merge(SortedCellChunk chunk, List<Write> writes, @Output List<SortedCellChunk> result) {
+            SortedCellChunk.Builder builder = new SortedCellChunk.Builder(chunk.size() + writes.size());
+            int index = 0;
+            for (Write write : writes) {
+                while (index < chunk.size() && write.compareTo(chunk, index) > 0) {
+                    builder.add(chunk, index++);
+                }
+                if (index < chunk.size() && write.compareTo(chunk, index) == 0) {
+                    index++;
+                }
+                if (write.value != null) {
+                    builder.add(write.row, write.col, write.timestamp, write.value);
+                }
+            }
+            while (index < chunk.size()) {
+                builder.add(chunk, index++);
+            }
+
+            int size = builder.size();
+            if (size <= maxChunkSize) {
+                if (size > 0) {
+                    result.add(builder.build());
+                }
+                return;
+            }
+            // Split into half-full chunks so that subsequent writes to the same range do not split again at once.
+            int pieces = (size + maxChunkSize / 2 - 1) / (maxChunkSize / 2);
+            for (int i = 0; i < pieces; i++) {
+                result.add(builder.build(size * i / pieces, size * (i + 1) / pieces));
+            }
+        }
+    }
+
+    /**
+     * A pending put, or a delete if {@code value} is null.
+     */
+    private static final class Write {
+        static final Comparator<Write> KEY_ORDER = (first, second) -> {
+            int comparison = UNSIGNED_BYTES.compare(first.row, second.row);
+            if (comparison != 0) {
+                return comparison;
+            }
+            comparison = UNSIGNED_BYTES.compare(first.col, second.col);
+            if (comparison != 0) {
+                return comparison;
+            }
+            return Longs.compare(first.timestamp, second.timestamp);
+        };
+
+        private final byte[] row;
+        private final byte[] col;
+        private final long timestamp;
+        @Nullable private final byte[] value;
+
+        private Write(byte[] row, byte[] col, long timestamp, @Nullable byte[] value) {
+            this.row = row;
+            this.col = col;
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        static Write put(Cell cell, long timestamp, byte[] value) {
+            return new Write(cell.getRowName(), cell.getColumnName(), timestamp, value);
+        }
+
+        static Write delete(Cell cell, long timestamp) {
+            return new Write(cell.getRowName(), cell.getColumnName(), timestamp, null);
+        }
+
+        boolean sameKey(Write other) {
+            return KEY_ORDER.compare(this, other) == 0;
+        }
+
+        int compareTo(SortedCellChunk chunk, int index) {
+            return -chunk.compare(index, row, col, timestamp);
+        }
+    }
+
+    /**
+     * A position within a snapshot of a table's chunks. Positions before the first entry or after the last entry are
+     * invalid.
+     */
+    private static final class Cursor {
+        private final SortedCellChunk[] chunks;
+        private int chunk;
+        private int index;
+
+        private Cursor(SortedCellChunk[] chunks, int chunk, int index) {
+            this.chunks = chunks;
+            this.chunk = chunk;
+            this.index = index;
+        }
+
+        /**
+         * Positions a cursor at the first entry at or after the given key.
+         */
+        static Cursor ceiling(SortedCellChunk[] chunks, byte[] row, byte[] col, long timestamp) {
+            int low = 0;
+            int high = chunks.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                SortedCellChunk candidate = chunks[mid];
+                if (candidate.compare(candidate.size() - 1, row, col, timestamp) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == chunks.length) {
+                return new Cursor(chunks, chunks.length, 0);
+            }
+            return new Cursor(chunks, low, chunks[low].ceiling(row, col, timestamp));
+        }
+
+        /**
+         * Positions a cursor at the last entry whose row sorts at or before the given row.
+         */
+        static Cursor lastRowAtOrBefore(SortedCellChunk[] chunks, byte[] row) {
+            // Appending a zero byte gives the smallest row name that sorts strictly after the given row.
+            Cursor cursor = ceiling(chunks, Arrays.copyOf(row, row.length + 1), ArrayUtils.EMPTY_BYTE_ARRAY,
+                    Long.MIN_VALUE);
+            cursor.previous();
+            return cursor;
+        }
+
+        static Cursor last(SortedCellChunk[] chunks) {
+            if (chunks.length == 0) {
+                return new Cursor(chunks, -1, 0);
+            }
+            return new Cursor(chunks, chunks.length - 1, chunks[chunks.length - 1].size() - 1);
+        }
+
+        Cursor copy() {
+            return new Cursor(chunks, chunk, index);
+        }
+
+        boolean isValid() {
+            return chunk >= 0 && chunk < chunks.length;
+        }
+
+        void next() {
+            index++;
+            if (index == chunks[chunk].size()) {
+                chunk++;
+                index = 0;
+            }
+        }
+
+        void previous() {
+            if (chunk == chunks.length || index == 0) {
+                chunk--;
+                index = chunk >= 0 ? chunks[chunk].size() - 1 : 0;
+            } else {
+                index--;
+            }
+        }
+
+        /**
+         * Moves past all remaining versions of the given cell.
+         */
+        void skipCell(byte[] row, byte[] col) {
+            while (isValid() && cellEquals(row, col)) {
+                next();
+            }
+        }
+
+        byte[] row() {
+            return chunks[chunk].row(index);
+        }
+
+        byte[] column() {
+            return chunks[chunk].column(index);
+        }
+
+        long timestamp() {
+            return chunks[chunk].timestamp(index);
+        }
+
+        byte[] value() {
+            return chunks[chunk].value(index);
+        }
+
+        boolean rowEquals(byte[] row) {
+            return chunks[chunk].rowEquals(index, row);
+        }
+
+        boolean cellEquals(byte[] row, byte[] col) {
+            return chunks[chunk].cellEquals(index, row, col);
+        }
+
+        int compare(byte[] row, byte[] col, long timestamp) {
+            return chunks[chunk].compare(index, row, col, timestamp);
+        }
+    }
+}
@@ -38,7 +38,6 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweeping;
 import com.palantir.atlasdb.keyvalue.api.CandidateCellForSweepingRequest;
 import com.palantir.atlasdb.keyvalue.api.Cell;
-import com.palantir.atlasdb.keyvalue.api.ImmutableCandidateCellForSweeping;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -82,13 +81,8 @@ public class GetCandidateCellsForSweepingShim {
                         Cell cell = Cell.create(rr.getRowName(), colName);
                         boolean latestValEmpty = isLatestValueEmpty(cell, peekingValues);
                         numExamined.add(timestampArr.length);
-                        boolean candidate = isCandidate(timestampArr, latestValEmpty, request);
-                        candidateBatch.add(ImmutableCandidateCellForSweeping.builder()
-                                .cell(cell)
-                                .sortedTimestamps(candidate ? timestampArr : EMPTY_LONG_ARRAY)
-                                .isLatestValueEmpty(latestValEmpty)
-                                .numCellsTsPairsExamined(numExamined.longValue())
-                                .build());
+                        candidateBatch.add(CandidateCellsForSweeping.create(
+                                cell, timestampArr, latestValEmpty, numExamined.longValue(), request));
                     }
                 }
                 return candidateBatch;
@@ -109,18 +103,6 @@ public class GetCandidateCellsForSweepingShim {
         return closer;
     }
 
-    private static boolean isCandidate(long[] timestamps,
-                                       boolean lastValEmpty,
-                                       CandidateCellForSweepingRequest request) {
-        return timestamps.length > 1
-            || (request.shouldCheckIfLatestValueIsEmpty() && lastValEmpty)
-            || (timestamps.length == 1 && timestampIsPotentiallySweepable(timestamps[0], request));
-    }
-
-    private static boolean timestampIsPotentiallySweepable(long ts, CandidateCellForSweepingRequest request) {
-        return ts == Value.INVALID_VALUE_TIMESTAMP || ts >= request.minUncommittedStartTimestamp();
-    }
-
     private ClosableIterator<RowResult<Value>> getValues(TableReference tableRef,
                                                          RangeRequest range,
                                                          long sweepTs,
@@ -174,6 +156,4 @@ public class GetCandidateCellsForSweepingShim {
             }
         }
     }
-
-    private static final long[] EMPTY_LONG_ARRAY = new long[0];
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+
+/**
+ * An immutable, sorted run of (row, column, timestamp) -> value entries.
+ * <p>
+ * Row and column names of all entries are packed back to back into a single byte arena, and entry boundaries and
+ * timestamps are kept in primitive arrays, so a chunk costs a handful of objects regardless of how many entries
+ * it holds. Entries are ordered by unsigned lexicographic row, then column, then signed timestamp, which matches
+ * the ordering used by {@link InMemoryKeyValueService}.
+ */
+@Immutable
+final class SortedCellChunk {
+    static final SortedCellChunk EMPTY = new Builder(0).build();
+
+    private final byte[] arena;
+    private final int[] rowEnds;
+    private final int[] keyEnds;
+    private final long[] timestamps;
+    private final byte[][] values;
+
+    private SortedCellChunk(byte[] arena, int[] rowEnds, int[] keyEnds, long[] timestamps, byte[][] values) {
+        this.arena = arena;
+        this.rowEnds = rowEnds;
+        this.keyEnds = keyEnds;
+        this.timestamps = timestamps;
+        this.values = values;
+    }
+
+    int size() {
+        return timestamps.length;
+    }
+
+    byte[] row(int index) {
+        return Arrays.copyOfRange(arena, keyStart(index), rowEnds[index]);
+    }
+
+    byte[] column(int index) {
+        return Arrays.copyOfRange(arena, rowEnds[index], keyEnds[index]);
+    }
+
+    long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * Returns the stored value without copying; callers must not modify it.
+     */
+    byte[] value(int index) {
+        return values[index];
+    }
+
+    boolean rowEquals(int index, byte[] row) {
+        return compareSlices(arena, keyStart(index), rowEnds[index], row, 0, row.length) == 0;
+    }
+
+    boolean cellEquals(int index, byte[] row, byte[] col) {
+        return rowEquals(index, row)
+                && compareSlices(arena, rowEnds[index], keyEnds[index], col, 0, col.length) == 0;
+    }
+
+    int compareRow(int index, byte[] row) {
+        return compareSlices(arena, keyStart(index), rowEnds[index], row, 0, row.length);
+    }
+
+    int compareColumn(int index, byte[] col) {
+        return compareSlices(arena, rowEnds[index], keyEnds[index], col, 0, col.length);
+    }
+
+    /**
+     * Compares the entry at the given index with the given key, returning a negative number, zero or a positive
+     * number as the entry sorts before, equal to or after the key.
+     */
+    int compare(int index, byte[] row, byte[] col, long timestamp) {
+        int comparison = compareRow(index, row);
+        if (comparison != 0) {
+            return comparison;
+        }
+        comparison = compareColumn(index, col);
+        if (comparison != 0) {
+            return comparison;
+        }
+        return Longs.compare(timestamps[index], timestamp);
+    }
+
+    /**
+     * Returns the index of the first entry that sorts at or after the given key, or {@link #size()} if there is none.
+     */
+    int ceiling(byte[] row, byte[] col, long timestamp) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, row, col, timestamp) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int keyStart(int index) {
+        return index == 0 ? 0 : keyEnds[index - 1];
+    }
+
+    static int compareSlices(byte[] left, int leftFrom, int leftTo, byte[] right, int rightFrom, int rightTo) {
+        int leftLength = leftTo - leftFrom;
+        int rightLength = rightTo - rightFrom;
+        int minLength = Math.min(leftLength, rightLength);
+        for (int i = 0; i < minLength; i++) {
+            int comparison = (left[leftFrom + i] & 0xff) - (right[rightFrom + i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return leftLength - rightLength;
+    }
+
+    /**
+     * Accumulates entries, which must be appended in sorted order, into one or more chunks.
+     */
+    static final class Builder {
+        private byte[] arena;
+        private int arenaSize;
+        private int[] rowEnds;
+        private int[] keyEnds;
+        private long[] timestamps;
+        private byte[][] values;
+        private int size;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            this.arena = new byte[capacity * 16];
+            this.rowEnds = new int[capacity];
+            this.keyEnds = new int[capacity];
+            this.timestamps = new long[capacity];
+            this.values = new byte[capacity][];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(SortedCellChunk chunk, int index) {
+            int keyStart = chunk.keyStart(index);
+            int rowLength = chunk.rowEnds[index] - keyStart;
+            int keyLength = chunk.keyEnds[index] - keyStart;
+            ensureCapacity(keyLength);
+            System.arraycopy(chunk.arena, keyStart, arena, arenaSize, keyLength);
+            appendEntry(rowLength, keyLength, chunk.timestamps[index], chunk.values[index]);
+        }
+
+        void add(byte[] row, byte[] col, long timestamp, byte[] value) {
+            ensureCapacity(row.length + col.length);
+            System.arraycopy(row, 0, arena, arenaSize, row.length);
+            System.arraycopy(col, 0, arena, arenaSize + row.length, col.length);
+            appendEntry(row.length, row.length + col.length, timestamp, value);
+        }
+
+        private void appendEntry(int rowLength, int keyLength, long timestamp, byte[] value) {
+            rowEnds[size] = arenaSize + rowLength;
+            arenaSize += keyLength;
+            keyEnds[size] = arenaSize;
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+
+        private void ensureCapacity(int keyLength) {
+            if (size == timestamps.length) {
+                int newCapacity = timestamps.length * 2;
+                rowEnds = Arrays.copyOf(rowEnds, newCapacity);
+                keyEnds = Arrays.copyOf(keyEnds, newCapacity);
+                timestamps = Arrays.copyOf(timestamps, newCapacity);
+                values = Arrays.copyOf(values, newCapacity);
+            }
+            if (arenaSize + keyLength > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + keyLength));
+            }
+        }
+
+        SortedCellChunk build() {
+            return build(0, size);
+        }
+
+        /**
+         * Builds the entries in [from, to) into a chunk whose arrays are sized exactly to its contents.
+         */
+        SortedCellChunk build(int from, int to) {
+            Preconditions.checkArgument(0 <= from && from <= to && to <= size, "Invalid range [%s, %s)", from, to);
+            int arenaFrom = from == 0 ? 0 : keyEnds[from - 1];
+            int arenaTo = to == 0 ? 0 : keyEnds[to - 1];
+            int[] newRowEnds = new int[to - from];
+            int[] newKeyEnds = new int[to - from];
+            for (int i = from; i < to; i++) {
+                newRowEnds[i - from] = rowEnds[i] - arenaFrom;
+                newKeyEnds[i - from] = keyEnds[i] - arenaFrom;
+            }
+            return new SortedCellChunk(
+                    Arrays.copyOfRange(arena, arenaFrom, arenaTo),
+                    newRowEnds,
+                    newKeyEnds,
+                    Arrays.copyOfRange(timestamps, from, to),
+                    Arrays.copyOfRange(values, from, to));
+        }
+    }
+}
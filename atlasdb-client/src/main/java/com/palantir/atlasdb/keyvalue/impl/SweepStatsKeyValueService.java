@@ -21,9 +21,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -34,13 +35,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Collections2;
-import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -75,11 +73,13 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
 
     private final KeyValueService delegate;
     private final TimestampService timestampService;
-    private final Multiset<TableReference> writesByTable = ConcurrentHashMultiset.create();
+    // Writes are counted in striped counters, which are only summed when the stats are flushed, so that
+    // concurrent writers to the same table do not contend on a single counter.
+    private final ConcurrentMap<TableReference, WriteCounters> writesByTable = new ConcurrentHashMap<>();
 
     private final Set<TableReference> clearedTables = Collections.newSetFromMap(new ConcurrentHashMap<TableReference, Boolean>());
 
-    private final AtomicInteger totalModifications = new AtomicInteger();
+    private final LongAdder totalModifications = new LongAdder();
     private final Lock flushLock = new ReentrantLock();
     private final ScheduledExecutorService flushExecutor = PTExecutors.newSingleThreadScheduledExecutor();
 
@@ -103,7 +103,7 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     @Override
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
         delegate().put(tableRef, values, timestamp);
-        writesByTable.add(tableRef, values.size());
+        recordWrites(tableRef, values.size(), getBytes(values));
         recordModifications(values.size());
     }
 
@@ -112,7 +112,7 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
         delegate().multiPut(valuesByTable, timestamp);
         int newWrites = 0;
         for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
-            writesByTable.add(entry.getKey(), entry.getValue().size());
+            recordWrites(entry.getKey(), entry.getValue().size(), getBytes(entry.getValue()));
             newWrites += entry.getValue().size();
         }
         recordModifications(newWrites);
@@ -121,7 +121,11 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     @Override
     public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> cellValues) {
         delegate().putWithTimestamps(tableRef, cellValues);
-        writesByTable.add(tableRef, cellValues.size());
+        long bytes = 0;
+        for (Entry<Cell, Value> entry : cellValues.entries()) {
+            bytes += getBytes(entry.getKey(), entry.getValue().getContents());
+        }
+        recordWrites(tableRef, cellValues.size(), bytes);
         recordModifications(cellValues.size());
     }
 
@@ -175,7 +179,28 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     // all updates are flushed. It is intended only to be "good enough" for
     // determining what tables have been written to a lot.
     private void recordModifications(int newWrites) {
-        totalModifications.addAndGet(newWrites);
+        totalModifications.add(newWrites);
+    }
+
+    private void recordWrites(TableReference tableRef, int cells, long bytes) {
+        WriteCounters counters = writesByTable.get(tableRef);
+        if (counters == null) {
+            counters = writesByTable.computeIfAbsent(tableRef, unused -> new WriteCounters());
+        }
+        counters.cells.add(cells);
+        counters.bytes.add(bytes);
+    }
+
+    private static long getBytes(Map<Cell, byte[]> values) {
+        long bytes = 0;
+        for (Entry<Cell, byte[]> entry : values.entrySet()) {
+            bytes += getBytes(entry.getKey(), entry.getValue());
+        }
+        return bytes;
+    }
+
+    private static long getBytes(Cell cell, byte[] value) {
+        return cell.getRowName().length + cell.getColumnName().length + value.length;
     }
 
     private void recordClear(TableReference tableRef) {
@@ -188,13 +213,12 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
             @Override
             public void run() {
                 try {
-                    if (totalModifications.get() >= WRITE_THRESHOLD && flushLock.tryLock()) {
+                    if (totalModifications.sum() >= WRITE_THRESHOLD && flushLock.tryLock()) {
                         try {
-                            if (totalModifications.get() >= WRITE_THRESHOLD) {
+                            if (totalModifications.sum() >= WRITE_THRESHOLD) {
                                 // snapshot current values while holding the lock and flush
-                                totalModifications.set(0);
-                                Multiset<TableReference> localWritesByTable = ImmutableMultiset.copyOf(writesByTable);
-                                writesByTable.clear();
+                                totalModifications.reset();
+                                Map<TableReference, WriteCounts> localWritesByTable = snapshotAndResetWrites();
                                 Set<TableReference> localClearedTables = ImmutableSet.copyOf(clearedTables);
                                 clearedTables.clear();
 
@@ -214,36 +238,56 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
         };
     }
 
-    private void flushWrites(Multiset<TableReference> writes, Set<TableReference> clears) {
+    private Map<TableReference, WriteCounts> snapshotAndResetWrites() {
+        ImmutableMap.Builder<TableReference, WriteCounts> snapshot = ImmutableMap.builder();
+        for (Entry<TableReference, WriteCounters> entry : writesByTable.entrySet()) {
+            long cells = entry.getValue().cells.sumThenReset();
+            long bytes = entry.getValue().bytes.sumThenReset();
+            if (cells > 0) {
+                snapshot.put(entry.getKey(), new WriteCounts(cells, bytes));
+            }
+        }
+        return snapshot.build();
+    }
+
+    private void flushWrites(Map<TableReference, WriteCounts> writes, Set<TableReference> clears) {
         if (writes.isEmpty() && clears.isEmpty()) {
             log.debug("No writes to flush");
             return;
         }
 
-        log.debug("Flushing stats for {} writes and {} clears",
+        log.debug("Flushing stats for writes to {} tables and {} clears",
                 writes.size(), clears.size());
         log.trace("Flushing writes: {}", writes);
         log.trace("Flushing clears: {}", clears);
         try {
-            Set<TableReference> tableNames = Sets.difference(writes.elementSet(), clears);
+            Set<TableReference> tableNames = Sets.difference(writes.keySet(), clears);
             Collection<byte[]> rows = Collections2.transform(
                     Collections2.transform(tableNames, t -> t.getQualifiedName()),
                     Functions.compose(Persistables.persistToBytesFunction(), SweepPriorityRow.fromFullTableNameFun()));
             Map<Cell, Value> oldWriteCounts = delegate().getRows(SWEEP_PRIORITY_TABLE, rows,
-                    SweepPriorityTable.getColumnSelection(SweepPriorityNamedColumn.WRITE_COUNT), Long.MAX_VALUE);
-            Map<Cell, byte[]> newWriteCounts = Maps.newHashMapWithExpectedSize(writes.elementSet().size());
-            byte[] col = SweepPriorityNamedColumn.WRITE_COUNT.getShortName();
+                    SweepPriorityTable.getColumnSelection(
+                            SweepPriorityNamedColumn.WRITE_COUNT,
+                            SweepPriorityNamedColumn.WRITE_BYTES),
+                    Long.MAX_VALUE);
+            Map<Cell, byte[]> newWriteCounts = Maps.newHashMapWithExpectedSize(2 * writes.size());
+            byte[] countCol = SweepPriorityNamedColumn.WRITE_COUNT.getShortName();
+            byte[] bytesCol = SweepPriorityNamedColumn.WRITE_BYTES.getShortName();
             for (TableReference tableRef : tableNames) {
                 Preconditions.checkState(!tableRef.getQualifiedName().startsWith(AtlasDbConstants.NAMESPACE_PREFIX),
                         "The sweep stats kvs should wrap the namespace mapping kvs, not the other way around.");
                 byte[] row = SweepPriorityRow.of(tableRef.getQualifiedName()).persistToBytes();
-                Cell cell = Cell.create(row, col);
-                Value oldValue = oldWriteCounts.get(cell);
-                long oldCount = oldValue == null || oldValue.getContents().length == 0 ? 0 :
-                    SweepPriorityTable.WriteCount.BYTES_HYDRATOR.hydrateFromBytes(oldValue.getContents()).getValue();
-                long newValue = clears.contains(tableRef) ? writes.count(tableRef) : oldCount + writes.count(tableRef);
-                log.debug("Sweep priority for {} has {} writes (was {})", tableRef, newValue, oldCount);
-                newWriteCounts.put(cell, SweepPriorityTable.WriteCount.of(newValue).persistValue());
+                WriteCounts newWrites = writes.get(tableRef);
+                Cell countCell = Cell.create(row, countCol);
+                long oldCount = getOldValue(oldWriteCounts.get(countCell));
+                long newCount = clears.contains(tableRef) ? newWrites.cells : oldCount + newWrites.cells;
+                Cell bytesCell = Cell.create(row, bytesCol);
+                long oldBytes = getOldValue(oldWriteCounts.get(bytesCell));
+                long newBytes = clears.contains(tableRef) ? newWrites.bytes : oldBytes + newWrites.bytes;
+                log.debug("Sweep priority for {} has {} writes of {} bytes (was {} writes of {} bytes)",
+                        tableRef, newCount, newBytes, oldCount, oldBytes);
+                newWriteCounts.put(countCell, SweepPriorityTable.WriteCount.of(newCount).persistValue());
+                newWriteCounts.put(bytesCell, SweepPriorityTable.WriteBytes.of(newBytes).persistValue());
             }
             long timestamp = timestampService.getFreshTimestamp();
 
@@ -267,6 +311,12 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
         }
     }
 
+    private static long getOldValue(Value oldValue) {
+        // WRITE_COUNT and WRITE_BYTES are both unsigned var longs
+        return oldValue == null || oldValue.getContents().length == 0 ? 0 :
+            SweepPriorityTable.WriteCount.BYTES_HYDRATOR.hydrateFromBytes(oldValue.getContents()).getValue();
+    }
+
     private void commit(long timestamp) {
         Cell cell = Cell.create(
                 TransactionConstants.getValueForTimestamp(timestamp),
@@ -274,4 +324,24 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
         byte[] value = TransactionConstants.getValueForTimestamp(timestamp);
         delegate().putUnlessExists(TransactionConstants.TRANSACTION_TABLE, ImmutableMap.of(cell, value));
     }
+
+    private static final class WriteCounters {
+        final LongAdder cells = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    private static final class WriteCounts {
+        final long cells;
+        final long bytes;
+
+        WriteCounts(long cells, long bytes) {
+            this.cells = cells;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return cells + " cells of " + bytes + " bytes";
+        }
+    }
 }
@@ -0,0 +1,671 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.mpierce.metrics.reservoir.hdrhistogram.HdrHistogramReservoir;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CheckAndSetRequest;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.util.HeavyHitters;
+import com.palantir.atlasdb.util.MetricsManager;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ForwardingClosableIterator;
+import com.palantir.util.JMXUtils;
+import com.palantir.util.paging.TokenBackedBasicResultsPage;
+
+/**
+ * Keeps per-table, per-operation histograms of latency, cells and bytes for a sample of key value service calls,
+ * along with an estimate of the most frequently accessed rows of each table.
+ * <p>
+ * Each call is measured with the probability given by the sample rate, which is read on every call so that it can be
+ * changed at runtime; at a sample rate of zero, calls are passed straight through. Histograms are registered with the
+ * AtlasDB metric registry, and a dump of all statistics is available over JMX. Range scans are recorded when their
+ * iterator is closed, and column range scans, whose iterators cannot be closed, once all of their iterators are
+ * exhausted; their latency is the total time spent fetching from the delegate.
+ * <p>
+ * Statistics are shared by all open instances in the JVM, so that they record into the same registered metrics,
+ * and the metrics are deregistered when the last open instance is closed. Each instance registers its own MBean.
+ */
+@ThreadSafe
+public final class TableMetricsKeyValueService extends ForwardingKeyValueService
+        implements TableMetricsKeyValueServiceMBean {
+    private static final String OBJECT_NAME_PREFIX = "com.palantir.atlasdb:type=TableMetricsKeyValueService,id=";
+    private static final int MAX_HOT_ROWS = 10;
+    private static final int HOT_ROWS_SKETCH_WIDTH = 1024;
+    private static final int HOT_ROWS_STRIPES = 16;
+
+    private static final AtomicInteger nextInstanceId = new AtomicInteger();
+    @GuardedBy("TableMetricsKeyValueService.class")
+    private static SharedMetrics openSharedMetrics;
+
+    private final KeyValueService delegate;
+    private final DoubleSupplier sampleRate;
+    private final String objectName;
+    private final SharedMetrics sharedMetrics;
+    private final ConcurrentMap<TableReference, TableMetrics> metricsByTable;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private TableMetricsKeyValueService(KeyValueService delegate, DoubleSupplier sampleRate) {
+        this.delegate = delegate;
+        this.sampleRate = sampleRate;
+        this.objectName = OBJECT_NAME_PREFIX + nextInstanceId.incrementAndGet();
+        this.sharedMetrics = acquireSharedMetrics();
+        this.metricsByTable = sharedMetrics.metricsByTable;
+    }
+
+    /**
+     * Wraps the given key value service, measuring each call with the probability returned by the given supplier.
+     */
+    public static TableMetricsKeyValueService create(KeyValueService delegate, DoubleSupplier sampleRate) {
+        TableMetricsKeyValueService kvs = new TableMetricsKeyValueService(delegate, sampleRate);
+        JMXUtils.registerMBeanCatchAndLogExceptions(kvs, kvs.objectName);
+        return kvs;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        if (!shouldSample()) {
+            return super.get(tableRef, timestampByCell);
+        }
+        long start = System.nanoTime();
+        Map<Cell, Value> result = super.get(tableRef, timestampByCell);
+        TableMetrics metrics = getTableMetrics(tableRef);
+        metrics.getOperation("get").record(start, result.size(), getValueBytes(result));
+        timestampByCell.keySet().forEach(cell -> metrics.hotRows.add(cell.getRowName()));
+        return result;
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp) {
+        if (!shouldSample()) {
+            return super.getRows(tableRef, rows, columnSelection, timestamp);
+        }
+        long start = System.nanoTime();
+        Map<Cell, Value> result = super.getRows(tableRef, rows, columnSelection, timestamp);
+        TableMetrics metrics = getTableMetrics(tableRef);
+        metrics.getOperation("getRows").record(start, result.size(), getValueBytes(result));
+        rows.forEach(metrics.hotRows::add);
+        return result;
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef, RangeRequest rangeRequest,
+                                                       long timestamp) {
+        if (!shouldSample()) {
+            return super.getRange(tableRef, rangeRequest, timestamp);
+        }
+        long start = System.nanoTime();
+        ClosableIterator<RowResult<Value>> iterator = super.getRange(tableRef, rangeRequest, timestamp);
+        return new RecordingRangeIterator<>(new RangeRecorder(getTableMetrics(tableRef), "getRange", 1),
+                iterator, System.nanoTime() - start, TableMetricsKeyValueService::getValueBytes);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
+                                                                      RangeRequest rangeRequest,
+                                                                      long timestamp) {
+        if (!shouldSample()) {
+            return super.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+        }
+        long start = System.nanoTime();
+        ClosableIterator<RowResult<Set<Long>>> iterator = super.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+        return new RecordingRangeIterator<>(new RangeRecorder(getTableMetrics(tableRef), "getRangeOfTimestamps", 1),
+                iterator, System.nanoTime() - start, TableMetricsKeyValueService::getTimestampBytes);
+    }
+
+    @Override
+    public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
+            TableReference tableRef,
+            Iterable<RangeRequest> rangeRequests,
+            long timestamp) {
+        if (!shouldSample()) {
+            return super.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+        }
+        long start = System.nanoTime();
+        Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> result =
+                super.getFirstBatchForRanges(tableRef, rangeRequests, timestamp);
+        TableMetrics metrics = getTableMetrics(tableRef);
+        long cells = 0;
+        long bytes = 0;
+        for (TokenBackedBasicResultsPage<RowResult<Value>, byte[]> page : result.values()) {
+            for (RowResult<Value> rowResult : page.getResults()) {
+                cells += rowResult.getColumns().size();
+                bytes += getValueBytes(rowResult);
+                metrics.hotRows.add(rowResult.getRowName());
+            }
+        }
+        metrics.getOperation("getFirstBatchForRanges").record(start, cells, bytes);
+        return result;
+    }
+
+    @Override
+    public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(TableReference tableRef,
+                                                                  Iterable<byte[]> rows,
+                                                                  BatchColumnRangeSelection batchColumnRangeSelection,
+                                                                  long timestamp) {
+        if (!shouldSample()) {
+            return super.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+        }
+        long start = System.nanoTime();
+        Map<byte[], RowColumnRangeIterator> result =
+                super.getRowsColumnRange(tableRef, rows, batchColumnRangeSelection, timestamp);
+        TableMetrics metrics = getTableMetrics(tableRef);
+        rows.forEach(metrics.hotRows::add);
+        if (result.isEmpty()) {
+            metrics.getOperation("getRowsColumnRange").record(start, 0, 0);
+            return result;
+        }
+        RangeRecorder recorder = new RangeRecorder(metrics, "getRowsColumnRange", result.size());
+        recorder.addElapsed(System.nanoTime() - start);
+        Map<byte[], RowColumnRangeIterator> recordingResult = Maps.newHashMapWithExpectedSize(result.size());
+        result.forEach((row, iterator) ->
+                recordingResult.put(row, new RecordingRowColumnRangeIterator(recorder, iterator)));
+        return recordingResult;
+    }
+
+    @Override
+    public RowColumnRangeIterator getRowsColumnRange(TableReference tableRef,
+                                                     Iterable<byte[]> rows,
+                                                     ColumnRangeSelection columnRangeSelection,
+                                                     int cellBatchHint,
+                                                     long timestamp) {
+        if (!shouldSample()) {
+            return super.getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+        }
+        long start = System.nanoTime();
+        RowColumnRangeIterator iterator =
+                super.getRowsColumnRange(tableRef, rows, columnRangeSelection, cellBatchHint, timestamp);
+        TableMetrics metrics = getTableMetrics(tableRef);
+        rows.forEach(metrics.hotRows::add);
+        RangeRecorder recorder = new RangeRecorder(metrics, "getRowsColumnRange", 1);
+        recorder.addElapsed(System.nanoTime() - start);
+        return new RecordingRowColumnRangeIterator(recorder, iterator);
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        if (!shouldSample()) {
+            super.put(tableRef, values, timestamp);
+            return;
+        }
+        long start = System.nanoTime();
+        super.put(tableRef, values, timestamp);
+        recordWrite(tableRef, "put", start, values);
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        if (!shouldSample()) {
+            super.multiPut(valuesByTable, timestamp);
+            return;
+        }
+        long start = System.nanoTime();
+        super.multiPut(valuesByTable, timestamp);
+        valuesByTable.forEach((tableRef, values) -> recordWrite(tableRef, "multiPut", start, values));
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        if (!shouldSample()) {
+            super.putWithTimestamps(tableRef, values);
+            return;
+        }
+        long start = System.nanoTime();
+        super.putWithTimestamps(tableRef, values);
+        TableMetrics metrics = getTableMetrics(tableRef);
+        long bytes = 0;
+        for (Map.Entry<Cell, Value> entry : values.entries()) {
+            bytes += getCellBytes(entry.getKey()) + entry.getValue().getContents().length;
+            metrics.hotRows.add(entry.getKey().getRowName());
+        }
+        metrics.getOperation("putWithTimestamps").record(start, values.size(), bytes);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        if (!shouldSample()) {
+            super.putUnlessExists(tableRef, values);
+            return;
+        }
+        long start = System.nanoTime();
+        super.putUnlessExists(tableRef, values);
+        recordWrite(tableRef, "putUnlessExists", start, values);
+    }
+
+    @Override
+    public void checkAndSet(CheckAndSetRequest request) {
+        if (!shouldSample()) {
+            super.checkAndSet(request);
+            return;
+        }
+        long start = System.nanoTime();
+        super.checkAndSet(request);
+        TableMetrics metrics = getTableMetrics(request.table());
+        metrics.getOperation("checkAndSet").record(start, 1, getCellBytes(request.cell()) + request.newValue().length);
+        metrics.hotRows.add(request.cell().getRowName());
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        if (!shouldSample()) {
+            super.delete(tableRef, keys);
+            return;
+        }
+        long start = System.nanoTime();
+        super.delete(tableRef, keys);
+        TableMetrics metrics = getTableMetrics(tableRef);
+        long bytes = 0;
+        for (Cell cell : keys.keySet()) {
+            bytes += getCellBytes(cell);
+            metrics.hotRows.add(cell.getRowName());
+        }
+        metrics.getOperation("delete").record(start, keys.size(), bytes);
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            JMXUtils.unregisterMBeanCatchAndLogExceptions(objectName);
+            releaseSharedMetrics(sharedMetrics);
+        }
+        super.close();
+    }
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate.getAsDouble();
+    }
+
+    @Override
+    public String getStatsDump() {
+        StringWriter stringWriter = new StringWriter();
+        try (PrintWriter writer = new PrintWriter(stringWriter)) {
+            dumpStats(writer);
+        }
+        return stringWriter.toString();
+    }
+
+    @Override
+    public void resetStats() {
+        for (TableMetrics metrics : metricsByTable.values()) {
+            metrics.hotRows.reset();
+            metrics.metricsByOperation.values().forEach(OperationMetrics::reset);
+        }
+    }
+
+    private static synchronized SharedMetrics acquireSharedMetrics() {
+        if (openSharedMetrics == null) {
+            openSharedMetrics = new SharedMetrics();
+        }
+        openSharedMetrics.openInstances++;
+        return openSharedMetrics;
+    }
+
+    private static synchronized void releaseSharedMetrics(SharedMetrics metrics) {
+        metrics.openInstances--;
+        if (metrics.openInstances == 0) {
+            metrics.metricsManager.deregisterMetrics();
+            openSharedMetrics = null;
+        }
+    }
+
+    public void dumpStats(PrintWriter writer) {
+        String headerFmt = "|| %-30s || %-18s || %10s || %12s || %12s || %12s || %12s || %12s ||%n";
+        String rowFmt =    "|  %-30s |  %-18s |  %10s |  %12s |  %12s |  %12s |  %12s |  %12s |%n";
+        writer.printf(headerFmt, "table", "operation", "samples", "p50_micros", "p99_micros", "max_micros",
+                "mean_cells", "mean_bytes");
+        Map<TableReference, TableMetrics> sortedMetrics = ImmutableSortedMap.copyOf(metricsByTable);
+        for (Map.Entry<TableReference, TableMetrics> tableEntry : sortedMetrics.entrySet()) {
+            Map<String, OperationMetrics> sortedOperations =
+                    ImmutableSortedMap.copyOf(tableEntry.getValue().metricsByOperation);
+            for (Map.Entry<String, OperationMetrics> operationEntry : sortedOperations.entrySet()) {
+                Snapshot latency = operationEntry.getValue().latencyMicros.getSnapshot();
+                writer.printf(
+                        rowFmt,
+                        tableEntry.getKey().getQualifiedName(),
+                        operationEntry.getKey(),
+                        latency.size(),
+                        (long) latency.getMedian(),
+                        (long) latency.get99thPercentile(),
+                        latency.getMax(),
+                        (long) operationEntry.getValue().cells.getSnapshot().getMean(),
+                        (long) operationEntry.getValue().bytes.getSnapshot().getMean());
+            }
+        }
+        for (Map.Entry<TableReference, TableMetrics> tableEntry : sortedMetrics.entrySet()) {
+            writer.printf("%nHot rows of %s:%n", tableEntry.getKey().getQualifiedName());
+            for (String hotRow : tableEntry.getValue().getHotRows()) {
+                writer.printf("  %s%n", hotRow);
+            }
+        }
+    }
+
+    private boolean shouldSample() {
+        double rate = sampleRate.getAsDouble();
+        return rate > 0.0 && (rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private void recordWrite(TableReference tableRef, String operation, long start, Map<Cell, byte[]> values) {
+        TableMetrics metrics = getTableMetrics(tableRef);
+        long bytes = 0;
+        for (Map.Entry<Cell, byte[]> entry : values.entrySet()) {
+            bytes += getCellBytes(entry.getKey()) + entry.getValue().length;
+            metrics.hotRows.add(entry.getKey().getRowName());
+        }
+        metrics.getOperation(operation).record(start, values.size(), bytes);
+    }
+
+    private TableMetrics getTableMetrics(TableReference tableRef) {
+        TableMetrics metrics = metricsByTable.get(tableRef);
+        if (metrics != null) {
+            return metrics;
+        }
+        return metricsByTable.computeIfAbsent(tableRef, this::registerTableMetrics);
+    }
+
+    private TableMetrics registerTableMetrics(TableReference tableRef) {
+        MetricsManager metricsManager = sharedMetrics.metricsManager;
+        TableMetrics metrics = new TableMetrics(metricsManager, tableRef);
+        metricsManager.registerMetric(TableMetricsKeyValueService.class, "hotRows", tableRef.getQualifiedName(),
+                (Gauge<?>) metrics::getHotRows);
+        return metrics;
+    }
+
+    private static long getValueBytes(Map<Cell, Value> result) {
+        long bytes = 0;
+        for (Map.Entry<Cell, Value> entry : result.entrySet()) {
+            bytes += getCellBytes(entry.getKey()) + entry.getValue().getContents().length;
+        }
+        return bytes;
+    }
+
+    private static long getValueBytes(RowResult<Value> rowResult) {
+        long bytes = 0;
+        for (Map.Entry<byte[], Value> column : rowResult.getColumns().entrySet()) {
+            bytes += rowResult.getRowName().length + column.getKey().length + column.getValue().getContents().length;
+        }
+        return bytes;
+    }
+
+    private static long getTimestampBytes(RowResult<Set<Long>> rowResult) {
+        long bytes = 0;
+        for (Map.Entry<byte[], Set<Long>> column : rowResult.getColumns().entrySet()) {
+            bytes += rowResult.getRowName().length + column.getKey().length + Long.BYTES * column.getValue().size();
+        }
+        return bytes;
+    }
+
+    private static long getCellBytes(Cell cell) {
+        return cell.getRowName().length + cell.getColumnName().length;
+    }
+
+    private static final class SharedMetrics {
+        private final MetricsManager metricsManager = new MetricsManager();
+        private final ConcurrentMap<TableReference, TableMetrics> metricsByTable = Maps.newConcurrentMap();
+        @GuardedBy("TableMetricsKeyValueService.class")
+        private int openInstances = 0;
+    }
+
+    private static final class TableMetrics {
+        private final MetricsManager metricsManager;
+        private final TableReference tableRef;
+        private final HeavyHitters hotRows = new HeavyHitters(MAX_HOT_ROWS, HOT_ROWS_SKETCH_WIDTH, HOT_ROWS_STRIPES);
+        private final ConcurrentMap<String, OperationMetrics> metricsByOperation = Maps.newConcurrentMap();
+
+        TableMetrics(MetricsManager metricsManager, TableReference tableRef) {
+            this.metricsManager = metricsManager;
+            this.tableRef = tableRef;
+        }
+
+        OperationMetrics getOperation(String operation) {
+            OperationMetrics metrics = metricsByOperation.get(operation);
+            if (metrics != null) {
+                return metrics;
+            }
+            return metricsByOperation.computeIfAbsent(operation, this::registerOperationMetrics);
+        }
+
+        private OperationMetrics registerOperationMetrics(String operation) {
+            OperationMetrics metrics = new OperationMetrics();
+            registerHistogram(operation, "latencyMicros", metrics.latencyMicros);
+            registerHistogram(operation, "cells", metrics.cells);
+            registerHistogram(operation, "bytes", metrics.bytes);
+            return metrics;
+        }
+
+        private void registerHistogram(String operation, String name, Histogram histogram) {
+            metricsManager.registerMetric(TableMetricsKeyValueService.class, operation,
+                    name + "." + tableRef.getQualifiedName(), histogram);
+        }
+
+        List<String> getHotRows() {
+            return hotRows.getHeavyHitters().stream()
+                    .map(entry -> PtBytes.encodeHexString(entry.getKey()) + "=" + entry.getValue())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static final class OperationMetrics {
+        private final ResettableReservoir latencyReservoir = new ResettableReservoir();
+        private final ResettableReservoir cellsReservoir = new ResettableReservoir();
+        private final ResettableReservoir bytesReservoir = new ResettableReservoir();
+        private final Histogram latencyMicros = new Histogram(latencyReservoir);
+        private final Histogram cells = new Histogram(cellsReservoir);
+        private final Histogram bytes = new Histogram(bytesReservoir);
+
+        void record(long startNanos, long numCells, long numBytes) {
+            recordElapsed(System.nanoTime() - startNanos, numCells, numBytes);
+        }
+
+        void recordElapsed(long elapsedNanos, long numCells, long numBytes) {
+            latencyMicros.update(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+            cells.update(numCells);
+            bytes.update(numBytes);
+        }
+
+        void reset() {
+            latencyReservoir.reset();
+            cellsReservoir.reset();
+            bytesReservoir.reset();
+        }
+    }
+
+    /**
+     * An {@link HdrHistogramReservoir} that can be swapped for an empty one, so that stats can be reset without
+     * re-registering the histograms that read from it.
+     */
+    private static final class ResettableReservoir implements Reservoir {
+        private final AtomicReference<Reservoir> delegate = new AtomicReference<>(new HdrHistogramReservoir());
+
+        @Override
+        public int size() {
+            return delegate.get().size();
+        }
+
+        @Override
+        public void update(long value) {
+            delegate.get().update(value);
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return delegate.get().getSnapshot();
+        }
+
+        void reset() {
+            delegate.set(new HdrHistogramReservoir());
+        }
+    }
+
+    /**
+     * Accumulates the cost of a scan across one or more iterators, and records it once all of them have finished.
+     */
+    private static final class RangeRecorder {
+        private final TableMetrics metrics;
+        private final String operation;
+        private int unfinishedIterators;
+        private long elapsedNanos;
+        private long numCells;
+        private long numBytes;
+
+        RangeRecorder(TableMetrics metrics, String operation, int iterators) {
+            this.metrics = metrics;
+            this.operation = operation;
+            this.unfinishedIterators = iterators;
+        }
+
+        synchronized void addElapsed(long nanos) {
+            elapsedNanos += nanos;
+        }
+
+        synchronized void addCells(long cells, long bytes) {
+            numCells += cells;
+            numBytes += bytes;
+        }
+
+        synchronized void iteratorFinished() {
+            unfinishedIterators--;
+            if (unfinishedIterators == 0) {
+                metrics.getOperation(operation).recordElapsed(elapsedNanos, numCells, numBytes);
+            }
+        }
+    }
+
+    private static final class RecordingRangeIterator<T> extends ForwardingClosableIterator<RowResult<T>> {
+        private final RangeRecorder recorder;
+        private final ClosableIterator<RowResult<T>> delegate;
+        private final ToLongFunction<RowResult<T>> bytesOfRow;
+        private boolean finished;
+
+        RecordingRangeIterator(RangeRecorder recorder,
+                               ClosableIterator<RowResult<T>> delegate,
+                               long elapsedNanos,
+                               ToLongFunction<RowResult<T>> bytesOfRow) {
+            this.recorder = recorder;
+            this.delegate = delegate;
+            this.bytesOfRow = bytesOfRow;
+            recorder.addElapsed(elapsedNanos);
+        }
+
+        @Override
+        protected ClosableIterator<RowResult<T>> delegate() {
+            return delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext = super.hasNext();
+            recorder.addElapsed(System.nanoTime() - start);
+            return hasNext;
+        }
+
+        @Override
+        public RowResult<T> next() {
+            long start = System.nanoTime();
+            RowResult<T> next = super.next();
+            recorder.addElapsed(System.nanoTime() - start);
+            recorder.metrics.hotRows.add(next.getRowName());
+            recorder.addCells(next.getColumns().size(), bytesOfRow.applyAsLong(next));
+            return next;
+        }
+
+        @Override
+        public void close() {
+            super.close();
+            if (!finished) {
+                finished = true;
+                recorder.iteratorFinished();
+            }
+        }
+    }
+
+    private static final class RecordingRowColumnRangeIterator implements RowColumnRangeIterator {
+        private final RangeRecorder recorder;
+        private final RowColumnRangeIterator delegate;
+        private boolean finished;
+
+        RecordingRowColumnRangeIterator(RangeRecorder recorder, RowColumnRangeIterator delegate) {
+            this.recorder = recorder;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext = delegate.hasNext();
+            recorder.addElapsed(System.nanoTime() - start);
+            if (!hasNext && !finished) {
+                finished = true;
+                recorder.iteratorFinished();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Map.Entry<Cell, Value> next() {
+            long start = System.nanoTime();
+            Map.Entry<Cell, Value> next = delegate.next();
+            recorder.addElapsed(System.nanoTime() - start);
+            recorder.addCells(1, getCellBytes(next.getKey()) + next.getValue().getContents().length);
+            return next;
+        }
+    }
+}
@@ -16,16 +16,20 @@
 package com.palantir.atlasdb.schema;
 
 import java.util.Map;
+import java.util.Optional;
 
 import org.apache.commons.lang.mutable.MutableLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Meter;
 import com.google.common.base.Function;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.io.BaseEncoding;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.RateLimiter;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -38,6 +42,7 @@ import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.util.MetricsManager;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.AbortingVisitor;
 import com.palantir.common.base.AbortingVisitors;
@@ -58,6 +63,11 @@ public class KvsRangeMigrator implements RangeMigrator {
     private final long migrationTimestamp;
     private final AbstractTaskCheckpointer checkpointer;
     private final Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform;
+    private final Optional<RateLimiter> bytesRateLimiter;
+
+    private final MetricsManager metricsManager = new MetricsManager();
+    private final Meter bytesMigrated = metricsManager.registerMeter(KvsRangeMigrator.class, null, "bytesMigrated");
+    private final Meter cellsMigrated = metricsManager.registerMeter(KvsRangeMigrator.class, null, "cellsMigrated");
 
     KvsRangeMigrator(TableReference srcTable,
                      TableReference destTable,
@@ -67,7 +77,8 @@ public class KvsRangeMigrator implements RangeMigrator {
                      KeyValueService writeKvs,
                      long migrationTimestamp,
                      AbstractTaskCheckpointer checkpointer,
-                     Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform) {
+                     Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform,
+                     Optional<RateLimiter> bytesRateLimiter) {
         this.srcTable = srcTable;
         this.destTable = destTable;
         this.readBatchSize = readBatchSize;
@@ -77,13 +88,16 @@ public class KvsRangeMigrator implements RangeMigrator {
         this.migrationTimestamp = migrationTimestamp;
         this.checkpointer = checkpointer;
         this.rowTransform = rowTransform;
+        this.bytesRateLimiter = bytesRateLimiter;
     }
 
     @Override
     public void migrateRange(RangeRequest range, long rangeId) {
         byte[] lastRow;
         do {
-            lastRow = copyOneTransaction(range, rangeId);
+            MutableLong bytesCopied = new MutableLong(0L);
+            lastRow = copyOneTransaction(range, rangeId, bytesCopied);
+            throttle(bytesCopied.longValue());
         } while (!isRangeDone(lastRow));
     }
 
@@ -91,27 +105,30 @@ public class KvsRangeMigrator implements RangeMigrator {
         return row == null || RangeRequests.isLastRowName(row);
     }
 
-    private byte[] copyOneTransaction(final RangeRequest range, final long rangeId) {
+    private byte[] copyOneTransaction(final RangeRequest range,
+                                      final long rangeId,
+                                      @Output final MutableLong bytesCopied) {
         return txManager.runTaskWithRetry(new TransactionTask<byte[], RuntimeException>() {
             @Override
             public byte[] execute(final Transaction writeT) {
-                return copyOneTransactionFromReadTxManager(range, rangeId, writeT);
+                return copyOneTransactionFromReadTxManager(range, rangeId, writeT, bytesCopied);
             }
         });
     }
 
     private byte[] copyOneTransactionFromReadTxManager(final RangeRequest range,
                                                        final long rangeId,
-                                                       final Transaction writeT) {
+                                                       final Transaction writeT,
+                                                       @Output final MutableLong bytesCopied) {
         if (readTxManager == txManager) {
             // don't wrap
-            return copyOneTransactionInternal(range, rangeId, writeT, writeT);
+            return copyOneTransactionInternal(range, rangeId, writeT, writeT, bytesCopied);
         } else {
             // read only, but need to use a write tx in case the source table has SweepStrategy.THOROUGH
             return readTxManager.runTaskWithRetry(new TransactionTask<byte[], RuntimeException>() {
                 @Override
                 public byte[] execute(Transaction readT) {
-                    return copyOneTransactionInternal(range, rangeId, readT, writeT);
+                    return copyOneTransactionInternal(range, rangeId, readT, writeT, bytesCopied);
                 }
             });
         }
@@ -120,7 +137,8 @@ public class KvsRangeMigrator implements RangeMigrator {
     private byte[] copyOneTransactionInternal(RangeRequest range,
                                               long rangeId,
                                               Transaction readT,
-                                              Transaction writeT) {
+                                              Transaction writeT,
+                                              @Output MutableLong bytesCopied) {
         final long maxBytes = TransactionConstants.WARN_LEVEL_FOR_QUEUED_BYTES / 2;
         byte[] start = checkpointer.getCheckpoint(srcTable.getQualifiedName(), rangeId, writeT);
         if (start == null) {
@@ -140,11 +158,15 @@ public class KvsRangeMigrator implements RangeMigrator {
         BatchingVisitable<RowResult<byte[]>> bv = readT.getRange(srcTable, rangeToUse);
 
         Map<Cell, byte[]> writeMap = Maps.newHashMap();
-        byte[] lastRow = internalCopyRange(bv, maxBytes, writeMap);
+        MutableLong bytesPut = new MutableLong(0L);
+        byte[] lastRow = internalCopyRange(bv, maxBytes, writeMap, bytesPut);
         if (log.isTraceEnabled() && (lastRow != null)) {
-            log.trace("Copying {} bytes for range {} on table {}", lastRow.length, rangeId, srcTable);
+            log.trace("Copying {} bytes for range {} on table {}", bytesPut.longValue(), rangeId, srcTable);
         }
         writeToKvs(writeMap);
+        bytesMigrated.mark(bytesPut.longValue());
+        cellsMigrated.mark(writeMap.size());
+        bytesCopied.setValue(bytesPut.longValue());
 
         byte[] nextRow = getNextRowName(lastRow);
         checkpointer.checkpoint(srcTable.getQualifiedName(), rangeId, nextRow, writeT);
@@ -152,6 +174,17 @@ public class KvsRangeMigrator implements RangeMigrator {
         return lastRow;
     }
 
+    /**
+     * Blocks until the shared rate limiter allows another {@code bytes} to be written. The limiter is shared by all
+     * ranges and tables of a migration, so this bounds the load the migration puts on the live source cluster. It is
+     * called between transactions, so that waiting for permits does not hold the read and write transactions open.
+     */
+    private void throttle(long bytes) {
+        if (bytesRateLimiter.isPresent() && bytes > 0) {
+            bytesRateLimiter.get().acquire(Ints.saturatedCast(bytes));
+        }
+    }
+
     protected void writeToKvs(Map<Cell, byte[]> writeMap) {
         try {
             writeKvs.put(destTable, writeMap, migrationTimestamp);
@@ -177,9 +210,9 @@ public class KvsRangeMigrator implements RangeMigrator {
 
     private byte[] internalCopyRange(BatchingVisitable<RowResult<byte[]>> bv,
                                      final long maxBytes,
-                                     @Output final Map<Cell, byte[]> writeMap) {
+                                     @Output final Map<Cell, byte[]> writeMap,
+                                     @Output final MutableLong bytesPut) {
         final Mutable<byte[]> lastRowName = Mutables.newMutable(null);
-        final MutableLong bytesPut = new MutableLong(0L);
         bv.batchAccept(readBatchSize, AbortingVisitors.batching(
                 new AbortingVisitor<RowResult<byte[]>, RuntimeException>() {
             @Override
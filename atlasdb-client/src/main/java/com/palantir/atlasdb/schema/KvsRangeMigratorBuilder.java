@@ -16,9 +16,11 @@
 package com.palantir.atlasdb.schema;
 
 import java.util.Map;
+import java.util.Optional;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -47,6 +49,7 @@ public class KvsRangeMigratorBuilder {
     private long migrationTimestamp;
     private AbstractTaskCheckpointer checkpointer;
     private Function<RowResult<byte[]>, Map<Cell, byte[]>> rowTransform;
+    private Optional<RateLimiter> bytesRateLimiter;
 
     public KvsRangeMigratorBuilder() {
         srcTable = null;
@@ -58,6 +61,7 @@ public class KvsRangeMigratorBuilder {
         migrationTimestamp = -1;
         checkpointer = null;
         rowTransform = getIdentityTransform();
+        bytesRateLimiter = Optional.empty();
     }
 
     private static Function<RowResult<byte[]>, Map<Cell, byte[]>> getIdentityTransform() {
@@ -123,6 +127,16 @@ public class KvsRangeMigratorBuilder {
         return this;
     }
 
+    /**
+     * Limits the rate, in approximate bytes per second, at which this migrator copies data. Pass the same limiter to
+     * every range migrator of a migration to bound its total throughput.
+     */
+    public KvsRangeMigratorBuilder bytesRateLimiter(RateLimiter limiter) {
+        Preconditions.checkNotNull(limiter);
+        this.bytesRateLimiter = Optional.of(limiter);
+        return this;
+    }
+
     public KvsRangeMigrator build() {
         if (destTable == null) {
             destTable = srcTable;
@@ -145,6 +159,7 @@ public class KvsRangeMigratorBuilder {
                 writeKvs,
                 migrationTimestamp,
                 checkpointer,
-                rowTransform);
+                rowTransform,
+                bytesRateLimiter);
     }
 }
@@ -76,6 +76,9 @@ public enum SweepSchema implements AtlasSchema {
                 // The (approximate) number of writes to this table
                 // since the last time it was swept.
                 column("write_count", "w", ValueType.VAR_LONG);
+                // The (approximate) number of bytes written to this
+                // table since the last time it was swept.
+                column("write_bytes", "b", ValueType.VAR_LONG);
                 // The (wall clock) time of when this table was
                 // last swept.
                 column("last_sweep_time", "t", ValueType.VAR_LONG);
@@ -467,6 +467,66 @@ public final class SweepPriorityTable implements
         }
     }
 
+    /**
+     * <pre>
+     * Column value description {
+     *   type: Long;
+     * }
+     * </pre>
+     */
+    public static final class WriteBytes implements SweepPriorityNamedColumnValue<Long> {
+        private final Long value;
+
+        public static WriteBytes of(Long value) {
+            return new WriteBytes(value);
+        }
+
+        private WriteBytes(Long value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getColumnName() {
+            return "write_bytes";
+        }
+
+        @Override
+        public String getShortColumnName() {
+            return "b";
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = EncodingUtils.encodeUnsignedVarLong(value);
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return PtBytes.toCachedBytes("b");
+        }
+
+        public static final Hydrator<WriteBytes> BYTES_HYDRATOR = new Hydrator<WriteBytes>() {
+            @Override
+            public WriteBytes hydrateFromBytes(byte[] bytes) {
+                bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+                return of(EncodingUtils.decodeUnsignedVarLong(bytes, 0));
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
     /**
      * <pre>
      * Column value description {
@@ -581,6 +641,10 @@ public final class SweepPriorityTable implements
             return row.getColumns().containsKey(PtBytes.toCachedBytes("m"));
         }
 
+        public boolean hasWriteBytes() {
+            return row.getColumns().containsKey(PtBytes.toCachedBytes("b"));
+        }
+
         public boolean hasWriteCount() {
             return row.getColumns().containsKey(PtBytes.toCachedBytes("w"));
         }
@@ -621,6 +685,15 @@ public final class SweepPriorityTable implements
             return value.getValue();
         }
 
+        public Long getWriteBytes() {
+            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("b"));
+            if (bytes == null) {
+                return null;
+            }
+            WriteBytes value = WriteBytes.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+            return value.getValue();
+        }
+
         public Long getWriteCount() {
             byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("w"));
             if (bytes == null) {
@@ -666,6 +739,15 @@ public final class SweepPriorityTable implements
             };
         }
 
+        public static Function<SweepPriorityRowResult, Long> getWriteBytesFun() {
+            return new Function<SweepPriorityRowResult, Long>() {
+                @Override
+                public Long apply(SweepPriorityRowResult rowResult) {
+                    return rowResult.getWriteBytes();
+                }
+            };
+        }
+
         public static Function<SweepPriorityRowResult, Long> getWriteCountFun() {
             return new Function<SweepPriorityRowResult, Long>() {
                 @Override
@@ -683,6 +765,7 @@ public final class SweepPriorityTable implements
                 .add("CellsExamined", getCellsExamined())
                 .add("LastSweepTime", getLastSweepTime())
                 .add("MinimumSweptTimestamp", getMinimumSweptTimestamp())
+                .add("WriteBytes", getWriteBytes())
                 .add("WriteCount", getWriteCount())
                 .toString();
         }
@@ -713,6 +796,12 @@ public final class SweepPriorityTable implements
                 return PtBytes.toCachedBytes("m");
             }
         },
+        WRITE_BYTES {
+            @Override
+            public byte[] getShortName() {
+                return PtBytes.toCachedBytes("b");
+            }
+        },
         WRITE_COUNT {
             @Override
             public byte[] getShortName() {
@@ -743,6 +832,7 @@ public final class SweepPriorityTable implements
     private static final Map<String, Hydrator<? extends SweepPriorityNamedColumnValue<?>>> shortNameToHydrator =
             ImmutableMap.<String, Hydrator<? extends SweepPriorityNamedColumnValue<?>>>builder()
                 .put("w", WriteCount.BYTES_HYDRATOR)
+                .put("b", WriteBytes.BYTES_HYDRATOR)
                 .put("t", LastSweepTime.BYTES_HYDRATOR)
                 .put("m", MinimumSweptTimestamp.BYTES_HYDRATOR)
                 .put("d", CellsDeleted.BYTES_HYDRATOR)
@@ -763,6 +853,20 @@ public final class SweepPriorityTable implements
         return ret;
     }
 
+    public Map<SweepPriorityRow, Long> getWriteBytess(Collection<SweepPriorityRow> rows) {
+        Map<Cell, SweepPriorityRow> cells = Maps.newHashMapWithExpectedSize(rows.size());
+        for (SweepPriorityRow row : rows) {
+            cells.put(Cell.create(row.persistToBytes(), PtBytes.toCachedBytes("b")), row);
+        }
+        Map<Cell, byte[]> results = t.get(tableRef, cells.keySet());
+        Map<SweepPriorityRow, Long> ret = Maps.newHashMapWithExpectedSize(results.size());
+        for (Entry<Cell, byte[]> e : results.entrySet()) {
+            Long val = WriteBytes.BYTES_HYDRATOR.hydrateFromBytes(e.getValue()).getValue();
+            ret.put(cells.get(e.getKey()), val);
+        }
+        return ret;
+    }
+
     public Map<SweepPriorityRow, Long> getLastSweepTimes(Collection<SweepPriorityRow> rows) {
         Map<Cell, SweepPriorityRow> cells = Maps.newHashMapWithExpectedSize(rows.size());
         for (SweepPriorityRow row : rows) {
@@ -843,6 +947,30 @@ public final class SweepPriorityTable implements
         putUnlessExists(Multimaps.forMap(toPut));
     }
 
+    public void putWriteBytes(SweepPriorityRow row, Long value) {
+        put(ImmutableMultimap.of(row, WriteBytes.of(value)));
+    }
+
+    public void putWriteBytes(Map<SweepPriorityRow, Long> map) {
+        Map<SweepPriorityRow, SweepPriorityNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<SweepPriorityRow, Long> e : map.entrySet()) {
+            toPut.put(e.getKey(), WriteBytes.of(e.getValue()));
+        }
+        put(Multimaps.forMap(toPut));
+    }
+
+    public void putWriteBytesUnlessExists(SweepPriorityRow row, Long value) {
+        putUnlessExists(ImmutableMultimap.of(row, WriteBytes.of(value)));
+    }
+
+    public void putWriteBytesUnlessExists(Map<SweepPriorityRow, Long> map) {
+        Map<SweepPriorityRow, SweepPriorityNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<SweepPriorityRow, Long> e : map.entrySet()) {
+            toPut.put(e.getKey(), WriteBytes.of(e.getValue()));
+        }
+        putUnlessExists(Multimaps.forMap(toPut));
+    }
+
     public void putLastSweepTime(SweepPriorityRow row, Long value) {
         put(ImmutableMultimap.of(row, LastSweepTime.of(value)));
     }
@@ -970,6 +1098,16 @@ public final class SweepPriorityTable implements
         t.delete(tableRef, cells);
     }
 
+    public void deleteWriteBytes(SweepPriorityRow row) {
+        deleteWriteBytes(ImmutableSet.of(row));
+    }
+
+    public void deleteWriteBytes(Iterable<SweepPriorityRow> rows) {
+        byte[] col = PtBytes.toCachedBytes("b");
+        Set<Cell> cells = Cells.cellsWithConstantColumn(Persistables.persistAll(rows), col);
+        t.delete(tableRef, cells);
+    }
+
     public void deleteLastSweepTime(SweepPriorityRow row) {
         deleteLastSweepTime(ImmutableSet.of(row));
     }
@@ -1018,11 +1156,12 @@ public final class SweepPriorityTable implements
     @Override
     public void delete(Iterable<SweepPriorityRow> rows) {
         List<byte[]> rowBytes = Persistables.persistAll(rows);
-        Set<Cell> cells = Sets.newHashSetWithExpectedSize(rowBytes.size() * 5);
+        Set<Cell> cells = Sets.newHashSetWithExpectedSize(rowBytes.size() * 6);
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("d")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("e")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("t")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("m")));
+        cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("b")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("w")));
         t.delete(tableRef, cells);
     }
@@ -1237,5 +1376,5 @@ public final class SweepPriorityTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "6JJ0l22XdLjA/LTkCPZFKw==";
+    static String __CLASS_HASH = "XoRTHeJKQXqKnD5RN7kW5w==";
 }
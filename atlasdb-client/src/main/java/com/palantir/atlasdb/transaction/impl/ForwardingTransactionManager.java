@@ -52,6 +52,12 @@ public abstract class ForwardingTransactionManager extends ForwardingObject impl
         return delegate().runTaskReadOnly(task);
     }
 
+    @Override
+    public <T, E extends Exception> T runTaskReadOnlyWithStaleness(TransactionTask<T, E> task)
+            throws E {
+        return delegate().runTaskReadOnlyWithStaleness(task);
+    }
+
     @Override
     public void clearTimestampCache() {
         delegate().clearTimestampCache();
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Limits the number of concurrent calls to a single backend, adapting the limit to how the backend is coping.
+ * <p>
+ * The limit follows an AIMD scheme driven by latency. The limiter tracks a baseline round trip time, which is the
+ * lowest latency seen recently. While calls complete within {@link #LATENCY_TOLERANCE} times the baseline and the
+ * limit is actually being used, the limit grows by roughly one per round trip. When a call is much slower than the
+ * baseline, or the backend reports that it is overloaded (for example by timing out), the limit is cut by
+ * {@link #BACKOFF_RATIO}, at most once per round trip. Under overload this keeps the backend near the concurrency at
+ * which it has the most throughput, rather than letting retries and queued work pile up on it.
+ * <p>
+ * Calls over the limit wait in a short queue and are rejected with a {@link ConcurrencyLimitExceededException} if
+ * the queue is full or they wait too long. Admission depends on the caller's {@link KvsCallPriority}. Critical calls
+ * may use the whole limit, normal calls {@link #NORMAL_SHARE} of it and background calls {@link #BACKGROUND_SHARE}
+ * of it, and a call is never admitted while a call of higher priority is waiting.
+ */
+public final class AdaptiveConcurrencyLimiter {
+    @VisibleForTesting
+    static final double LATENCY_TOLERANCE = 2.0;
+    @VisibleForTesting
+    static final double BACKOFF_RATIO = 0.9;
+    @VisibleForTesting
+    static final double NORMAL_SHARE = 0.9;
+    @VisibleForTesting
+    static final double BACKGROUND_SHARE = 0.5;
+
+    /**
+     * The baseline is allowed to rise by this factor after every {@link #SAMPLES_PER_WINDOW} calls, so that it
+     * follows a backend that has become permanently slower, without letting sustained overload become the baseline.
+     */
+    private static final double BASELINE_DRIFT = 1.1;
+    private static final int SAMPLES_PER_WINDOW = 100;
+    private static final long DEFAULT_MAX_QUEUE_WAIT_MILLIS = 1000;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long maxQueueWaitNanos;
+    private final Ticker ticker;
+    private final ThreadLocal<Boolean> holdsPermit = ThreadLocal.withInitial(() -> false);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    @GuardedBy("lock")
+    private final int[] queuedByPriority = new int[KvsCallPriority.values().length];
+    @GuardedBy("lock")
+    private double limit;
+    @GuardedBy("lock")
+    private int inFlight;
+    @GuardedBy("lock")
+    private long baselineRttNanos = Long.MAX_VALUE;
+    @GuardedBy("lock")
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    @GuardedBy("lock")
+    private int samplesInWindow;
+    @GuardedBy("lock")
+    private long lastDecreaseNanos;
+    @GuardedBy("lock")
+    private long rejected;
+
+    @VisibleForTesting
+    AdaptiveConcurrencyLimiter(String name,
+                               int initialLimit,
+                               int minLimit,
+                               int maxLimit,
+                               int maxQueueSize,
+                               long maxQueueWaitMillis,
+                               Ticker ticker) {
+        Preconditions.checkArgument(0 < minLimit && minLimit <= initialLimit && initialLimit <= maxLimit,
+                "Limits must satisfy 0 < minLimit (%s) <= initialLimit (%s) <= maxLimit (%s)",
+                minLimit, initialLimit, maxLimit);
+        Preconditions.checkArgument(maxQueueSize >= 0, "maxQueueSize must not be negative");
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        this.ticker = ticker;
+        this.lastDecreaseNanos = ticker.read();
+    }
+
+    /**
+     * Creates a limiter that starts at, and never exceeds, {@code maxLimit} concurrent calls, and lets as many calls
+     * queue as it lets run.
+     */
+    public static AdaptiveConcurrencyLimiter create(String name, int minLimit, int maxLimit) {
+        return new AdaptiveConcurrencyLimiter(name, maxLimit, minLimit, maxLimit, maxLimit,
+                DEFAULT_MAX_QUEUE_WAIT_MILLIS, Ticker.systemTicker());
+    }
+
+    /**
+     * Waits for a permit to make a call with the given priority. The returned permit must be released exactly once,
+     * with the outcome of the call.
+     *
+     * @throws ConcurrencyLimitExceededException if the call cannot be admitted in time
+     */
+    public Permit acquire(KvsCallPriority priority) {
+        lock.lock();
+        try {
+            if (!canAdmit(priority)) {
+                waitForAdmission(priority);
+            }
+            inFlight++;
+            return new Permit(ticker.read());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the task under a permit for the current thread's {@link KvsCallPriority}. Calls nested inside the task
+     * on the same thread do not need another permit.
+     */
+    public <T> T run(Supplier<T> task) {
+        if (holdsPermit.get()) {
+            return task.get();
+        }
+        Permit permit = acquire(KvsCallPriority.current());
+        holdsPermit.set(true);
+        boolean succeeded = false;
+        try {
+            T result = task.get();
+            succeeded = true;
+            return result;
+        } finally {
+            holdsPermit.set(false);
+            if (succeeded) {
+                permit.success();
+            } else {
+                permit.ignore();
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private void waitForAdmission(KvsCallPriority priority) {
+        if (getQueuedLocked() >= maxQueueSize) {
+            throw reject(priority, "the queue is full");
+        }
+        queuedByPriority[priority.ordinal()]++;
+        try {
+            long remainingNanos = maxQueueWaitNanos;
+            while (!canAdmit(priority)) {
+                if (remainingNanos <= 0) {
+                    throw reject(priority, "it waited too long in the queue");
+                }
+                remainingNanos = permitReleased.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } finally {
+            queuedByPriority[priority.ordinal()]--;
+        }
+    }
+
+    @GuardedBy("lock")
+    private boolean canAdmit(KvsCallPriority priority) {
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (queuedByPriority[i] > 0) {
+                return false;
+            }
+        }
+        return inFlight < capacityFor(priority);
+    }
+
+    @GuardedBy("lock")
+    private int capacityFor(KvsCallPriority priority) {
+        switch (priority) {
+            case CRITICAL:
+                return (int) limit;
+            case NORMAL:
+                return Math.max(1, (int) (limit * NORMAL_SHARE));
+            case BACKGROUND:
+                return Math.max(1, (int) (limit * BACKGROUND_SHARE));
+            default:
+                throw new IllegalArgumentException("Unknown priority " + priority);
+        }
+    }
+
+    @GuardedBy("lock")
+    private ConcurrencyLimitExceededException reject(KvsCallPriority priority, String reason) {
+        rejected++;
+        return new ConcurrencyLimitExceededException(String.format(
+                "Rejected a %s call to %s because %s; %s calls are in flight with a limit of %s.",
+                priority, name, reason, inFlight, (int) limit));
+    }
+
+    private void release(Outcome outcome, long startNanos) {
+        long nowNanos = ticker.read();
+        long rttNanos = nowNanos - startNanos;
+        lock.lock();
+        try {
+            int inFlightBeforeRelease = inFlight--;
+            if (outcome == Outcome.SUCCESS) {
+                recordRtt(rttNanos);
+                if (rttNanos > baselineRttNanos * LATENCY_TOLERANCE) {
+                    maybeDecrease(nowNanos, rttNanos);
+                } else if (inFlightBeforeRelease * 2 >= limit) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            } else if (outcome == Outcome.DROPPED) {
+                maybeDecrease(nowNanos, rttNanos);
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void recordRtt(long rttNanos) {
+        baselineRttNanos = Math.min(baselineRttNanos, rttNanos);
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+        if (++samplesInWindow >= SAMPLES_PER_WINDOW) {
+            baselineRttNanos = Math.min(windowMinRttNanos, (long) (baselineRttNanos * BASELINE_DRIFT));
+            windowMinRttNanos = Long.MAX_VALUE;
+            samplesInWindow = 0;
+        }
+    }
+
+    @GuardedBy("lock")
+    private void maybeDecrease(long nowNanos, long rttNanos) {
+        if (nowNanos - lastDecreaseNanos >= rttNanos) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            lastDecreaseNanos = nowNanos;
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return getQueuedLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private int getQueuedLocked() {
+        int queued = 0;
+        for (int queuedForPriority : queuedByPriority) {
+            queued += queuedForPriority;
+        }
+        return queued;
+    }
+
+    public void registerMetrics(MetricsManager metricsManager, Class clazz, String metricPrefix) {
+        metricsManager.registerMetric(clazz, metricPrefix, "concurrencyLimit", (Gauge<Integer>) this::getLimit);
+        metricsManager.registerMetric(clazz, metricPrefix, "concurrencyInFlight", (Gauge<Integer>) this::getInFlight);
+        metricsManager.registerMetric(clazz, metricPrefix, "concurrencyQueued", (Gauge<Integer>) this::getQueued);
+        metricsManager.registerMetric(clazz, metricPrefix, "concurrencyRejected", (Gauge<Long>) this::getRejected);
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        DROPPED,
+        IGNORED
+    }
+
+    /**
+     * Permission to make one call, which must be released with the call's outcome.
+     */
+    public final class Permit {
+        private final long startNanos;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * The call completed; its latency is used to adjust the limit.
+         */
+        public void success() {
+            release(Outcome.SUCCESS, startNanos);
+        }
+
+        /**
+         * The call failed in a way that suggests the backend is overloaded, such as a timeout.
+         */
+        public void dropped() {
+            release(Outcome.DROPPED, startNanos);
+        }
+
+        /**
+         * The call failed for a reason unrelated to load; the limit is left as it is.
+         */
+        public void ignore() {
+            release(Outcome.IGNORED, startNanos);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Tracks the most frequent keys of a stream in bounded memory.
+ * <p>
+ * Key frequencies are estimated with a count-min sketch, which never underestimates and overestimates by at most a
+ * small fraction of the total number of keys seen, and the keys with the highest estimates are kept in a map of at
+ * most {@code maxHeavyHitters} entries.
+ * <p>
+ * Keys can be split by hash across several independently locked stripes, so that concurrent writers of different
+ * keys rarely contend. Each stripe has its own sketch of {@code width / stripes} columns and sees its share of the
+ * keys, so the expected overestimate stays the same as with a single stripe of the full width.
+ */
+@ThreadSafe
+public final class HeavyHitters {
+    private static final int DEPTH = 4;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int maxHeavyHitters;
+    private final Stripe[] stripes;
+
+    public HeavyHitters(int maxHeavyHitters, int width) {
+        this(maxHeavyHitters, width, 1);
+    }
+
+    public HeavyHitters(int maxHeavyHitters, int width, int stripes) {
+        Preconditions.checkArgument(maxHeavyHitters > 0, "maxHeavyHitters must be positive, but was %s",
+                maxHeavyHitters);
+        Preconditions.checkArgument(width > 0, "width must be positive, but was %s", width);
+        Preconditions.checkArgument(stripes > 0, "stripes must be positive, but was %s", stripes);
+        this.maxHeavyHitters = maxHeavyHitters;
+        this.stripes = new Stripe[stripes];
+        int stripeWidth = Math.max(1, width / stripes);
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(stripeWidth);
+        }
+    }
+
+    public void add(byte[] key) {
+        long hash = HASH_FUNCTION.hashBytes(key).asLong();
+        stripes[Math.floorMod(Arrays.hashCode(key), stripes.length)].add(key, hash);
+    }
+
+    /**
+     * Returns the heavy hitters seen so far with their estimated counts, most frequent first.
+     */
+    public List<Map.Entry<byte[], Long>> getHeavyHitters() {
+        return Arrays.stream(stripes)
+                .flatMap(stripe -> stripe.getHeavyHitters().stream())
+                .sorted(Map.Entry.<byte[], Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(maxHeavyHitters)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            stripe.reset();
+        }
+    }
+
+    private final class Stripe {
+        @GuardedBy("this")
+        private final long[][] counts;
+        @GuardedBy("this")
+        private final Map<ByteBuffer, Long> heavyHitters;
+
+        Stripe(int width) {
+            this.counts = new long[DEPTH][width];
+            this.heavyHitters = Maps.newHashMapWithExpectedSize(maxHeavyHitters + 1);
+        }
+
+        synchronized void add(byte[] key, long hash) {
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            long estimate = Long.MAX_VALUE;
+            for (int i = 0; i < DEPTH; i++) {
+                long[] row = counts[i];
+                int index = ((hash1 + i * hash2) & Integer.MAX_VALUE) % row.length;
+                estimate = Math.min(estimate, ++row[index]);
+            }
+
+            ByteBuffer wrappedKey = ByteBuffer.wrap(key);
+            if (heavyHitters.containsKey(wrappedKey) || heavyHitters.size() < maxHeavyHitters) {
+                heavyHitters.put(ByteBuffer.wrap(key.clone()), estimate);
+                return;
+            }
+            Map.Entry<ByteBuffer, Long> smallest = null;
+            for (Map.Entry<ByteBuffer, Long> entry : heavyHitters.entrySet()) {
+                if (smallest == null || entry.getValue() < smallest.getValue()) {
+                    smallest = entry;
+                }
+            }
+            if (smallest != null && estimate > smallest.getValue()) {
+                heavyHitters.remove(smallest.getKey());
+                heavyHitters.put(ByteBuffer.wrap(key.clone()), estimate);
+            }
+        }
+
+        synchronized List<Map.Entry<byte[], Long>> getHeavyHitters() {
+            return heavyHitters.entrySet().stream()
+                    .map(entry -> Maps.immutableEntry(entry.getKey().array().clone(), entry.getValue()))
+                    .collect(Collectors.toList());
+        }
+
+        synchronized void reset() {
+            for (long[] row : counts) {
+                Arrays.fill(row, 0L);
+            }
+            heavyHitters.clear();
+        }
+    }
+}
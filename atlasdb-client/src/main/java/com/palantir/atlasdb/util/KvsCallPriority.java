@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ForwardingExecutorService;
+
+/**
+ * How important a key value service call is, which concurrency limiters use to decide which calls to admit first
+ * when a backend is overloaded.
+ * <p>
+ * The priority is carried by the calling thread: code that issues critical or background work wraps it in
+ * {@link #call(Supplier)} or {@link #run(Runnable)}, and everything it calls, including tasks handed to executors
+ * wrapped with {@link #wrap(ExecutorService)}, sees that priority through {@link #current()}. Calls made outside of
+ * any such scope are {@link #NORMAL}.
+ */
+public enum KvsCallPriority {
+    /**
+     * Calls that every transaction depends on, such as reading and writing commit timestamps in the
+     * {@code _transactions} table.
+     */
+    CRITICAL,
+    NORMAL,
+    /**
+     * Work that can be delayed without affecting users, such as sweep and scrub.
+     */
+    BACKGROUND;
+
+    private static final ThreadLocal<KvsCallPriority> currentPriority = ThreadLocal.withInitial(() -> NORMAL);
+
+    public static KvsCallPriority current() {
+        return currentPriority.get();
+    }
+
+    public <T> T call(Supplier<T> task) {
+        KvsCallPriority previous = currentPriority.get();
+        currentPriority.set(this);
+        try {
+            return task.get();
+        } finally {
+            currentPriority.set(previous);
+        }
+    }
+
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns an executor whose tasks run with the priority of the thread that submitted them.
+     */
+    public static ExecutorService wrap(ExecutorService delegate) {
+        return new PriorityPropagatingExecutorService(delegate);
+    }
+
+    private static <T> Callable<T> wrap(Callable<T> task) {
+        KvsCallPriority priority = current();
+        return () -> {
+            KvsCallPriority previous = currentPriority.get();
+            currentPriority.set(priority);
+            try {
+                return task.call();
+            } finally {
+                currentPriority.set(previous);
+            }
+        };
+    }
+
+    private static Runnable wrap(Runnable task) {
+        KvsCallPriority priority = current();
+        return () -> priority.run(task);
+    }
+
+    private static final class PriorityPropagatingExecutorService extends ForwardingExecutorService {
+        private final ExecutorService delegate;
+
+        PriorityPropagatingExecutorService(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected ExecutorService delegate() {
+            return delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(wrap(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return delegate.submit(wrap(task), result);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+            return ImmutableList.copyOf(Collections2.transform(tasks, (Callable<T> task) -> wrap(task)));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * An executor that runs tasks on a shared set of worker threads, keeping a separate queue (lane) for each
+ * {@link KvsCallPriority} so that a backlog of background tasks does not hold up foreground ones.
+ * <p>
+ * A task's lane is the priority of the thread that submitted it, and the task runs with that priority. Lanes are
+ * served by weighted fair (stride) scheduling, so when every lane has work, critical, normal and background tasks are
+ * started in the ratio of their weights; a lane without work gives its share to the others. Background tasks
+ * may also only occupy up to {@link #BACKGROUND_WORKER_PROPORTION} of the workers at once, so there are always
+ * workers free for foreground tasks however much background work is queued.
+ */
+public final class PriorityLanesExecutorService extends AbstractExecutorService {
+    @VisibleForTesting
+    static final double BACKGROUND_WORKER_PROPORTION = 0.5;
+
+    private final ExecutorService workers;
+    private final int maxBackgroundWorkers;
+
+    @GuardedBy("this")
+    private final Lane[] lanes = new Lane[KvsCallPriority.values().length];
+    @GuardedBy("this")
+    private double virtualTime;
+    @GuardedBy("this")
+    private int runningBackgroundTasks;
+    @GuardedBy("this")
+    private int deferredDispatches;
+
+    private PriorityLanesExecutorService(ExecutorService workers, int numWorkers) {
+        Preconditions.checkArgument(numWorkers > 0, "numWorkers must be positive, but was %s", numWorkers);
+        this.workers = workers;
+        this.maxBackgroundWorkers = Math.max(1, (int) (numWorkers * BACKGROUND_WORKER_PROPORTION));
+        for (KvsCallPriority priority : KvsCallPriority.values()) {
+            lanes[priority.ordinal()] = new Lane(weight(priority));
+        }
+    }
+
+    /**
+     * Schedules tasks onto the given executor, which should have {@code numWorkers} threads and must not be used
+     * for anything else. Shutting down the returned executor shuts down the given one.
+     */
+    public static ExecutorService create(ExecutorService workers, int numWorkers) {
+        return new PriorityLanesExecutorService(workers, numWorkers);
+    }
+
+    private static int weight(KvsCallPriority priority) {
+        switch (priority) {
+            case CRITICAL:
+                return 8;
+            case NORMAL:
+                return 4;
+            case BACKGROUND:
+                return 1;
+            default:
+                throw new IllegalArgumentException("Unknown priority " + priority);
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        KvsCallPriority priority = KvsCallPriority.current();
+        Runnable task = () -> priority.run(command);
+        Lane lane;
+        synchronized (this) {
+            lane = lanes[priority.ordinal()];
+            if (lane.tasks.isEmpty()) {
+                // A lane that was idle does not get to catch up on the turns it did not need.
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            lane.tasks.addLast(task);
+        }
+        try {
+            // Every task gets one dispatch, but a dispatch runs whichever task is due, not necessarily this one.
+            workers.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                lane.tasks.removeLastOccurrence(task);
+            }
+            throw e;
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            Runnable task;
+            boolean background;
+            synchronized (this) {
+                Lane lane = nextLane();
+                if (lane == null) {
+                    // Only background tasks are waiting and enough are running already; the next background task to
+                    // finish picks up this dispatch.
+                    deferredDispatches++;
+                    return;
+                }
+                task = lane.tasks.removeFirst();
+                virtualTime = lane.pass;
+                lane.pass += 1.0 / lane.weight;
+                background = lane == lanes[KvsCallPriority.BACKGROUND.ordinal()];
+                if (background) {
+                    runningBackgroundTasks++;
+                }
+            }
+            try {
+                task.run();
+            } finally {
+                if (background) {
+                    synchronized (this) {
+                        runningBackgroundTasks--;
+                    }
+                }
+            }
+            synchronized (this) {
+                if (!background || deferredDispatches == 0) {
+                    return;
+                }
+                deferredDispatches--;
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private Lane nextLane() {
+        Lane next = null;
+        for (KvsCallPriority priority : KvsCallPriority.values()) {
+            Lane lane = lanes[priority.ordinal()];
+            if (lane.tasks.isEmpty()
+                    || (priority == KvsCallPriority.BACKGROUND && runningBackgroundTasks >= maxBackgroundWorkers)) {
+                continue;
+            }
+            if (next == null || lane.pass < next.pass) {
+                next = lane;
+            }
+        }
+        return next;
+    }
+
+    @VisibleForTesting
+    synchronized int getQueued(KvsCallPriority priority) {
+        return lanes[priority.ordinal()].tasks.size();
+    }
+
+    @Override
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        workers.shutdownNow();
+        List<Runnable> neverRun = Lists.newArrayList();
+        synchronized (this) {
+            for (Lane lane : lanes) {
+                neverRun.addAll(lane.tasks);
+                lane.tasks.clear();
+            }
+        }
+        return neverRun;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return workers.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return workers.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    private static final class Lane {
+        private final int weight;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private double pass;
+
+        private Lane(int weight) {
+            this.weight = weight;
+        }
+    }
+}
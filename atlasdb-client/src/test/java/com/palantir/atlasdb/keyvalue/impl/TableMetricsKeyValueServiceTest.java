@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.atlasdb.util.MetricsRule;
+import com.palantir.common.base.ClosableIterator;
+
+public class TableMetricsKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("ns.table");
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final byte[] OTHER_ROW = PtBytes.toBytes("other");
+    private static final byte[] COLUMN = PtBytes.toBytes("col");
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final Cell CELL = Cell.create(ROW, COLUMN);
+    private static final Cell OTHER_CELL = Cell.create(OTHER_ROW, COLUMN);
+    private static final long TIMESTAMP = 10L;
+
+    @Rule
+    public MetricsRule metricsRule = new MetricsRule();
+
+    private final AtomicReference<Double> sampleRate = new AtomicReference<>(1.0);
+    private MetricRegistry registry;
+    private KeyValueService delegate;
+    private TableMetricsKeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        registry = new MetricRegistry();
+        AtlasDbMetrics.setMetricRegistry(registry);
+        delegate = new InMemoryKeyValueService(false);
+        delegate.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        kvs = TableMetricsKeyValueService.create(delegate, sampleRate::get);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.close();
+    }
+
+    @Test
+    public void recordsCellsAndBytesOfSampledWrites() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE, OTHER_CELL, VALUE), TIMESTAMP);
+
+        assertThat(histogram("put", "latencyMicros").getCount()).isEqualTo(1);
+        assertThat(histogram("put", "cells").getSnapshot().getMax()).isEqualTo(2);
+        assertThat(histogram("put", "bytes").getSnapshot().getMax())
+                .isEqualTo(2 * (COLUMN.length + VALUE.length) + ROW.length + OTHER_ROW.length);
+    }
+
+    @Test
+    public void recordsCellsReturnedBySampledReads() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        kvs.getRows(TABLE, ImmutableList.of(ROW, OTHER_ROW), ColumnSelection.all(), TIMESTAMP + 1);
+
+        assertThat(histogram("getRows", "latencyMicros").getCount()).isEqualTo(1);
+        assertThat(histogram("getRows", "cells").getSnapshot().getMax()).isEqualTo(1);
+    }
+
+    @Test
+    public void recordsRangeScansWhenClosed() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE, OTHER_CELL, VALUE), TIMESTAMP);
+
+        try (ClosableIterator<RowResult<Value>> iterator =
+                kvs.getRange(TABLE, RangeRequest.all(), TIMESTAMP + 1)) {
+            iterator.forEachRemaining(rowResult -> { });
+            assertThat(registry.getHistograms()).doesNotContainKey(name("getRange", "cells"));
+        }
+
+        assertThat(histogram("getRange", "cells").getCount()).isEqualTo(1);
+        assertThat(histogram("getRange", "cells").getSnapshot().getMax()).isEqualTo(2);
+    }
+
+    @Test
+    public void recordsRangeOfTimestampsWhenClosed() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP + 1);
+
+        try (ClosableIterator<RowResult<Set<Long>>> iterator =
+                kvs.getRangeOfTimestamps(TABLE, RangeRequest.all(), TIMESTAMP + 2)) {
+            iterator.forEachRemaining(rowResult -> { });
+        }
+
+        assertThat(histogram("getRangeOfTimestamps", "cells").getSnapshot().getMax()).isEqualTo(1);
+        assertThat(histogram("getRangeOfTimestamps", "bytes").getSnapshot().getMax())
+                .isEqualTo(ROW.length + COLUMN.length + 2 * Long.BYTES);
+    }
+
+    @Test
+    public void recordsFirstBatchForRanges() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE, OTHER_CELL, VALUE), TIMESTAMP);
+        kvs.getFirstBatchForRanges(TABLE, ImmutableList.of(RangeRequest.all()), TIMESTAMP + 1);
+
+        assertThat(histogram("getFirstBatchForRanges", "latencyMicros").getCount()).isEqualTo(1);
+        assertThat(histogram("getFirstBatchForRanges", "cells").getSnapshot().getMax()).isEqualTo(2);
+    }
+
+    @Test
+    public void recordsColumnRangeScansOnceAllRowsAreExhausted() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE, OTHER_CELL, VALUE), TIMESTAMP);
+        BatchColumnRangeSelection allColumns =
+                BatchColumnRangeSelection.create(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY, 10);
+        Map<byte[], RowColumnRangeIterator> iterators =
+                kvs.getRowsColumnRange(TABLE, ImmutableList.of(ROW, OTHER_ROW), allColumns, TIMESTAMP + 1);
+
+        iterators.get(ROW).forEachRemaining(entry -> { });
+        assertThat(registry.getHistograms()).doesNotContainKey(name("getRowsColumnRange", "cells"));
+        iterators.get(OTHER_ROW).forEachRemaining(entry -> { });
+
+        assertThat(histogram("getRowsColumnRange", "cells").getCount()).isEqualTo(1);
+        assertThat(histogram("getRowsColumnRange", "cells").getSnapshot().getMax()).isEqualTo(2);
+    }
+
+    @Test
+    public void recordsBatchedColumnRangeScanWhenExhausted() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE, OTHER_CELL, VALUE), TIMESTAMP);
+        RowColumnRangeIterator iterator = kvs.getRowsColumnRange(TABLE, ImmutableList.of(ROW, OTHER_ROW),
+                new ColumnRangeSelection(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY), 10, TIMESTAMP + 1);
+
+        iterator.forEachRemaining(entry -> { });
+
+        assertThat(histogram("getRowsColumnRange", "cells").getSnapshot().getMax()).isEqualTo(2);
+        assertThat(histogram("getRowsColumnRange", "bytes").getSnapshot().getMax())
+                .isEqualTo(2 * (COLUMN.length + VALUE.length) + ROW.length + OTHER_ROW.length);
+    }
+
+    @Test
+    public void doesNotRecordAnythingWhenSampleRateIsZero() {
+        sampleRate.set(0.0);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+
+        assertThat(registry.getHistograms()).isEmpty();
+        assertThat(kvs.getStatsDump()).doesNotContain(TABLE.getQualifiedName());
+    }
+
+    @Test
+    public void sampleRateCanBeChangedAtRuntime() {
+        sampleRate.set(0.0);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        sampleRate.set(1.0);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP + 1);
+
+        assertThat(histogram("put", "cells").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void hotRowsAreExposedAsGaugeAndInDump() {
+        for (int i = 0; i < 10; i++) {
+            kvs.get(TABLE, ImmutableMap.of(CELL, TIMESTAMP));
+        }
+        kvs.get(TABLE, ImmutableMap.of(OTHER_CELL, TIMESTAMP));
+
+        Object hotRows = registry.getGauges()
+                .get(MetricRegistry.name(TableMetricsKeyValueService.class, "hotRows", TABLE.getQualifiedName()))
+                .getValue();
+        assertThat(hotRows).isEqualTo(ImmutableList.of(
+                PtBytes.encodeHexString(ROW) + "=10",
+                PtBytes.encodeHexString(OTHER_ROW) + "=1"));
+        assertThat(kvs.getStatsDump()).contains(TABLE.getQualifiedName(), PtBytes.encodeHexString(ROW) + "=10");
+    }
+
+    @Test
+    public void resetClearsRecordedStats() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        kvs.resetStats();
+
+        assertThat(histogram("put", "cells").getSnapshot().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void deregistersMetricsOnClose() {
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        kvs.close();
+
+        assertThat(registry.getHistograms()).isEmpty();
+        assertThat(registry.getGauges()).isEmpty();
+    }
+
+    @Test
+    public void instancesShareMetricsButHaveTheirOwnMBeans() throws MalformedObjectNameException {
+        TableMetricsKeyValueService otherKvs = TableMetricsKeyValueService.create(delegate, sampleRate::get);
+        assertThat(registeredMBeans()).hasSize(2);
+
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP);
+        otherKvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP + 1);
+        assertThat(histogram("put", "cells").getCount()).isEqualTo(2);
+
+        otherKvs.close();
+        assertThat(registeredMBeans()).hasSize(1);
+        kvs.put(TABLE, ImmutableMap.of(CELL, VALUE), TIMESTAMP + 2);
+        assertThat(histogram("put", "cells").getCount()).isEqualTo(3);
+        assertThat(kvs.getStatsDump()).contains(TABLE.getQualifiedName());
+    }
+
+    private Histogram histogram(String operation, String metric) {
+        Histogram histogram = registry.getHistograms().get(name(operation, metric));
+        assertThat(histogram).isNotNull();
+        return histogram;
+    }
+
+    private static Set<ObjectName> registeredMBeans() throws MalformedObjectNameException {
+        return ManagementFactory.getPlatformMBeanServer().queryNames(
+                new ObjectName("com.palantir.atlasdb:type=TableMetricsKeyValueService,*"), null);
+    }
+
+    private static String name(String operation, String metric) {
+        return MetricRegistry.name(TableMetricsKeyValueService.class, operation, metric, TABLE.getQualifiedName());
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void rejectsCallsOverTheLimitWhenTheyCannotQueue() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(2, 1, 4, 0);
+        limiter.acquire(KvsCallPriority.CRITICAL);
+        limiter.acquire(KvsCallPriority.CRITICAL);
+
+        assertThatThrownBy(() -> limiter.acquire(KvsCallPriority.CRITICAL))
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    public void backgroundCallsOnlyGetPartOfTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(10, 1, 10, 0);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(KvsCallPriority.BACKGROUND);
+        }
+        assertThatThrownBy(() -> limiter.acquire(KvsCallPriority.BACKGROUND))
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire(KvsCallPriority.NORMAL);
+        }
+        assertThatThrownBy(() -> limiter.acquire(KvsCallPriority.NORMAL))
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+
+        limiter.acquire(KvsCallPriority.CRITICAL);
+        assertThat(limiter.getInFlight()).isEqualTo(10);
+    }
+
+    @Test
+    public void limitGrowsToMaximumWhileFastCallsUseIt() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(2, 1, 8, 0);
+        for (int round = 0; round < 100; round++) {
+            runConcurrentCalls(limiter, limiter.getLimit(), FAST_CALL_NANOS);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    public void limitDoesNotGrowWhenItIsNotBeingUsed() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(4, 1, 8, 0);
+        for (int round = 0; round < 100; round++) {
+            runConcurrentCalls(limiter, 1, FAST_CALL_NANOS);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void limitBacksOffToMinimumWhenCallsSlowDown() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(8, 2, 8, 0);
+        runConcurrentCalls(limiter, 1, FAST_CALL_NANOS);
+
+        runConcurrentCalls(limiter, 1, SLOW_CALL_NANOS);
+        assertThat(limiter.getLimit()).isEqualTo(7);
+
+        for (int round = 0; round < 50; round++) {
+            runConcurrentCalls(limiter, 1, SLOW_CALL_NANOS);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void limitBacksOffAtMostOncePerRoundTrip() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(8, 1, 8, 0);
+        runConcurrentCalls(limiter, 1, FAST_CALL_NANOS);
+
+        runConcurrentCalls(limiter, 8, SLOW_CALL_NANOS);
+        assertThat(limiter.getLimit()).isEqualTo(7);
+    }
+
+    @Test
+    public void droppedCallsReduceTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(8, 1, 8, 0);
+        ticker.advance(FAST_CALL_NANOS);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(KvsCallPriority.NORMAL);
+        ticker.advance(FAST_CALL_NANOS);
+        permit.dropped();
+        assertThat(limiter.getLimit()).isEqualTo(7);
+    }
+
+    @Test
+    public void ignoredCallsLeaveTheLimitAlone() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(8, 1, 8, 0);
+        ticker.advance(SLOW_CALL_NANOS);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(KvsCallPriority.NORMAL);
+        ticker.advance(SLOW_CALL_NANOS);
+        permit.ignore();
+        assertThat(limiter.getLimit()).isEqualTo(8);
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void queuedCallsAreRejectedAfterWaitingTooLong() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 1, 10, ticker);
+        limiter.acquire(KvsCallPriority.NORMAL);
+        assertThatThrownBy(() -> limiter.acquire(KvsCallPriority.NORMAL))
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(limiter.getQueued()).isEqualTo(0);
+    }
+
+    @Test
+    public void criticalCallsAreAdmittedBeforeQueuedBackgroundCalls() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                "test", 2, 1, 2, 10, TimeUnit.SECONDS.toMillis(30), ticker);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(KvsCallPriority.CRITICAL);
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire(KvsCallPriority.CRITICAL);
+
+        List<KvsCallPriority> admissionOrder = Lists.newCopyOnWriteArrayList();
+        Future<?> background = executor.submit(() -> acquireAndRecord(limiter, KvsCallPriority.BACKGROUND,
+                admissionOrder));
+        waitForQueued(limiter, 1);
+        Future<?> critical = executor.submit(() -> acquireAndRecord(limiter, KvsCallPriority.CRITICAL,
+                admissionOrder));
+        waitForQueued(limiter, 2);
+
+        first.success();
+        critical.get(10, TimeUnit.SECONDS);
+        assertThat(admissionOrder).containsExactly(KvsCallPriority.CRITICAL);
+
+        second.success();
+        background.get(10, TimeUnit.SECONDS);
+        assertThat(admissionOrder).containsExactly(KvsCallPriority.CRITICAL, KvsCallPriority.BACKGROUND);
+    }
+
+    @Test
+    public void nestedRunsOnTheSameThreadShareAPermit() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(1, 1, 1, 0);
+        int result = limiter.run(() -> limiter.run(() -> limiter.getInFlight()));
+        assertThat(result).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void runUsesThePriorityOfTheCurrentThread() {
+        AdaptiveConcurrencyLimiter limiter = createLimiter(2, 1, 2, 0);
+        limiter.acquire(KvsCallPriority.CRITICAL);
+        assertThatThrownBy(() -> KvsCallPriority.BACKGROUND.call(() -> limiter.run(() -> null)))
+                .isInstanceOf(ConcurrencyLimitExceededException.class);
+        assertThat(KvsCallPriority.CRITICAL.call(() -> limiter.run(() -> "admitted"))).isEqualTo("admitted");
+    }
+
+    @Test
+    public void executorsWrappedForPriorityRunTasksWithTheSubmittersPriority() throws Exception {
+        ExecutorService wrapped = KvsCallPriority.wrap(executor);
+        assertThat(wrapped.submit(KvsCallPriority::current).get()).isEqualTo(KvsCallPriority.NORMAL);
+        assertThat(KvsCallPriority.BACKGROUND.call(() -> wrapped.submit(KvsCallPriority::current))
+                .get()).isEqualTo(KvsCallPriority.BACKGROUND);
+        assertThat(KvsCallPriority.current()).isEqualTo(KvsCallPriority.NORMAL);
+    }
+
+    private AdaptiveConcurrencyLimiter createLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueSize) {
+        return new AdaptiveConcurrencyLimiter("test", initialLimit, minLimit, maxLimit, maxQueueSize, 0, ticker);
+    }
+
+    private void runConcurrentCalls(AdaptiveConcurrencyLimiter limiter, int numCalls, long latencyNanos) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = Lists.newArrayList();
+        for (int i = 0; i < numCalls; i++) {
+            permits.add(limiter.acquire(KvsCallPriority.CRITICAL));
+        }
+        ticker.advance(latencyNanos);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+    }
+
+    private static void acquireAndRecord(AdaptiveConcurrencyLimiter limiter,
+                                         KvsCallPriority priority,
+                                         List<KvsCallPriority> admissionOrder) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(priority);
+        admissionOrder.add(priority);
+        permit.ignore();
+    }
+
+    private static void waitForQueued(AdaptiveConcurrencyLimiter limiter, int queued) throws InterruptedException {
+        CountDownLatch neverReleased = new CountDownLatch(1);
+        while (limiter.getQueued() < queued) {
+            neverReleased.await(1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long delta) {
+            nanos.addAndGet(delta);
+        }
+    }
+}
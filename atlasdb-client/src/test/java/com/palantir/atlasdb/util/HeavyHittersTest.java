@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.palantir.atlasdb.encoding.PtBytes;
+
+public class HeavyHittersTest {
+    private static final byte[] HOTTEST_KEY = PtBytes.toBytes("hottest");
+    private static final byte[] HOT_KEY = PtBytes.toBytes("hot");
+
+    private final HeavyHitters heavyHitters = new HeavyHitters(2, 256);
+
+    @Test
+    public void tracksMostFrequentKeysAmongManyRareOnes() {
+        for (int i = 0; i < 1000; i++) {
+            heavyHitters.add(PtBytes.toBytes("rare" + i));
+            if (i % 10 == 0) {
+                heavyHitters.add(HOT_KEY);
+            }
+            if (i % 5 == 0) {
+                heavyHitters.add(HOTTEST_KEY);
+            }
+        }
+
+        List<Map.Entry<byte[], Long>> hitters = heavyHitters.getHeavyHitters();
+        assertThat(hitters).hasSize(2);
+        assertThat(hitters.get(0).getKey()).isEqualTo(HOTTEST_KEY);
+        assertThat(hitters.get(0).getValue()).isGreaterThanOrEqualTo(200L);
+        assertThat(hitters.get(1).getKey()).isEqualTo(HOT_KEY);
+        assertThat(hitters.get(1).getValue()).isGreaterThanOrEqualTo(100L);
+    }
+
+    @Test
+    public void stripedHeavyHittersTrackMostFrequentKeysAcrossStripes() {
+        HeavyHitters stripedHeavyHitters = new HeavyHitters(2, 256, 8);
+        for (int i = 0; i < 1000; i++) {
+            stripedHeavyHitters.add(PtBytes.toBytes("rare" + i));
+            if (i % 10 == 0) {
+                stripedHeavyHitters.add(HOT_KEY);
+            }
+            if (i % 5 == 0) {
+                stripedHeavyHitters.add(HOTTEST_KEY);
+            }
+        }
+
+        List<Map.Entry<byte[], Long>> hitters = stripedHeavyHitters.getHeavyHitters();
+        assertThat(hitters).hasSize(2);
+        assertThat(hitters.get(0).getKey()).isEqualTo(HOTTEST_KEY);
+        assertThat(hitters.get(1).getKey()).isEqualTo(HOT_KEY);
+    }
+
+    @Test
+    public void keepsAllKeysWhileBelowCapacity() {
+        heavyHitters.add(HOT_KEY);
+
+        assertThat(heavyHitters.getHeavyHitters()).hasSize(1);
+        assertThat(heavyHitters.getHeavyHitters().get(0).getValue()).isEqualTo(1L);
+    }
+
+    @Test
+    public void returnedKeysAreCopies() {
+        byte[] key = PtBytes.toBytes("key");
+        heavyHitters.add(key);
+        key[0] = 0;
+
+        assertThat(heavyHitters.getHeavyHitters().get(0).getKey()).isEqualTo(PtBytes.toBytes("key"));
+    }
+
+    @Test
+    public void resetForgetsAllKeys() {
+        heavyHitters.add(HOT_KEY);
+        heavyHitters.reset();
+
+        assertThat(heavyHitters.getHeavyHitters()).isEmpty();
+        heavyHitters.add(HOT_KEY);
+        assertThat(heavyHitters.getHeavyHitters().get(0).getValue()).isEqualTo(1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveCapacity() {
+        new HeavyHitters(0, 256);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveStripes() {
+        new HeavyHitters(2, 256, 0);
+    }
+}
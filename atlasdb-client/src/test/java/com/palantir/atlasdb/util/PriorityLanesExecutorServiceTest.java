@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class PriorityLanesExecutorServiceTest {
+    private static final int NUM_WORKERS = 4;
+
+    private ExecutorService executor;
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void tasksRunWithThePriorityOfTheirSubmitter() throws Exception {
+        executor = create(NUM_WORKERS);
+        assertThat(executor.submit(KvsCallPriority::current).get()).isEqualTo(KvsCallPriority.NORMAL);
+        assertThat(KvsCallPriority.CRITICAL.call(() -> executor.submit(KvsCallPriority::current)).get())
+                .isEqualTo(KvsCallPriority.CRITICAL);
+        assertThat(KvsCallPriority.BACKGROUND.call(() -> executor.submit(KvsCallPriority::current)).get())
+                .isEqualTo(KvsCallPriority.BACKGROUND);
+    }
+
+    @Test
+    public void lanesAreServedInProportionToTheirWeights() throws Exception {
+        executor = create(1);
+        CountDownLatch workerBlocked = new CountDownLatch(1);
+        CountDownLatch blockWorker = new CountDownLatch(1);
+        executor.execute(() -> {
+            workerBlocked.countDown();
+            await(blockWorker);
+        });
+        workerBlocked.await();
+
+        List<KvsCallPriority> startOrder = Lists.newCopyOnWriteArrayList();
+        List<Future<?>> futures = Lists.newArrayList();
+        for (KvsCallPriority priority : Lists.reverse(Lists.newArrayList(KvsCallPriority.values()))) {
+            for (int i = 0; i < 8; i++) {
+                futures.add(priority.call(() -> executor.submit(() -> startOrder.add(KvsCallPriority.current()))));
+            }
+        }
+        blockWorker.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        List<KvsCallPriority> firstRound = startOrder.subList(0, 13);
+        assertThat(firstRound).filteredOn(KvsCallPriority.CRITICAL::equals).hasSize(8);
+        assertThat(firstRound).filteredOn(KvsCallPriority.NORMAL::equals).hasSize(4);
+        assertThat(firstRound).filteredOn(KvsCallPriority.BACKGROUND::equals).hasSize(1);
+        assertThat(startOrder).hasSize(24);
+    }
+
+    @Test
+    public void backgroundTasksLeaveWorkersFreeForForegroundTasks() throws Exception {
+        executor = create(NUM_WORKERS);
+        int maxBackgroundWorkers = (int) (NUM_WORKERS * PriorityLanesExecutorService.BACKGROUND_WORKER_PROPORTION);
+        CountDownLatch blockBackground = new CountDownLatch(1);
+        AtomicInteger runningBackground = new AtomicInteger();
+        List<Future<?>> backgroundFutures = Lists.newArrayList();
+        for (int i = 0; i < 2 * NUM_WORKERS; i++) {
+            backgroundFutures.add(KvsCallPriority.BACKGROUND.call(() -> executor.submit(() -> {
+                runningBackground.incrementAndGet();
+                await(blockBackground);
+                runningBackground.decrementAndGet();
+            })));
+        }
+        while (runningBackground.get() < maxBackgroundWorkers) {
+            Thread.sleep(1);
+        }
+
+        assertThat(executor.submit(() -> "foreground").get(10, TimeUnit.SECONDS)).isEqualTo("foreground");
+        assertThat(runningBackground.get()).isEqualTo(maxBackgroundWorkers);
+        assertThat(((PriorityLanesExecutorService) executor).getQueued(KvsCallPriority.BACKGROUND))
+                .isEqualTo(2 * NUM_WORKERS - maxBackgroundWorkers);
+
+        blockBackground.countDown();
+        for (Future<?> future : backgroundFutures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void shutdownNowReturnsQueuedTasks() {
+        executor = create(1);
+        CountDownLatch blockWorker = new CountDownLatch(1);
+        executor.execute(() -> await(blockWorker));
+        executor.execute(() -> { });
+        KvsCallPriority.BACKGROUND.run(() -> executor.execute(() -> { }));
+
+        assertThat(executor.shutdownNow()).hasSize(2);
+        assertThat(executor.isShutdown()).isTrue();
+    }
+
+    private static ExecutorService create(int numWorkers) {
+        return PriorityLanesExecutorService.create(Executors.newFixedThreadPool(numWorkers), numWorkers);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.palantir.common.base;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -122,6 +123,45 @@ public abstract class BatchingVisitableView<T> extends ForwardingObject implemen
         return BatchingVisitables.transformBatch(delegate(), fn);
     }
 
+    /**
+     * Transforms batches on the given executor, with up to {@code maxBatchesInFlight} batches being transformed at
+     * once; see {@link BatchingVisitables#parallelTransformBatch}. The function must be thread-safe.
+     * <p>
+     * To also fetch ahead while batches are being transformed, call {@link #prefetch} first.
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()} is a reasonable executor for CPU-bound functions.
+     */
+    public <U> BatchingVisitableView<U> parallelTransformBatch(Function<? super List<T>, ? extends List<U>> fn,
+                                                               ExecutorService executor,
+                                                               int maxBatchesInFlight,
+                                                               boolean preserveOrder) {
+        Preconditions.checkNotNull(fn, "Cannot transform using a null function");
+        return BatchingVisitables.parallelTransformBatch(delegate(), fn, executor, maxBatchesInFlight, preserveOrder);
+    }
+
+    public <U> BatchingVisitableView<U> parallelTransform(Function<? super T, ? extends U> fn,
+                                                          ExecutorService executor,
+                                                          int maxBatchesInFlight,
+                                                          boolean preserveOrder) {
+        Preconditions.checkNotNull(fn, "Cannot transform using a null function");
+        return BatchingVisitables.parallelTransform(delegate(), fn, executor, maxBatchesInFlight, preserveOrder);
+    }
+
+    public BatchingVisitableView<T> parallelFilter(Predicate<? super T> predicate,
+                                                   ExecutorService executor,
+                                                   int maxBatchesInFlight,
+                                                   boolean preserveOrder) {
+        Preconditions.checkNotNull(predicate, "Cannot filter using a null predicate");
+        return BatchingVisitables.parallelFilter(delegate(), predicate, executor, maxBatchesInFlight, preserveOrder);
+    }
+
+    /**
+     * Fetches up to {@code capacity} batches ahead of the visitor on the given executor; see
+     * {@link PrefetchingBatchingVisitable}.
+     */
+    public BatchingVisitableView<T> prefetch(int capacity, ExecutorService executor, String name) {
+        return of(new PrefetchingBatchingVisitable<T>(delegate(), capacity, executor, name));
+    }
+
     public void forEach(int batchSize, final Visitor<T> visitor) {
         delegate().batchAccept(batchSize, new AbortingVisitor<List<T>, RuntimeException>() {
             @Override
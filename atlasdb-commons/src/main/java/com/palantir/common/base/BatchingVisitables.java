@@ -17,6 +17,7 @@ package com.palantir.common.base;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -300,6 +301,50 @@ public class BatchingVisitables {
         });
     }
 
+    /**
+     * Like {@link #transformBatch} except that batches are transformed on the given executor, with up to
+     * {@code maxBatchesInFlight} batches being transformed at once. This is worthwhile when the function is expensive
+     * relative to producing a batch; the function must be thread-safe. If {@code preserveOrder} is false, transformed
+     * batches are visited in the order in which they finish, which avoids one slow batch holding up the rest.
+     */
+    public static <F, T> BatchingVisitableView<T> parallelTransformBatch(BatchingVisitable<F> visitable,
+            Function<? super List<F>, ? extends List<T>> f,
+            ExecutorService executor,
+            int maxBatchesInFlight,
+            boolean preserveOrder) {
+        return BatchingVisitableView.of(new ParallelTransformingBatchingVisitable<F, T>(
+                visitable, f, executor, maxBatchesInFlight, preserveOrder));
+    }
+
+    public static <F, T> BatchingVisitableView<T> parallelTransform(BatchingVisitable<F> visitable,
+            final Function<? super F, ? extends T> f,
+            ExecutorService executor,
+            int maxBatchesInFlight,
+            boolean preserveOrder) {
+        Preconditions.checkNotNull(f);
+        return parallelTransformBatch(visitable, new Function<List<F>, List<T>>() {
+            @Override
+            public List<T> apply(List<F> from) {
+                // Copy eagerly so that the function runs on the executor rather than lazily on the visiting thread.
+                return Lists.newArrayList(Lists.transform(from, f));
+            }
+        }, executor, maxBatchesInFlight, preserveOrder);
+    }
+
+    public static <T> BatchingVisitableView<T> parallelFilter(BatchingVisitable<T> visitable,
+            final Predicate<? super T> pred,
+            ExecutorService executor,
+            int maxBatchesInFlight,
+            boolean preserveOrder) {
+        Preconditions.checkNotNull(pred);
+        return parallelTransformBatch(visitable, new Function<List<T>, List<T>>() {
+            @Override
+            public List<T> apply(List<T> input) {
+                return ImmutableList.copyOf(Iterables.filter(input, pred));
+            }
+        }, executor, maxBatchesInFlight, preserveOrder);
+    }
+
     public static <T> BatchingVisitableView<T> limit(final BatchingVisitable<T> visitable, final long limit) {
         Preconditions.checkNotNull(visitable);
         Preconditions.checkArgument(limit >= 0);
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.base;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link BatchingVisitable} that applies a function to each batch of its delegate on an executor, so that several
+ * batches are transformed at once while the delegate carries on producing the next ones.
+ * <p>
+ * At most {@code maxBatchesInFlight} batches are submitted but not yet visited at any time, which bounds the memory
+ * held by in-flight batches and how far the delegate runs ahead of the visitor. If {@code preserveOrder} is false,
+ * transformed batches are visited in the order in which they finish rather than in the order of the delegate.
+ * <p>
+ * The function is called concurrently from the executor's threads and must be thread-safe; the visitor is only ever
+ * called from the thread calling {@link #batchAccept}. If the visitor aborts or anything throws, batches that are
+ * still in flight are cancelled.
+ */
+final class ParallelTransformingBatchingVisitable<F, T> extends AbstractBatchingVisitable<T> {
+    private final BatchingVisitable<F> delegate;
+    private final Function<? super List<F>, ? extends List<T>> function;
+    private final ExecutorService executor;
+    private final int maxBatchesInFlight;
+    private final boolean preserveOrder;
+
+    ParallelTransformingBatchingVisitable(BatchingVisitable<F> delegate,
+                                          Function<? super List<F>, ? extends List<T>> function,
+                                          ExecutorService executor,
+                                          int maxBatchesInFlight,
+                                          boolean preserveOrder) {
+        Preconditions.checkArgument(maxBatchesInFlight > 0,
+                "maxBatchesInFlight must be positive, but was %s", maxBatchesInFlight);
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.function = Preconditions.checkNotNull(function);
+        this.executor = Preconditions.checkNotNull(executor);
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        this.preserveOrder = preserveOrder;
+    }
+
+    @Override
+    protected <K extends Exception> void batchAcceptSizeHint(int batchSizeHint,
+                                                             final ConsistentVisitor<T, K> v) throws K {
+        final InFlightBatches<T> inFlight = preserveOrder
+                ? new OrderedInFlightBatches<T>(executor)
+                : new UnorderedInFlightBatches<T>(executor);
+        try {
+            boolean proceed = delegate.batchAccept(batchSizeHint, new AbortingVisitor<List<F>, K>() {
+                @Override
+                public boolean visit(List<F> batch) throws K {
+                    final List<F> batchCopy = Lists.newArrayList(batch);
+                    inFlight.submit(() -> function.apply(batchCopy));
+                    while (inFlight.size() >= maxBatchesInFlight || inFlight.isNextDone()) {
+                        if (!v.visit(inFlight.takeNext())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            });
+            while (proceed && inFlight.size() > 0) {
+                proceed = v.visit(inFlight.takeNext());
+            }
+        } finally {
+            inFlight.cancelAll();
+        }
+    }
+
+    private interface InFlightBatches<T> {
+        void submit(Callable<List<T>> task);
+
+        int size();
+
+        /**
+         * Returns true if {@link #takeNext()} would not block.
+         */
+        boolean isNextDone();
+
+        /**
+         * Waits for and removes the next transformed batch, rethrowing anything thrown by the function.
+         */
+        List<T> takeNext();
+
+        void cancelAll();
+    }
+
+    private static final class OrderedInFlightBatches<T> implements InFlightBatches<T> {
+        private final ExecutorService executor;
+        private final Deque<Future<List<T>>> futures = new ArrayDeque<>();
+
+        OrderedInFlightBatches(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void submit(Callable<List<T>> task) {
+            futures.addLast(executor.submit(task));
+        }
+
+        @Override
+        public int size() {
+            return futures.size();
+        }
+
+        @Override
+        public boolean isNextDone() {
+            return !futures.isEmpty() && futures.peekFirst().isDone();
+        }
+
+        @Override
+        public List<T> takeNext() {
+            return getUnchecked(futures.removeFirst());
+        }
+
+        @Override
+        public void cancelAll() {
+            cancelFutures(futures);
+        }
+    }
+
+    private static final class UnorderedInFlightBatches<T> implements InFlightBatches<T> {
+        private final CompletionService<List<T>> completionService;
+        private final Deque<Future<List<T>>> futures = new ArrayDeque<>();
+
+        UnorderedInFlightBatches(ExecutorService executor) {
+            this.completionService = new ExecutorCompletionService<>(executor);
+        }
+
+        @Override
+        public void submit(Callable<List<T>> task) {
+            futures.add(completionService.submit(task));
+        }
+
+        @Override
+        public int size() {
+            return futures.size();
+        }
+
+        @Override
+        public boolean isNextDone() {
+            for (Future<List<T>> future : futures) {
+                if (future.isDone()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public List<T> takeNext() {
+            try {
+                Future<List<T>> future = completionService.take();
+                futures.remove(future);
+                return getUnchecked(future);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            }
+        }
+
+        @Override
+        public void cancelAll() {
+            cancelFutures(futures);
+        }
+    }
+
+    private static <T> void cancelFutures(Deque<Future<List<T>>> futures) {
+        for (Future<List<T>> future : futures) {
+            future.cancel(true);
+        }
+        futures.clear();
+    }
+
+    private static <T> List<T> getUnchecked(Future<List<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+}
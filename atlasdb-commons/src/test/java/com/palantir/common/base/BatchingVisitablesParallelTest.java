@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.common.base;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+
+public class BatchingVisitablesParallelTest {
+    private static final int NUM_ELEMENTS = 1000;
+    private static final List<Integer> ELEMENTS =
+            ImmutableList.copyOf(ContiguousSet.create(Range.closedOpen(0, NUM_ELEMENTS), DiscreteDomain.integers()));
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void orderedTransformPreservesOrderWhenLaterBatchesFinishFirst() {
+        List<Integer> result = BatchingVisitableView.of(BatchingVisitableFromIterable.create(ELEMENTS))
+                .hintBatchSize(10)
+                .parallelTransformBatch(batch -> {
+                    // Make earlier batches slower so that they finish after later ones.
+                    sleepUninterruptibly(batch.get(0) % 30 == 0 ? 5 : 0);
+                    return Lists.transform(batch, i -> i * 2);
+                }, executor, 4, true)
+                .immutableCopy();
+        assertEquals(Lists.transform(ELEMENTS, i -> i * 2), result);
+    }
+
+    @Test
+    public void unorderedTransformVisitsEveryElementOnce() {
+        List<Integer> result = BatchingVisitableView.of(BatchingVisitableFromIterable.create(ELEMENTS))
+                .hintBatchSize(7)
+                .parallelTransform(i -> i + 1, executor, 4, false)
+                .immutableCopy();
+        assertThat(result, containsInAnyOrder(Lists.transform(ELEMENTS, i -> i + 1).toArray()));
+    }
+
+    @Test
+    public void parallelFilterKeepsMatchingElementsInOrder() {
+        List<Integer> result = BatchingVisitableView.of(BatchingVisitableFromIterable.create(ELEMENTS))
+                .parallelFilter(i -> i % 3 == 0, executor, 4, true)
+                .immutableCopy();
+        assertEquals(NUM_ELEMENTS / 3 + 1, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(Integer.valueOf(i * 3), result.get(i));
+        }
+    }
+
+    @Test
+    public void visitorCanAbort() {
+        List<Integer> visited = Lists.newArrayList();
+        boolean completed = BatchingVisitables.parallelTransform(
+                BatchingVisitableFromIterable.create(ELEMENTS), i -> i, executor, 4, true)
+                .batchAccept(10, batch -> {
+                    visited.addAll(batch);
+                    return visited.size() < 50;
+                });
+        assertFalse(completed);
+        assertEquals(ELEMENTS.subList(0, 50), visited);
+    }
+
+    @Test
+    public void exceptionsFromFunctionArePropagated() {
+        try {
+            BatchingVisitableView.of(BatchingVisitableFromIterable.create(ELEMENTS))
+                    .parallelTransform(i -> {
+                        if (i == 500) {
+                            throw new IllegalStateException("boom");
+                        }
+                        return i;
+                    }, executor, 4, false)
+                    .immutableCopy();
+            fail("Expected the exception thrown by the function");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test
+    public void boundsNumberOfBatchesInFlight() {
+        int maxBatchesInFlight = 3;
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger visited = new AtomicInteger();
+        AtomicInteger maxObservedInFlight = new AtomicInteger();
+        BatchingVisitable<Integer> source = BatchingVisitableView.of(BatchingVisitableFromIterable.create(ELEMENTS))
+                .transformBatch(batch -> {
+                    int inFlight = submitted.incrementAndGet() - visited.get();
+                    maxObservedInFlight.accumulateAndGet(inFlight, Math::max);
+                    return batch;
+                });
+        boolean completed = BatchingVisitables.parallelTransformBatch(source, batch -> batch, executor,
+                maxBatchesInFlight, true)
+                .batchAccept(10, batch -> {
+                    visited.incrementAndGet();
+                    return true;
+                });
+        assertTrue(completed);
+        assertEquals(NUM_ELEMENTS / 10, visited.get());
+        assertThat(maxObservedInFlight.get(), lessThanOrEqualTo(maxBatchesInFlight));
+    }
+
+    @Test
+    public void cancelsOutstandingBatchesOnAbort() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        boolean completed = BatchingVisitables.<Integer, Integer>parallelTransformBatch(
+                BatchingVisitableFromIterable.create(ELEMENTS),
+                batch -> {
+                    if (batch.get(0) == 0) {
+                        try {
+                            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                        } catch (InterruptedException e) {
+                            interrupted.countDown();
+                        }
+                    }
+                    return batch;
+                }, executor, 4, false)
+                .batchAccept(10, batch -> false);
+        assertFalse(completed);
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveMaxBatchesInFlight() {
+        BatchingVisitables.parallelTransform(BatchingVisitableFromIterable.create(ELEMENTS), i -> i, executor, 0, true);
+    }
+
+    private static void sleepUninterruptibly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
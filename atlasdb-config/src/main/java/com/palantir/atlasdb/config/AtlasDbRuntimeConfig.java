@@ -20,6 +20,7 @@ import org.immutables.value.Value;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.base.Preconditions;
 
 @JsonDeserialize(as = ImmutableAtlasDbRuntimeConfig.class)
 @JsonSerialize(as = ImmutableAtlasDbRuntimeConfig.class)
@@ -44,6 +45,21 @@ public abstract class AtlasDbRuntimeConfig {
         return ImmutableTransactionConfig.builder().build();
     }
 
+    /**
+     * The fraction of key value service calls whose latency, size and rows are recorded in per-table metrics.
+     * Zero, the default, records nothing.
+     */
+    @Value.Default
+    public double kvsTableMetricsSampleRate() {
+        return 0.0;
+    }
+
+    @Value.Check
+    protected final void check() {
+        Preconditions.checkState(kvsTableMetricsSampleRate() >= 0.0 && kvsTableMetricsSampleRate() <= 1.0,
+                "KVS table metrics sample rate must be between 0 and 1, but was %s", kvsTableMetricsSampleRate());
+    }
+
     public static ImmutableAtlasDbRuntimeConfig defaultRuntimeConfig() {
         return ImmutableAtlasDbRuntimeConfig.builder().build();
     }
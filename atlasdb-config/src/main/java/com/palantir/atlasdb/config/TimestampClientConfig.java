@@ -20,6 +20,7 @@ import org.immutables.value.Value;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.base.Preconditions;
 
 @JsonSerialize(as = ImmutableTimestampClientConfig.class)
 @JsonDeserialize(as = ImmutableTimestampClientConfig.class)
@@ -31,6 +32,41 @@ public abstract class TimestampClientConfig {
         return false;
     }
 
+    /**
+     * If true, concurrent lock requests are coalesced into bulk lock calls. This requires all TimeLock servers to
+     * support the bulk lock endpoint.
+     */
+    @Value.Default
+    public boolean enableLockBatching() {
+        return false;
+    }
+
+    /**
+     * The number of timestamps fetched at once for the start timestamps of read-only transactions run with
+     * {@code TransactionManager.runTaskReadOnlyWithStaleness}.
+     */
+    @Value.Default
+    public int timestampLeaseSize() {
+        return 100;
+    }
+
+    /**
+     * The maximum time timestamps fetched for stale read-only transactions are used for, which bounds how stale the
+     * snapshot read by such a transaction may be.
+     */
+    @Value.Default
+    public long timestampLeaseMaxAgeMillis() {
+        return 500L;
+    }
+
+    @Value.Check
+    protected final void check() {
+        Preconditions.checkState(timestampLeaseSize() > 0,
+                "Timestamp lease size must be positive, but was %s", timestampLeaseSize());
+        Preconditions.checkState(timestampLeaseMaxAgeMillis() >= 0,
+                "Timestamp lease max age must not be negative, but was %s", timestampLeaseMaxAgeMillis());
+    }
+
     // TODO (jkong): Make timestamp wait intervals configurable.
     // This should ONLY be done once the timestamp client supports nanosecond precision;
     // millisecond precision isn't too useful (realistically it's very unlikely you want to set this beyond
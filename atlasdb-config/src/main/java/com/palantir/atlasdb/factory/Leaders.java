@@ -104,7 +104,7 @@ public final class Leaders {
 
         PaxosAcceptor ourAcceptor = AtlasDbMetrics.instrument(
                 PaxosAcceptor.class,
-                PaxosAcceptorImpl.newAcceptor(config.acceptorLogDir().getPath()));
+                PaxosAcceptorImpl.newAcceptor(config.acceptorLogDir().getPath(), config.leaderLeaseDurationMs()));
         PaxosLearner ourLearner = AtlasDbMetrics.instrument(
                 PaxosLearner.class,
                 PaxosLearnerImpl.newLearner(config.learnerLogDir().getPath(), leadershipEventRecorder));
@@ -153,6 +153,8 @@ public final class Leaders {
                 .pingRateMs(config.pingRateMs())
                 .randomWaitBeforeProposingLeadershipMs(config.randomWaitBeforeProposingLeadershipMs())
                 .leaderPingResponseWaitMs(config.leaderPingResponseWaitMs())
+                .leaseDurationMs(config.leaderLeaseDurationMs())
+                .leaseClockDriftMs(config.leaderLeaseClockDriftMs())
                 .eventRecorder(leadershipEventRecorder)
                 .build();
 
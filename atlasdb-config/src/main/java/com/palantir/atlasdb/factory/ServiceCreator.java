@@ -22,6 +22,11 @@ import javax.net.ssl.SSLSocketFactory;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.palantir.atlasdb.config.ServerListConfig;
 import com.palantir.atlasdb.http.AtlasDbHttpClients;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
@@ -29,6 +34,20 @@ import com.palantir.remoting2.config.ssl.SslConfiguration;
 import com.palantir.remoting2.config.ssl.SslSocketFactories;
 
 public class ServiceCreator<T> implements Function<ServerListConfig, T> {
+    /**
+     * HTTP clients are shared per socket factory, so equal SSL configurations must map to the same factory for their
+     * proxies to share connections. Factories are only held while something still uses them.
+     */
+    private static final LoadingCache<SslConfiguration, SSLSocketFactory> SSL_SOCKET_FACTORIES =
+            CacheBuilder.newBuilder()
+                    .weakValues()
+                    .build(new CacheLoader<SslConfiguration, SSLSocketFactory>() {
+                        @Override
+                        public SSLSocketFactory load(SslConfiguration sslConfiguration) {
+                            return SslSocketFactories.createSslSocketFactory(sslConfiguration);
+                        }
+                    });
+
     private final Class<T> serviceClass;
     private final String userAgent;
 
@@ -45,9 +64,18 @@ public class ServiceCreator<T> implements Function<ServerListConfig, T> {
 
     /**
      * Utility method for transforming an optional {@link SslConfiguration} into an optional {@link SSLSocketFactory}.
+     * Equal configurations are given the same factory.
      */
     public static Optional<SSLSocketFactory> createSslSocketFactory(Optional<SslConfiguration> sslConfiguration) {
-        return sslConfiguration.map(config -> SslSocketFactories.createSslSocketFactory(config));
+        return sslConfiguration.map(ServiceCreator::getSslSocketFactory);
+    }
+
+    private static SSLSocketFactory getSslSocketFactory(SslConfiguration sslConfiguration) {
+        try {
+            return SSL_SOCKET_FACTORIES.getUnchecked(sslConfiguration);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
     }
 
     public static <T> T createService(
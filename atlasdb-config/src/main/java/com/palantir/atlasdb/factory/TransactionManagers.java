@@ -56,6 +56,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.NamespacedKeyValueServices;
 import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.TableMetricsKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.TracingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ValidatingQueryRewritingKeyValueService;
 import com.palantir.atlasdb.logging.LoggingArgs;
@@ -87,6 +88,7 @@ import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
 import com.palantir.atlasdb.transaction.impl.TimelockTimestampServiceAdapter;
+import com.palantir.atlasdb.transaction.impl.TimestampRangeLease;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
@@ -103,6 +105,7 @@ import com.palantir.lock.client.LockRefreshingRemoteLockService;
 import com.palantir.lock.impl.LegacyTimelockService;
 import com.palantir.lock.impl.LockRefreshingTimelockService;
 import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.lock.impl.TimelockEndpoint;
 import com.palantir.lock.v2.TimelockService;
 import com.palantir.logsafe.UnsafeArg;
 import com.palantir.timestamp.TimestampService;
@@ -234,6 +237,9 @@ public final class TransactionManagers {
 
         KeyValueService kvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(rawKvs);
         kvs = ProfilingKeyValueService.create(kvs, config.getKvsSlowLogThresholdMillis());
+        Supplier<Double> kvsTableMetricsSampleRate = Suppliers.memoizeWithExpiration(
+                () -> runtimeConfigSupplier.get().kvsTableMetricsSampleRate(), 1, TimeUnit.SECONDS);
+        kvs = TableMetricsKeyValueService.create(kvs, kvsTableMetricsSampleRate::get);
         kvs = SweepStatsKeyValueService.create(kvs,
                 new TimelockTimestampServiceAdapter(lockAndTimestampServices.timelock()));
         kvs = TracingKeyValueService.create(kvs);
@@ -285,7 +291,12 @@ public final class TransactionManagers {
                 sweepStrategyManager,
                 cleaner,
                 allowHiddenTableAccess,
-                () -> runtimeConfigSupplier.get().transaction().getLockAcquireTimeoutMillis());
+                () -> runtimeConfigSupplier.get().transaction().getLockAcquireTimeoutMillis(),
+                new TimestampRangeLease(
+                        lockAndTimestampServices.timelock(),
+                        () -> runtimeConfigSupplier.get().timestampClient().timestampLeaseSize(),
+                        () -> runtimeConfigSupplier.get().timestampClient().timestampLeaseMaxAgeMillis()));
+        transactionManager.registerClosingCallback(lockAndTimestampServices.closeCallback());
 
         PersistentLockManager persistentLockManager = new PersistentLockManager(
                 persistentLockService,
@@ -418,7 +429,7 @@ public final class TransactionManagers {
                             return AtlasDbFactory.NO_OP_FAST_FORWARD_TIMESTAMP;
                         },
                         UserAgents.DEFAULT_USER_AGENT);
-        return withRefreshingLockService(lockAndTimestampServices);
+        return withRefreshingLockService(config, lockAndTimestampServices);
     }
 
     @VisibleForTesting
@@ -434,18 +445,51 @@ public final class TransactionManagers {
                 createRawServices(config, env, lock, time, invalidator, userAgent);
         return withRequestBatchingTimestampService(
                 runtimeConfigSupplier,
-                withRefreshingLockService(lockAndTimestampServices));
+                withRefreshingLockService(config, withLockBatching(runtimeConfigSupplier, lockAndTimestampServices)));
+    }
+
+    /**
+     * Lock batching sits below lock refreshing, so that a lock that a caller never receives (for instance because it
+     * was interrupted while its batch was in flight) is not refreshed, and its lease expires.
+     */
+    private static LockAndTimestampServices withLockBatching(
+            java.util.function.Supplier<TimestampClientConfig> timestampClientConfigSupplier,
+            LockAndTimestampServices lockAndTimestampServices) {
+        return ImmutableLockAndTimestampServices.builder()
+                .from(lockAndTimestampServices)
+                .timelock(DecoratedTimelockServices.createTimelockServiceWithLockBatching(
+                        lockAndTimestampServices.timelock(), timestampClientConfigSupplier))
+                .build();
     }
 
     private static LockAndTimestampServices withRefreshingLockService(
+            AtlasDbConfig config,
             LockAndTimestampServices lockAndTimestampServices) {
+        LockRefreshingTimelockService refreshingTimelockService =
+                createRefreshingTimelockService(config, lockAndTimestampServices.timelock());
         return ImmutableLockAndTimestampServices.builder()
                 .from(lockAndTimestampServices)
-                .timelock(LockRefreshingTimelockService.createDefault(lockAndTimestampServices.timelock()))
+                .timelock(refreshingTimelockService)
                 .lock(LockRefreshingRemoteLockService.create(lockAndTimestampServices.lock()))
+                .closeCallback(refreshingTimelockService::close)
                 .build();
     }
 
+    /**
+     * Locks taken from the same TimeLock namespace are refreshed by one refresher per JVM, however many transaction
+     * managers use that namespace; the refresher stops once every service sharing it has been closed.
+     */
+    private static LockRefreshingTimelockService createRefreshingTimelockService(
+            AtlasDbConfig config,
+            TimelockService timelock) {
+        if (config.timelock().isPresent()) {
+            ServerListConfig endpoint = config.timelock().get().toNamespacedServerList();
+            return LockRefreshingTimelockService.createWithSharedRefresher(
+                    timelock, TimelockEndpoint.of(endpoint.servers()));
+        }
+        return LockRefreshingTimelockService.createDefault(timelock);
+    }
+
     private static LockAndTimestampServices withRequestBatchingTimestampService(
             java.util.function.Supplier<TimestampClientConfig> timestampClientConfigSupplier,
             LockAndTimestampServices lockAndTimestampServices) {
@@ -629,6 +673,14 @@ public final class TransactionManagers {
         RemoteLockService lock();
         TimestampService timestamp();
         TimelockService timelock();
+
+        /**
+         * Run when the transaction manager using these services is closed.
+         */
+        @Value.Default
+        default Runnable closeCallback() {
+            return () -> { };
+        }
     }
 
     public interface Environment {
@@ -23,6 +23,7 @@ import com.palantir.atlasdb.factory.DynamicDecoratingProxy;
 import com.palantir.atlasdb.transaction.impl.TimelockTimestampServiceAdapter;
 import com.palantir.atlasdb.transaction.impl.TimestampDecoratingTimelockService;
 import com.palantir.atlasdb.util.JavaSuppliers;
+import com.palantir.lock.impl.LockBatchingTimelockService;
 import com.palantir.lock.v2.TimelockService;
 import com.palantir.timestamp.RequestBatchingTimestampService;
 
@@ -41,4 +42,13 @@ public final class DecoratedTimelockServices {
                 JavaSuppliers.compose(TimestampClientConfig::enableTimestampBatching, configSupplier),
                 TimelockService.class);
     }
+
+    public static TimelockService createTimelockServiceWithLockBatching(
+            TimelockService timelockService, Supplier<TimestampClientConfig> configSupplier) {
+        return DynamicDecoratingProxy.newProxyInstance(
+                LockBatchingTimelockService.create(timelockService),
+                timelockService,
+                JavaSuppliers.compose(TimestampClientConfig::enableLockBatching, configSupplier),
+                TimelockService.class);
+    }
 }
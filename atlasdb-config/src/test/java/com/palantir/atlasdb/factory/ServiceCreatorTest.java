@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.factory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.security.KeyStore;
+import java.util.Optional;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.palantir.remoting2.config.ssl.SslConfiguration;
+
+public class ServiceCreatorTest {
+    private static final char[] TRUST_STORE_PASSWORD = "changeit".toCharArray();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File trustStore;
+
+    @Before
+    public void setUp() throws Exception {
+        trustStore = temporaryFolder.newFile("truststore.jks");
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, TRUST_STORE_PASSWORD);
+        try (OutputStream outputStream = new FileOutputStream(trustStore)) {
+            keyStore.store(outputStream, TRUST_STORE_PASSWORD);
+        }
+    }
+
+    @Test
+    public void equalSslConfigurationsShareSocketFactory() {
+        Optional<SSLSocketFactory> first = ServiceCreator.createSslSocketFactory(
+                Optional.of(SslConfiguration.of(trustStore.toPath())));
+        Optional<SSLSocketFactory> second = ServiceCreator.createSslSocketFactory(
+                Optional.of(SslConfiguration.of(trustStore.toPath())));
+
+        assertThat(first).isPresent();
+        assertThat(second.get()).isSameAs(first.get());
+    }
+
+    @Test
+    public void absentSslConfigurationHasNoSocketFactory() {
+        assertThat(ServiceCreator.createSslSocketFactory(Optional.empty())).isEmpty();
+    }
+}
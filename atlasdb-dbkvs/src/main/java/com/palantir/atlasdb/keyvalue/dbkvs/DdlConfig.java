@@ -42,6 +42,16 @@ public abstract class DdlConfig {
         return 64;
     }
 
+    /**
+     * If true, the number of concurrent reads and writes to the database adapts to how it is coping, between one and
+     * {@link #poolSize()}. See {@code AdaptiveConcurrencyLimiter} for how the limit is set and how calls are
+     * prioritised.
+     */
+    @Value.Default
+    public boolean adaptiveConcurrencyLimiting() {
+        return false;
+    }
+
     @Value.Default
     public int fetchBatchSize() {
         return 256;
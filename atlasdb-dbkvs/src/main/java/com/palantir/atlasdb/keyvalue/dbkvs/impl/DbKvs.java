@@ -108,6 +108,9 @@ import com.palantir.atlasdb.keyvalue.impl.AbstractKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.keyvalue.impl.GetCandidateCellsForSweepingShim;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
+import com.palantir.atlasdb.util.AdaptiveConcurrencyLimiter;
+import com.palantir.atlasdb.util.MetricsManager;
+import com.palantir.atlasdb.util.PriorityLanesExecutorService;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
@@ -141,6 +144,8 @@ public final class DbKvs extends AbstractKeyValueService {
     private final BatchingTaskRunner batchingQueryRunner;
     private final OverflowValueLoader overflowValueLoader;
     private final DbKvsGetRange getRangeStrategy;
+    private final Optional<AdaptiveConcurrencyLimiter> concurrencyLimiter;
+    private final MetricsManager metricsManager = new MetricsManager();
 
     public static DbKvs create(DbKeyValueServiceConfig config, SqlConnectionSupplier sqlConnSupplier) {
         DbKvs dbKvs = createNoInit(config.ddl(), sqlConnSupplier);
@@ -184,7 +189,9 @@ public final class DbKvs extends AbstractKeyValueService {
                 config,
                 tableFactory,
                 connections,
-                new ParallelTaskRunner(newFixedThreadPool(config.poolSize()), config.fetchBatchSize()),
+                new ParallelTaskRunner(
+                        PriorityLanesExecutorService.create(newFixedThreadPool(config.poolSize()), config.poolSize()),
+                        config.fetchBatchSize()),
                 (conns, tbl, ids) -> Collections.emptyMap(), // no overflow on postgres
                 new PostgresGetRange(prefixedTableNames, connections, tableMetadataCache));
     }
@@ -222,6 +229,17 @@ public final class DbKvs extends AbstractKeyValueService {
         this.batchingQueryRunner = batchingQueryRunner;
         this.overflowValueLoader = overflowValueLoader;
         this.getRangeStrategy = getRangeStrategy;
+        this.concurrencyLimiter = createConcurrencyLimiter(config);
+    }
+
+    private Optional<AdaptiveConcurrencyLimiter> createConcurrencyLimiter(DdlConfig ddlConfig) {
+        if (!ddlConfig.adaptiveConcurrencyLimiting()) {
+            return Optional.empty();
+        }
+        AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.create(
+                "the database", 1, ddlConfig.poolSize());
+        limiter.registerMetrics(metricsManager, DbKvs.class, "database");
+        return Optional.of(limiter);
     }
 
     private static ThreadPoolExecutor newFixedThreadPool(int maxPoolSize) {
@@ -266,6 +284,7 @@ public final class DbKvs extends AbstractKeyValueService {
         dbTables.close();
         connections.close();
         batchingQueryRunner.close();
+        metricsManager.deregisterMetrics();
     }
 
     @Override
@@ -1272,55 +1291,67 @@ public final class DbKvs extends AbstractKeyValueService {
         }
     }
 
+    private <T> T runWithinConcurrencyLimit(Supplier<T> task) {
+        return concurrencyLimiter.isPresent() ? concurrencyLimiter.get().run(task) : task.get();
+    }
+
     private <T> T runRead(TableReference tableRef, Function<DbReadTable, T> runner) {
-        ConnectionSupplier conns = new ConnectionSupplier(connections);
-        try {
-            return runner.apply(dbTables.createRead(tableRef, conns));
-        } finally {
-            conns.close();
-        }
+        return runWithinConcurrencyLimit(() -> {
+            ConnectionSupplier conns = new ConnectionSupplier(connections);
+            try {
+                return runner.apply(dbTables.createRead(tableRef, conns));
+            } finally {
+                conns.close();
+            }
+        });
     }
 
     private <T> T runWrite(TableReference tableRef, Function<DbWriteTable, T> runner) {
-        ConnectionSupplier conns = new ConnectionSupplier(connections);
-        try {
-            return runner.apply(dbTables.createWrite(tableRef, conns));
-        } finally {
-            conns.close();
-        }
+        return runWithinConcurrencyLimit(() -> {
+            ConnectionSupplier conns = new ConnectionSupplier(connections);
+            try {
+                return runner.apply(dbTables.createWrite(tableRef, conns));
+            } finally {
+                conns.close();
+            }
+        });
     }
 
     private <T> T runReadWrite(TableReference tableRef, ReadWriteTask<T> runner) {
-        ConnectionSupplier conns = new ConnectionSupplier(connections);
-        try {
-            return runner.run(
-                    dbTables.createRead(tableRef, conns),
-                    dbTables.createWrite(tableRef, conns));
-        } finally {
-            conns.close();
-        }
+        return runWithinConcurrencyLimit(() -> {
+            ConnectionSupplier conns = new ConnectionSupplier(connections);
+            try {
+                return runner.run(
+                        dbTables.createRead(tableRef, conns),
+                        dbTables.createWrite(tableRef, conns));
+            } finally {
+                conns.close();
+            }
+        });
     }
 
     private <T> T runWriteForceAutocommit(TableReference tableRef, Function<DbWriteTable, T> runner) {
-        ConnectionSupplier conns = new ConnectionSupplier(connections);
-        try {
-            SqlConnection conn = conns.get();
-            boolean autocommit;
+        return runWithinConcurrencyLimit(() -> {
+            ConnectionSupplier conns = new ConnectionSupplier(connections);
             try {
-                autocommit = conn.getUnderlyingConnection().getAutoCommit();
-            } catch (PalantirSqlException e1) {
-                throw Throwables.rewrapAndThrowUncheckedException(e1);
-            } catch (SQLException e1) {
-                throw Throwables.rewrapAndThrowUncheckedException(e1);
-            }
-            if (!autocommit) {
-                return runWriteFreshConnection(conns, tableRef, runner);
-            } else {
-                return runner.apply(dbTables.createWrite(tableRef, conns));
+                SqlConnection conn = conns.get();
+                boolean autocommit;
+                try {
+                    autocommit = conn.getUnderlyingConnection().getAutoCommit();
+                } catch (PalantirSqlException e1) {
+                    throw Throwables.rewrapAndThrowUncheckedException(e1);
+                } catch (SQLException e1) {
+                    throw Throwables.rewrapAndThrowUncheckedException(e1);
+                }
+                if (!autocommit) {
+                    return runWriteFreshConnection(conns, tableRef, runner);
+                } else {
+                    return runner.apply(dbTables.createWrite(tableRef, conns));
+                }
+            } finally {
+                conns.close();
             }
-        } finally {
-            conns.close();
-        }
+        });
     }
 
     /**
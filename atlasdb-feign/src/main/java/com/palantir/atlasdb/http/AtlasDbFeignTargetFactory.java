@@ -42,8 +42,7 @@ public final class AtlasDbFeignTargetFactory {
             .registerModule(new Jdk8Module());
     private static final Contract contract = new JAXRSContract();
     private static final Encoder encoder = new JacksonEncoder(mapper);
-    private static final Decoder decoder = new TextDelegateDecoder(
-            new OptionalAwareDecoder(new JacksonDecoder(mapper)));
+    private static final Decoder decoder = new OptionalAwareDecoder(new JacksonDecoder(mapper));
     private static final ErrorDecoder errorDecoder = new AtlasDbErrorDecoder();
 
     private AtlasDbFeignTargetFactory() {
@@ -55,13 +54,8 @@ public final class AtlasDbFeignTargetFactory {
             String uri,
             Class<T> type,
             String userAgent) {
-        return Feign.builder()
-                .contract(contract)
-                .encoder(encoder)
-                .decoder(decoder)
-                .errorDecoder(errorDecoder)
+        return newBuilder(errorDecoder, FeignOkHttpClients.newOkHttpClient(sslSocketFactory, userAgent))
                 .retryer(new InterruptHonoringRetryer())
-                .client(FeignOkHttpClients.newOkHttpClient(sslSocketFactory, userAgent))
                 .target(type, uri);
     }
 
@@ -70,12 +64,7 @@ public final class AtlasDbFeignTargetFactory {
             String uri,
             Class<T> type,
             String userAgent) {
-        return Feign.builder()
-                .contract(contract)
-                .encoder(encoder)
-                .decoder(decoder)
-                .errorDecoder(new RsErrorDecoder())
-                .client(FeignOkHttpClients.newOkHttpClient(sslSocketFactory, userAgent))
+        return newBuilder(new RsErrorDecoder(), FeignOkHttpClients.newOkHttpClient(sslSocketFactory, userAgent))
                 .target(type, uri);
     }
 
@@ -120,15 +109,23 @@ public final class AtlasDbFeignTargetFactory {
         FailoverFeignTarget<T> failoverFeignTarget = new FailoverFeignTarget<>(endpointUris, maxBackoffMillis, type);
         Client client = failoverFeignTarget.wrapClient(
                 FeignOkHttpClients.newOkHttpClient(sslSocketFactory, userAgent));
-        return Feign.builder()
-                .contract(contract)
-                .encoder(encoder)
-                .decoder(decoder)
-                .errorDecoder(errorDecoder)
-                .client(client)
+        return newBuilder(errorDecoder, client)
                 .retryer(failoverFeignTarget)
                 .options(feignOptions)
                 .target(failoverFeignTarget);
     }
 
+    /**
+     * Each proxy negotiates the use of the binary timelock format with its servers separately.
+     */
+    private static Feign.Builder newBuilder(ErrorDecoder proxyErrorDecoder, Client client) {
+        BinaryTimelockNegotiation negotiation = new BinaryTimelockNegotiation();
+        return Feign.builder()
+                .contract(contract)
+                .encoder(new BinaryTimelockEncoder(encoder, negotiation))
+                .decoder(new TextDelegateDecoder(new BinaryTimelockDecoder(decoder, negotiation)))
+                .errorDecoder(proxyErrorDecoder)
+                .client(negotiation.wrap(client))
+                .requestInterceptor(negotiation);
+    }
 }
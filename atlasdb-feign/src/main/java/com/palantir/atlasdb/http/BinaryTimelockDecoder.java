@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.http;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import com.google.common.net.HttpHeaders;
+import com.palantir.common.remoting.HeaderAccessUtils;
+import com.palantir.lock.remoting.BinaryTimelockCodec;
+
+import feign.FeignException;
+import feign.Response;
+import feign.Util;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+
+/**
+ * If the response has a Content-Type of {@link BinaryTimelockCodec#MEDIA_TYPE}, then this decoder uses the binary
+ * codec, and records that the server supports it. Otherwise, it falls back to the delegate.
+ */
+final class BinaryTimelockDecoder implements Decoder {
+    private static final String CONTENT_TYPE = HttpHeaders.CONTENT_TYPE.toLowerCase();
+
+    private final Decoder delegate;
+    private final BinaryTimelockNegotiation negotiation;
+
+    BinaryTimelockDecoder(Decoder delegate, BinaryTimelockNegotiation negotiation) {
+        this.delegate = delegate;
+        this.negotiation = negotiation;
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException, FeignException {
+        if (!HeaderAccessUtils.shortcircuitingCaseInsensitiveContainsEntry(
+                response.headers(),
+                CONTENT_TYPE,
+                BinaryTimelockCodec.MEDIA_TYPE)) {
+            return delegate.decode(response, type);
+        }
+        negotiation.onBinaryResponse();
+        try {
+            return BinaryTimelockCodec.decode(Util.toByteArray(response.body().asInputStream()), type);
+        } catch (IllegalArgumentException e) {
+            throw new DecodeException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.http;
+
+import java.lang.reflect.Type;
+
+import com.google.common.net.HttpHeaders;
+import com.palantir.lock.remoting.BinaryTimelockCodec;
+
+import feign.RequestTemplate;
+import feign.codec.EncodeException;
+import feign.codec.Encoder;
+
+/**
+ * Encodes request bodies in the {@link BinaryTimelockCodec} format if the server is known to accept it and the body
+ * type is supported. Otherwise, it falls back to the delegate, which also encodes binary bodies again if the server
+ * turns out not to accept them.
+ */
+final class BinaryTimelockEncoder implements Encoder {
+    private final Encoder delegate;
+    private final BinaryTimelockNegotiation negotiation;
+
+    BinaryTimelockEncoder(Encoder delegate, BinaryTimelockNegotiation negotiation) {
+        this.delegate = delegate;
+        this.negotiation = negotiation;
+    }
+
+    @Override
+    public void encode(Object object, Type bodyType, RequestTemplate template) throws EncodeException {
+        if (negotiation.shouldSendBinary() && BinaryTimelockCodec.canEncode(bodyType)) {
+            byte[] body = BinaryTimelockCodec.encode(object, bodyType);
+            template.header(HttpHeaders.CONTENT_TYPE, BinaryTimelockCodec.MEDIA_TYPE);
+            template.body(body, null);
+            negotiation.onBinaryRequest(body, () -> encodeAsJson(object, bodyType));
+        } else {
+            delegate.encode(object, bodyType, template);
+        }
+    }
+
+    private byte[] encodeAsJson(Object object, Type bodyType) {
+        RequestTemplate jsonTemplate = new RequestTemplate();
+        delegate.encode(object, bodyType, jsonTemplate);
+        return jsonTemplate.body();
+    }
+}
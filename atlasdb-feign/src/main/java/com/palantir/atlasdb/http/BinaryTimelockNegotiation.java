@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.http;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HttpHeaders;
+import com.palantir.common.remoting.HeaderAccessUtils;
+import com.palantir.lock.remoting.BinaryTimelockCodec;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+
+/**
+ * Negotiates the use of the {@link BinaryTimelockCodec} format with the server behind one proxy.
+ * <p>
+ * Every request that accepts JSON also offers to accept the binary format, so servers that support it respond in
+ * binary and older servers keep responding in JSON. Request bodies are only sent in binary once the server has sent a
+ * binary response, and go back to JSON if the server rejects a binary body, for example because the proxy has failed
+ * over to a server that has not been upgraded. The rejected request is then sent again in JSON, so the caller does not
+ * see the rejection.
+ */
+final class BinaryTimelockNegotiation implements RequestInterceptor {
+    private static final String ACCEPT_BINARY_OR_JSON =
+            BinaryTimelockCodec.MEDIA_TYPE + ", " + MediaType.APPLICATION_JSON + ";q=0.9";
+    private static final int UNSUPPORTED_MEDIA_TYPE = 415;
+
+    /**
+     * Produces the JSON bodies of binary requests in flight, keyed by the identity of their binary bodies. Entries are
+     * dropped once the request is no longer referenced.
+     */
+    private final Cache<byte[], Supplier<byte[]>> jsonBodies = CacheBuilder.newBuilder().weakKeys().build();
+
+    private volatile boolean serverAcceptsBinary = false;
+
+    @Override
+    public void apply(RequestTemplate template) {
+        Collection<String> accept = HeaderAccessUtils.shortcircuitingCaseInsensitiveGet(
+                template.headers(), HttpHeaders.ACCEPT);
+        if (accept.contains(MediaType.APPLICATION_JSON)) {
+            template.header(HttpHeaders.ACCEPT, ACCEPT_BINARY_OR_JSON);
+        }
+    }
+
+    boolean shouldSendBinary() {
+        return serverAcceptsBinary;
+    }
+
+    void onBinaryResponse() {
+        serverAcceptsBinary = true;
+    }
+
+    void onBinaryRequest(byte[] binaryBody, Supplier<byte[]> jsonBody) {
+        jsonBodies.put(binaryBody, jsonBody);
+    }
+
+    Client wrap(Client delegate) {
+        return (request, options) -> {
+            Response response = delegate.execute(request, options);
+            if (response.status() != UNSUPPORTED_MEDIA_TYPE) {
+                return response;
+            }
+            serverAcceptsBinary = false;
+            Supplier<byte[]> jsonBody = request.body() == null ? null : jsonBodies.getIfPresent(request.body());
+            if (jsonBody == null) {
+                return response;
+            }
+            response.close();
+            return delegate.execute(withJsonBody(request, jsonBody.get()), options);
+        };
+    }
+
+    private static Request withJsonBody(Request request, byte[] body) {
+        Map<String, Collection<String>> headers = new LinkedHashMap<>();
+        request.headers().forEach((name, values) -> {
+            if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_TYPE)
+                    && !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+                headers.put(name, values);
+            }
+        });
+        headers.put(HttpHeaders.CONTENT_TYPE, ImmutableList.of(MediaType.APPLICATION_JSON));
+        headers.put(HttpHeaders.CONTENT_LENGTH, ImmutableList.of(String.valueOf(body.length)));
+        return Request.create(request.method(), request.url(), headers, body, Util.UTF_8);
+    }
+}
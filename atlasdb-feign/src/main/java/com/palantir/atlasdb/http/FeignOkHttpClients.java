@@ -23,6 +23,9 @@ import javax.net.ssl.SSLSocketFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 
 import feign.Client;
@@ -31,6 +34,7 @@ import okhttp3.CipherSuite;
 import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
 import okhttp3.Interceptor;
+import okhttp3.Protocol;
 import okhttp3.Response;
 import okhttp3.TlsVersion;
 
@@ -39,6 +43,7 @@ public final class FeignOkHttpClients {
     static final String USER_AGENT_HEADER = "User-Agent";
     private static final int CONNECTION_POOL_SIZE = 100;
     private static final long KEEP_ALIVE_TIME_MILLIS = TimeUnit.MILLISECONDS.convert(10, TimeUnit.MINUTES);
+    private static final int MAX_SHARED_CLIENTS = 100;
 
     private static final ImmutableList<ConnectionSpec> CONNECTION_SPEC_WITH_CYPHER_SUITES = ImmutableList.of(
             new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS)
@@ -79,6 +84,25 @@ public final class FeignOkHttpClients {
                     .build(),
             ConnectionSpec.CLEARTEXT);
 
+    /**
+     * Clients are shared between all proxies using the same socket factory, so that calls to the same host reuse
+     * the same connections. Where HTTP/2 is negotiated, all in-flight calls to a host are multiplexed over a single
+     * connection instead of each needing a connection of its own. Socket factories are compared by identity, so
+     * callers should reuse one factory per SSL configuration.
+     * <p>
+     * The number of shared clients is bounded; proxies created from an evicted client keep working, but new proxies
+     * for that socket factory get a new connection pool.
+     */
+    private static final LoadingCache<Optional<SSLSocketFactory>, okhttp3.OkHttpClient> SHARED_CLIENTS =
+            CacheBuilder.newBuilder()
+                    .maximumSize(MAX_SHARED_CLIENTS)
+                    .build(new CacheLoader<Optional<SSLSocketFactory>, okhttp3.OkHttpClient>() {
+                        @Override
+                        public okhttp3.OkHttpClient load(Optional<SSLSocketFactory> sslSocketFactory) {
+                            return newSharedOkHttpClient(sslSocketFactory);
+                        }
+                    });
+
     private FeignOkHttpClients() {
         // factory
     }
@@ -96,15 +120,21 @@ public final class FeignOkHttpClients {
     @VisibleForTesting
     static okhttp3.OkHttpClient newRawOkHttpClient(Optional<SSLSocketFactory> sslSocketFactory,
             String userAgent) {
+        okhttp3.OkHttpClient.Builder builder = SHARED_CLIENTS.getUnchecked(sslSocketFactory).newBuilder();
+        builder.interceptors().add(new UserAgentAddingInterceptor(userAgent));
+        return builder.build();
+    }
+
+    private static okhttp3.OkHttpClient newSharedOkHttpClient(Optional<SSLSocketFactory> sslSocketFactory) {
         // Don't allow retrying on connection failures - see ticket #2194
         okhttp3.OkHttpClient.Builder builder = new okhttp3.OkHttpClient.Builder()
                 .connectionSpecs(CONNECTION_SPEC_WITH_CYPHER_SUITES)
                 .connectionPool(new ConnectionPool(CONNECTION_POOL_SIZE, KEEP_ALIVE_TIME_MILLIS, TimeUnit.MILLISECONDS))
+                .protocols(ImmutableList.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
                 .retryOnConnectionFailure(false);
         if (sslSocketFactory.isPresent()) {
             builder.sslSocketFactory(sslSocketFactory.get());
         }
-        builder.interceptors().add(new UserAgentAddingInterceptor(userAgent));
         return builder.build();
     }
 
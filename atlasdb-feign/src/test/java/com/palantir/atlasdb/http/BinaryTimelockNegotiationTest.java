@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HttpHeaders;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.remoting.BinaryTimelockCodec;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+
+public class BinaryTimelockNegotiationTest {
+    private static final LockRequest LOCK_REQUEST =
+            LockRequest.of(ImmutableSet.of(StringLockDescriptor.of("lock")), 1000L);
+    private static final LockResponse LOCK_RESPONSE =
+            LockResponse.successful(LockToken.of(LOCK_REQUEST.getRequestId()));
+    private static final byte[] JSON_BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private static final Request.Options OPTIONS = new Request.Options();
+
+    private final Encoder jsonEncoder = mock(Encoder.class);
+    private final Decoder jsonDecoder = mock(Decoder.class);
+    private final Client client = mock(Client.class);
+
+    private final BinaryTimelockNegotiation negotiation = new BinaryTimelockNegotiation();
+    private final Encoder encoder = new BinaryTimelockEncoder(jsonEncoder, negotiation);
+    private final Decoder decoder = new BinaryTimelockDecoder(jsonDecoder, negotiation);
+    private final Client negotiatingClient = negotiation.wrap(client);
+
+    @Test
+    public void offersToAcceptBinaryForJsonRequests() {
+        RequestTemplate template = new RequestTemplate().header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+        negotiation.apply(template);
+
+        assertThat(template.headers().get(HttpHeaders.ACCEPT)).containsExactly(
+                BinaryTimelockCodec.MEDIA_TYPE + ", " + MediaType.APPLICATION_JSON + ";q=0.9");
+    }
+
+    @Test
+    public void doesNotOfferToAcceptBinaryForOtherRequests() {
+        RequestTemplate template = new RequestTemplate().header(HttpHeaders.ACCEPT, MediaType.TEXT_PLAIN);
+        negotiation.apply(template);
+
+        assertThat(template.headers().get(HttpHeaders.ACCEPT)).containsExactly(MediaType.TEXT_PLAIN);
+    }
+
+    @Test
+    public void sendsJsonUntilServerRespondsInBinary() {
+        RequestTemplate template = new RequestTemplate();
+        encoder.encode(LOCK_REQUEST, LockRequest.class, template);
+
+        verify(jsonEncoder).encode(LOCK_REQUEST, LockRequest.class, template);
+    }
+
+    @Test
+    public void decodesBinaryResponses() throws IOException {
+        assertThat(decoder.decode(binaryResponse(200, LOCK_RESPONSE), LockResponse.class)).isEqualTo(LOCK_RESPONSE);
+        verifyZeroInteractions(jsonDecoder);
+    }
+
+    @Test
+    public void delegatesJsonResponses() throws IOException {
+        Response response = createResponse(200, MediaType.APPLICATION_JSON, new byte[0]);
+        decoder.decode(response, LockResponse.class);
+
+        verify(jsonDecoder).decode(response, LockResponse.class);
+    }
+
+    @Test
+    public void sendsBinaryAfterServerRespondsInBinary() throws IOException {
+        decoder.decode(binaryResponse(200, LOCK_RESPONSE), LockResponse.class);
+
+        RequestTemplate template = new RequestTemplate().header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        encoder.encode(LOCK_REQUEST, LockRequest.class, template);
+
+        verifyZeroInteractions(jsonEncoder);
+        assertThat(template.headers().get(HttpHeaders.CONTENT_TYPE)).containsExactly(BinaryTimelockCodec.MEDIA_TYPE);
+        assertThat(BinaryTimelockCodec.decode(template.body(), LockRequest.class)).isEqualTo(LOCK_REQUEST);
+    }
+
+    @Test
+    public void sendsJsonForUnsupportedTypesAfterServerRespondsInBinary() throws IOException {
+        decoder.decode(binaryResponse(200, LOCK_RESPONSE), LockResponse.class);
+
+        RequestTemplate template = new RequestTemplate();
+        encoder.encode("unsupported", String.class, template);
+
+        verify(jsonEncoder).encode("unsupported", String.class, template);
+    }
+
+    @Test
+    public void retriesRejectedBinaryRequestsInJson() throws IOException {
+        doAnswer(invocation -> {
+            ((RequestTemplate) invocation.getArguments()[2]).body(JSON_BODY, StandardCharsets.UTF_8);
+            return null;
+        }).when(jsonEncoder).encode(eq(LOCK_REQUEST), eq(LockRequest.class), any());
+        decoder.decode(binaryResponse(200, LOCK_RESPONSE), LockResponse.class);
+        RequestTemplate template = new RequestTemplate().method("POST");
+        encoder.encode(LOCK_REQUEST, LockRequest.class, template);
+
+        Response jsonResponse = createResponse(200, MediaType.APPLICATION_JSON, new byte[0]);
+        when(client.execute(any(), any())).thenReturn(
+                createResponse(415, MediaType.APPLICATION_JSON, new byte[0]),
+                jsonResponse);
+        assertThat(negotiatingClient.execute(template.request(), OPTIONS)).isSameAs(jsonResponse);
+
+        ArgumentCaptor<Request> requests = ArgumentCaptor.forClass(Request.class);
+        verify(client, times(2)).execute(requests.capture(), eq(OPTIONS));
+        Request retriedRequest = requests.getAllValues().get(1);
+        assertThat(retriedRequest.body()).isEqualTo(JSON_BODY);
+        assertThat(retriedRequest.headers().get(HttpHeaders.CONTENT_TYPE)).containsExactly(MediaType.APPLICATION_JSON);
+        assertThat(retriedRequest.headers().get(HttpHeaders.CONTENT_LENGTH))
+                .containsExactly(String.valueOf(JSON_BODY.length));
+    }
+
+    @Test
+    public void goesBackToJsonIfServerRejectsBinary() throws IOException {
+        decoder.decode(binaryResponse(200, LOCK_RESPONSE), LockResponse.class);
+        when(client.execute(any(), any())).thenReturn(createResponse(415, MediaType.APPLICATION_JSON, new byte[0]));
+        negotiatingClient.execute(new RequestTemplate().method("POST").request(), OPTIONS);
+
+        RequestTemplate template = new RequestTemplate();
+        encoder.encode(LOCK_REQUEST, LockRequest.class, template);
+
+        verify(jsonEncoder).encode(LOCK_REQUEST, LockRequest.class, template);
+    }
+
+    @Test
+    public void doesNotRetryRejectedJsonRequests() throws IOException {
+        Response rejection = createResponse(415, MediaType.APPLICATION_JSON, new byte[0]);
+        when(client.execute(any(), any())).thenReturn(rejection);
+
+        RequestTemplate template = new RequestTemplate().method("POST").body(JSON_BODY, StandardCharsets.UTF_8);
+        assertThat(negotiatingClient.execute(template.request(), OPTIONS)).isSameAs(rejection);
+        verify(client, times(1)).execute(any(), any());
+    }
+
+    private static Response binaryResponse(int status, Object body) {
+        return createResponse(
+                status, BinaryTimelockCodec.MEDIA_TYPE, BinaryTimelockCodec.encode(body, body.getClass()));
+    }
+
+    private static Response createResponse(int status, String contentType, byte[] body) {
+        Map<String, Collection<String>> headers = ImmutableMap.of(
+                HttpHeaders.CONTENT_TYPE, ImmutableList.of(contentType));
+        return Response.create(status, "reason", headers, body);
+    }
+}
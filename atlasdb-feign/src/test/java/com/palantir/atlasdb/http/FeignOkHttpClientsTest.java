@@ -17,11 +17,16 @@ package com.palantir.atlasdb.http;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.security.GeneralSecurityException;
 import java.util.Optional;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+
 import org.junit.Test;
 
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 
 public class FeignOkHttpClientsTest {
     @Test
@@ -29,4 +34,44 @@ public class FeignOkHttpClientsTest {
         OkHttpClient okHttpClient = FeignOkHttpClients.newRawOkHttpClient(Optional.empty(), "userAgent");
         assertThat(okHttpClient.retryOnConnectionFailure()).isFalse();
     }
+
+    @Test
+    public void clientsShareConnectionsAcrossUserAgents() {
+        OkHttpClient first = FeignOkHttpClients.newRawOkHttpClient(Optional.empty(), "first");
+        OkHttpClient second = FeignOkHttpClients.newRawOkHttpClient(Optional.empty(), "second");
+        assertThat(first.connectionPool()).isSameAs(second.connectionPool());
+        assertThat(first.interceptors()).hasSize(1);
+    }
+
+    @Test
+    public void clientsShareConnectionsForTheSameSocketFactory() {
+        SSLSocketFactory sslSocketFactory = newSslSocketFactory();
+        OkHttpClient first = FeignOkHttpClients.newRawOkHttpClient(Optional.of(sslSocketFactory), "first");
+        OkHttpClient second = FeignOkHttpClients.newRawOkHttpClient(Optional.of(sslSocketFactory), "second");
+        assertThat(first.connectionPool()).isSameAs(second.connectionPool());
+        assertThat(first.sslSocketFactory()).isSameAs(sslSocketFactory);
+    }
+
+    @Test
+    public void clientsDoNotShareConnectionsAcrossSocketFactories() {
+        OkHttpClient first = FeignOkHttpClients.newRawOkHttpClient(Optional.of(newSslSocketFactory()), "userAgent");
+        OkHttpClient second = FeignOkHttpClients.newRawOkHttpClient(Optional.of(newSslSocketFactory()), "userAgent");
+        assertThat(first.connectionPool()).isNotSameAs(second.connectionPool());
+    }
+
+    @Test
+    public void clientPrefersHttp2() {
+        OkHttpClient okHttpClient = FeignOkHttpClients.newRawOkHttpClient(Optional.empty(), "userAgent");
+        assertThat(okHttpClient.protocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    }
+
+    private static SSLSocketFactory newSslSocketFactory() {
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+            return sslContext.getSocketFactory();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -101,12 +101,10 @@ public class DefaultCleanerBuilder {
 
     private Puncher buildPuncher() {
         KeyValueServicePuncherStore keyValuePuncherStore = KeyValueServicePuncherStore.create(keyValueService);
-        PuncherStore cachingPuncherStore = CachingPuncherStore.create(
-                keyValuePuncherStore,
-                punchIntervalMillis * 3);
+        PuncherStore timelinePuncherStore = TimelinePuncherStore.create(keyValuePuncherStore);
         Clock clock = GlobalClock.create(timelockService);
         SimplePuncher simplePuncher = SimplePuncher.create(
-                cachingPuncherStore,
+                timelinePuncherStore,
                 clock,
                 Suppliers.ofInstance(transactionReadTimeout));
         return AsyncPuncher.create(simplePuncher, punchIntervalMillis);
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.cleaner;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -94,6 +95,27 @@ public final class KeyValueServicePuncherStore implements PuncherStore {
         return getMillisForTimestamp(keyValueService, timestamp);
     }
 
+    /**
+     * Visits every punch in the table in descending order of wall clock time. Each punched time is visited once,
+     * with all of the timestamps that were punched at that time.
+     */
+    void visitAllPunches(PunchVisitor visitor) {
+        try (ClosableIterator<RowResult<Set<Long>>> result = keyValueService.getRangeOfTimestamps(
+                AtlasDbConstants.PUNCH_TABLE, RangeRequest.all(), Long.MAX_VALUE)) {
+            while (result.hasNext()) {
+                RowResult<Set<Long>> row = result.next();
+                byte[] encodedMillis = row.getRowName();
+                EncodingUtils.flipAllBitsInPlace(encodedMillis);
+                // The stored value of a punch is always equal to the timestamp it was written at.
+                visitor.visit(EncodingUtils.decodeUnsignedVarLong(encodedMillis), row.getColumns().get(COLUMN));
+            }
+        }
+    }
+
+    interface PunchVisitor {
+        void visit(long timeMillis, Set<Long> timestamps);
+    }
+
     public static long getMillisForTimestamp(KeyValueService kvs, long timestamp) {
         long timestampExclusive = timestamp + 1;
         // punch table is keyed by the real value we're trying to find so we have to do a whole table
@@ -30,6 +30,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
@@ -45,6 +46,7 @@ import com.google.common.collect.ImmutableMultimap.Builder;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
@@ -66,6 +68,7 @@ import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
 import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.util.KvsCallPriority;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.base.BatchingVisitableView;
 import com.palantir.common.base.Throwables;
@@ -108,6 +111,7 @@ public final class Scrubber {
     private final int readThreadCount;
     private final ExecutorService readerExec;
     private final ExecutorService exec;
+    private final ScrubberMetrics metrics = new ScrubberMetrics();
 
     private static final String SCRUBBER_THREAD_PREFIX = "AtlasScrubber";
 
@@ -173,8 +177,9 @@ public final class Scrubber {
         this.readThreadCount = readThreadCount;
         this.followers = followers;
         NamedThreadFactory threadFactory = new NamedThreadFactory(SCRUBBER_THREAD_PREFIX, true);
-        this.readerExec = Tracers.wrap(PTExecutors.newFixedThreadPool(readThreadCount, threadFactory));
-        this.exec = Tracers.wrap(PTExecutors.newFixedThreadPool(threadCount, threadFactory));
+        this.readerExec = KvsCallPriority.wrap(
+                Tracers.wrap(PTExecutors.newFixedThreadPool(readThreadCount, threadFactory)));
+        this.exec = KvsCallPriority.wrap(Tracers.wrap(PTExecutors.newFixedThreadPool(threadCount, threadFactory)));
     }
 
     /**
@@ -193,7 +198,7 @@ public final class Scrubber {
                 int numberOfAttempts = 0;
                 while (numberOfAttempts < MAX_RETRY_ATTEMPTS) {
                     try {
-                        runBackgroundScrubTask(txManager);
+                        KvsCallPriority.BACKGROUND.run(() -> runBackgroundScrubTask(txManager));
 
                         long sleepDuration = backgroundScrubFrequencyMillisSupplier.get();
                         log.debug("Sleeping {} millis until next execution of scrub task", sleepDuration);
@@ -284,6 +289,7 @@ public final class Scrubber {
 
         log.debug("Scrub background task running at timestamp {} processed a total of {} cells",
                   maxScrubTimestamp, totalCellsRead.get());
+        metrics.backgroundScrubCompleted(totalCellsRead.get());
 
         log.debug("Finished scrub task");
     }
@@ -322,7 +328,15 @@ public final class Scrubber {
 
                 // Here we don't need to check scrub timestamps because we guarantee that scrubImmediately is called
                 // AFTER the transaction commits
-                scrubCells(txManager, batchMultimap, scrubTimestamp, TransactionType.AGGRESSIVE_HARD_DELETE);
+                for (Entry<TableReference, Collection<Cell>> entry : batchMultimap.asMap().entrySet()) {
+                    log.debug("Attempting to immediately scrub {} cells from table {}",
+                            entry.getValue().size(), entry.getKey());
+                    scrubCells(txManager,
+                            entry.getKey(),
+                            ImmutableMultimap.<Long, Cell>builder().putAll(scrubTimestamp, entry.getValue()).build(),
+                            TransactionType.AGGRESSIVE_HARD_DELETE);
+                    log.debug("Immediately scrubbed {} cells from table {}", entry.getValue().size(), entry.getKey());
+                }
 
                 Multimap<Cell, Long> cellToScrubTimestamp = HashMultimap.create();
 
@@ -372,8 +386,9 @@ public final class Scrubber {
     }
 
     private long getCommitTimestampRollBackIfNecessary(long startTimestamp,
+                                                       @Nullable Long knownCommitTimestamp,
                                                        Multimap<TableReference, Cell> tableNameToCell) {
-        Long commitTimestamp = transactionService.get(startTimestamp);
+        Long commitTimestamp = knownCommitTimestamp;
         if (commitTimestamp == null) {
             // Roll back this transaction (note that rolling back arbitrary transactions
             // can never cause correctness issues, only liveness issues)
@@ -403,6 +418,10 @@ public final class Scrubber {
     /**
      * Scrubs some cells.
      *
+     * The cells that can be scrubbed are grouped by table and split into shards of at most one batch of cells, each
+     * covering a contiguous range of scrub timestamps. Shards are scrubbed in parallel, and all stale values found
+     * for a shard are deleted together.
+     *
      * @return number of cells read from _scrub table
      */
     private int scrubSomeCells(
@@ -426,16 +445,18 @@ public final class Scrubber {
         }
 
         Multimap<Long, Cell> toRemoveFromScrubQueue = HashMultimap.create();
+        Map<TableReference, SortedMap<Long, Collection<Cell>>> tableToScrubTimestampToCells = Maps.newHashMap();
+        Map<Long, Long> commitTimestamps = transactionService.get(scrubTimestampToTableNameToCell.keySet());
 
         int numCellsReadFromScrubTable = 0;
-        List<Future<Void>> scrubFutures = Lists.newArrayList();
         for (Map.Entry<Long, Multimap<TableReference, Cell>> entry : scrubTimestampToTableNameToCell.entrySet()) {
             final long scrubTimestamp = entry.getKey();
             final Multimap<TableReference, Cell> tableNameToCell = entry.getValue();
 
             numCellsReadFromScrubTable += tableNameToCell.size();
 
-            long commitTimestamp = getCommitTimestampRollBackIfNecessary(scrubTimestamp, tableNameToCell);
+            long commitTimestamp = getCommitTimestampRollBackIfNecessary(
+                    scrubTimestamp, commitTimestamps.get(scrubTimestamp), tableNameToCell);
             if (commitTimestamp >= maxScrubTimestamp) {
                 // We cannot scrub this yet because not all transactions can read this value.
                 continue;
@@ -444,23 +465,28 @@ public final class Scrubber {
                 // (we still remove it from the _scrub table with the call to markCellsAsScrubbed though),
                 // or else we could cause permanent data loss if the hard delete transaction failed after
                 // queuing cells to scrub but before successfully committing
-                for (final List<Entry<TableReference, Cell>> batch :
-                        Iterables.partition(tableNameToCell.entries(), batchSizeSupplier.get())) {
-                    final Multimap<TableReference, Cell> batchMultimap = HashMultimap.create();
-                    for (Entry<TableReference, Cell> e : batch) {
-                        batchMultimap.put(e.getKey(), e.getValue());
-                    }
-                    scrubFutures.add(exec.submit(() -> {
-                        scrubCells(txManager, batchMultimap,
-                                scrubTimestamp,
-                                aggressiveScrub ? TransactionType.AGGRESSIVE_HARD_DELETE : TransactionType.HARD_DELETE);
-                        return null;
-                    }));
+                for (Entry<TableReference, Collection<Cell>> tableEntry : tableNameToCell.asMap().entrySet()) {
+                    tableToScrubTimestampToCells
+                            .computeIfAbsent(tableEntry.getKey(), unused -> Maps.newTreeMap())
+                            .put(scrubTimestamp, tableEntry.getValue());
                 }
             }
             toRemoveFromScrubQueue.putAll(scrubTimestamp, tableNameToCell.values());
         }
 
+        TransactionType transactionType =
+                aggressiveScrub ? TransactionType.AGGRESSIVE_HARD_DELETE : TransactionType.HARD_DELETE;
+        List<Future<Void>> scrubFutures = Lists.newArrayList();
+        for (Entry<TableReference, SortedMap<Long, Collection<Cell>>> entry : tableToScrubTimestampToCells.entrySet()) {
+            TableReference tableRef = entry.getKey();
+            for (Multimap<Long, Cell> shard : getShards(entry.getValue(), batchSizeSupplier.get())) {
+                scrubFutures.add(exec.submit(() -> {
+                    scrubCells(txManager, tableRef, shard, transactionType);
+                    return null;
+                }));
+            }
+        }
+
         for (Future<Void> future : scrubFutures) {
             Futures.getUnchecked(future);
         }
@@ -469,6 +495,7 @@ public final class Scrubber {
         scrubberStore.markCellsAsScrubbed(
                 Multimaps.invertFrom(toRemoveFromScrubQueue, cellToScrubTimestamp),
                 batchSizeSupplier.get());
+        metrics.cellsScrubbed(toRemoveFromScrubQueue.size());
 
         log.trace("Finished scrubbing cells: {}", scrubTimestampToTableNameToCell);
 
@@ -487,26 +514,48 @@ public final class Scrubber {
         return numCellsReadFromScrubTable;
     }
 
-    private void scrubCells(TransactionManager txManager,
-                            Multimap<TableReference, Cell> tableNameToCells,
-                            long scrubTimestamp,
-                            Transaction.TransactionType transactionType) {
-        for (Entry<TableReference, Collection<Cell>> entry : tableNameToCells.asMap().entrySet()) {
-            TableReference tableRef = entry.getKey();
-            log.debug("Attempting to immediately scrub {} cells from table {}", entry.getValue().size(), tableRef);
-            for (List<Cell> cells : Iterables.partition(entry.getValue(), batchSizeSupplier.get())) {
-                Multimap<Cell, Long> timestampsToDelete = HashMultimap.create(
-                        keyValueService.getAllTimestamps(tableRef, ImmutableSet.copyOf(cells), scrubTimestamp));
-                for (Cell cell : ImmutableList.copyOf(timestampsToDelete.keySet())) {
-                    // Don't scrub garbage collection sentinels
-                    timestampsToDelete.remove(cell, Value.INVALID_VALUE_TIMESTAMP);
+    /**
+     * Splits the cells of one table into shards of at most {@code batchSize} cells, in scrub timestamp order.
+     */
+    private static List<Multimap<Long, Cell>> getShards(SortedMap<Long, Collection<Cell>> scrubTimestampToCells,
+                                                        int batchSize) {
+        List<Multimap<Long, Cell>> shards = Lists.newArrayList();
+        Multimap<Long, Cell> shard = HashMultimap.create();
+        for (Entry<Long, Collection<Cell>> entry : scrubTimestampToCells.entrySet()) {
+            for (Cell cell : entry.getValue()) {
+                shard.put(entry.getKey(), cell);
+                if (shard.size() >= batchSize) {
+                    shards.add(shard);
+                    shard = HashMultimap.create();
                 }
-                // If transactionType == TransactionType.AGGRESSIVE_HARD_DELETE this might
-                // force other transactions to abort or retry
-                deleteCellsAtTimestamps(txManager, tableRef, timestampsToDelete, transactionType);
             }
-            log.debug("Immediately scrubbed {} cells from table {}", entry.getValue().size(), tableRef);
         }
+        if (!shard.isEmpty()) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    /**
+     * Deletes every value of the given cells of one table written before the scrub timestamp they are mapped to,
+     * except for garbage collection sentinels.
+     */
+    private void scrubCells(TransactionManager txManager,
+                            TableReference tableRef,
+                            Multimap<Long, Cell> scrubTimestampToCells,
+                            Transaction.TransactionType transactionType) {
+        Multimap<Cell, Long> timestampsToDelete = HashMultimap.create();
+        for (Entry<Long, Collection<Cell>> entry : scrubTimestampToCells.asMap().entrySet()) {
+            timestampsToDelete.putAll(keyValueService.getAllTimestamps(
+                    tableRef, ImmutableSet.copyOf(entry.getValue()), entry.getKey()));
+        }
+        for (Cell cell : ImmutableList.copyOf(timestampsToDelete.keySet())) {
+            // Don't scrub garbage collection sentinels
+            timestampsToDelete.remove(cell, Value.INVALID_VALUE_TIMESTAMP);
+        }
+        // If transactionType == TransactionType.AGGRESSIVE_HARD_DELETE this might
+        // force other transactions to abort or retry
+        deleteCellsAtTimestamps(txManager, tableRef, timestampsToDelete, transactionType);
     }
 
     private void deleteCellsAtTimestamps(TransactionManager txManager,
@@ -523,9 +572,15 @@ public final class Scrubber {
                 batch.stream().forEach(e -> builder.put(e));
                 keyValueService.delete(tableRef, builder.build());
             }
+            metrics.staleValuesDeleted(cellToTimestamp.size());
         }
     }
 
+    @VisibleForTesting
+    ScrubberMetrics getMetrics() {
+        return metrics;
+    }
+
     public long getUnreadableTimestamp() {
         return unreadableTimestampSupplier.get();
     }
@@ -538,6 +593,7 @@ public final class Scrubber {
         exec.shutdown();
         readerExec.shutdown();
         service.shutdownNow();
+        metrics.deregister();
         boolean shutdown = false;
         try {
             shutdown = service.awaitTermination(5, TimeUnit.SECONDS);
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.google.common.annotations.VisibleForTesting;
+import com.palantir.atlasdb.util.MetricsManager;
+
+/**
+ * Throughput and lag of the {@link Scrubber}.
+ *
+ * The lag is the time since the background scrub last got through the whole scrub queue, and the last background
+ * scrub cells are the number of cells that run read from the queue. If scrub keeps up, both stay bounded.
+ *
+ * The metrics are registered when the scrubber is created and removed when it is shut down.
+ */
+class ScrubberMetrics {
+    private final MetricsManager metricsManager = new MetricsManager();
+
+    private final Meter cellsScrubbed = metricsManager.registerMeter(ScrubberMetrics.class, null, "cellsScrubbed");
+    private final Meter staleValuesDeleted =
+            metricsManager.registerMeter(ScrubberMetrics.class, null, "staleValuesDeleted");
+
+    private final AtomicLong lastBackgroundScrubCells = new AtomicLong();
+    private final AtomicLong lastCompletedRunMillis = new AtomicLong(System.currentTimeMillis());
+
+    ScrubberMetrics() {
+        metricsManager.registerMetric(ScrubberMetrics.class, "lastBackgroundScrubCells",
+                (Gauge<Long>) lastBackgroundScrubCells::get);
+        metricsManager.registerMetric(ScrubberMetrics.class, "lagMillis",
+                (Gauge<Long>) () -> System.currentTimeMillis() - lastCompletedRunMillis.get());
+    }
+
+    @VisibleForTesting
+    long getLastBackgroundScrubCells() {
+        return lastBackgroundScrubCells.get();
+    }
+
+    void backgroundScrubCompleted(long cellsRead) {
+        lastBackgroundScrubCells.set(cellsRead);
+        lastCompletedRunMillis.set(System.currentTimeMillis());
+    }
+
+    void cellsScrubbed(long numCells) {
+        cellsScrubbed.mark(numCells);
+    }
+
+    void staleValuesDeleted(long numValues) {
+        staleValuesDeleted.mark(numValues);
+    }
+
+    void deregister() {
+        metricsManager.deregisterMetrics();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Wrap a KeyValueServicePuncherStore, answering both #get() and #getMillisForTimestamp() from an
+ * in-memory copy of the punch table, so that neither operation reads from the key value service.
+ *
+ * The punch table is read once when the store is created; after that, the timeline only learns
+ * about punches made through this store. Punches made by other clients in the meantime are
+ * missed, which, as long as their clocks roughly agree with ours, only makes both lookups more
+ * conservative: #get() may return an earlier timestamp, and #getMillisForTimestamp() an earlier
+ * time.
+ *
+ * The timeline is kept as parallel primitive arrays sorted by wall clock time. Both lookups are
+ * binary searches over an immutable snapshot, and punches, which almost always arrive in order,
+ * are appended without copying.
+ */
+public final class TimelinePuncherStore implements PuncherStore {
+    public static TimelinePuncherStore create(KeyValueServicePuncherStore puncherStore) {
+        TimelinePuncherStore timelinePuncherStore = new TimelinePuncherStore(puncherStore);
+        Timeline.Loader loader = new Timeline.Loader();
+        puncherStore.visitAllPunches((timeMillis, timestamps) ->
+                loader.add(timeMillis, Collections.min(timestamps), Collections.max(timestamps)));
+        timelinePuncherStore.timeline = loader.build();
+        return timelinePuncherStore;
+    }
+
+    private final PuncherStore puncherStore;
+    private volatile Timeline timeline = Timeline.EMPTY;
+
+    private TimelinePuncherStore(PuncherStore puncherStore) {
+        this.puncherStore = puncherStore;
+    }
+
+    @Override
+    public void put(long timestamp, long timeMillis) {
+        puncherStore.put(timestamp, timeMillis);
+        synchronized (this) {
+            timeline = timeline.withPunch(timeMillis, timestamp);
+        }
+    }
+
+    @Override
+    public Long get(Long timeMillis) {
+        return timeline.getTimestamp(timeMillis);
+    }
+
+    @Override
+    public long getMillisForTimestamp(long timestamp) {
+        return timeline.getMillis(timestamp);
+    }
+
+    /**
+     * A snapshot of the first {@code size} entries of the timeline arrays. Entries at or past
+     * {@code size} may be written by a later snapshot sharing the same arrays, but entries before
+     * it are never modified.
+     */
+    private static final class Timeline {
+        static final Timeline EMPTY = new Timeline(new long[0], new long[0], new long[0], new long[0], 0);
+
+        // Wall clock times, strictly increasing.
+        private final long[] millis;
+        // The greatest and least timestamps punched at each time.
+        private final long[] maxTimestamps;
+        private final long[] minTimestamps;
+        // The least timestamp punched at each time or later; non-decreasing, even if the wall clock drifted.
+        private final long[] suffixMinTimestamps;
+        private final int size;
+
+        Timeline(long[] millis, long[] maxTimestamps, long[] minTimestamps, long[] suffixMinTimestamps, int size) {
+            this.millis = millis;
+            this.maxTimestamps = maxTimestamps;
+            this.minTimestamps = minTimestamps;
+            this.suffixMinTimestamps = suffixMinTimestamps;
+            this.size = size;
+        }
+
+        /**
+         * Returns the greatest timestamp punched at the latest time at or before timeMillis.
+         */
+        long getTimestamp(long timeMillis) {
+            int index = Arrays.binarySearch(millis, 0, size, timeMillis);
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return index < 0 ? Long.MIN_VALUE : maxTimestamps[index];
+        }
+
+        /**
+         * Returns the latest time at which a timestamp less than or equal to the given one was punched.
+         */
+        long getMillis(long timestamp) {
+            // suffixMinTimestamps is sorted, and the last index where it is at most the given timestamp
+            // is also the last index at which such a timestamp was punched.
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (suffixMinTimestamps[mid] <= timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low == 0 ? 0L : millis[low - 1];
+        }
+
+        /**
+         * Returns a timeline that also includes the given punch. Callers must not call this concurrently on
+         * timelines that share arrays.
+         */
+        Timeline withPunch(long timeMillis, long timestamp) {
+            if (size < millis.length
+                    && (size == 0 || (timeMillis > millis[size - 1] && timestamp >= suffixMinTimestamps[size - 1]))) {
+                millis[size] = timeMillis;
+                maxTimestamps[size] = timestamp;
+                minTimestamps[size] = timestamp;
+                suffixMinTimestamps[size] = timestamp;
+                return new Timeline(millis, maxTimestamps, minTimestamps, suffixMinTimestamps, size + 1);
+            }
+            return withPunchCopied(timeMillis, timestamp, timestamp);
+        }
+
+        private Timeline withPunchCopied(long timeMillis, long minTimestamp, long maxTimestamp) {
+            int index = Arrays.binarySearch(millis, 0, size, timeMillis);
+            boolean exists = index >= 0;
+            int position = exists ? index : -index - 1;
+            int newSize = exists ? size : size + 1;
+            int capacity = newSize <= millis.length ? millis.length : Math.max(newSize, millis.length * 2);
+
+            long[] newMillis = insert(millis, size, position, exists, capacity, timeMillis);
+            long[] newMaxTimestamps = insert(maxTimestamps, size, position, exists, capacity,
+                    exists ? Math.max(maxTimestamps[index], maxTimestamp) : maxTimestamp);
+            long[] newMinTimestamps = insert(minTimestamps, size, position, exists, capacity,
+                    exists ? Math.min(minTimestamps[index], minTimestamp) : minTimestamp);
+            long[] newSuffixMinTimestamps = insert(suffixMinTimestamps, size, position, exists, capacity, 0L);
+            for (int i = newSize - 1; i >= 0; i--) {
+                newSuffixMinTimestamps[i] = i == newSize - 1
+                        ? newMinTimestamps[i]
+                        : Math.min(newMinTimestamps[i], newSuffixMinTimestamps[i + 1]);
+            }
+            return new Timeline(newMillis, newMaxTimestamps, newMinTimestamps, newSuffixMinTimestamps, newSize);
+        }
+
+        private static long[] insert(long[] array, int size, int position, boolean replace, int capacity, long value) {
+            long[] copy = new long[capacity];
+            System.arraycopy(array, 0, copy, 0, position);
+            copy[position] = value;
+            int remainderStart = replace ? position + 1 : position;
+            System.arraycopy(array, remainderStart, copy, position + 1, size - remainderStart);
+            return copy;
+        }
+
+        /**
+         * Builds a timeline from punches added in descending order of time.
+         */
+        static final class Loader {
+            private long[] millis = new long[16];
+            private long[] maxTimestamps = new long[16];
+            private long[] minTimestamps = new long[16];
+            private int size = 0;
+
+            void add(long timeMillis, long minTimestamp, long maxTimestamp) {
+                Preconditions.checkState(size == 0 || timeMillis < millis[size - 1],
+                        "Punches must be loaded in descending order of time");
+                if (size == millis.length) {
+                    millis = Arrays.copyOf(millis, size * 2);
+                    maxTimestamps = Arrays.copyOf(maxTimestamps, size * 2);
+                    minTimestamps = Arrays.copyOf(minTimestamps, size * 2);
+                }
+                millis[size] = timeMillis;
+                maxTimestamps[size] = maxTimestamp;
+                minTimestamps[size] = minTimestamp;
+                size++;
+            }
+
+            Timeline build() {
+                long[] ascendingMillis = new long[size];
+                long[] ascendingMaxTimestamps = new long[size];
+                long[] ascendingMinTimestamps = new long[size];
+                long[] suffixMinTimestamps = new long[size];
+                for (int i = 0; i < size; i++) {
+                    int ascendingIndex = size - 1 - i;
+                    ascendingMillis[ascendingIndex] = millis[i];
+                    ascendingMaxTimestamps[ascendingIndex] = maxTimestamps[i];
+                    ascendingMinTimestamps[ascendingIndex] = minTimestamps[i];
+                    suffixMinTimestamps[ascendingIndex] = i == 0
+                            ? minTimestamps[i]
+                            : Math.min(minTimestamps[i], suffixMinTimestamps[ascendingIndex + 1]);
+                }
+                return new Timeline(
+                        ascendingMillis, ascendingMaxTimestamps, ascendingMinTimestamps, suffixMinTimestamps, size);
+            }
+        }
+    }
+}
@@ -18,15 +18,20 @@ package com.palantir.atlasdb.schema;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Namespace;
@@ -34,11 +39,17 @@ import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.table.description.RowNamePartitioner;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.util.KvsCallPriority;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.remoting2.tracing.Tracers;
 
 public class KeyValueServiceMigrator {
+    /**
+     * Passed as {@code maxBytesPerSecond} to migrate without any throttling.
+     */
+    public static final long UNLIMITED_BYTES_PER_SECOND = 0L;
+
     private final TableReference checkpointTable;
     private static final String CHECKPOINT_TABLE_NAME = "tmp_migrate_progress";
     private static final int PARTITIONS = 256;
@@ -51,6 +62,7 @@ public class KeyValueServiceMigrator {
 
     private final int threads;
     private final int defaultBatchSize;
+    private final long maxBytesPerSecond;
 
     // Tables that exist on the legacy KVS and should not be migrated.
     // TODO(tgordeeva): hacky, clean this up when we have table specific migration
@@ -83,6 +95,40 @@ public class KeyValueServiceMigrator {
                                    KvsMigrationMessageProcessor messageProcessor,
                                    TaskProgress taskProgress,
                                    Set<TableReference> unmigratableTables) {
+        this(checkpointNamespace,
+                fromTransactionManager,
+                toTransactionManager,
+                fromKvs,
+                toKvs,
+                migrationTimestampSupplier,
+                threads,
+                defaultBatchSize,
+                readBatchSizeOverrides,
+                messageProcessor,
+                taskProgress,
+                unmigratableTables,
+                UNLIMITED_BYTES_PER_SECOND);
+    }
+
+    /**
+     * Tables are migrated concurrently, with their ranges sharing a pool of {@code threads} workers, so the
+     * {@link TaskProgress} will see interleaved calls for different tables. If {@code maxBytesPerSecond} is positive,
+     * the approximate number of bytes copied per second across all tables is limited to it.
+     */
+    public KeyValueServiceMigrator(Namespace checkpointNamespace,
+                                   TransactionManager fromTransactionManager,
+                                   TransactionManager toTransactionManager,
+                                   KeyValueService fromKvs,
+                                   KeyValueService toKvs,
+                                   Supplier<Long> migrationTimestampSupplier,
+                                   int threads,
+                                   int defaultBatchSize,
+                                   Map<TableReference, Integer> readBatchSizeOverrides,
+                                   KvsMigrationMessageProcessor messageProcessor,
+                                   TaskProgress taskProgress,
+                                   Set<TableReference> unmigratableTables,
+                                   long maxBytesPerSecond) {
+        Preconditions.checkArgument(maxBytesPerSecond >= 0, "maxBytesPerSecond must not be negative");
         this.checkpointTable = TableReference.create(checkpointNamespace, CHECKPOINT_TABLE_NAME);
         this.fromTransactionManager = fromTransactionManager;
         this.toTransactionManager = toTransactionManager;
@@ -95,6 +141,7 @@ public class KeyValueServiceMigrator {
         this.messageProcessor = messageProcessor;
         this.taskProgress = taskProgress;
         this.unmigratableTables = unmigratableTables;
+        this.maxBytesPerSecond = maxBytesPerSecond;
     }
 
     private void processMessage(String string, KvsMigrationMessageLevel level) {
@@ -148,11 +195,13 @@ public class KeyValueServiceMigrator {
     }
 
     public void migrate() {
-        try {
-            internalMigrate();
-        } catch (InterruptedException e) {
-            Throwables.throwUncheckedException(e);
-        }
+        KvsCallPriority.BACKGROUND.run(() -> {
+            try {
+                internalMigrate();
+            } catch (InterruptedException e) {
+                Throwables.throwUncheckedException(e);
+            }
+        });
     }
 
     /**
@@ -179,7 +228,10 @@ public class KeyValueServiceMigrator {
         GeneralTaskCheckpointer checkpointer =
                 new GeneralTaskCheckpointer(checkpointTable, toKvs, txManager);
 
-        ExecutorService executor = Tracers.wrap(PTExecutors.newFixedThreadPool(threads));
+        ExecutorService executor = KvsCallPriority.wrap(Tracers.wrap(PTExecutors.newFixedThreadPool(threads)));
+        // Each table task only splits its table into ranges and waits for them on the shared executor above, so
+        // these threads are mostly idle; having as many as there are workers keeps the workers busy across tables.
+        ExecutorService tableExecutor = KvsCallPriority.wrap(Tracers.wrap(PTExecutors.newFixedThreadPool(threads)));
         try {
             migrateTables(
                     tables,
@@ -188,12 +240,14 @@ public class KeyValueServiceMigrator {
                     toKvs,
                     migrationTimestampSupplier.get(),
                     executor,
+                    tableExecutor,
                     checkpointer);
             processMessage("Data migration complete.", KvsMigrationMessageLevel.INFO);
         } catch (Throwable t) {
             processMessage("Migration failed.", t, KvsMigrationMessageLevel.ERROR);
             Throwables.throwUncheckedException(t);
         } finally {
+            tableExecutor.shutdownNow();
             executor.shutdown();
             executor.awaitTermination(10000L, TimeUnit.MILLISECONDS);
         }
@@ -205,19 +259,33 @@ public class KeyValueServiceMigrator {
                                KeyValueService writeKvs,
                                long migrationTimestamp,
                                ExecutorService executor,
-                               GeneralTaskCheckpointer checkpointer) {
+                               ExecutorService tableExecutor,
+                               GeneralTaskCheckpointer checkpointer) throws InterruptedException {
+        Optional<RateLimiter> rateLimiter = maxBytesPerSecond == UNLIMITED_BYTES_PER_SECOND
+                ? Optional.empty()
+                : Optional.of(RateLimiter.create(maxBytesPerSecond));
+        List<Future<?>> futures = Lists.newArrayList();
         for (TableReference table : tables) {
-            KvsRangeMigrator rangeMigrator =
+            KvsRangeMigratorBuilder rangeMigratorBuilder =
                     new KvsRangeMigratorBuilder().srcTable(table).readBatchSize(getBatchSize(table)).readTxManager(
                             readTxManager).txManager(txManager).writeKvs(writeKvs).migrationTimestamp(
-                            migrationTimestamp).checkpointer(checkpointer).build();
+                            migrationTimestamp).checkpointer(checkpointer);
+            rateLimiter.ifPresent(rangeMigratorBuilder::bytesRateLimiter);
+            KvsRangeMigrator rangeMigrator = rangeMigratorBuilder.build();
             TableMigratorBuilder builder =
                     new TableMigratorBuilder().srcTable(table).partitions(PARTITIONS).partitioners(
                             getPartitioners(fromKvs, table)).readBatchSize(
                             getBatchSize(table)).executor(executor).checkpointer(checkpointer).progress(
                             taskProgress).rangeMigrator(rangeMigrator);
             TableMigrator migrator = builder.build();
-            migrator.migrate();
+            futures.add(tableExecutor.submit(migrator::migrate));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwables.throwUncheckedException(e.getCause());
         }
     }
 
@@ -31,6 +31,7 @@ import com.palantir.atlasdb.sweep.priority.NextTableToSweepProviderImpl;
 import com.palantir.atlasdb.sweep.progress.SweepProgress;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.util.KvsCallPriority;
 import com.palantir.common.base.Throwables;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.logsafe.SafeArg;
@@ -135,7 +136,7 @@ public final class BackgroundSweeperImpl implements BackgroundSweeper {
         try {
             locks.lockOrRefresh();
             if (locks.haveLocks()) {
-                sweptSuccessfully = runOnce();
+                sweptSuccessfully = KvsCallPriority.BACKGROUND.call(this::runOnce);
             } else {
                 log.debug("Skipping sweep because sweep is running elsewhere.");
             }
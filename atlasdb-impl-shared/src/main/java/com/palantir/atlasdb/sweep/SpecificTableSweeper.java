@@ -216,7 +216,7 @@ public class SpecificTableSweeper {
                 sweepPriorityStore.update(
                         tx,
                         tableToSweep.getTableRef(),
-                        ImmutableUpdateSweepPriority.builder().newWriteCount(0L).build());
+                        ImmutableUpdateSweepPriority.builder().newWriteCount(0L).newWriteBytes(0L).build());
             }
             SweepProgress newProgress = ImmutableSweepProgress.builder()
                     .tableRef(tableToSweep.getTableRef())
@@ -258,7 +258,7 @@ public class SpecificTableSweeper {
                     .newMinimumSweptTimestamp(sweepResults.getSweptTimestamp());
             if (!tableToSweep.hasPreviousProgress()) {
                 // This is the first (and only) set of results being written for this table.
-                update.newWriteCount(0L);
+                update.newWriteCount(0L).newWriteBytes(0L);
             }
             sweepPriorityStore.update(tx, tableToSweep.getTableRef(), update.build());
             return null;
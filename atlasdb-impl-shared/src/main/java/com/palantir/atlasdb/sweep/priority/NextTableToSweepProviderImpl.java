@@ -106,7 +106,10 @@ public class NextTableToSweepProviderImpl implements NextTableToSweepProvider {
         long cellTsPairsExamined = Math.max(1, oldPriority.cellTsPairsExamined());
         long writeCount = Math.max(1, oldPriority.writeCount());
         double previousEfficacy = 1.0 * staleValuesDeleted / cellTsPairsExamined;
-        double estimatedCellTsPairsToSweep = previousEfficacy * writeCount;
+        // Sweeping a table with larger than typical writes frees proportionally more space. Tables with no
+        // recorded write bytes, such as those last written by an older version, keep the unweighted estimate.
+        double writeSizeWeight = Math.max(1.0, 1.0 * oldPriority.writeBytes() / writeCount / TYPICAL_BYTES_PER_WRITE);
+        double estimatedCellTsPairsToSweep = previousEfficacy * writeCount * writeSizeWeight;
         long millisSinceSweep = System.currentTimeMillis() - newPriority.lastSweepTimeMillis().getAsLong();
 
         if (writeCount <= 100 + cellTsPairsExamined / 100
@@ -120,6 +123,9 @@ public class NextTableToSweepProviderImpl implements NextTableToSweepProvider {
         return estimatedCellTsPairsToSweep + millisSinceSweep * MILLIS_SINCE_SWEEP_PRIORITY_WEIGHT;
     }
 
+    // writes averaging up to this many bytes are weighted the same, and larger writes proportionally more.
+    private static final double TYPICAL_BYTES_PER_WRITE = 100.0;
+
     // weights one month of no sweeping with the same priority as about 100000 expected cells to sweep.
     private static final double MILLIS_SINCE_SWEEP_PRIORITY_WEIGHT =
             100_000.0 / TimeUnit.MILLISECONDS.convert(30, TimeUnit.DAYS);
@@ -28,6 +28,11 @@ public interface SweepPriority {
 
     long writeCount();
 
+    @Value.Default
+    default long writeBytes() {
+        return 0L;
+    }
+
     OptionalLong lastSweepTimeMillis();
 
     long minimumSweptTimestamp();
@@ -51,6 +51,7 @@ public class SweepPriorityStore {
         update.newLastSweepTimeMillis().ifPresent(t -> table.putLastSweepTime(row, t));
         update.newMinimumSweptTimestamp().ifPresent(t -> table.putMinimumSweptTimestamp(row, t));
         update.newWriteCount().ifPresent(c -> table.putWriteCount(row, c));
+        update.newWriteBytes().ifPresent(b -> table.putWriteBytes(row, b));
     }
 
     public void delete(Transaction tx, Collection<TableReference> tableRefs) {
@@ -67,6 +68,7 @@ public class SweepPriorityStore {
         return ImmutableSweepPriority.builder()
                 .tableRef(TableReference.createUnsafe(rr.getRowName().getFullTableName()))
                 .writeCount(rr.hasWriteCount() ? rr.getWriteCount() : 0L)
+                .writeBytes(rr.hasWriteBytes() ? rr.getWriteBytes() : 0L)
                 .lastSweepTimeMillis(rr.hasLastSweepTime()
                         ? OptionalLong.of(rr.getLastSweepTime())
                         : OptionalLong.empty())
@@ -32,4 +32,6 @@ public interface UpdateSweepPriority {
 
     OptionalLong newWriteCount();
 
+    OptionalLong newWriteBytes();
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nullable;
+
+import com.palantir.common.base.Throwables;
+
+/**
+ * Wraps a {@link BatchSizeIncreasingIterator}, fetching the next batch from the key value service while the caller
+ * is still processing the current one.
+ *
+ * Reading ahead only starts once the caller has asked for a second batch, so short reads never fetch data they do not
+ * use. At most one batch is read ahead at a time. If the executor has no capacity, the next batch is fetched
+ * synchronously instead, as it would be without read-ahead.
+ *
+ * This class is not thread safe; it should be used by a single consumer thread.
+ */
+class ReadAheadBatchIterator<T> {
+    private final BatchSizeIncreasingIterator<T> delegate;
+    private final Executor executor;
+
+    private int batchesReturned = 0;
+    private int pendingNumResultsNotDeleted = 0;
+    @Nullable private CompletableFuture<List<T>> readAhead = null;
+
+    ReadAheadBatchIterator(BatchSizeIncreasingIterator<T> delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    List<T> getBatch() {
+        List<T> batch = readAhead != null ? awaitReadAhead() : delegate.getBatch();
+        batchesReturned++;
+        if (batchesReturned >= 2 && !batch.isEmpty()) {
+            startReadAhead();
+        }
+        return batch;
+    }
+
+    /**
+     * See {@link BatchSizeIncreasingIterator#markNumResultsNotDeleted(int)}. While a batch is being read ahead, this
+     * is deferred until it has been fetched, so the size of the batch after it is based on up to date statistics.
+     */
+    void markNumResultsNotDeleted(int resultsInBatch) {
+        if (readAhead != null) {
+            pendingNumResultsNotDeleted += resultsInBatch;
+        } else {
+            delegate.markNumResultsNotDeleted(resultsInBatch);
+        }
+    }
+
+    void close() {
+        if (readAhead != null) {
+            // The delegate must not be closed while it is in use by the read-ahead task.
+            try {
+                readAhead.join();
+            } catch (CompletionException e) {
+                // The batch is being discarded anyway.
+            }
+            readAhead = null;
+        }
+        delegate.close();
+    }
+
+    private void startReadAhead() {
+        try {
+            readAhead = CompletableFuture.supplyAsync(delegate::getBatch, executor);
+        } catch (RejectedExecutionException e) {
+            readAhead = null;
+        }
+    }
+
+    private List<T> awaitReadAhead() {
+        try {
+            return readAhead.join();
+        } catch (CompletionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        } finally {
+            readAhead = null;
+            if (pendingNumResultsNotDeleted > 0) {
+                delegate.markNumResultsNotDeleted(pendingNumResultsNotDeleted);
+                pendingNumResultsNotDeleted = 0;
+            }
+        }
+    }
+}
@@ -29,6 +29,9 @@ import java.util.SortedMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -107,6 +110,7 @@ import com.palantir.atlasdb.transaction.api.TransactionLockTimeoutException;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.atlasdb.util.KvsCallPriority;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.AbortingVisitor;
 import com.palantir.common.base.AbstractBatchingVisitable;
@@ -119,6 +123,8 @@ import com.palantir.common.base.ForwardingClosableIterator;
 import com.palantir.common.collect.IterableUtils;
 import com.palantir.common.collect.IteratorUtils;
 import com.palantir.common.collect.MapEntries;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.lock.AtlasCellLockDescriptor;
 import com.palantir.lock.AtlasRowLockDescriptor;
 import com.palantir.lock.LockDescriptor;
@@ -130,6 +136,7 @@ import com.palantir.lock.v2.WaitForLocksRequest;
 import com.palantir.lock.v2.WaitForLocksResponse;
 import com.palantir.logsafe.SafeArg;
 import com.palantir.logsafe.UnsafeArg;
+import com.palantir.remoting2.tracing.Tracers;
 import com.palantir.util.AssertUtils;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
@@ -155,6 +162,22 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
 
     private static final int BATCH_SIZE_GET_FIRST_PAGE = 1000;
 
+    /**
+     * Range scans read the next batch from the key value service while the current one is post filtered. This bounds
+     * the number of batches being read ahead across all transactions; scans that find no free thread fetch their
+     * next batch synchronously. Batches are read with the priority of the scan that reads them.
+     */
+    private static final int MAX_CONCURRENT_RANGE_READ_AHEADS = 32;
+    private static final ExecutorService rangeReadAheadExecutor = KvsCallPriority.wrap(Tracers.wrap(
+            PTExecutors.newThreadPoolExecutor(
+                    0,
+                    MAX_CONCURRENT_RANGE_READ_AHEADS,
+                    1,
+                    TimeUnit.MINUTES,
+                    new SynchronousQueue<>(),
+                    new NamedThreadFactory("atlas-range-read-ahead", true),
+                    new ThreadPoolExecutor.AbortPolicy())));
+
     private enum State {
         UNCOMMITTED,
         COMMITTED,
@@ -817,8 +840,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             Function<Value, T> transformer) {
         RowRangeBatchProvider batchProvider =
                 new RowRangeBatchProvider(keyValueService, tableRef, range, getStartTimestamp());
-        BatchSizeIncreasingIterator<RowResult<Value>> results =
-                new BatchSizeIncreasingIterator<>(batchProvider, preFilterBatchSize, null);
+        ReadAheadBatchIterator<RowResult<Value>> results = new ReadAheadBatchIterator<>(
+                new BatchSizeIncreasingIterator<>(batchProvider, preFilterBatchSize, null),
+                rangeReadAheadExecutor);
         Iterator<Iterator<RowResult<T>>> batchedPostFiltered = new AbstractIterator<Iterator<RowResult<T>>>() {
             @Override
             protected Iterator<RowResult<T>> computeNext() {
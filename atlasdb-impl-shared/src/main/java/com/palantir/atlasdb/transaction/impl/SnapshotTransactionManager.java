@@ -42,6 +42,7 @@ import com.palantir.atlasdb.transaction.api.Transaction.TransactionType;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.service.CoalescingTransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.Throwables;
 import com.palantir.lock.HeldLocksToken;
@@ -67,6 +68,7 @@ import com.palantir.timestamp.TimestampService;
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
     protected final Supplier<Long> lockAcquireTimeoutMs;
+    final TimestampRangeLease readOnlyTimestampLease;
 
     final List<Runnable> closingCallbacks;
     final AtomicBoolean isClosed;
@@ -82,16 +84,44 @@ import com.palantir.timestamp.TimestampService;
             Cleaner cleaner,
             boolean allowHiddenTableAccess,
             Supplier<Long> lockAcquireTimeoutMs) {
+        this(
+                keyValueService,
+                timelockService,
+                lockService,
+                transactionService,
+                constraintModeSupplier,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                cleaner,
+                allowHiddenTableAccess,
+                lockAcquireTimeoutMs,
+                TimestampRangeLease.createDefault(timelockService));
+    }
+
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimelockService timelockService,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            Supplier<Long> lockAcquireTimeoutMs,
+            TimestampRangeLease readOnlyTimestampLease) {
         this.keyValueService = keyValueService;
         this.timelockService = timelockService;
         this.lockService = lockService;
-        this.transactionService = transactionService;
+        this.transactionService = CoalescingTransactionService.create(
+                transactionService, timestampValidationReadCache);
         this.conflictDetectionManager = conflictDetectionManager;
         this.sweepStrategyManager = sweepStrategyManager;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
         this.lockAcquireTimeoutMs = lockAcquireTimeoutMs;
+        this.readOnlyTimestampLease = readOnlyTimestampLease;
         this.closingCallbacks = new CopyOnWriteArrayList<>();
         this.isClosed = new AtomicBoolean(false);
     }
@@ -186,12 +216,35 @@ import com.palantir.timestamp.TimestampService;
     public <T, E extends Exception> T runTaskReadOnly(TransactionTask<T, E> task) throws E {
         checkOpen();
         long immutableTs = getApproximateImmutableTimestamp();
+        return runReadOnlyTransaction(task, immutableTs, getStartTimestampSupplier());
+    }
+
+    /**
+     * The start timestamp is taken from a lease of timestamps fetched ahead of time. Leased timestamps are not
+     * punched, as they may be older than timestamps already punched. A leased timestamp older than the immutable
+     * timestamp is not used, as sweep may already have removed the values such a transaction would read.
+     */
+    @Override
+    public <T, E extends Exception> T runTaskReadOnlyWithStaleness(TransactionTask<T, E> task) throws E {
+        checkOpen();
+        long immutableTs = getApproximateImmutableTimestamp();
+        long leasedTs = readOnlyTimestampLease.getLeasedTimestamp();
+        Supplier<Long> startTimestampSupplier = leasedTs > immutableTs
+                ? Suppliers.ofInstance(leasedTs)
+                : getStartTimestampSupplier();
+        return runReadOnlyTransaction(task, immutableTs, startTimestampSupplier);
+    }
+
+    private <T, E extends Exception> T runReadOnlyTransaction(
+            TransactionTask<T, E> task,
+            long immutableTs,
+            Supplier<Long> startTimestampSupplier) throws E {
         SnapshotTransaction transaction = new SnapshotTransaction(
                 keyValueService,
                 timelockService,
                 transactionService,
                 NoOpCleaner.INSTANCE,
-                getStartTimestampSupplier(),
+                startTimestampSupplier,
                 conflictDetectionManager,
                 sweepStrategyManager,
                 immutableTs,
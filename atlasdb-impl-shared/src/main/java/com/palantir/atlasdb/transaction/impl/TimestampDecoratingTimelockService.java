@@ -16,6 +16,7 @@
 
 package com.palantir.atlasdb.transaction.impl;
 
+import java.util.List;
 import java.util.Set;
 
 import com.palantir.lock.v2.LockImmutableTimestampRequest;
@@ -63,6 +64,11 @@ public class TimestampDecoratingTimelockService implements TimelockService {
         return delegate.lock(request);
     }
 
+    @Override
+    public List<LockResponse> lockBatch(List<LockRequest> requests) {
+        return delegate.lockBatch(requests);
+    }
+
     @Override
     public WaitForLocksResponse waitForLocks(WaitForLocksRequest request) {
         return delegate.waitForLocks(request);
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Hands out timestamps from a range fetched ahead of time, so that most calls do not need a remote call.
+ * <p>
+ * Timestamps returned by this class are unique and increase for each caller, but are NOT fresh: they may have been
+ * issued by the timestamp service up to the maximum lease age before they are returned. They are therefore only
+ * suitable for the start timestamps of read-only transactions that can tolerate reading a slightly stale snapshot,
+ * and must never be used as the start or commit timestamp of a transaction that writes.
+ */
+@ThreadSafe
+public final class TimestampRangeLease {
+    private static final int DEFAULT_LEASE_SIZE = 100;
+    private static final long DEFAULT_MAX_LEASE_AGE_MILLIS = 500L;
+
+    private final TimelockService timelockService;
+    private final IntSupplier leaseSize;
+    private final LongSupplier maxLeaseAgeMillis;
+    private final Ticker ticker;
+
+    private final Meter leasedTimestamps;
+    private final Meter leaseRefreshes;
+
+    @Nullable private volatile Lease currentLease = null;
+
+    public TimestampRangeLease(
+            TimelockService timelockService,
+            IntSupplier leaseSize,
+            LongSupplier maxLeaseAgeMillis) {
+        this(timelockService, leaseSize, maxLeaseAgeMillis, Ticker.systemTicker(),
+                AtlasDbMetrics.getMetricRegistry());
+    }
+
+    @VisibleForTesting
+    TimestampRangeLease(
+            TimelockService timelockService,
+            IntSupplier leaseSize,
+            LongSupplier maxLeaseAgeMillis,
+            Ticker ticker,
+            MetricRegistry metricRegistry) {
+        this.timelockService = timelockService;
+        this.leaseSize = leaseSize;
+        this.maxLeaseAgeMillis = maxLeaseAgeMillis;
+        this.ticker = ticker;
+        this.leasedTimestamps = metricRegistry.meter(
+                MetricRegistry.name(TimestampRangeLease.class, "leasedTimestamps"));
+        this.leaseRefreshes = metricRegistry.meter(MetricRegistry.name(TimestampRangeLease.class, "leaseRefreshes"));
+    }
+
+    public static TimestampRangeLease createDefault(TimelockService timelockService) {
+        return new TimestampRangeLease(
+                timelockService, () -> DEFAULT_LEASE_SIZE, () -> DEFAULT_MAX_LEASE_AGE_MILLIS);
+    }
+
+    /**
+     * Returns a timestamp from the current lease, fetching a new range of timestamps if the lease is used up or
+     * older than the maximum lease age. The remote calls saved are counted by the leasedTimestamps and
+     * leaseRefreshes meters: every leased timestamp not accounted for by a refresh is a call not made.
+     */
+    public long getLeasedTimestamp() {
+        while (true) {
+            Lease lease = currentLease;
+            if (lease != null && !isExpired(lease)) {
+                long timestamp = lease.next.getAndIncrement();
+                if (timestamp <= lease.upperBound) {
+                    leasedTimestamps.mark();
+                    return timestamp;
+                }
+            }
+            refreshLease(lease);
+        }
+    }
+
+    private synchronized void refreshLease(@Nullable Lease expiredLease) {
+        if (currentLease != expiredLease) {
+            // Another thread has already replaced the lease we could not use.
+            return;
+        }
+        int size = leaseSize.getAsInt();
+        Preconditions.checkState(size > 0, "Timestamp lease size must be positive, but was %s", size);
+        long fetchedAtNanos = ticker.read();
+        TimestampRange range = timelockService.getFreshTimestamps(size);
+        leaseRefreshes.mark();
+        currentLease = new Lease(range.getLowerBound(), range.getUpperBound(), fetchedAtNanos);
+    }
+
+    private boolean isExpired(Lease lease) {
+        long ageNanos = ticker.read() - lease.fetchedAtNanos;
+        return ageNanos >= TimeUnit.MILLISECONDS.toNanos(maxLeaseAgeMillis.getAsLong());
+    }
+
+    private static final class Lease {
+        private final AtomicLong next;
+        private final long upperBound;
+        private final long fetchedAtNanos;
+
+        Lease(long lowerBound, long upperBound, long fetchedAtNanos) {
+            this.next = new AtomicLong(lowerBound);
+            this.upperBound = upperBound;
+            this.fetchedAtNanos = fetchedAtNanos;
+        }
+    }
+}
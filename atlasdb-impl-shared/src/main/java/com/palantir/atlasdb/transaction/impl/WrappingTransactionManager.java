@@ -115,6 +115,11 @@ public abstract class WrappingTransactionManager extends ForwardingLockAwareTran
         return delegate().runTaskReadOnly(wrapTask(task));
     }
 
+    @Override
+    public <T, E extends Exception> T runTaskReadOnlyWithStaleness(TransactionTask<T, E> task) throws E {
+        return delegate().runTaskReadOnlyWithStaleness(wrapTask(task));
+    }
+
     @Override
     public void close() {
         delegate().close();
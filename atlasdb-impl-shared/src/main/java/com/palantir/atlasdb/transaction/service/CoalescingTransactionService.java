@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.cache.TimestampCache;
+import com.palantir.atlasdb.util.KvsCallPriority;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A {@link TransactionService} that shares commit timestamp lookups between concurrent callers.
+ * <p>
+ * Lookups for start timestamps that are not in the {@link TimestampCache} are collected into batches, and each batch
+ * is read from the delegate with a single call. A caller that asks for a start timestamp which is already waiting in
+ * a batch shares that lookup rather than adding its own. When no batch is in flight, a new batch is sent straight
+ * away; otherwise it collects further misses for up to a short window, so batching only adds latency when the
+ * transactions table is already busy. Committed results are put into the cache as each batch completes.
+ * <p>
+ * A caller may also share a lookup that was sent before it asked. A commit timestamp, once written, never changes,
+ * so a present result is used as is; an absent result may be stale, and is read again.
+ */
+public final class CoalescingTransactionService implements TransactionService {
+    private static final long DEFAULT_BATCH_WINDOW_MICROS = 500;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 5_000;
+
+    private final TransactionService delegate;
+    private final TimestampCache timestampCache;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    // The following fields are guarded by lock.
+    private Batch pendingBatch;
+    private final Map<Long, Batch> inFlightBatchesByStartTs = Maps.newHashMap();
+    private long lastBatchSequence;
+    private int numBatchesInFlight;
+
+    @VisibleForTesting
+    CoalescingTransactionService(TransactionService delegate,
+                                 TimestampCache timestampCache,
+                                 long batchWindowMicros,
+                                 int maxBatchSize) {
+        Preconditions.checkArgument(batchWindowMicros >= 0, "batchWindowMicros must not be negative");
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.delegate = delegate;
+        this.timestampCache = timestampCache;
+        this.batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(batchWindowMicros);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public static CoalescingTransactionService create(TransactionService delegate, TimestampCache timestampCache) {
+        return new CoalescingTransactionService(
+                delegate, timestampCache, DEFAULT_BATCH_WINDOW_MICROS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        return get(ImmutableList.of(startTimestamp)).get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        Map<Long, Long> result = Maps.newHashMap();
+        Set<Long> misses = Sets.newHashSet();
+        for (Long startTs : startTimestamps) {
+            Long cached = timestampCache.getCommitTimestampIfPresent(startTs);
+            if (cached != null) {
+                result.put(startTs, cached);
+            } else {
+                misses.add(startTs);
+            }
+        }
+
+        boolean isBackground = KvsCallPriority.current() == KvsCallPriority.BACKGROUND;
+        long requestSequence = -1;
+        while (!misses.isEmpty()) {
+            Map<Long, ListenableFuture<Long>> lookups = Maps.newHashMapWithExpectedSize(misses.size());
+            Set<Long> possiblyStale = Sets.newHashSet();
+            List<Batch> batchesToSend = Lists.newArrayList();
+            Batch ownBatch = null;
+            synchronized (lock) {
+                if (requestSequence < 0) {
+                    requestSequence = lastBatchSequence;
+                }
+                for (Long startTs : misses) {
+                    Batch inFlight = inFlightBatchesByStartTs.get(startTs);
+                    if (inFlight != null) {
+                        lookups.put(startTs, inFlight.lookups.get(startTs));
+                        if (inFlight.sequence <= requestSequence) {
+                            possiblyStale.add(startTs);
+                        }
+                        continue;
+                    }
+                    // A batch sends results to the cache before it stops being in flight, so this catches lookups
+                    // that completed after our first check of the cache.
+                    Long cached = timestampCache.getCommitTimestampIfPresent(startTs);
+                    if (cached != null) {
+                        result.put(startTs, cached);
+                        continue;
+                    }
+                    if (pendingBatch == null) {
+                        pendingBatch = new Batch();
+                        ownBatch = pendingBatch;
+                    }
+                    lookups.put(startTs, pendingBatch.add(startTs, isBackground));
+                    if (pendingBatch.lookups.size() >= maxBatchSize) {
+                        batchesToSend.add(sealPendingBatch());
+                    }
+                }
+                if (ownBatch != null && ownBatch == pendingBatch && numBatchesInFlight == 0) {
+                    batchesToSend.add(sealPendingBatch());
+                }
+            }
+
+            batchesToSend.forEach(this::send);
+            if (ownBatch != null && !batchesToSend.contains(ownBatch)) {
+                sendAfterWindow(ownBatch);
+            }
+
+            misses = Sets.newHashSet();
+            for (Map.Entry<Long, ListenableFuture<Long>> e : lookups.entrySet()) {
+                Long commitTs = await(e.getValue());
+                if (commitTs != null) {
+                    result.put(e.getKey(), commitTs);
+                } else if (possiblyStale.contains(e.getKey())) {
+                    misses.add(e.getKey());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) {
+        delegate.putUnlessExists(startTimestamp, commitTimestamp);
+    }
+
+    private void sendAfterWindow(Batch batch) {
+        try {
+            batch.sealed.await(batchWindowNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // Other callers may be waiting on this batch, so it is sent regardless.
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (pendingBatch != batch) {
+                // The batch filled up, and the caller that filled it sent it.
+                return;
+            }
+            sealPendingBatch();
+        }
+        send(batch);
+    }
+
+    private Batch sealPendingBatch() {
+        Batch batch = pendingBatch;
+        pendingBatch = null;
+        batch.sequence = ++lastBatchSequence;
+        numBatchesInFlight++;
+        for (Long startTs : batch.lookups.keySet()) {
+            inFlightBatchesByStartTs.put(startTs, batch);
+        }
+        batch.sealed.countDown();
+        return batch;
+    }
+
+    private void send(Batch batch) {
+        Map<Long, Long> commitTimestamps = null;
+        Throwable failure = null;
+        try {
+            KvsCallPriority priority = batch.isBackgroundOnly ? KvsCallPriority.BACKGROUND : KvsCallPriority.CRITICAL;
+            commitTimestamps = priority.call(() -> delegate.get(batch.lookups.keySet()));
+            for (Map.Entry<Long, Long> e : commitTimestamps.entrySet()) {
+                if (e.getValue() != null) {
+                    timestampCache.putAlreadyCommittedTransaction(e.getKey(), e.getValue());
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+        }
+
+        synchronized (lock) {
+            numBatchesInFlight--;
+            for (Long startTs : batch.lookups.keySet()) {
+                inFlightBatchesByStartTs.remove(startTs, batch);
+            }
+        }
+
+        for (Map.Entry<Long, SettableFuture<Long>> e : batch.lookups.entrySet()) {
+            if (failure != null) {
+                e.getValue().setException(failure);
+            } else {
+                e.getValue().set(commitTimestamps.get(e.getKey()));
+            }
+        }
+    }
+
+    private static Long await(ListenableFuture<Long> lookup) {
+        try {
+            return Uninterruptibles.getUninterruptibly(lookup);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    private static final class Batch {
+        final Map<Long, SettableFuture<Long>> lookups = Maps.newHashMap();
+        final CountDownLatch sealed = new CountDownLatch(1);
+        long sequence;
+        boolean isBackgroundOnly = true;
+
+        SettableFuture<Long> add(Long startTs, boolean isBackground) {
+            isBackgroundOnly &= isBackground;
+            return lookups.computeIfAbsent(startTs, unused -> SettableFuture.create());
+        }
+    }
+}
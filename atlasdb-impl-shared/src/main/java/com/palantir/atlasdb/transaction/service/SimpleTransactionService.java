@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.transaction.service;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
@@ -23,6 +24,7 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.util.KvsCallPriority;
 
 public final class SimpleTransactionService implements TransactionService {
     private final KeyValueService keyValueService;
@@ -39,9 +41,9 @@ public final class SimpleTransactionService implements TransactionService {
     @Override
     public Long get(long startTimestamp) {
         Cell cell = getTransactionCell(startTimestamp);
-        Map<Cell, Value> returnMap = keyValueService.get(
+        Map<Cell, Value> returnMap = asCriticalCall(() -> keyValueService.get(
                 TransactionConstants.TRANSACTION_TABLE,
-                ImmutableMap.of(cell, MAX_TIMESTAMP));
+                ImmutableMap.of(cell, MAX_TIMESTAMP)));
         if (returnMap.containsKey(cell)) {
             return TransactionConstants.getTimestampForValue(returnMap
                     .get(cell).getContents());
@@ -58,8 +60,8 @@ public final class SimpleTransactionService implements TransactionService {
             startTsMap.put(cell, MAX_TIMESTAMP);
         }
 
-        Map<Cell, Value> rawResults = keyValueService.get(
-                TransactionConstants.TRANSACTION_TABLE, startTsMap);
+        Map<Cell, Value> rawResults = asCriticalCall(() -> keyValueService.get(
+                TransactionConstants.TRANSACTION_TABLE, startTsMap));
         Map<Long, Long> result = Maps.newHashMapWithExpectedSize(rawResults
                 .size());
         for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
@@ -78,8 +80,21 @@ public final class SimpleTransactionService implements TransactionService {
         Cell key = getTransactionCell(startTimestamp);
         byte[] value = TransactionConstants
                 .getValueForTimestamp(commitTimestamp);
-        keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE,
-                ImmutableMap.of(key, value));
+        asCriticalCall(() -> {
+            keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE, ImmutableMap.of(key, value));
+            return null;
+        });
+    }
+
+    /**
+     * Every transaction needs to read and write commit timestamps, so these calls are admitted ahead of others by
+     * backends that limit concurrency, except when made on behalf of background work such as sweep.
+     */
+    private static <T> T asCriticalCall(Supplier<T> call) {
+        KvsCallPriority priority = KvsCallPriority.current() == KvsCallPriority.BACKGROUND
+                ? KvsCallPriority.BACKGROUND
+                : KvsCallPriority.CRITICAL;
+        return priority.call(call);
     }
 
     private Cell getTransactionCell(long startTimestamp) {
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+public class ScrubberTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("scrubber.test");
+    private static final int BATCH_SIZE = 2;
+    private static final long SCRUB_TIMESTAMP = 30L;
+    private static final long MAX_SCRUB_TIMESTAMP = 100L;
+    private static final List<Cell> CELLS = ImmutableList.of(
+            cell("r0"), cell("r1"), cell("r2"), cell("r3"), cell("r4"));
+
+    private final InMemoryKeyValueService kvs = new InMemoryKeyValueService(false);
+    private final List<Set<Cell>> getAllTimestampsRequests = Lists.newCopyOnWriteArrayList();
+    private final TransactionManager txManager = mock(TransactionManager.class);
+
+    private TransactionService transactionService;
+    private ScrubberStore scrubberStore;
+    private KeyValueService recordingKvs;
+    private Scrubber scrubber;
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(kvs);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        transactionService = TransactionServices.createTransactionService(kvs);
+        scrubberStore = KeyValueServiceScrubberStore.create(kvs);
+        recordingKvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return kvs;
+            }
+
+            @Override
+            public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long timestamp) {
+                if (tableRef.equals(TABLE)) {
+                    getAllTimestampsRequests.add(ImmutableSet.copyOf(cells));
+                }
+                return super.getAllTimestamps(tableRef, cells, timestamp);
+            }
+        };
+        scrubber = createScrubber();
+
+        for (Cell cell : CELLS) {
+            kvs.put(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("old")), 10L);
+            kvs.put(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("new")), 20L);
+        }
+    }
+
+    private Scrubber createScrubber() {
+        return Scrubber.create(
+                recordingKvs,
+                scrubberStore,
+                Suppliers.ofInstance(Long.MAX_VALUE),
+                Suppliers.ofInstance(true),
+                Suppliers.ofInstance(MAX_SCRUB_TIMESTAMP),
+                Suppliers.ofInstance(MAX_SCRUB_TIMESTAMP),
+                transactionService,
+                false,
+                Suppliers.ofInstance(BATCH_SIZE),
+                2,
+                1,
+                ImmutableList.of());
+    }
+
+    @After
+    public void tearDown() {
+        scrubber.shutdown();
+    }
+
+    @Test
+    public void backgroundScrubSplitsEachTableIntoShardsOfAtMostOneBatch() {
+        queueAllCellsAsCommittedHardDelete();
+
+        scrubber.runBackgroundScrubTask(txManager);
+
+        assertThat(getAllTimestampsRequests.size()).isGreaterThanOrEqualTo(CELLS.size() / BATCH_SIZE + 1);
+        Set<Cell> scrubbedCells = Sets.newHashSet();
+        for (Set<Cell> shard : getAllTimestampsRequests) {
+            assertThat(shard.size()).isLessThanOrEqualTo(BATCH_SIZE);
+            scrubbedCells.addAll(shard);
+        }
+        assertThat(scrubbedCells).isEqualTo(ImmutableSet.copyOf(CELLS));
+        assertOnlySentinelsRemain();
+    }
+
+    @Test
+    public void backgroundScrubUpdatesMetrics() {
+        queueAllCellsAsCommittedHardDelete();
+        long cellsScrubbedBefore = getMeterCount("cellsScrubbed");
+        long staleValuesDeletedBefore = getMeterCount("staleValuesDeleted");
+
+        scrubber.runBackgroundScrubTask(txManager);
+
+        assertThat(getMeterCount("cellsScrubbed") - cellsScrubbedBefore).isEqualTo(CELLS.size());
+        assertThat(getMeterCount("staleValuesDeleted") - staleValuesDeletedBefore).isEqualTo(2L * CELLS.size());
+        assertThat(scrubber.getMetrics().getLastBackgroundScrubCells()).isEqualTo(CELLS.size());
+    }
+
+    @Test
+    public void gaugesFollowTheScrubberCreatedAfterShutdown() {
+        queueAllCellsAsCommittedHardDelete();
+        scrubber.runBackgroundScrubTask(txManager);
+        assertThat(getGaugeValue("lastBackgroundScrubCells")).isEqualTo((long) CELLS.size());
+
+        scrubber.shutdown();
+        scrubber = createScrubber();
+
+        assertThat(getGaugeValue("lastBackgroundScrubCells")).isEqualTo(0L);
+    }
+
+    @Test
+    public void scrubImmediatelyDeletesStaleValuesInBatches() {
+        ImmutableMultimap.Builder<TableReference, Cell> tableToCells = ImmutableMultimap.builder();
+        tableToCells.putAll(TABLE, CELLS);
+        long staleValuesDeletedBefore = getMeterCount("staleValuesDeleted");
+
+        scrubber.scrubImmediately(txManager, tableToCells.build(), SCRUB_TIMESTAMP, SCRUB_TIMESTAMP + 1);
+
+        for (Set<Cell> batch : getAllTimestampsRequests) {
+            assertThat(batch.size()).isLessThanOrEqualTo(BATCH_SIZE);
+        }
+        assertThat(getMeterCount("staleValuesDeleted") - staleValuesDeletedBefore).isEqualTo(2L * CELLS.size());
+        assertOnlySentinelsRemain();
+    }
+
+    private void queueAllCellsAsCommittedHardDelete() {
+        ImmutableMultimap.Builder<Cell, TableReference> cellToTables = ImmutableMultimap.builder();
+        for (Cell cell : CELLS) {
+            cellToTables.put(cell, TABLE);
+        }
+        scrubber.queueCellsForScrubbing(cellToTables.build(), SCRUB_TIMESTAMP);
+        transactionService.putUnlessExists(SCRUB_TIMESTAMP, SCRUB_TIMESTAMP + 1);
+    }
+
+    private void assertOnlySentinelsRemain() {
+        Multimap<Cell, Long> remaining = kvs.getAllTimestamps(TABLE, ImmutableSet.copyOf(CELLS), Long.MAX_VALUE);
+        assertThat(remaining.keySet()).hasSize(CELLS.size());
+        assertThat(remaining.values()).containsOnly(Value.INVALID_VALUE_TIMESTAMP);
+    }
+
+    private static long getMeterCount(String name) {
+        return AtlasDbMetrics.getMetricRegistry().meter(MetricRegistry.name(ScrubberMetrics.class, name)).getCount();
+    }
+
+    private static Object getGaugeValue(String name) {
+        return AtlasDbMetrics.getMetricRegistry().getGauges().get(MetricRegistry.name(ScrubberMetrics.class, name))
+                .getValue();
+    }
+
+    private static Cell cell(String row) {
+        return Cell.create(PtBytes.toBytes(row), PtBytes.toBytes("c"));
+    }
+}
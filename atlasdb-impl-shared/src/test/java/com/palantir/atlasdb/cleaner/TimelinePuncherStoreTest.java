@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+
+public class TimelinePuncherStoreTest {
+    private static final long MAX_TIMESTAMP = 10_000L;
+    private static final long MAX_MILLIS = 100_000L;
+
+    private final Random random = new Random(0L);
+    private KeyValueServicePuncherStore keyValueServicePuncherStore;
+
+    @Before
+    public void setUp() {
+        keyValueServicePuncherStore = KeyValueServicePuncherStore.create(new InMemoryKeyValueService(false));
+    }
+
+    @Test
+    public void emptyTimelineReturnsDefaults() {
+        PuncherStore timeline = TimelinePuncherStore.create(keyValueServicePuncherStore);
+        assertThat(timeline.get(MAX_MILLIS)).isEqualTo(Long.MIN_VALUE);
+        assertThat(timeline.getMillisForTimestamp(MAX_TIMESTAMP)).isEqualTo(0L);
+    }
+
+    @Test
+    public void loadsPunchesAlreadyInTheTable() {
+        keyValueServicePuncherStore.put(10L, 100L);
+        keyValueServicePuncherStore.put(20L, 200L);
+        PuncherStore timeline = TimelinePuncherStore.create(keyValueServicePuncherStore);
+
+        assertThat(timeline.get(99L)).isEqualTo(Long.MIN_VALUE);
+        assertThat(timeline.get(150L)).isEqualTo(10L);
+        assertThat(timeline.get(200L)).isEqualTo(20L);
+        assertThat(timeline.getMillisForTimestamp(9L)).isEqualTo(0L);
+        assertThat(timeline.getMillisForTimestamp(15L)).isEqualTo(100L);
+        assertThat(timeline.getMillisForTimestamp(20L)).isEqualTo(200L);
+    }
+
+    @Test
+    public void writesPunchesThroughToTheTable() {
+        TimelinePuncherStore.create(keyValueServicePuncherStore).put(10L, 100L);
+        assertThat(keyValueServicePuncherStore.get(100L)).isEqualTo(10L);
+    }
+
+    @Test
+    public void agreesWithKeyValueServicePuncherStoreForOrderedPunches() {
+        for (int i = 1; i <= 100; i++) {
+            keyValueServicePuncherStore.put(i * 10L, i * 100L);
+        }
+        PuncherStore timeline = TimelinePuncherStore.create(keyValueServicePuncherStore);
+        for (int i = 101; i <= 200; i++) {
+            timeline.put(i * 10L, i * 100L);
+        }
+        assertAgreesWithKeyValueServicePuncherStore(timeline);
+    }
+
+    @Test
+    public void agreesWithKeyValueServicePuncherStoreDespiteClockDriftAndRepeatedTimes() {
+        for (int i = 0; i < 200; i++) {
+            keyValueServicePuncherStore.put(randomTimestamp(), randomMillis());
+        }
+        PuncherStore timeline = TimelinePuncherStore.create(keyValueServicePuncherStore);
+        for (int i = 0; i < 200; i++) {
+            timeline.put(randomTimestamp(), randomMillis());
+        }
+        assertAgreesWithKeyValueServicePuncherStore(timeline);
+    }
+
+    private void assertAgreesWithKeyValueServicePuncherStore(PuncherStore timeline) {
+        for (int i = 0; i < 500; i++) {
+            long millis = randomMillis();
+            assertThat(timeline.get(millis)).isEqualTo(keyValueServicePuncherStore.get(millis));
+            long timestamp = randomTimestamp();
+            assertThat(timeline.getMillisForTimestamp(timestamp))
+                    .isEqualTo(keyValueServicePuncherStore.getMillisForTimestamp(timestamp));
+        }
+    }
+
+    private long randomTimestamp() {
+        return 1 + (long) random.nextInt((int) MAX_TIMESTAMP);
+    }
+
+    private long randomMillis() {
+        // A narrow range, so that some times are punched more than once.
+        return random.nextInt((int) MAX_MILLIS / 100) * 100L;
+    }
+}
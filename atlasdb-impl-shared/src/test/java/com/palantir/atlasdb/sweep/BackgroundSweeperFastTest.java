@@ -45,6 +45,7 @@ public class BackgroundSweeperFastTest extends SweeperTestSetup {
                         .newMinimumSweptTimestamp(12345L)
                         .newLastSweepTimeMillis(currentTimeMillis)
                         .newWriteCount(0L)
+                        .newWriteBytes(0L)
                         .build()));
     }
 
@@ -113,6 +114,7 @@ public class BackgroundSweeperFastTest extends SweeperTestSetup {
                 Mockito.eq(TABLE_REF),
                 Mockito.eq(ImmutableUpdateSweepPriority.builder()
                         .newWriteCount(0L)
+                        .newWriteBytes(0L)
                         .build()));
     }
 
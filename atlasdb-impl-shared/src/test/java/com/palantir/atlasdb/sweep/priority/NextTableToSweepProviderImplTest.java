@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.priority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.transaction.api.Transaction;
+
+public class NextTableToSweepProviderImplTest {
+    private static final TableReference SMALL_WRITES_TABLE = TableReference.createFromFullyQualifiedName("ns.small");
+    private static final TableReference LARGE_WRITES_TABLE = TableReference.createFromFullyQualifiedName("ns.large");
+    private static final long WRITE_COUNT = 10_000L;
+    private static final long LAST_SWEEP_TIME_MILLIS = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+
+    private final KeyValueService kvs = mock(KeyValueService.class);
+    private final SweepPriorityStore priorityStore = mock(SweepPriorityStore.class);
+    private final Transaction tx = mock(Transaction.class);
+    private final NextTableToSweepProvider provider = new NextTableToSweepProviderImpl(kvs, priorityStore);
+
+    @Before
+    public void setUp() {
+        when(kvs.getAllTableNames()).thenReturn(ImmutableSet.of(SMALL_WRITES_TABLE, LARGE_WRITES_TABLE));
+    }
+
+    @Test
+    public void tablesWithEqualStatsAreChosenInOrderWhenWriteBytesAreUnknown() {
+        setPriorities(ImmutableList.of(priority(SMALL_WRITES_TABLE, 0L), priority(LARGE_WRITES_TABLE, 0L)));
+
+        assertThat(provider.chooseNextTableToSweep(tx, 0L)).contains(SMALL_WRITES_TABLE);
+    }
+
+    @Test
+    public void tableWithLargerWritesIsSweptFirst() {
+        setPriorities(ImmutableList.of(
+                priority(SMALL_WRITES_TABLE, WRITE_COUNT * 50),
+                priority(LARGE_WRITES_TABLE, WRITE_COUNT * 1000)));
+
+        assertThat(provider.chooseNextTableToSweep(tx, 0L)).contains(LARGE_WRITES_TABLE);
+    }
+
+    @Test
+    public void writesUpToTypicalSizeAreWeightedEqually() {
+        setPriorities(ImmutableList.of(
+                priority(SMALL_WRITES_TABLE, WRITE_COUNT * 10),
+                priority(LARGE_WRITES_TABLE, WRITE_COUNT * 100)));
+
+        assertThat(provider.chooseNextTableToSweep(tx, 0L)).contains(SMALL_WRITES_TABLE);
+    }
+
+    private void setPriorities(List<SweepPriority> priorities) {
+        when(priorityStore.loadOldPriorities(any(), anyLong())).thenReturn(priorities);
+        when(priorityStore.loadNewPriorities(any())).thenReturn(priorities);
+    }
+
+    private static SweepPriority priority(TableReference tableRef, long writeBytes) {
+        return ImmutableSweepPriority.builder()
+                .tableRef(tableRef)
+                .writeCount(WRITE_COUNT)
+                .writeBytes(writeBytes)
+                .lastSweepTimeMillis(LAST_SWEEP_TIME_MILLIS)
+                .minimumSweptTimestamp(0L)
+                .staleValuesDeleted(5_000L)
+                .cellTsPairsExamined(10_000L)
+                .build();
+    }
+}
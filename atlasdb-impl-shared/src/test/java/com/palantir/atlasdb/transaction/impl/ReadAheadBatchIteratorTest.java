@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.google.common.collect.ImmutableList;
+
+public class ReadAheadBatchIteratorTest {
+    private static final List<Integer> BATCH_1 = ImmutableList.of(1, 2);
+    private static final List<Integer> BATCH_2 = ImmutableList.of(3, 4);
+    private static final List<Integer> BATCH_3 = ImmutableList.of(5);
+
+    @SuppressWarnings("unchecked")
+    private final BatchSizeIncreasingIterator<Integer> delegate = mock(BatchSizeIncreasingIterator.class);
+
+    @Test
+    public void doesNotReadAheadAfterFirstBatch() {
+        when(delegate.getBatch()).thenReturn(BATCH_1, BATCH_2);
+        ReadAheadBatchIterator<Integer> iterator = new ReadAheadBatchIterator<>(delegate, Runnable::run);
+
+        assertThat(iterator.getBatch()).isEqualTo(BATCH_1);
+        verify(delegate, times(1)).getBatch();
+    }
+
+    @Test
+    public void readsNextBatchAheadFromSecondBatchOnwards() {
+        when(delegate.getBatch()).thenReturn(BATCH_1, BATCH_2, BATCH_3, ImmutableList.of());
+        ReadAheadBatchIterator<Integer> iterator = new ReadAheadBatchIterator<>(delegate, Runnable::run);
+
+        assertThat(iterator.getBatch()).isEqualTo(BATCH_1);
+        assertThat(iterator.getBatch()).isEqualTo(BATCH_2);
+        verify(delegate, times(3)).getBatch();
+        assertThat(iterator.getBatch()).isEqualTo(BATCH_3);
+        assertThat(iterator.getBatch()).isEmpty();
+        verify(delegate, times(4)).getBatch();
+    }
+
+    @Test
+    public void fetchesSynchronouslyIfExecutorIsFull() {
+        when(delegate.getBatch()).thenReturn(BATCH_1, BATCH_2, BATCH_3);
+        Executor fullExecutor = command -> {
+            throw new RejectedExecutionException();
+        };
+        ReadAheadBatchIterator<Integer> iterator = new ReadAheadBatchIterator<>(delegate, fullExecutor);
+
+        assertThat(iterator.getBatch()).isEqualTo(BATCH_1);
+        assertThat(iterator.getBatch()).isEqualTo(BATCH_2);
+        verify(delegate, times(2)).getBatch();
+        assertThat(iterator.getBatch()).isEqualTo(BATCH_3);
+    }
+
+    @Test
+    public void defersResultCountsUntilReadAheadCompletes() {
+        when(delegate.getBatch()).thenReturn(BATCH_1, BATCH_2, BATCH_3);
+        ReadAheadBatchIterator<Integer> iterator = new ReadAheadBatchIterator<>(delegate, Runnable::run);
+
+        iterator.getBatch();
+        iterator.markNumResultsNotDeleted(2);
+        iterator.getBatch();
+        iterator.markNumResultsNotDeleted(1);
+        iterator.getBatch();
+
+        InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).getBatch();
+        inOrder.verify(delegate).markNumResultsNotDeleted(2);
+        inOrder.verify(delegate, times(2)).getBatch();
+        inOrder.verify(delegate).markNumResultsNotDeleted(1);
+    }
+
+    @Test
+    public void propagatesReadAheadFailures() {
+        RuntimeException failure = new IllegalStateException("kvs unavailable");
+        when(delegate.getBatch()).thenReturn(BATCH_1, BATCH_2).thenThrow(failure);
+        ReadAheadBatchIterator<Integer> iterator = new ReadAheadBatchIterator<>(delegate, Runnable::run);
+
+        iterator.getBatch();
+        iterator.getBatch();
+        assertThatThrownBy(iterator::getBatch).isSameAs(failure);
+    }
+
+    @Test
+    public void closesDelegate() {
+        when(delegate.getBatch()).thenReturn(BATCH_1, BATCH_2, BATCH_3);
+        ReadAheadBatchIterator<Integer> iterator = new ReadAheadBatchIterator<>(delegate, Runnable::run);
+
+        iterator.getBatch();
+        iterator.getBatch();
+        iterator.close();
+        verify(delegate).close();
+    }
+}
@@ -16,7 +16,9 @@
 
 package com.palantir.atlasdb.transaction.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -28,13 +30,17 @@ import java.io.IOException;
 import org.junit.Test;
 import org.mockito.InOrder;
 
+import com.google.common.base.Suppliers;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.lock.CloseableRemoteLockService;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.impl.LegacyTimelockService;
+import com.palantir.lock.v2.TimelockService;
 import com.palantir.timestamp.InMemoryTimestampService;
 
 public class SnapshotTransactionManagerTest {
@@ -90,6 +96,48 @@ public class SnapshotTransactionManagerTest {
         newTransactionManager.close(); // should not throw
     }
 
+    @Test
+    public void staleReadOnlyTransactionsUseLeasedTimestamps() {
+        InMemoryTimestampService timestampService = new InMemoryTimestampService();
+        SnapshotTransactionManager transactionManager = createTransactionManagerWithLeaseSize(timestampService, 10);
+        transactionManager.recentImmutableTs.set(0L);
+
+        long firstTimestamp = transactionManager.runTaskReadOnlyWithStaleness(Transaction::getTimestamp);
+        long secondTimestamp = transactionManager.runTaskReadOnlyWithStaleness(Transaction::getTimestamp);
+
+        assertThat(secondTimestamp).isEqualTo(firstTimestamp + 1);
+        assertThat(timestampService.getFreshTimestamp()).isEqualTo(firstTimestamp + 10);
+        verify(cleaner, never()).punch(anyLong());
+    }
+
+    @Test
+    public void readOnlyTransactionsUseFreshTimestamps() {
+        InMemoryTimestampService timestampService = new InMemoryTimestampService();
+        SnapshotTransactionManager transactionManager = createTransactionManagerWithLeaseSize(timestampService, 10);
+        transactionManager.recentImmutableTs.set(0L);
+        transactionManager.runTaskReadOnlyWithStaleness(Transaction::getTimestamp);
+
+        long timestamp = transactionManager.runTaskReadOnly(Transaction::getTimestamp);
+
+        assertThat(timestampService.getFreshTimestamp()).isEqualTo(timestamp + 1);
+        verify(cleaner).punch(timestamp);
+    }
+
+    @Test
+    public void staleReadOnlyTransactionsDoNotStartBeforeTheImmutableTimestamp() {
+        InMemoryTimestampService timestampService = new InMemoryTimestampService();
+        SnapshotTransactionManager transactionManager = createTransactionManagerWithLeaseSize(timestampService, 10);
+        transactionManager.recentImmutableTs.set(0L);
+        long leasedTimestamp = transactionManager.runTaskReadOnlyWithStaleness(Transaction::getTimestamp);
+
+        long immutableTimestamp = leasedTimestamp + 5;
+        transactionManager.recentImmutableTs.set(immutableTimestamp);
+        long timestamp = transactionManager.runTaskReadOnlyWithStaleness(Transaction::getTimestamp);
+
+        assertThat(timestamp).isGreaterThan(immutableTimestamp);
+        verify(cleaner).punch(timestamp);
+    }
+
     @Test
     public void cannotRegisterNullCallback() {
         assertThatThrownBy(() -> snapshotTransactionManager.registerClosingCallback(null))
@@ -118,4 +166,23 @@ public class SnapshotTransactionManagerTest {
         inOrder.verify(callback2).run();
         inOrder.verify(callback1).run();
     }
+
+    private SnapshotTransactionManager createTransactionManagerWithLeaseSize(
+            InMemoryTimestampService timestampService,
+            int leaseSize) {
+        TimelockService timelockService = new LegacyTimelockService(timestampService, closeableRemoteLockService,
+                LockClient.of("lock"));
+        return new SnapshotTransactionManager(
+                keyValueService,
+                timelockService,
+                closeableRemoteLockService,
+                null,
+                Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING),
+                null,
+                null,
+                cleaner,
+                false,
+                () -> AtlasDbConstants.DEFAULT_TRANSACTION_LOCK_ACQUIRE_TIMEOUT_MS,
+                new TimestampRangeLease(timelockService, () -> leaseSize, () -> Long.MAX_VALUE));
+    }
 }
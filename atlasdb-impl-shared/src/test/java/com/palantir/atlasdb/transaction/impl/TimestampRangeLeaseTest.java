@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.timestamp.TimestampRange;
+
+public class TimestampRangeLeaseTest {
+    private static final int LEASE_SIZE = 3;
+    private static final long MAX_LEASE_AGE_MILLIS = 100L;
+
+    private final TimelockService timelockService = mock(TimelockService.class);
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final TimestampRangeLease lease = new TimestampRangeLease(
+            timelockService,
+            () -> LEASE_SIZE,
+            () -> MAX_LEASE_AGE_MILLIS,
+            new Ticker() {
+                @Override
+                public long read() {
+                    return nanoTime.get();
+                }
+            },
+            metricRegistry);
+
+    @Test
+    public void servesTimestampsFromOneRangeUntilItIsUsedUp() {
+        when(timelockService.getFreshTimestamps(LEASE_SIZE)).thenReturn(
+                TimestampRange.createInclusiveRange(10L, 12L),
+                TimestampRange.createInclusiveRange(20L, 22L));
+
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(10L);
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(11L);
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(12L);
+        verify(timelockService, times(1)).getFreshTimestamps(LEASE_SIZE);
+
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(20L);
+        verify(timelockService, times(2)).getFreshTimestamps(LEASE_SIZE);
+    }
+
+    @Test
+    public void usesRangesSmallerThanRequested() {
+        when(timelockService.getFreshTimestamps(LEASE_SIZE)).thenReturn(
+                TimestampRange.createInclusiveRange(10L, 10L),
+                TimestampRange.createInclusiveRange(20L, 22L));
+
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(10L);
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(20L);
+    }
+
+    @Test
+    public void fetchesNewRangeOnceLeaseIsTooOld() {
+        when(timelockService.getFreshTimestamps(LEASE_SIZE)).thenReturn(
+                TimestampRange.createInclusiveRange(10L, 12L),
+                TimestampRange.createInclusiveRange(20L, 22L));
+
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(10L);
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(MAX_LEASE_AGE_MILLIS) - 1);
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(11L);
+        nanoTime.incrementAndGet();
+        assertThat(lease.getLeasedTimestamp()).isEqualTo(20L);
+    }
+
+    @Test
+    public void recordsLeasedTimestampsAndRefreshes() {
+        when(timelockService.getFreshTimestamps(LEASE_SIZE)).thenReturn(
+                TimestampRange.createInclusiveRange(10L, 12L),
+                TimestampRange.createInclusiveRange(20L, 22L));
+
+        for (int i = 0; i < 4; i++) {
+            lease.getLeasedTimestamp();
+        }
+
+        assertThat(metricRegistry.meter(MetricRegistry.name(TimestampRangeLease.class, "leasedTimestamps"))
+                .getCount()).isEqualTo(4);
+        assertThat(metricRegistry.meter(MetricRegistry.name(TimestampRangeLease.class, "leaseRefreshes"))
+                .getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void propagatesFailuresToFetchRanges() {
+        RuntimeException failure = new RuntimeException("timestamp service unavailable");
+        when(timelockService.getFreshTimestamps(anyInt())).thenThrow(failure);
+
+        assertThatThrownBy(lease::getLeasedTimestamp).isEqualTo(failure);
+    }
+
+    @Test
+    public void concurrentCallersGetDistinctTimestamps() throws Exception {
+        AtomicLong timestamps = new AtomicLong();
+        when(timelockService.getFreshTimestamps(LEASE_SIZE)).thenAnswer(invocation -> {
+            long lowerBound = timestamps.getAndAdd(LEASE_SIZE) + 1;
+            return TimestampRange.createInclusiveRange(lowerBound, lowerBound + LEASE_SIZE - 1);
+        });
+
+        int numThreads = 8;
+        int timestampsPerThread = 1000;
+        Set<Long> leased = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    long previous = Long.MIN_VALUE;
+                    for (int j = 0; j < timestampsPerThread; j++) {
+                        long timestamp = lease.getLeasedTimestamp();
+                        assertThat(timestamp).isGreaterThan(previous);
+                        assertThat(leased.add(timestamp)).isTrue();
+                        previous = timestamp;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(leased).hasSize(numThreads * timestampsPerThread);
+    }
+}
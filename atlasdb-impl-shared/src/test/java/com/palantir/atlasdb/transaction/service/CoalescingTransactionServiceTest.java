@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.cache.TimestampCache;
+
+public class CoalescingTransactionServiceTest {
+    private static final long ONE_MINUTE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final TransactionService delegate = mock(TransactionService.class);
+    private final TimestampCache timestampCache = TimestampCache.create();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void readsCacheMissesFromDelegateWithoutWaitingWhenIdle() {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+        when(delegate.get(any(Iterable.class))).thenReturn(ImmutableMap.of(1L, 2L));
+
+        assertThat(service.get(ImmutableList.of(1L, 3L))).isEqualTo(ImmutableMap.of(1L, 2L));
+        verify(delegate).get(ImmutableSet.of(1L, 3L));
+    }
+
+    @Test
+    public void putsOnlyCommittedTimestampsIntoCache() {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+        when(delegate.get(any(Iterable.class))).thenReturn(ImmutableMap.of(1L, 2L));
+
+        service.get(ImmutableList.of(1L, 3L));
+
+        assertThat(timestampCache.getCommitTimestampIfPresent(1L)).isEqualTo(2L);
+        assertThat(timestampCache.getCommitTimestampIfPresent(3L)).isNull();
+    }
+
+    @Test
+    public void doesNotReadCachedTimestamps() {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+        timestampCache.putAlreadyCommittedTransaction(1L, 2L);
+
+        assertThat(service.get(1L)).isEqualTo(2L);
+        verify(delegate, never()).get(any(Iterable.class));
+    }
+
+    @Test
+    public void sharesInFlightLookupOfCommittedTimestamp() throws Exception {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+        CountDownLatch delegateCalled = new CountDownLatch(1);
+        CountDownLatch releaseDelegate = new CountDownLatch(1);
+        when(delegate.get(any(Iterable.class))).then(invocation -> {
+            delegateCalled.countDown();
+            Uninterruptibles.awaitUninterruptibly(releaseDelegate);
+            return ImmutableMap.of(1L, 2L);
+        });
+
+        Future<Long> first = executor.submit(() -> service.get(1L));
+        delegateCalled.await();
+        Future<Long> second = executor.submit(() -> service.get(1L));
+        releaseDelegate.countDown();
+
+        assertThat(first.get()).isEqualTo(2L);
+        assertThat(second.get()).isEqualTo(2L);
+        verify(delegate, times(1)).get(any(Iterable.class));
+    }
+
+    @Test
+    public void batchesMissesThatArriveWhileLookupIsInFlight() throws Exception {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 2);
+        List<Set<Long>> requests = new CopyOnWriteArrayList<>();
+        CountDownLatch delegateCalled = new CountDownLatch(1);
+        CountDownLatch releaseDelegate = new CountDownLatch(1);
+        when(delegate.get(any(Iterable.class))).then(invocation -> {
+            Set<Long> startTimestamps = ImmutableSet.copyOf((Iterable<Long>) invocation.getArguments()[0]);
+            requests.add(startTimestamps);
+            if (startTimestamps.contains(1L)) {
+                delegateCalled.countDown();
+                Uninterruptibles.awaitUninterruptibly(releaseDelegate);
+            }
+            return Maps.asMap(startTimestamps, startTs -> startTs + 100);
+        });
+
+        Future<Long> first = executor.submit(() -> service.get(1L));
+        delegateCalled.await();
+        Future<Long> second = executor.submit(() -> service.get(2L));
+        Future<Long> third = executor.submit(() -> service.get(3L));
+
+        assertThat(second.get()).isEqualTo(102L);
+        assertThat(third.get()).isEqualTo(103L);
+        releaseDelegate.countDown();
+        assertThat(first.get()).isEqualTo(101L);
+        assertThat(requests).hasSize(2).containsOnly(ImmutableSet.of(1L), ImmutableSet.of(2L, 3L));
+    }
+
+    @Test
+    public void rereadsTimestampThatWasUncommittedWhenSharedLookupWasSent() throws Exception {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+        CountDownLatch delegateCalled = new CountDownLatch(1);
+        CountDownLatch releaseDelegate = new CountDownLatch(1);
+        when(delegate.get(any(Iterable.class)))
+                .then(invocation -> {
+                    delegateCalled.countDown();
+                    Uninterruptibles.awaitUninterruptibly(releaseDelegate);
+                    return ImmutableMap.of();
+                })
+                .thenReturn(ImmutableMap.of(1L, 2L));
+
+        Future<Long> first = executor.submit(() -> service.get(1L));
+        delegateCalled.await();
+        Future<Long> second = executor.submit(() -> service.get(1L));
+        releaseDelegate.countDown();
+
+        assertThat(first.get()).isNull();
+        assertThat(second.get()).isEqualTo(2L);
+        verify(delegate, times(2)).get(any(Iterable.class));
+    }
+
+    @Test
+    public void propagatesDelegateFailureToCaller() {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+        when(delegate.get(any(Iterable.class))).thenThrow(new IllegalStateException("kvs unavailable"));
+
+        assertThatThrownBy(() -> service.get(1L)).isInstanceOf(IllegalStateException.class);
+        assertThat(timestampCache.getCommitTimestampIfPresent(1L)).isNull();
+    }
+
+    @Test
+    public void delegatesPutUnlessExists() {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+
+        service.putUnlessExists(1L, 2L);
+
+        verify(delegate).putUnlessExists(1L, 2L);
+    }
+
+    @Test
+    public void returnsNothingForNoStartTimestamps() {
+        CoalescingTransactionService service = createService(ONE_MINUTE_MICROS, 100);
+
+        Map<Long, Long> result = service.get(ImmutableList.of());
+
+        assertThat(result).isEmpty();
+        verify(delegate, never()).get(any(Iterable.class));
+    }
+
+    private CoalescingTransactionService createService(long batchWindowMicros, int maxBatchSize) {
+        return new CoalescingTransactionService(delegate, timestampCache, batchWindowMicros, maxBatchSize);
+    }
+}
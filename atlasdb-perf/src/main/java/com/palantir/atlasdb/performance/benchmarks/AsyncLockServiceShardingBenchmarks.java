@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.atlasdb.performance.benchmarks.endpoint.AsyncLockServicesEndpoint;
+
+/**
+ * Lock and unlock throughput of the lock services of many TimeLock clients under load from many threads, with and
+ * without sharding their background work. The number of threads used by each configuration is logged at the end of
+ * each trial.
+ */
+public class AsyncLockServiceShardingBenchmarks {
+    @Benchmark
+    @Threads(32)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public boolean lockAndUnlock(AsyncLockServicesEndpoint lockServices) {
+        return lockServices.lockAndUnlockForRandomClient();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.util.HeavyHitters;
+
+/**
+ * Hot row tracking of a single table read by many threads at once, as done by
+ * {@link com.palantir.atlasdb.keyvalue.impl.TableMetricsKeyValueService} for every sampled read, with a single
+ * locked sketch and with the sketch split into stripes. Keys are skewed so that a few rows are much hotter than the
+ * rest.
+ */
+@State(Scope.Benchmark)
+public class HeavyHittersBenchmarks {
+    private static final int NUM_KEYS = 100_000;
+    private static final int MAX_HEAVY_HITTERS = 10;
+    private static final int WIDTH = 1024;
+
+    @Param({"1", "16"})
+    private int stripes;
+
+    private byte[][] keys;
+    private HeavyHitters heavyHitters;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = new byte[NUM_KEYS][];
+        for (int i = 0; i < NUM_KEYS; i++) {
+            keys[i] = EncodingUtils.encodeVarLong(i);
+        }
+        heavyHitters = new HeavyHitters(MAX_HEAVY_HITTERS, WIDTH, stripes);
+    }
+
+    @Benchmark
+    @Threads(16)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public HeavyHitters addFromManyReaders() {
+        double random = ThreadLocalRandom.current().nextDouble();
+        heavyHitters.add(keys[(int) (NUM_KEYS * random * random * random)]);
+        return heavyHitters;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.timelock.lock.AsyncResult;
+import com.palantir.atlasdb.timelock.lock.HeldLocks;
+import com.palantir.atlasdb.timelock.lock.HeldLocksCollection;
+import com.palantir.lock.v2.LockToken;
+
+/**
+ * Lease bookkeeping of a TimeLock lock service holding a million leases: refreshing batches of held leases, looking
+ * for expired leases when none have expired, and acquiring and releasing a short-lived lock.
+ * <p>
+ * Leases expire after 20 seconds, so the held leases are recreated before each iteration and iterations are kept
+ * shorter than that.
+ */
+@State(Scope.Benchmark)
+public class HeldLocksCollectionBenchmarks {
+    private static final int NUM_HELD_LEASES = 1_000_000;
+    private static final int REFRESH_BATCH_SIZE = 1_000;
+
+    private HeldLocksCollection heldLocks;
+    private List<Set<LockToken>> refreshBatches;
+    private int nextBatch;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        heldLocks = new HeldLocksCollection();
+        refreshBatches = Lists.newArrayListWithCapacity(NUM_HELD_LEASES / REFRESH_BATCH_SIZE);
+        ImmutableSet.Builder<LockToken> batch = ImmutableSet.builder();
+        for (int i = 1; i <= NUM_HELD_LEASES; i++) {
+            batch.add(acquire(UUID.randomUUID()));
+            if (i % REFRESH_BATCH_SIZE == 0) {
+                refreshBatches.add(batch.build());
+                batch = ImmutableSet.builder();
+            }
+        }
+        nextBatch = 0;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+    public Set<LockToken> refreshBatch() {
+        Set<LockToken> batch = refreshBatches.get(nextBatch);
+        nextBatch = (nextBatch + 1) % refreshBatches.size();
+        return heldLocks.refresh(batch);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+    public void removeExpiredWithNoneExpired() {
+        heldLocks.removeExpired();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+    public Set<LockToken> lockAndUnlock() {
+        return heldLocks.unlock(ImmutableSet.of(acquire(UUID.randomUUID())));
+    }
+
+    private LockToken acquire(UUID requestId) {
+        AsyncResult<LockToken> token = heldLocks.getExistingOrAcquire(requestId, () -> {
+            AsyncResult<HeldLocks> result = new AsyncResult<>();
+            result.complete(new HeldLocks(ImmutableList.of(), requestId));
+            return result;
+        });
+        return token.get();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.InMemoryKvsTable;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * Throughput of the in-memory key value services, which back most of our test suites.
+ */
+@State(Scope.Benchmark)
+public class InMemoryKvsBenchmarks {
+
+    private static final int ROWS_PER_READ = 1_000;
+    private static final int PUT_BATCH_SIZE = 250;
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getRows(InMemoryKvsTable table) {
+        List<byte[]> rows = table.getRandomRows(ROWS_PER_READ);
+        Map<Cell, Value> result = table.getKvs().getRows(
+                table.getTableRef(), rows, ColumnSelection.all(), Long.MAX_VALUE);
+        Preconditions.checkState(result.size() == ROWS_PER_READ,
+                "Should be %s rows, but were: %s", ROWS_PER_READ, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getRowsConcurrently(InMemoryKvsTable table) {
+        return getRows(table);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object getRange(InMemoryKvsTable table) {
+        try (ClosableIterator<RowResult<Value>> iterator = table.getKvs().getRange(
+                table.getTableRef(), table.getRandomRangeRequest(ROWS_PER_READ), Long.MAX_VALUE)) {
+            List<RowResult<Value>> result = ImmutableList.copyOf(iterator);
+            Preconditions.checkState(result.size() == ROWS_PER_READ,
+                    "Should be %s rows, but were: %s", ROWS_PER_READ, result.size());
+            return result;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public Object batchRandomPut(InMemoryKvsTable table) {
+        Map<Cell, byte[]> batch = table.generateBatchToInsert(PUT_BATCH_SIZE);
+        table.getKvs().put(table.getTableRef(), batch, InMemoryKvsTable.VERSIONS_PER_CELL + 1);
+        return batch;
+    }
+}
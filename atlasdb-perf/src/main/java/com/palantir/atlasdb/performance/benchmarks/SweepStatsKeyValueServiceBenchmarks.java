@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.atlasdb.performance.benchmarks.endpoint.SweepStatsKeyValueServiceEndpoint;
+
+/**
+ * Put throughput from many concurrent writers with and without sweep stats being recorded, which shows how much the
+ * write counters of {@link com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService} cost under contention.
+ */
+public class SweepStatsKeyValueServiceBenchmarks {
+    @Benchmark
+    @Threads(64)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public int putFromManyWriters(SweepStatsKeyValueServiceEndpoint endpoint) {
+        return endpoint.putToRandomTable();
+    }
+}
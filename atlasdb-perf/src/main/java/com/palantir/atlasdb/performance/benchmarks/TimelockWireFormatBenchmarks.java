@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.remoting.BinaryTimelockCodec;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Encode and decode round trips per second on a single core of the bodies of the most frequent TimeLock calls, in
+ * JSON, as read and written by the feign clients and the TimeLock server, and in the binary timelock format.
+ */
+@State(Scope.Thread)
+public class TimelockWireFormatBenchmarks {
+    private static final Type LOCK_TOKEN_SET = new TypeToken<Set<LockToken>>() { }.getType();
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new GuavaModule())
+            .registerModule(new Jdk8Module());
+
+    public enum Format {
+        JSON {
+            @Override
+            Object roundTrip(Object value, Type type) throws IOException {
+                return MAPPER.readValue(MAPPER.writeValueAsBytes(value), MAPPER.constructType(type));
+            }
+        },
+        BINARY {
+            @Override
+            Object roundTrip(Object value, Type type) {
+                return BinaryTimelockCodec.decode(BinaryTimelockCodec.encode(value, type), type);
+            }
+        };
+
+        abstract Object roundTrip(Object value, Type type) throws IOException;
+    }
+
+    @Param({"JSON", "BINARY"})
+    private Format format;
+
+    @Param({"1", "100"})
+    private int numDescriptors;
+
+    private LockRequest lockRequest;
+    private LockResponse lockResponse;
+    private Set<LockToken> lockTokens;
+    private TimestampRange timestampRange;
+
+    @Setup
+    public void setup() {
+        ImmutableSet.Builder<LockDescriptor> descriptors = ImmutableSet.builder();
+        ImmutableSet.Builder<LockToken> tokens = ImmutableSet.builder();
+        for (int i = 0; i < numDescriptors; i++) {
+            descriptors.add(StringLockDescriptor.of("table.row" + i));
+            tokens.add(LockToken.of(UUID.randomUUID()));
+        }
+        lockRequest = LockRequest.of(descriptors.build(), 10_000L);
+        lockResponse = LockResponse.successful(LockToken.of(UUID.randomUUID()));
+        lockTokens = tokens.build();
+        timestampRange = TimestampRange.createInclusiveRange(1_000_000_000L, 1_000_009_999L);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object lockRequest() throws IOException {
+        return format.roundTrip(lockRequest, LockRequest.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object lockResponse() throws IOException {
+        return format.roundTrip(lockResponse, LockResponse.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object lockTokens() throws IOException {
+        return format.roundTrip(lockTokens, LOCK_TOKEN_SET);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object timestampRange() throws IOException {
+        return format.roundTrip(timestampRange, TimestampRange.class);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.endpoint;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.timelock.lock.AsyncLockService;
+import com.palantir.atlasdb.timelock.lock.AsyncResult;
+import com.palantir.atlasdb.timelock.lock.LockServiceShards;
+import com.palantir.atlasdb.timelock.lock.TimeLimit;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.v2.LockToken;
+
+/**
+ * The lock services of many TimeLock clients, either each with its own reaper and timeout threads as before, or with
+ * their background work pinned to one of a fixed number of shards. Each client has its own set of lock descriptors,
+ * so clients never contend with each other, and the thread counts are logged at the end of each trial.
+ */
+@State(Scope.Benchmark)
+public class AsyncLockServicesEndpoint {
+    private static final Logger log = LoggerFactory.getLogger(AsyncLockServicesEndpoint.class);
+
+    private static final int NUM_DESCRIPTORS_PER_CLIENT = 10_000;
+
+    @Param({"1", "16", "256"})
+    private int numClients;
+
+    @Param({"false", "true"})
+    private boolean sharded;
+
+    private final List<AsyncLockService> lockServices = Lists.newArrayList();
+    private final List<ScheduledExecutorService> executors = Lists.newArrayList();
+    private final List<LockDescriptor> descriptors = Lists.newArrayList();
+    private LockServiceShards shards;
+
+    /**
+     * Takes and releases a random lock of a random client, returning whether the lock was free.
+     */
+    public boolean lockAndUnlockForRandomClient() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        AsyncLockService lockService = lockServices.get(random.nextInt(numClients));
+        LockDescriptor descriptor = descriptors.get(random.nextInt(NUM_DESCRIPTORS_PER_CLIENT));
+
+        AsyncResult<LockToken> result = lockService.lock(
+                UUID.randomUUID(), ImmutableSet.of(descriptor), TimeLimit.zero());
+        if (result.isCompletedSuccessfully()) {
+            return lockService.unlock(result.get());
+        }
+        return false;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < NUM_DESCRIPTORS_PER_CLIENT; i++) {
+            descriptors.add(StringLockDescriptor.of("lock" + i));
+        }
+        shards = LockServiceShards.create(Runtime.getRuntime().availableProcessors());
+        for (int client = 0; client < numClients; client++) {
+            lockServices.add(sharded
+                    ? shards.createLockService("client" + client)
+                    : AsyncLockService.createDefault(registerExecutor(), registerExecutor()));
+        }
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    private ScheduledExecutorService registerExecutor() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        executors.add(executor);
+        return executor;
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        log.info("Lock services for {} clients (sharded: {}) used {} live and {} peak threads.",
+                numClients, sharded, threads.getThreadCount(), threads.getPeakThreadCount());
+        lockServices.forEach(AsyncLockService::close);
+        executors.forEach(ScheduledExecutorService::shutdownNow);
+        shards.shutdown();
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.endpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.Reflection;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.timelock.paxos.BatchPaxosPeer;
+import com.palantir.atlasdb.timelock.paxos.BatchPaxosResource;
+import com.palantir.atlasdb.timelock.paxos.BatchPaxosService;
+import com.palantir.atlasdb.timelock.paxos.PaxosResource;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosProposer;
+import com.palantir.paxos.PaxosProposerImpl;
+import com.palantir.paxos.PaxosRoundFailureException;
+
+/**
+ * An in-process three node TimeLock paxos cluster serving many clients, as seen from the first node. Calls to the
+ * other two nodes are delayed to simulate a network round trip, but are otherwise made directly on their resources.
+ * When batching, the thread counts logged at the end of each trial include the threads the other two nodes use to
+ * handle batches.
+ */
+@State(Scope.Benchmark)
+public class PaxosClusterEndpoint {
+    private static final Logger log = LoggerFactory.getLogger(PaxosClusterEndpoint.class);
+
+    private static final int NUM_NODES = 3;
+    private static final int QUORUM_SIZE = 2;
+    private static final long NETWORK_LATENCY_MICROS = 500;
+    private static final int SHARED_EXECUTOR_THREADS = 64;
+
+    @Param({"1", "10", "100"})
+    private int numClients;
+
+    @Param({"false", "true"})
+    private boolean batched;
+
+    private final List<ExecutorService> executors = Lists.newArrayList();
+    private final List<PaxosProposer> proposers = Lists.newArrayList();
+    private final List<AtomicLong> sequenceNumbers = Lists.newArrayList();
+    private File logDirectory;
+
+    /**
+     * Runs one paxos round for a randomly chosen client, returning the sequence number agreed on.
+     */
+    public long proposeForRandomClient() throws PaxosRoundFailureException {
+        int client = ThreadLocalRandom.current().nextInt(numClients);
+        long seq = sequenceNumbers.get(client).getAndIncrement();
+        proposers.get(client).propose(seq, PtBytes.toBytes(seq));
+        return seq;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        logDirectory = Files.createTempDirectory("paxos-benchmark").toFile();
+        List<PaxosResource> nodes = Lists.newArrayList();
+        for (int node = 0; node < NUM_NODES; node++) {
+            PaxosResource resource = PaxosResource.create(new File(logDirectory, "node" + node).getPath());
+            for (int client = 0; client < numClients; client++) {
+                resource.addInstrumentedClient(clientName(client));
+            }
+            nodes.add(resource);
+        }
+
+        if (batched) {
+            setupBatchedProposers(nodes);
+        } else {
+            setupUnbatchedProposers(nodes);
+        }
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    private void setupUnbatchedProposers(List<PaxosResource> nodes) {
+        for (int client = 0; client < numClients; client++) {
+            String name = clientName(client);
+            List<PaxosAcceptor> acceptors = Lists.newArrayList(nodes.get(0).getPaxosAcceptor(name));
+            List<PaxosLearner> learners = Lists.newArrayList(nodes.get(0).getPaxosLearner(name));
+            for (int node = 1; node < NUM_NODES; node++) {
+                acceptors.add(withLatency(PaxosAcceptor.class, nodes.get(node).getPaxosAcceptor(name)));
+                learners.add(withLatency(PaxosLearner.class, nodes.get(node).getPaxosLearner(name)));
+            }
+            addProposer(nodes.get(0).getPaxosLearner(name), acceptors, learners,
+                    registerExecutor(PTExecutors.newCachedThreadPool(new NamedThreadFactory("paxos-" + name, true))));
+        }
+    }
+
+    private void setupBatchedProposers(List<PaxosResource> nodes) {
+        ExecutorService sharedExecutor = registerExecutor(PTExecutors.newFixedThreadPool(
+                SHARED_EXECUTOR_THREADS, new NamedThreadFactory("paxos-shared", true)));
+        ExecutorService senderExecutor = registerExecutor(
+                PTExecutors.newCachedThreadPool(new NamedThreadFactory("paxos-batch", true)));
+        List<BatchPaxosPeer> peers = Lists.newArrayList();
+        for (int node = 1; node < NUM_NODES; node++) {
+            ExecutorService serverExecutor = registerExecutor(PTExecutors.newFixedThreadPool(
+                    SHARED_EXECUTOR_THREADS, new NamedThreadFactory("paxos-server-" + node, true)));
+            BatchPaxosService remote = withLatency(BatchPaxosService.class,
+                    new BatchPaxosResource(nodes.get(node), serverExecutor));
+            peers.add(BatchPaxosPeer.create(remote, senderExecutor));
+        }
+
+        for (int client = 0; client < numClients; client++) {
+            String name = clientName(client);
+            List<PaxosAcceptor> acceptors = Lists.newArrayList(nodes.get(0).getPaxosAcceptor(name));
+            List<PaxosLearner> learners = Lists.newArrayList(nodes.get(0).getPaxosLearner(name));
+            for (int node = 1; node < NUM_NODES; node++) {
+                BatchPaxosPeer peer = peers.get(node - 1);
+                acceptors.add(peer.acceptor(name,
+                        withLatency(PaxosAcceptor.class, nodes.get(node).getPaxosAcceptor(name))));
+                learners.add(peer.learner(name,
+                        withLatency(PaxosLearner.class, nodes.get(node).getPaxosLearner(name))));
+            }
+            addProposer(nodes.get(0).getPaxosLearner(name), acceptors, learners, sharedExecutor);
+        }
+    }
+
+    private void addProposer(
+            PaxosLearner localLearner,
+            List<PaxosAcceptor> acceptors,
+            List<PaxosLearner> learners,
+            ExecutorService executor) {
+        proposers.add(PaxosProposerImpl.newProposer(
+                localLearner,
+                ImmutableList.copyOf(acceptors),
+                ImmutableList.copyOf(learners),
+                QUORUM_SIZE,
+                UUID.randomUUID(),
+                executor));
+        sequenceNumbers.add(new AtomicLong());
+    }
+
+    private ExecutorService registerExecutor(ExecutorService executor) {
+        executors.add(executor);
+        return executor;
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException, InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        log.info("Paxos cluster with {} clients (batched: {}) used {} live and {} peak threads.",
+                numClients, batched, threads.getThreadCount(), threads.getPeakThreadCount());
+        executors.forEach(ExecutorService::shutdownNow);
+        for (ExecutorService executor : executors) {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        FileUtils.deleteDirectory(logDirectory);
+    }
+
+    private static String clientName(int client) {
+        return "client" + client;
+    }
+
+    private static <T> T withLatency(Class<T> iface, T delegate) {
+        return Reflection.newProxy(iface, (proxy, method, args) -> {
+            Uninterruptibles.sleepUninterruptibly(NETWORK_LATENCY_MICROS, TimeUnit.MICROSECONDS);
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.endpoint;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.schema.SweepSchema;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.timestamp.InMemoryTimestampService;
+
+/**
+ * An in-memory key value service, optionally wrapped in a {@link SweepStatsKeyValueService}, that many threads write
+ * small batches of cells to. All writers share a handful of tables, so every write contends on the same per-table
+ * write counters.
+ */
+@State(Scope.Benchmark)
+public class SweepStatsKeyValueServiceEndpoint {
+    private static final int NUM_TABLES = 4;
+    private static final int CELLS_PER_PUT = 8;
+    private static final byte[] COLUMN = "c".getBytes();
+    private static final byte[] VALUE = new byte[64];
+
+    @Param({"false", "true"})
+    private boolean recordingSweepStats;
+
+    private final TableReference[] tables = new TableReference[NUM_TABLES];
+    private KeyValueService delegate;
+    private KeyValueService kvs;
+
+    /**
+     * Writes a small batch of cells with random rows to a random table, returning the number of cells written.
+     */
+    public int putToRandomTable() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Cell, byte[]> values = Maps.newHashMapWithExpectedSize(CELLS_PER_PUT);
+        for (int i = 0; i < CELLS_PER_PUT; i++) {
+            values.put(Cell.create(EncodingUtils.encodeVarLong(random.nextLong() & Long.MAX_VALUE), COLUMN), VALUE);
+        }
+        kvs.put(tables[random.nextInt(NUM_TABLES)], values, 1L);
+        return values.size();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        delegate = new InMemoryKeyValueService(false);
+        TransactionTables.createTables(delegate);
+        delegate.createTable(
+                TableReference.create(SweepSchema.INSTANCE.getNamespace(), SweepPriorityTable.getRawTableName()),
+                AtlasDbConstants.GENERIC_TABLE_METADATA);
+        for (int i = 0; i < NUM_TABLES; i++) {
+            tables[i] = TableReference.createFromFullyQualifiedName("benchmarks.table" + i);
+            delegate.createTable(tables[i], AtlasDbConstants.GENERIC_TABLE_METADATA);
+        }
+        kvs = recordingSweepStats
+                ? SweepStatsKeyValueService.create(delegate, new InMemoryTimestampService())
+                : delegate;
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        kvs.close();
+    }
+}
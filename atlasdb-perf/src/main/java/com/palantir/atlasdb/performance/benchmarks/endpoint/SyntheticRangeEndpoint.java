@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.endpoint;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Range;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+import com.palantir.common.base.BatchingVisitableFromIterable;
+import com.palantir.common.base.BatchingVisitableView;
+
+/**
+ * A synthetic range of a few million rows, each of which is hashed as a stand-in for CPU-heavy per-row work such as
+ * deserializing and post-filtering a row. The rows are visited either sequentially or with the hashing forked out
+ * to {@link ForkJoinPool#commonPool()}, with or without preserving the order of the range.
+ */
+@State(Scope.Benchmark)
+public class SyntheticRangeEndpoint {
+    private static final int NUM_ROWS = 2_000_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int HASH_ROUNDS = 4;
+    private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+
+    @Param({"SEQUENTIAL", "PARALLEL_ORDERED", "PARALLEL_UNORDERED"})
+    private Mode mode;
+
+    public enum Mode {
+        SEQUENTIAL,
+        PARALLEL_ORDERED,
+        PARALLEL_UNORDERED
+    }
+
+    /**
+     * Visits every row of the range, returning a checksum of the hashes so that the work cannot be optimised away.
+     */
+    public long visitRange() {
+        BatchingVisitableView<Long> rows = BatchingVisitableView.of(BatchingVisitableFromIterable.create(
+                ContiguousSet.create(Range.closedOpen(0L, (long) NUM_ROWS), DiscreteDomain.longs())));
+        BatchingVisitableView<HashCode> hashes;
+        switch (mode) {
+            case SEQUENTIAL:
+                hashes = rows.transformBatch(SyntheticRangeEndpoint::hashRows);
+                break;
+            case PARALLEL_ORDERED:
+                hashes = rows.parallelTransformBatch(SyntheticRangeEndpoint::hashRows,
+                        ForkJoinPool.commonPool(), maxBatchesInFlight(), true);
+                break;
+            case PARALLEL_UNORDERED:
+                hashes = rows.parallelTransformBatch(SyntheticRangeEndpoint::hashRows,
+                        ForkJoinPool.commonPool(), maxBatchesInFlight(), false);
+                break;
+            default:
+                throw new IllegalStateException("Unknown mode " + mode);
+        }
+        long[] checksum = new long[1];
+        hashes.batchAccept(BATCH_SIZE, batch -> {
+            for (HashCode hash : batch) {
+                checksum[0] += hash.asLong();
+            }
+            return true;
+        });
+        return checksum[0];
+    }
+
+    private static List<HashCode> hashRows(List<Long> rows) {
+        HashCode[] hashes = new HashCode[rows.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            byte[] bytes = Longs.toByteArray(rows.get(i));
+            for (int round = 0; round < HASH_ROUNDS; round++) {
+                bytes = HASH_FUNCTION.hashBytes(bytes).asBytes();
+            }
+            hashes[i] = HashCode.fromBytes(bytes);
+        }
+        return Arrays.asList(hashes);
+    }
+
+    private static int maxBatchesInFlight() {
+        return 2 * ForkJoinPool.getCommonPoolParallelism();
+    }
+}
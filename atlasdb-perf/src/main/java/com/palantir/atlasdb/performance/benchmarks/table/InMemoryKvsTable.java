@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ChunkedInMemoryKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+
+/**
+ * State class for comparing the in-memory key value services against each other. Unlike the other table states, this
+ * does not connect to a dockerized backend, so the results measure the in-memory data structures alone.
+ */
+@State(Scope.Benchmark)
+public class InMemoryKvsTable {
+
+    public static final int NUM_ROWS = 100_000;
+    public static final int VERSIONS_PER_CELL = 3;
+
+    private static final TableReference TABLE_REF =
+            TableReference.createFromFullyQualifiedName("performance.in_memory_table");
+    private static final int WRITE_BATCH_SIZE = 1_000;
+
+    @Param({"InMemoryKeyValueService", "ChunkedInMemoryKeyValueService"})
+    private String implementation;
+
+    private final Random random = new Random(Tables.RANDOM_SEED);
+    private KeyValueService kvs;
+
+    public KeyValueService getKvs() {
+        return kvs;
+    }
+
+    public TableReference getTableRef() {
+        return TABLE_REF;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        kvs = createKeyValueService(implementation);
+        kvs.createTable(TABLE_REF, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        for (int version = 1; version <= VERSIONS_PER_CELL; version++) {
+            for (int startRow = 0; startRow < NUM_ROWS; startRow += WRITE_BATCH_SIZE) {
+                Map<Cell, byte[]> batch = Tables.generateContinuousBatch(random, startRow, WRITE_BATCH_SIZE);
+                kvs.put(TABLE_REF, batch, version);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        kvs.close();
+    }
+
+    public List<byte[]> getRandomRows(int numberOfRows) {
+        return random.ints(0, NUM_ROWS)
+                .distinct()
+                .limit(numberOfRows)
+                .mapToObj(Ints::toByteArray)
+                .collect(Collectors.toList());
+    }
+
+    public RangeRequest getRandomRangeRequest(int numberOfRows) {
+        int startRow = random.nextInt(NUM_ROWS - numberOfRows);
+        return RangeRequest.builder()
+                .startRowInclusive(Ints.toByteArray(startRow))
+                .endRowExclusive(Ints.toByteArray(startRow + numberOfRows))
+                .batchHint(numberOfRows)
+                .build();
+    }
+
+    public Map<Cell, byte[]> generateBatchToInsert(int size) {
+        return Tables.generateRandomBatch(random, size);
+    }
+
+    private static KeyValueService createKeyValueService(String implementation) {
+        switch (implementation) {
+            case "InMemoryKeyValueService":
+                return new InMemoryKeyValueService(false);
+            case "ChunkedInMemoryKeyValueService":
+                return new ChunkedInMemoryKeyValueService(false);
+            default:
+                throw new IllegalArgumentException("Unknown in-memory key value service " + implementation);
+        }
+    }
+}
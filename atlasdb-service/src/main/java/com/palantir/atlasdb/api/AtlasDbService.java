@@ -24,6 +24,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.annotation.Idempotent;
@@ -78,6 +79,19 @@ public interface AtlasDbService {
     RangeToken getRange(@PathParam("token") TransactionToken token,
                         TableRange rangeRequest);
 
+    /**
+     * Returns the same JSON as {@link #getRange}, but writes each row to the response as it is read instead of
+     * building the whole page in memory first. Rows are read in a single attempt of a read-only transaction if the
+     * token is {@link TransactionToken#autoCommit()}, as the response cannot be retried once it has started.
+     */
+    @Idempotent
+    @POST
+    @Path("range-stream/{token}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    StreamingOutput getRangeStream(@PathParam("token") TransactionToken token,
+                                   TableRange rangeRequest);
+
     @Idempotent
     @POST
     @Path("put/{token}")
@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
@@ -38,6 +39,7 @@ import com.palantir.atlasdb.api.TableRange;
 import com.palantir.atlasdb.api.TableRowResult;
 import com.palantir.atlasdb.api.TableRowSelection;
 import com.palantir.atlasdb.api.TransactionToken;
+import com.palantir.atlasdb.jackson.StreamingRangeTokenWriter;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
@@ -52,6 +54,7 @@ import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.atlasdb.table.description.ValueType;
 import com.palantir.atlasdb.transaction.api.ConflictHandler;
 import com.palantir.atlasdb.transaction.api.RuntimeTransactionTask;
+import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.RawTransaction;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.TxTask;
@@ -66,6 +69,8 @@ public class AtlasDbServiceImpl implements AtlasDbService {
                     ColumnValueDescription.forType(ValueType.STRING))),
             ConflictHandler.SERIALIZABLE);
 
+    private static final int STREAMING_BATCH_HINT = 1000;
+
     private final KeyValueService kvs;
     private final SerializableTransactionManager txManager;
     private final Cache<TransactionToken, RawTransaction> transactions =
@@ -121,12 +126,7 @@ public class AtlasDbServiceImpl implements AtlasDbService {
             final TableRange range) {
         return runReadOnly(token, transaction -> {
             int limit = range.getBatchSize() + 1;
-            RangeRequest request = RangeRequest.builder()
-                    .startRowInclusive(range.getStartRow())
-                    .endRowExclusive(range.getEndRow())
-                    .batchHint(limit)
-                    .retainColumns(range.getColumns())
-                    .build();
+            RangeRequest request = toRangeRequest(range, limit);
             BatchingVisitable<RowResult<byte[]>> visitable = transaction.getRange(getTableRef(range.getTableName()),
                     request);
             List<RowResult<byte[]>> results = BatchingVisitables.limit(visitable, limit).immutableCopy();
@@ -142,6 +142,26 @@ public class AtlasDbServiceImpl implements AtlasDbService {
         });
     }
 
+    @Override
+    public StreamingOutput getRangeStream(TransactionToken token, TableRange range) {
+        StreamingRangeTokenWriter writer = new StreamingRangeTokenWriter(metadataCache, range);
+        int batchHint = Math.min(range.getBatchSize() + 1, STREAMING_BATCH_HINT);
+        RangeRequest request = toRangeRequest(range, batchHint);
+        return output -> runReadOnlyWithoutRetry(token, transaction -> {
+            writer.write(transaction.getRange(getTableRef(range.getTableName()), request), batchHint, output);
+            return null;
+        });
+    }
+
+    private static RangeRequest toRangeRequest(TableRange range, int batchHint) {
+        return RangeRequest.builder()
+                .startRowInclusive(range.getStartRow())
+                .endRowExclusive(range.getEndRow())
+                .batchHint(batchHint)
+                .retainColumns(range.getColumns())
+                .build();
+    }
+
     @Override
     public void put(TransactionToken token,
             final TableCellVal data) {
@@ -175,6 +195,17 @@ public class AtlasDbServiceImpl implements AtlasDbService {
         }
     }
 
+    private <T, E extends Exception> T runReadOnlyWithoutRetry(TransactionToken token, TransactionTask<T, E> task)
+            throws E {
+        if (token.shouldAutoCommit()) {
+            return txManager.runTaskReadOnly(task);
+        } else {
+            RawTransaction tx = transactions.getIfPresent(token);
+            Preconditions.checkNotNull(tx, "The given transaction does not exist.");
+            return task.execute(tx);
+        }
+    }
+
     private <T> T runWithRetry(TransactionToken token, RuntimeTransactionTask<T> task) {
         if (token.shouldAutoCommit()) {
             return txManager.runTaskWithRetry(task);
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.jackson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.api.RangeToken;
+import com.palantir.atlasdb.api.TableRange;
+import com.palantir.atlasdb.impl.TableMetadataCache;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.common.base.AbortingVisitor;
+import com.palantir.common.base.BatchingVisitable;
+
+/**
+ * Writes a page of a range as the JSON of a {@link RangeToken}, streaming rows to the output as they are visited
+ * instead of collecting the page first. The output is flushed after each batch of rows, so memory use is bounded by
+ * the batch size rather than the page size.
+ */
+public class StreamingRangeTokenWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final TableMetadataCache metadataCache;
+    private final TableRange range;
+    private final TableMetadata metadata;
+
+    public StreamingRangeTokenWriter(TableMetadataCache metadataCache, TableRange range) {
+        this.metadataCache = metadataCache;
+        this.range = range;
+        this.metadata = Preconditions.checkNotNull(metadataCache.getMetadata(range.getTableName()),
+                "Unknown table %s", range.getTableName());
+    }
+
+    /**
+     * Writes up to {@link TableRange#getBatchSize()} rows of the given range, followed by the range to request next if
+     * there are more rows. The given rows should start at the start of the range, and are visited in batches of the
+     * given size.
+     */
+    public void write(BatchingVisitable<RowResult<byte[]>> rows, int batchHint, OutputStream output)
+            throws IOException {
+        JsonGenerator jgen = JSON_FACTORY.createGenerator(output);
+        jgen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        jgen.writeStartObject();
+        jgen.writeObjectFieldStart("data");
+        jgen.writeStringField("table", range.getTableName());
+        jgen.writeArrayFieldStart("data");
+        RowWriter rowWriter = new RowWriter(jgen);
+        rows.batchAccept(batchHint, rowWriter);
+        jgen.writeEndArray();
+        jgen.writeEndObject();
+        if (rowWriter.nextStartRow != null) {
+            jgen.writeFieldName("next");
+            new TableRangeSerializer(metadataCache).serialize(range.withStartRow(rowWriter.nextStartRow), jgen, null);
+        }
+        jgen.writeEndObject();
+        jgen.close();
+    }
+
+    private final class RowWriter implements AbortingVisitor<List<RowResult<byte[]>>, IOException> {
+        private final JsonGenerator jgen;
+        private int rowsWritten = 0;
+        private byte[] nextStartRow = null;
+
+        RowWriter(JsonGenerator jgen) {
+            this.jgen = jgen;
+        }
+
+        @Override
+        public boolean visit(List<RowResult<byte[]>> batch) throws IOException {
+            for (RowResult<byte[]> row : batch) {
+                if (rowsWritten == range.getBatchSize()) {
+                    nextStartRow = row.getRowName();
+                    return false;
+                }
+                TableRowResultSerializer.serializeRowResult(jgen, metadata, row);
+                rowsWritten++;
+            }
+            jgen.flush();
+            return true;
+        }
+    }
+}
@@ -50,15 +50,15 @@ public class TableRowResultSerializer extends StdSerializer<TableRowResult> {
         jgen.writeStringField("table", value.getTableName());
         jgen.writeArrayFieldStart("data");
         for (RowResult<byte[]> result : value.getResults()) {
-            serialize(jgen, metadata, result);
+            serializeRowResult(jgen, metadata, result);
         }
         jgen.writeEndArray();
         jgen.writeEndObject();
     }
 
-    private static void serialize(JsonGenerator jgen,
-                                  TableMetadata metadata,
-                                  RowResult<byte[]> result) throws IOException {
+    static void serializeRowResult(JsonGenerator jgen,
+                                   TableMetadata metadata,
+                                   RowResult<byte[]> result) throws IOException {
         jgen.writeStartObject();
         AtlasSerializers.serializeRow(jgen, metadata.getRowMetadata(), result.getRowName());
         ColumnMetadataDescription columns = metadata.getColumns();
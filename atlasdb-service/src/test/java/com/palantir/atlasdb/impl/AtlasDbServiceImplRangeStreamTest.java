@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.api.RangeToken;
+import com.palantir.atlasdb.api.TableCellVal;
+import com.palantir.atlasdb.api.TableRange;
+import com.palantir.atlasdb.api.TransactionToken;
+import com.palantir.atlasdb.factory.TransactionManagers;
+import com.palantir.atlasdb.jackson.AtlasJacksonModule;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.schema.SweepSchema;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable.CellsExamined;
+import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
+import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
+
+public class AtlasDbServiceImplRangeStreamTest {
+    private static final String TABLE = "sweep.priority";
+    private static final int NUM_ROWS = 5;
+
+    private SerializableTransactionManager txManager;
+    private AtlasDbServiceImpl service;
+    private ObjectMapper mapper;
+
+    @Before
+    public void setUp() {
+        txManager = TransactionManagers.createInMemory(SweepSchema.INSTANCE.getLatestSchema());
+        TableMetadataCache metadataCache = new TableMetadataCache(txManager.getKeyValueService());
+        service = new AtlasDbServiceImpl(txManager.getKeyValueService(), txManager, metadataCache);
+        mapper = new ObjectMapper();
+        mapper.registerModule(new AtlasJacksonModule(metadataCache).createModule());
+
+        TransactionToken token = service.startTransaction();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            service.put(token, new TableCellVal(TABLE, getSweepPriorityTableContents("table" + i, i)));
+        }
+        service.commit(token);
+    }
+
+    @After
+    public void tearDown() {
+        txManager.close();
+    }
+
+    @Test
+    public void streamedPageMatchesPageWhenThereAreMoreRows() throws IOException {
+        assertStreamedPageMatchesPage(TransactionToken.autoCommit(), range(2));
+    }
+
+    @Test
+    public void streamedPageMatchesPageWhenRangeIsExhausted() throws IOException {
+        assertStreamedPageMatchesPage(TransactionToken.autoCommit(), range(NUM_ROWS));
+    }
+
+    @Test
+    public void streamedPageMatchesPageOfEmptyRange() throws IOException {
+        TableRange emptyRange = new TableRange(TABLE, new byte[1], new byte[2], ImmutableList.of(), 10);
+        assertStreamedPageMatchesPage(TransactionToken.autoCommit(), emptyRange);
+    }
+
+    @Test
+    public void streamedPagesCanBeFollowedToTheEndOfTheRange() throws IOException {
+        TableRange range = range(2);
+        int numRows = 0;
+        int numPages = 0;
+        while (range != null) {
+            RangeToken page = mapper.readValue(stream(TransactionToken.autoCommit(), range), RangeToken.class);
+            numRows += ImmutableList.copyOf(page.getResults().getResults()).size();
+            numPages++;
+            range = page.getNextRange();
+        }
+        assertEquals(NUM_ROWS, numRows);
+        assertEquals(3, numPages);
+    }
+
+    @Test
+    public void streamsWithinExplicitTransaction() throws IOException {
+        TransactionToken token = service.startTransaction();
+        assertStreamedPageMatchesPage(token, range(3));
+        service.commit(token);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void failsBeforeStreamingForUnknownTable() {
+        service.getRangeStream(TransactionToken.autoCommit(),
+                new TableRange("ns.unknown", new byte[0], new byte[0], ImmutableList.of(), 10));
+    }
+
+    private void assertStreamedPageMatchesPage(TransactionToken token, TableRange range) throws IOException {
+        String page = mapper.writeValueAsString(service.getRange(token, range));
+        assertEquals(page, stream(token, range));
+    }
+
+    private String stream(TransactionToken token, TableRange range) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.getRangeStream(token, range).write(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static TableRange range(int batchSize) {
+        return new TableRange(TABLE, new byte[0], new byte[0], ImmutableList.of(), batchSize);
+    }
+
+    private static Map<Cell, byte[]> getSweepPriorityTableContents(String table, long cellsExamined) {
+        byte[] row = SweepPriorityRow.of(table).persistToBytes();
+        CellsExamined column = CellsExamined.of(cellsExamined);
+        return ImmutableMap.of(Cell.create(row, column.persistColumnName()), column.persistValue());
+    }
+}
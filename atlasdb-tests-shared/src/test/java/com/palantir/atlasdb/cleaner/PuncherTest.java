@@ -40,6 +40,7 @@ public class PuncherTest {
     public static Collection<Object[]> parameters() {
         InMemoryKeyValueService kvsPuncherStoreKvs = new InMemoryKeyValueService(false);
         InMemoryKeyValueService cachingKvsPuncherStoreKvs = new InMemoryKeyValueService(false);
+        InMemoryKeyValueService timelineKvsPuncherStoreKvs = new InMemoryKeyValueService(false);
 
         InMemoryPuncherStore inMemoryPuncherStore = InMemoryPuncherStore.create();
         KeyValueServicePuncherStore keyValueServicePuncherStore =
@@ -49,10 +50,13 @@ public class PuncherTest {
         CachingPuncherStore cachingKeyValueServicePuncherStore = CachingPuncherStore.create(
                 KeyValueServicePuncherStore.create(cachingKvsPuncherStoreKvs),
                 GRANULARITY_MILLIS);
+        TimelinePuncherStore timelineKeyValueServicePuncherStore = TimelinePuncherStore.create(
+                KeyValueServicePuncherStore.create(timelineKvsPuncherStoreKvs));
         Object[][] parameters = new Object[][] { { inMemoryPuncherStore, null },
                 { keyValueServicePuncherStore, kvsPuncherStoreKvs },
                 { cachingInMemoryPuncherStore, null },
-                { cachingKeyValueServicePuncherStore, cachingKvsPuncherStoreKvs } };
+                { cachingKeyValueServicePuncherStore, cachingKvsPuncherStoreKvs },
+                { timelineKeyValueServicePuncherStore, timelineKvsPuncherStoreKvs } };
         return ImmutableList.copyOf(parameters);
     }
 
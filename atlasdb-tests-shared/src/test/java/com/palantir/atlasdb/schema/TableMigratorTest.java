@@ -15,16 +15,34 @@
  */
 package com.palantir.atlasdb.schema;
 
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.mutable.MutableLong;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbTestCase;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.TableMappingService;
@@ -34,6 +52,9 @@ import com.palantir.atlasdb.keyvalue.api.Namespace;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.keyvalue.impl.Cells;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.NamespaceMappingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.StaticTableMappingService;
@@ -41,13 +62,17 @@ import com.palantir.atlasdb.keyvalue.impl.TableMappingNotFoundException;
 import com.palantir.atlasdb.keyvalue.impl.TableRemappingKeyValueService;
 import com.palantir.atlasdb.table.description.TableDefinition;
 import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
 import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
 import com.palantir.atlasdb.transaction.impl.TestTransactionManagerImpl;
+import com.palantir.atlasdb.transaction.impl.WrappingTransactionManager;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.common.base.AbortingVisitor;
 import com.palantir.common.base.AbortingVisitors;
 import com.palantir.common.base.BatchingVisitable;
@@ -171,4 +196,266 @@ public class TableMigratorTest extends AtlasDbTestCase {
         }
         Assert.assertEquals(2L, count.longValue());
     }
+
+    @Test
+    public void testRateLimitedKvsMigration() {
+        final TableReference tableRef = TableReference.create(Namespace.DEFAULT_NAMESPACE, "rate_limited_table");
+        keyValueService.createTable(tableRef, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        final Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = 0; i < 100; i++) {
+            values.put(Cell.create(PtBytes.toBytes("r" + i), PtBytes.toBytes("c")), PtBytes.toBytes("v" + i));
+        }
+        txManager.runTaskWithRetry(new TransactionTask<Void, RuntimeException>() {
+            @Override
+            public Void execute(Transaction txn) {
+                txn.put(tableRef, values);
+                return null;
+            }
+        });
+
+        final InMemoryKeyValueService kvs2 = new InMemoryKeyValueService(false);
+        final TestTransactionManagerImpl txManager2 = new TestTransactionManagerImpl(
+                kvs2,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                ConflictDetectionManagers.createWithNoConflictDetection(),
+                SweepStrategyManagers.completelyConservative(kvs2));
+        kvs2.createTable(tableRef, AtlasDbConstants.GENERIC_TABLE_METADATA);
+
+        TableReference checkpointTable = TableReference.create(Namespace.DEFAULT_NAMESPACE, "checkpoint");
+        GeneralTaskCheckpointer checkpointer = new GeneralTaskCheckpointer(checkpointTable, kvs2, txManager2);
+        long migrationTimestamp = timestampService.getFreshTimestamp();
+        long bytesMigratedBefore = getBytesMigrated();
+        KvsRangeMigrator rangeMigrator = new KvsRangeMigratorBuilder()
+                .srcTable(tableRef)
+                .readTxManager(txManager)
+                .txManager(txManager2)
+                .writeKvs(kvs2)
+                .migrationTimestamp(migrationTimestamp)
+                .checkpointer(checkpointer)
+                .bytesRateLimiter(RateLimiter.create(1_000_000))
+                .build();
+        new TableMigratorBuilder()
+                .srcTable(tableRef)
+                .partitions(4)
+                .executor(Tracers.wrap(PTExecutors.newFixedThreadPool(4)))
+                .checkpointer(checkpointer)
+                .rangeMigrator(rangeMigrator)
+                .build()
+                .migrate();
+
+        Map<Cell, Value> migrated = kvs2.get(tableRef, Maps.transformValues(values, value -> Long.MAX_VALUE));
+        Assert.assertEquals(values.size(), migrated.size());
+        for (Entry<Cell, byte[]> entry : values.entrySet()) {
+            Assert.assertEquals(migrationTimestamp, migrated.get(entry.getKey()).getTimestamp());
+            Assert.assertArrayEquals(entry.getValue(), migrated.get(entry.getKey()).getContents());
+        }
+        Assert.assertTrue(getBytesMigrated() > bytesMigratedBefore);
+    }
+
+    @Test
+    public void testKvsMigrationWaitsForRateLimitOutsideTransactions() {
+        final long bytesPerSecond = 1_000;
+        final long nanosPerByte = TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        final TableReference tableRef = TableReference.create(Namespace.DEFAULT_NAMESPACE, "throttled_table");
+        keyValueService.createTable(tableRef, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        final Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = 0; i < 50; i++) {
+            // Single byte row names spread the rows over all of the partitions.
+            values.put(Cell.create(new byte[] {(byte) (i * 5)}, PtBytes.toBytes("c")), new byte[100]);
+        }
+        txManager.runTaskWithRetry((TransactionTask<Void, RuntimeException>) txn -> {
+            txn.put(tableRef, values);
+            return null;
+        });
+
+        // A fake limiter that advances a fake clock by the time the real one would have made the caller wait.
+        final AtomicLong fakeNanos = new AtomicLong();
+        final AtomicInteger openTransactions = new AtomicInteger();
+        RateLimiter rateLimiter = mock(RateLimiter.class);
+        doAnswer(invocation -> {
+            Assert.assertEquals("migration waited for its rate limit inside a transaction",
+                    0, openTransactions.get());
+            fakeNanos.addAndGet((Integer) invocation.getArguments()[0] * nanosPerByte);
+            return 0.0;
+        }).when(rateLimiter).acquire(anyInt());
+
+        final InMemoryKeyValueService kvs2 = new InMemoryKeyValueService(false);
+        kvs2.createTable(tableRef, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        final AtomicLong bytesWritten = new AtomicLong();
+        KeyValueService writeKvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return kvs2;
+            }
+
+            @Override
+            public void put(TableReference table, Map<Cell, byte[]> toPut, long timestamp) {
+                long bytes = 0;
+                for (Entry<Cell, byte[]> entry : toPut.entrySet()) {
+                    bytes += entry.getValue().length + Cells.getApproxSizeOfCell(entry.getKey());
+                }
+                long writtenBefore = bytesWritten.getAndAdd(bytes);
+                Assert.assertEquals("migration wrote a batch before waiting for the previous one",
+                        writtenBefore * nanosPerByte, fakeNanos.get());
+                super.put(table, toPut, timestamp);
+            }
+        };
+        final TestTransactionManagerImpl txManager2 = new TestTransactionManagerImpl(
+                kvs2,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                ConflictDetectionManagers.createWithNoConflictDetection(),
+                SweepStrategyManagers.completelyConservative(kvs2));
+
+        TableReference checkpointTable = TableReference.create(Namespace.DEFAULT_NAMESPACE, "checkpoint");
+        GeneralTaskCheckpointer checkpointer = new GeneralTaskCheckpointer(checkpointTable, kvs2, txManager2);
+        KvsRangeMigrator rangeMigrator = new KvsRangeMigratorBuilder()
+                .srcTable(tableRef)
+                .readTxManager(countingOpenTransactions(txManager, openTransactions))
+                .txManager(countingOpenTransactions(txManager2, openTransactions))
+                .writeKvs(writeKvs)
+                .migrationTimestamp(timestampService.getFreshTimestamp())
+                .checkpointer(checkpointer)
+                .bytesRateLimiter(rateLimiter)
+                .build();
+        new TableMigratorBuilder()
+                .srcTable(tableRef)
+                .partitions(8)
+                .executor(Tracers.wrap(PTExecutors.newSingleThreadExecutor()))
+                .checkpointer(checkpointer)
+                .rangeMigrator(rangeMigrator)
+                .build()
+                .migrate();
+
+        Map<Cell, Long> migratedCells = Maps.transformValues(values, v -> Long.MAX_VALUE);
+        Assert.assertEquals(values.size(), kvs2.get(tableRef, migratedCells).size());
+        Assert.assertEquals(bytesWritten.get() * nanosPerByte, fakeNanos.get());
+        verify(rateLimiter, atLeast(2)).acquire(anyInt());
+    }
+
+    @Test
+    public void testConcurrentTableMigrationsShareWorkerLimit() {
+        final int workers = 2;
+        final Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = 0; i < 50; i++) {
+            // Single byte row names spread the rows over all of the partitions.
+            values.put(Cell.create(new byte[] {(byte) (i * 5)}, PtBytes.toBytes("c")), new byte[10]);
+        }
+        final List<TableReference> tables = ImmutableList.of(
+                TableReference.create(Namespace.DEFAULT_NAMESPACE, "first_table"),
+                TableReference.create(Namespace.DEFAULT_NAMESPACE, "second_table"));
+        for (TableReference table : tables) {
+            keyValueService.createTable(table, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        }
+        txManager.runTaskWithRetry((TransactionTask<Void, RuntimeException>) txn -> {
+            tables.forEach(table -> txn.put(table, values));
+            return null;
+        });
+
+        final InMemoryKeyValueService kvs2 = new InMemoryKeyValueService(false);
+        final TestTransactionManagerImpl txManager2 = new TestTransactionManagerImpl(
+                kvs2,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                ConflictDetectionManagers.createWithNoConflictDetection(),
+                SweepStrategyManagers.completelyConservative(kvs2));
+        final AtomicInteger writesInFlight = new AtomicInteger();
+        final AtomicInteger maxWritesInFlight = new AtomicInteger();
+        final CountDownLatch allWorkersWriting = new CountDownLatch(workers);
+        KeyValueService writeKvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return kvs2;
+            }
+
+            @Override
+            public void put(TableReference table, Map<Cell, byte[]> toPut, long timestamp) {
+                maxWritesInFlight.accumulateAndGet(writesInFlight.incrementAndGet(), Math::max);
+                try {
+                    // Holds the first writes until every worker is writing at once.
+                    allWorkersWriting.countDown();
+                    Assert.assertTrue("workers did not migrate ranges concurrently",
+                            Uninterruptibles.awaitUninterruptibly(allWorkersWriting, 10, TimeUnit.SECONDS));
+                    super.put(table, toPut, timestamp);
+                } finally {
+                    writesInFlight.decrementAndGet();
+                }
+            }
+        };
+
+        KeyValueServiceMigrator migrator = new KeyValueServiceMigrator(
+                Namespace.DEFAULT_NAMESPACE,
+                txManager,
+                txManager2,
+                keyValueService,
+                writeKvs,
+                timestampService::getFreshTimestamp,
+                workers,
+                100,
+                ImmutableMap.of(),
+                (message, level) -> { },
+                new NoOpTaskProgress(),
+                ImmutableSet.of());
+        migrator.setup();
+        migrator.migrate();
+
+        Map<Cell, Long> migratedCells = Maps.transformValues(values, v -> Long.MAX_VALUE);
+        for (TableReference table : tables) {
+            Assert.assertEquals(values.size(), kvs2.get(table, migratedCells).size());
+        }
+        Assert.assertEquals(workers, maxWritesInFlight.get());
+    }
+
+    private static TransactionManager countingOpenTransactions(
+            LockAwareTransactionManager delegate,
+            AtomicInteger openTransactions) {
+        return new WrappingTransactionManager(delegate) {
+            @Override
+            protected Transaction wrap(Transaction transaction) {
+                return transaction;
+            }
+
+            @Override
+            public <T, E extends Exception> T runTaskWithRetry(TransactionTask<T, E> task) throws E {
+                return super.runTaskWithRetry(txn -> {
+                    openTransactions.incrementAndGet();
+                    try {
+                        return task.execute(txn);
+                    } finally {
+                        openTransactions.decrementAndGet();
+                    }
+                });
+            }
+        };
+    }
+
+    private static class NoOpTaskProgress implements TaskProgress {
+        @Override
+        public void beginTask(String message, int tasks) {
+            // nothing to report
+        }
+
+        @Override
+        public void subTaskComplete() {
+            // nothing to report
+        }
+
+        @Override
+        public void taskComplete() {
+            // nothing to report
+        }
+    }
+
+    private static long getBytesMigrated() {
+        return AtlasDbMetrics.getMetricRegistry()
+                .meter(MetricRegistry.name(KvsRangeMigrator.class, "bytesMigrated"))
+                .getCount();
+    }
 }
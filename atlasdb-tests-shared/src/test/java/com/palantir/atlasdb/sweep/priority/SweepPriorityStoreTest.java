@@ -156,6 +156,7 @@ public class SweepPriorityStoreTest {
                     .lastSweepTimeMillis(123)
                     .minimumSweptTimestamp(456)
                     .writeCount(5)
+                    .writeBytes(7)
                     .build()),
                 txManager.runTaskReadOnly(priorityStore::loadNewPriorities));
     }
@@ -190,6 +191,7 @@ public class SweepPriorityStoreTest {
                 .newLastSweepTimeMillis(123 + increment)
                 .newMinimumSweptTimestamp(456 + increment)
                 .newWriteCount(5 + increment)
+                .newWriteBytes(7 + increment)
                 .build();
     }
 
@@ -201,6 +203,7 @@ public class SweepPriorityStoreTest {
                 .lastSweepTimeMillis(123 + number)
                 .minimumSweptTimestamp(456 + number)
                 .writeCount(5 + number)
+                .writeBytes(7 + number)
                 .build();
     }
 
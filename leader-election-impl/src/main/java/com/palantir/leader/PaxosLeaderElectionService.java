@@ -31,7 +31,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -81,6 +83,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     final long updatePollingRateInMs;
     final long randomWaitBeforeProposingLeadership;
     final long leaderPingResponseWaitMs;
+    final long leaseDurationNanos;
 
     final ExecutorService executor;
 
@@ -100,7 +103,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
                                       long leaderPingResponseWaitMs) {
         this(proposer, knowledge, potentialLeadersToHosts, acceptors, learners, executor,
                 updatePollingWaitInMs, randomWaitBeforeProposingLeadership, leaderPingResponseWaitMs,
-                PaxosLeaderElectionEventRecorder.NO_OP);
+                0L, PaxosLeaderElectionEventRecorder.NO_OP);
     }
 
     PaxosLeaderElectionService(PaxosProposer proposer,
@@ -112,6 +115,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
             long updatePollingWaitInMs,
             long randomWaitBeforeProposingLeadership,
             long leaderPingResponseWaitMs,
+            long leaseDurationMs,
             PaxosLeaderElectionEventRecorder eventRecorder) {
         this.proposer = proposer;
         this.knowledge = knowledge;
@@ -123,6 +127,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         this.updatePollingRateInMs = updatePollingWaitInMs;
         this.randomWaitBeforeProposingLeadership = randomWaitBeforeProposingLeadership;
         this.leaderPingResponseWaitMs = leaderPingResponseWaitMs;
+        this.leaseDurationNanos = TimeUnit.MILLISECONDS.toNanos(leaseDurationMs);
         lock = new ReentrantLock();
         this.eventRecorder = eventRecorder;
     }
@@ -460,6 +465,26 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
      */
     private final ConcurrentMap<LeadershipToken, StillLeadingCall> currentIsStillLeadingCall = Maps.newConcurrentMap();
 
+    /* The lease granted by the acceptors the last time a quorum confirmed our leadership, if leases are enabled.
+     * Its expiry is measured from before the confirmation was sent, and so is never later than the acceptors'.
+     */
+    private volatile LeaderLease leaderLease;
+    private final AtomicBoolean leaseRenewalInProgress = new AtomicBoolean(false);
+
+    private static final class LeaderLease {
+        private final LeadershipToken token;
+        private final long expiryNanos;
+
+        LeaderLease(LeadershipToken token, long expiryNanos) {
+            this.token = token;
+            this.expiryNanos = expiryNanos;
+        }
+
+        boolean isValidFor(LeadershipToken otherToken, long nowNanos) {
+            return nowNanos - expiryNanos < 0 && token.sameAs(otherToken);
+        }
+    }
+
     @Override
     public StillLeadingStatus isStillLeading(LeadershipToken token) {
         if (!(token instanceof PaxosLeadershipToken)) {
@@ -470,6 +495,16 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
     }
 
     private StillLeadingStatus isStillLeading(PaxosLeadershipToken token) {
+        LeaderLease lease = leaderLease;
+        if (lease != null && lease.isValidFor(token, System.nanoTime())
+                && token.sameAs(genTokenFromValue(knowledge.getGreatestLearnedValue()))) {
+            renewLeaseIfExpiringSoon(lease, token);
+            return StillLeadingStatus.LEADING;
+        }
+        return checkStillLeadingWithQuorum(token);
+    }
+
+    private StillLeadingStatus checkStillLeadingWithQuorum(PaxosLeadershipToken token) {
         while (true) {
             StillLeadingCallBatch callBatch = getStillLeadingCallBatch(token);
 
@@ -488,6 +523,29 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         }
     }
 
+    /**
+     * Confirms leadership in the background once half of the lease has elapsed, so that callers keep being answered
+     * locally for as long as this node remains the leader.
+     */
+    private void renewLeaseIfExpiringSoon(LeaderLease lease, PaxosLeadershipToken token) {
+        if (lease.expiryNanos - System.nanoTime() > leaseDurationNanos / 2
+                || !leaseRenewalInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    checkStillLeadingWithQuorum(token);
+                } finally {
+                    leaseRenewalInProgress.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            leaseRenewalInProgress.set(false);
+            log.warn("Could not schedule a renewal of the leadership lease.", e);
+        }
+    }
+
     private void recordStillLeadingStatus(
             PaxosLeadershipToken token,
             StillLeadingStatus status) {
@@ -581,6 +639,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
         }
 
         // check if node still has quorum
+        long confirmationStartNanos = System.nanoTime();
         List<PaxosResponse> responses = PaxosQuorumChecker.collectQuorumResponses(
                 acceptors,
                 new Function<PaxosAcceptor, PaxosResponse>() {
@@ -596,6 +655,9 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
                 true);
         if (PaxosQuorumChecker.hasQuorum(responses, proposer.getQuorumSize())) {
             // If we have a quorum we are good to go
+            if (leaseDurationNanos > 0) {
+                leaderLease = new LeaderLease(mostRecentToken, confirmationStartNanos + leaseDurationNanos);
+            }
             return StillLeadingStatus.LEADING;
         }
 
@@ -603,6 +665,7 @@ public class PaxosLeaderElectionService implements PingableLeader, LeaderElectio
             if (paxosResponse != null && !paxosResponse.isSuccessful()) {
                 // If we have a nack then someone has prepared or accepted a new seq.
                 // In this case we are most likely not the leader
+                leaderLease = null;
                 return StillLeadingStatus.NOT_LEADING;
             }
         }
@@ -35,6 +35,8 @@ public class PaxosLeaderElectionServiceBuilder {
     private long pingRateMs;
     private long randomWaitBeforeProposingLeadershipMs;
     private long leaderPingResponseWaitMs;
+    private long leaseDurationMs;
+    private long leaseClockDriftMs;
     private PaxosLeaderElectionEventRecorder eventRecorder = PaxosLeaderElectionEventRecorder.NO_OP;
 
     public PaxosLeaderElectionServiceBuilder proposer(PaxosProposer proposer) {
@@ -84,6 +86,25 @@ public class PaxosLeaderElectionServiceBuilder {
         return this;
     }
 
+    /**
+     * How long acceptors promise not to prepare a later round after confirming this leader; the acceptors must
+     * have been created with the same lease duration. A leader holding a lease answers leadership checks without
+     * contacting the acceptors. Leases are disabled if this is zero.
+     */
+    public PaxosLeaderElectionServiceBuilder leaseDurationMs(long leaseDurationMs) {
+        this.leaseDurationMs = leaseDurationMs;
+        return this;
+    }
+
+    /**
+     * The most that the lease duration may be overestimated by this node relative to the acceptors because of
+     * clock drift. The leader treats its lease as expired this much earlier than the acceptors do.
+     */
+    public PaxosLeaderElectionServiceBuilder leaseClockDriftMs(long leaseClockDriftMs) {
+        this.leaseClockDriftMs = leaseClockDriftMs;
+        return this;
+    }
+
     public PaxosLeaderElectionServiceBuilder eventRecorder(PaxosLeaderElectionEventRecorder eventRecorder) {
         this.eventRecorder = eventRecorder;
         return this;
@@ -100,6 +121,7 @@ public class PaxosLeaderElectionServiceBuilder {
                 pingRateMs,
                 randomWaitBeforeProposingLeadershipMs,
                 leaderPingResponseWaitMs,
+                Math.max(0L, leaseDurationMs - leaseClockDriftMs),
                 eventRecorder);
     }
 }
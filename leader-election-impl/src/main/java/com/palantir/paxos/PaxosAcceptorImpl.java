@@ -17,6 +17,9 @@ package com.palantir.paxos;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,33 +27,78 @@ import org.slf4j.LoggerFactory;
 public class PaxosAcceptorImpl implements PaxosAcceptor {
     private static final Logger logger = LoggerFactory.getLogger(PaxosAcceptorImpl.class);
 
+    public static final long NO_LEASE = 0L;
+
     /**
      * @param logDir string path for directory to place durable logs
      * @param type the type of the objects accepted by the acceptor
      * @return a new acceptor
      */
     public static PaxosAcceptor newAcceptor(String logDir) {
+        return newAcceptor(logDir, NO_LEASE);
+    }
+
+    /**
+     * Creates an acceptor that grants leadership leases. Each call to {@link #getLatestSequencePreparedOrAccepted()}
+     * is treated as a leader confirming its round, and for {@code leaseDurationMs} afterwards the acceptor refuses
+     * to prepare any later round. The acceptor also refuses such rounds for one lease duration after startup,
+     * since it cannot know which leases it granted before it restarted.
+     *
+     * @param logDir string path for directory to place durable logs
+     * @param leaseDurationMs how long to refuse later rounds after a confirmation, or {@value NO_LEASE} to never
+     *        grant leases
+     * @return a new acceptor
+     */
+    public static PaxosAcceptor newAcceptor(String logDir, long leaseDurationMs) {
         PaxosStateLog<PaxosAcceptorState> log = new PaxosStateLogImpl<PaxosAcceptorState>(logDir);
         return new PaxosAcceptorImpl(
                 new ConcurrentSkipListMap<Long, PaxosAcceptorState>(),
                 log,
-                log.getGreatestLogEntry());
+                log.getGreatestLogEntry(),
+                TimeUnit.MILLISECONDS.toNanos(leaseDurationMs));
     }
 
     final ConcurrentSkipListMap<Long, PaxosAcceptorState> state;
     final PaxosStateLog<PaxosAcceptorState> log;
     final long greatestInLogAtStartup;
 
+    private final long leaseDurationNanos;
+    private final Object leaseLock = new Object();
+    @GuardedBy("leaseLock")
+    private long leasedSequence;
+    @GuardedBy("leaseLock")
+    private long leaseExpiryNanos;
+
     private PaxosAcceptorImpl(ConcurrentSkipListMap<Long, PaxosAcceptorState> state,
                               PaxosStateLog<PaxosAcceptorState> log,
-                              long greatestInLogAtStartup) {
+                              long greatestInLogAtStartup,
+                              long leaseDurationNanos) {
         this.state = state;
         this.log = log;
         this.greatestInLogAtStartup = greatestInLogAtStartup;
+        this.leaseDurationNanos = leaseDurationNanos;
+        this.leasedSequence = greatestInLogAtStartup;
+        this.leaseExpiryNanos = System.nanoTime() + leaseDurationNanos;
     }
 
     @Override
     public PaxosPromise prepare(long seq, PaxosProposalId pid) {
+        if (leaseDurationNanos <= 0) {
+            return prepareInternal(seq, pid);
+        }
+        // The lease check and the promise must be atomic with respect to granting a lease, otherwise a leader
+        // could be confirmed for a round that has just been superseded.
+        synchronized (leaseLock) {
+            if (seq > leasedSequence && System.nanoTime() - leaseExpiryNanos < 0) {
+                logger.debug("Refusing to prepare round {} while round {} holds the leadership lease.",
+                        seq, leasedSequence);
+                return PaxosPromise.reject(pid);
+            }
+            return prepareInternal(seq, pid);
+        }
+    }
+
+    private PaxosPromise prepareInternal(long seq, PaxosProposalId pid) {
         try {
             checkLogIfNeeded(seq);
         } catch (Exception e) {
@@ -118,6 +166,18 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
 
     @Override
     public long getLatestSequencePreparedOrAccepted() {
+        if (leaseDurationNanos <= 0) {
+            return getLatestSequence();
+        }
+        synchronized (leaseLock) {
+            long latestSequence = getLatestSequence();
+            leasedSequence = latestSequence;
+            leaseExpiryNanos = System.nanoTime() + leaseDurationNanos;
+            return latestSequence;
+        }
+    }
+
+    private long getLatestSequence() {
         if (state.isEmpty()) {
             return greatestInLogAtStartup;
         } else {
@@ -49,6 +49,12 @@ public final class PaxosConsensusTestUtils {
 
     public static PaxosTestState setup(int numLeaders,
                                        int quorumSize) {
+        return setup(numLeaders, quorumSize, PaxosAcceptorImpl.NO_LEASE);
+    }
+
+    public static PaxosTestState setup(int numLeaders,
+                                       int quorumSize,
+                                       long leaseDurationMs) {
         List<LeaderElectionService> leaders = Lists.newArrayList();
         List<PaxosAcceptor> acceptors = Lists.newArrayList();
         List<PaxosLearner> learners = Lists.newArrayList();
@@ -66,7 +72,7 @@ public final class PaxosConsensusTestUtils {
                     failureToggles.get(i),
                     e));
 
-            PaxosAcceptor acceptor = PaxosAcceptorImpl.newAcceptor(getAcceptorLogDir(i));
+            PaxosAcceptor acceptor = PaxosAcceptorImpl.newAcceptor(getAcceptorLogDir(i), leaseDurationMs);
             acceptors.add(ToggleableExceptionProxy.newProxyInstance(
                     PaxosAcceptor.class,
                     acceptor,
@@ -92,6 +98,7 @@ public final class PaxosConsensusTestUtils {
                     .pingRateMs(0L)
                     .randomWaitBeforeProposingLeadershipMs(0L)
                     .leaderPingResponseWaitMs(0L)
+                    .leaseDurationMs(leaseDurationMs)
                     .build();
             leaders.add(SimulatingFailingServerProxy.newProxyInstance(
                     LeaderElectionService.class,
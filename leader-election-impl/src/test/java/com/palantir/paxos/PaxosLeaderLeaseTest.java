@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.leader.LeaderElectionService.LeadershipToken;
+import com.palantir.leader.LeaderElectionService.StillLeadingStatus;
+
+public class PaxosLeaderLeaseTest {
+    private static final int NUM_POTENTIAL_LEADERS = 3;
+    private static final int QUORUM_SIZE = 2;
+    private static final long LEASE_DURATION_MS = 1000L;
+
+    private PaxosTestState state;
+
+    @Before
+    public void setup() {
+        state = PaxosConsensusTestUtils.setup(NUM_POTENTIAL_LEADERS, QUORUM_SIZE, LEASE_DURATION_MS);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        PaxosConsensusTestUtils.teardown(state);
+    }
+
+    @Test
+    public void leaderWithLeaseDoesNotNeedQuorum() {
+        LeadershipToken token = state.gainLeadership(0);
+        state.goDown(1);
+        state.goDown(2);
+
+        assertThat(state.leader(0).isStillLeading(token)).isEqualTo(StillLeadingStatus.LEADING);
+    }
+
+    @Test
+    public void leaderNeedsQuorumOnceLeaseExpires() {
+        LeadershipToken token = state.gainLeadership(0);
+        state.goDown(1);
+        state.goDown(2);
+
+        Uninterruptibles.sleepUninterruptibly(LEASE_DURATION_MS, TimeUnit.MILLISECONDS);
+        assertThat(state.leader(0).isStillLeading(token)).isEqualTo(StillLeadingStatus.NO_QUORUM);
+    }
+
+    @Test
+    public void newLeaderIsNotElectedWhileLeaseIsHeld() {
+        LeadershipToken oldToken = state.gainLeadership(0);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        state.gainLeadership(1);
+
+        assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(LEASE_DURATION_MS / 2);
+        assertThat(state.leader(0).isStillLeading(oldToken)).isEqualTo(StillLeadingStatus.NOT_LEADING);
+    }
+
+    @Test
+    public void acceptorRefusesLaterRoundsDuringLease() {
+        PaxosAcceptor acceptor = PaxosAcceptorImpl.newAcceptor(
+                PaxosConsensusTestUtils.getAcceptorLogDir(NUM_POTENTIAL_LEADERS), LEASE_DURATION_MS);
+        PaxosProposalId proposalId = new PaxosProposalId(1L, UUID.randomUUID().toString());
+
+        assertThat(acceptor.prepare(0L, proposalId).isSuccessful()).isFalse();
+
+        Uninterruptibles.sleepUninterruptibly(LEASE_DURATION_MS, TimeUnit.MILLISECONDS);
+        assertThat(acceptor.prepare(0L, proposalId).isSuccessful()).isTrue();
+
+        long confirmedSequence = acceptor.getLatestSequencePreparedOrAccepted();
+        assertThat(acceptor.prepare(confirmedSequence + 1, proposalId).isSuccessful()).isFalse();
+        assertThat(acceptor.prepare(confirmedSequence, proposalId).isSuccessful()).isTrue();
+    }
+}
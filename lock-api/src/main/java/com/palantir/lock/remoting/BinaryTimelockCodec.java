@@ -0,0 +1,401 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.remoting;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.lock.ByteArrayLockDescriptor;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.v2.ImmutableLockImmutableTimestampRequest;
+import com.palantir.lock.v2.ImmutableLockRequest;
+import com.palantir.lock.v2.ImmutableWaitForLocksRequest;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.WaitForLocksRequest;
+import com.palantir.lock.v2.WaitForLocksResponse;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * A compact binary encoding of the request and response types of the timestamp and lock endpoints that are called on
+ * every transaction, served as {@link #MEDIA_TYPE} alongside JSON.
+ * <p>
+ * Longs are written as zig-zag varints, UUIDs as two fixed width longs, and byte arrays and strings as a varint
+ * length followed by their bytes. The encoding is not self describing: both sides must agree on the type of each
+ * body, which they do through the resource interfaces. Any change to the layout of a type requires a new media type.
+ */
+public final class BinaryTimelockCodec {
+    public static final String MEDIA_TYPE = "application/x-atlasdb-binary";
+
+    private static final Map<Class<?>, ValueCodec<?>> CODECS = ImmutableMap.<Class<?>, ValueCodec<?>>builder()
+            .put(Long.class, new ValueCodec<Long>() {
+                @Override
+                public void write(Long value, Writer out) {
+                    out.writeLong(value);
+                }
+
+                @Override
+                public Long read(Reader in) {
+                    return in.readLong();
+                }
+            })
+            .put(TimestampRange.class, new ValueCodec<TimestampRange>() {
+                @Override
+                public void write(TimestampRange value, Writer out) {
+                    out.writeLong(value.getLowerBound());
+                    out.writeLong(value.getUpperBound() - value.getLowerBound());
+                }
+
+                @Override
+                public TimestampRange read(Reader in) {
+                    long lowerBound = in.readLong();
+                    return TimestampRange.createInclusiveRange(lowerBound, lowerBound + in.readLong());
+                }
+            })
+            .put(LockImmutableTimestampRequest.class, new ValueCodec<LockImmutableTimestampRequest>() {
+                @Override
+                public void write(LockImmutableTimestampRequest value, Writer out) {
+                    out.writeUuid(value.getRequestId());
+                }
+
+                @Override
+                public LockImmutableTimestampRequest read(Reader in) {
+                    return ImmutableLockImmutableTimestampRequest.of(in.readUuid());
+                }
+            })
+            .put(LockImmutableTimestampResponse.class, new ValueCodec<LockImmutableTimestampResponse>() {
+                @Override
+                public void write(LockImmutableTimestampResponse value, Writer out) {
+                    out.writeLong(value.getImmutableTimestamp());
+                    out.writeUuid(value.getLock().getRequestId());
+                }
+
+                @Override
+                public LockImmutableTimestampResponse read(Reader in) {
+                    return LockImmutableTimestampResponse.of(in.readLong(), LockToken.of(in.readUuid()));
+                }
+            })
+            .put(LockRequest.class, new ValueCodec<LockRequest>() {
+                @Override
+                public void write(LockRequest value, Writer out) {
+                    out.writeUuid(value.getRequestId());
+                    out.writeDescriptors(value.getLockDescriptors());
+                    out.writeLong(value.getAcquireTimeoutMs());
+                    out.writeOptionalString(value.getClientDescription());
+                }
+
+                @Override
+                public LockRequest read(Reader in) {
+                    return ImmutableLockRequest.of(
+                            in.readUuid(), in.readDescriptors(), in.readLong(), in.readOptionalString());
+                }
+            })
+            .put(LockResponse.class, new ValueCodec<LockResponse>() {
+                @Override
+                public void write(LockResponse value, Writer out) {
+                    out.writeBoolean(value.wasSuccessful());
+                    if (value.wasSuccessful()) {
+                        out.writeUuid(value.getToken().getRequestId());
+                    }
+                }
+
+                @Override
+                public LockResponse read(Reader in) {
+                    return in.readBoolean()
+                            ? LockResponse.successful(LockToken.of(in.readUuid()))
+                            : LockResponse.timedOut();
+                }
+            })
+            .put(WaitForLocksRequest.class, new ValueCodec<WaitForLocksRequest>() {
+                @Override
+                public void write(WaitForLocksRequest value, Writer out) {
+                    out.writeUuid(value.getRequestId());
+                    out.writeDescriptors(value.getLockDescriptors());
+                    out.writeLong(value.getAcquireTimeoutMs());
+                    out.writeOptionalString(value.getClientDescription());
+                }
+
+                @Override
+                public WaitForLocksRequest read(Reader in) {
+                    return ImmutableWaitForLocksRequest.of(
+                            in.readUuid(), in.readDescriptors(), in.readLong(), in.readOptionalString());
+                }
+            })
+            .put(WaitForLocksResponse.class, new ValueCodec<WaitForLocksResponse>() {
+                @Override
+                public void write(WaitForLocksResponse value, Writer out) {
+                    out.writeBoolean(value.wasSuccessful());
+                }
+
+                @Override
+                public WaitForLocksResponse read(Reader in) {
+                    return in.readBoolean() ? WaitForLocksResponse.successful() : WaitForLocksResponse.timedOut();
+                }
+            })
+            .build();
+
+    private static final ValueCodec<Set<LockToken>> LOCK_TOKENS_CODEC = new ValueCodec<Set<LockToken>>() {
+        @Override
+        public void write(Set<LockToken> value, Writer out) {
+            out.writeVarLong(value.size());
+            for (LockToken token : value) {
+                out.writeUuid(token.getRequestId());
+            }
+        }
+
+        @Override
+        public Set<LockToken> read(Reader in) {
+            int size = in.readSize();
+            ImmutableSet.Builder<LockToken> tokens = ImmutableSet.builder();
+            for (int i = 0; i < size; i++) {
+                tokens.add(LockToken.of(in.readUuid()));
+            }
+            return tokens.build();
+        }
+    };
+
+    private BinaryTimelockCodec() {
+        // utility
+    }
+
+    /**
+     * Returns whether values of the given type, which may be a subtype of a supported type or a {@code Set} of
+     * {@link LockToken}s, can be encoded.
+     */
+    public static boolean canEncode(Type type) {
+        return getCodec(type).isPresent();
+    }
+
+    public static byte[] encode(Object value, Type type) {
+        Writer writer = new Writer();
+        getRequiredCodec(type).write(value, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decodes a value of the given type.
+     *
+     * @throws IllegalArgumentException if the given bytes are not a valid encoding of the given type
+     */
+    public static Object decode(byte[] bytes, Type type) {
+        Reader reader = new Reader(bytes);
+        Object value = getRequiredCodec(type).read(reader);
+        Preconditions.checkArgument(reader.isExhausted(),
+                "Found %s unexpected trailing bytes when decoding %s", reader.remaining(), type);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ValueCodec<Object> getRequiredCodec(Type type) {
+        return (ValueCodec<Object>) getCodec(type)
+                .orElseThrow(() -> new IllegalArgumentException("Cannot encode " + type + " in binary"));
+    }
+
+    private static Optional<ValueCodec<?>> getCodec(Type type) {
+        if (type == long.class) {
+            return Optional.of(CODECS.get(Long.class));
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            return parameterizedType.getRawType() == Set.class
+                    && Arrays.equals(parameterizedType.getActualTypeArguments(), new Type[] {LockToken.class})
+                    ? Optional.of(LOCK_TOKENS_CODEC)
+                    : Optional.empty();
+        }
+        if (!(type instanceof Class)) {
+            return Optional.empty();
+        }
+        Class<?> clazz = (Class<?>) type;
+        return CODECS.entrySet().stream()
+                .filter(entry -> entry.getKey().isAssignableFrom(clazz))
+                .<ValueCodec<?>>map(Map.Entry::getValue)
+                .findFirst();
+    }
+
+    private interface ValueCodec<T> {
+        void write(T value, Writer out);
+
+        T read(Reader in);
+    }
+
+    private static final class Writer {
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        void writeLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeVarLong(long value) {
+            long remaining = value;
+            while ((remaining & ~0x7FL) != 0) {
+                writeByte((int) ((remaining & 0x7F) | 0x80));
+                remaining >>>= 7;
+            }
+            writeByte((int) remaining);
+        }
+
+        void writeUuid(UUID uuid) {
+            writeFixedLong(uuid.getMostSignificantBits());
+            writeFixedLong(uuid.getLeastSignificantBits());
+        }
+
+        void writeDescriptors(Set<LockDescriptor> descriptors) {
+            writeVarLong(descriptors.size());
+            for (LockDescriptor descriptor : descriptors) {
+                writeBytes(descriptor.getBytes());
+            }
+        }
+
+        void writeOptionalString(Optional<String> value) {
+            writeBoolean(value.isPresent());
+            value.ifPresent(string -> writeBytes(string.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void writeFixedLong(long value) {
+            ensureCapacity(Long.BYTES);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensureCapacity(int additionalBytes) {
+            if (size + additionalBytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additionalBytes));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean readBoolean() {
+            int value = readByte();
+            Preconditions.checkArgument(value == 0 || value == 1, "Invalid boolean value %s", value);
+            return value == 1;
+        }
+
+        long readLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                int next = readByte();
+                value |= (long) (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        int readSize() {
+            long size = readVarLong();
+            Preconditions.checkArgument(size >= 0 && size <= remaining(), "Invalid size %s", size);
+            return (int) size;
+        }
+
+        UUID readUuid() {
+            return new UUID(readFixedLong(), readFixedLong());
+        }
+
+        Set<LockDescriptor> readDescriptors() {
+            int count = readSize();
+            ImmutableSet.Builder<LockDescriptor> descriptors = ImmutableSet.builder();
+            for (int i = 0; i < count; i++) {
+                descriptors.add(ByteArrayLockDescriptor.of(readBytes()));
+            }
+            return descriptors.build();
+        }
+
+        Optional<String> readOptionalString() {
+            return readBoolean() ? Optional.of(new String(readBytes(), StandardCharsets.UTF_8)) : Optional.empty();
+        }
+
+        private byte[] readBytes() {
+            int length = readSize();
+            byte[] result = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return result;
+        }
+
+        private long readFixedLong() {
+            checkAvailable(Long.BYTES);
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private int readByte() {
+            checkAvailable(1);
+            return bytes[position++] & 0xFF;
+        }
+
+        private void checkAvailable(int length) {
+            Preconditions.checkArgument(remaining() >= length, "Unexpected end of input");
+        }
+
+        int remaining() {
+            return bytes.length - position;
+        }
+
+        boolean isExhausted() {
+            return position == bytes.length;
+        }
+    }
+}
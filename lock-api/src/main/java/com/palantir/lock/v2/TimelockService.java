@@ -16,6 +16,7 @@
 
 package com.palantir.lock.v2;
 
+import java.util.List;
 import java.util.Set;
 
 import javax.ws.rs.Consumes;
@@ -25,11 +26,12 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 
+import com.palantir.lock.remoting.BinaryTimelockCodec;
 import com.palantir.timestamp.TimestampRange;
 
 @Path("/timelock")
-@Produces(MediaType.APPLICATION_JSON)
-@Consumes(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, BinaryTimelockCodec.MEDIA_TYPE})
+@Consumes({MediaType.APPLICATION_JSON, BinaryTimelockCodec.MEDIA_TYPE})
 public interface TimelockService {
 
     @POST
@@ -52,6 +54,15 @@ public interface TimelockService {
     @Path("lock")
     LockResponse lock(LockRequest request);
 
+    /**
+     * Acquires the locks of each of the given requests independently of one another, as if each were passed to
+     * {@link #lock}, and returns their responses in the same order. The call returns once every request has been
+     * granted or has timed out, so it is best suited to requests that are not expected to contend.
+     */
+    @POST
+    @Path("lock-batch")
+    List<LockResponse> lockBatch(List<LockRequest> requests);
+
     @POST
     @Path("await-locks")
     WaitForLocksResponse waitForLocks(WaitForLocksRequest request);
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.remoting;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+import com.palantir.lock.ByteArrayLockDescriptor;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.v2.ImmutableLockRequest;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.WaitForLocksRequest;
+import com.palantir.lock.v2.WaitForLocksResponse;
+import com.palantir.timestamp.TimestampRange;
+
+public class BinaryTimelockCodecTest {
+    private static final Type LOCK_TOKEN_SET = new TypeToken<Set<LockToken>>() { }.getType();
+    private static final Set<LockDescriptor> DESCRIPTORS = ImmutableSet.of(
+            StringLockDescriptor.of("foo"),
+            ByteArrayLockDescriptor.of(new byte[] {0, -1, 127}),
+            ByteArrayLockDescriptor.of(new byte[0]));
+
+    @Test
+    public void roundTripsTimestamps() {
+        for (long timestamp : new long[] {0L, 1L, -1L, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertRoundTrips(timestamp, long.class);
+            assertRoundTrips(timestamp, Long.class);
+        }
+
+        TimestampRange range = (TimestampRange) BinaryTimelockCodec.decode(
+                BinaryTimelockCodec.encode(TimestampRange.createInclusiveRange(1_000_000L, 1_009_999L),
+                        TimestampRange.class),
+                TimestampRange.class);
+        assertThat(range.getLowerBound(), equalTo(1_000_000L));
+        assertThat(range.getUpperBound(), equalTo(1_009_999L));
+    }
+
+    @Test
+    public void roundTripsLockRequestsAndResponses() {
+        assertRoundTrips(LockImmutableTimestampRequest.create(), LockImmutableTimestampRequest.class);
+        assertRoundTrips(LockImmutableTimestampResponse.of(42L, LockToken.of(UUID.randomUUID())),
+                LockImmutableTimestampResponse.class);
+        assertRoundTrips(LockRequest.of(DESCRIPTORS, 1000L, "client é"), LockRequest.class);
+        assertRoundTrips(ImmutableLockRequest.of(UUID.randomUUID(), DESCRIPTORS, 0L, Optional.empty()),
+                LockRequest.class);
+        assertRoundTrips(LockResponse.successful(LockToken.of(UUID.randomUUID())), LockResponse.class);
+        assertRoundTrips(LockResponse.timedOut(), LockResponse.class);
+        assertRoundTrips(WaitForLocksRequest.of(DESCRIPTORS, 5L), WaitForLocksRequest.class);
+        assertRoundTrips(WaitForLocksResponse.successful(), WaitForLocksResponse.class);
+        assertRoundTrips(WaitForLocksResponse.timedOut(), WaitForLocksResponse.class);
+        assertRoundTrips(ImmutableSet.of(LockToken.of(UUID.randomUUID()), LockToken.of(UUID.randomUUID())),
+                LOCK_TOKEN_SET);
+        assertRoundTrips(ImmutableSet.of(), LOCK_TOKEN_SET);
+    }
+
+    @Test
+    public void canEncodeImplementationsOfSupportedTypes() {
+        LockResponse response = LockResponse.timedOut();
+        assertTrue(BinaryTimelockCodec.canEncode(response.getClass()));
+        assertRoundTrips(response, response.getClass());
+    }
+
+    @Test
+    public void cannotEncodeUnsupportedTypes() {
+        assertFalse(BinaryTimelockCodec.canEncode(String.class));
+        assertFalse(BinaryTimelockCodec.canEncode(new TypeToken<Set<String>>() { }.getType()));
+        assertFalse(BinaryTimelockCodec.canEncode(new TypeToken<List<LockToken>>() { }.getType()));
+    }
+
+    @Test
+    public void encodingIsSmallerThanJson() {
+        byte[] encoded = BinaryTimelockCodec.encode(LockResponse.successful(LockToken.of(UUID.randomUUID())),
+                LockResponse.class);
+        assertThat(encoded.length, equalTo(17));
+        assertThat(BinaryTimelockCodec.encode(1L << 40, long.class).length, lessThan(Long.BYTES));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedInput() {
+        byte[] encoded = BinaryTimelockCodec.encode(LockRequest.of(DESCRIPTORS, 1000L), LockRequest.class);
+        BinaryTimelockCodec.decode(Arrays.copyOf(encoded, encoded.length - 1), LockRequest.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTrailingBytes() {
+        byte[] encoded = BinaryTimelockCodec.encode(7L, long.class);
+        BinaryTimelockCodec.decode(Arrays.copyOf(encoded, encoded.length + 1), long.class);
+    }
+
+    private static void assertRoundTrips(Object value, Type type) {
+        assertThat(BinaryTimelockCodec.decode(BinaryTimelockCodec.encode(value, type), type), equalTo(value));
+    }
+}
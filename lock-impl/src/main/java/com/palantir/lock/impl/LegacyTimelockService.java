@@ -16,12 +16,14 @@
 
 package com.palantir.lock.impl;
 
+import java.util.List;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.palantir.common.base.Throwables;
@@ -112,6 +114,23 @@ public class LegacyTimelockService implements TimelockService {
         }
     }
 
+    @Override
+    public List<LockResponse> lockBatch(List<LockRequest> requests) {
+        List<LockResponse> responses = Lists.newArrayListWithCapacity(requests.size());
+        try {
+            for (LockRequest request : requests) {
+                responses.add(lock(request));
+            }
+            return responses;
+        } catch (Throwable e) {
+            unlock(responses.stream()
+                    .filter(LockResponse::wasSuccessful)
+                    .map(LockResponse::getToken)
+                    .collect(Collectors.toSet()));
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
     @Override
     public WaitForLocksResponse waitForLocks(WaitForLocksRequest request) {
         com.palantir.lock.LockRequest legacyRequest = toLegacyWaitForLocksRequest(request.getLockDescriptors());
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.v2.LockImmutableTimestampRequest;
+import com.palantir.lock.v2.LockImmutableTimestampResponse;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.TimelockService;
+import com.palantir.lock.v2.WaitForLocksRequest;
+import com.palantir.lock.v2.WaitForLocksResponse;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Coalesces concurrent {@link #lock} calls into {@link TimelockService#lockBatch} calls, using smart batching: up to
+ * a fixed number of batches are in flight at once, and requests that arrive while they are outstanding are sent
+ * together in the next batch. An idle client therefore sends each request on its own without waiting, while a busy
+ * one sends fewer, larger requests.
+ * <p>
+ * A batch only returns once all of its requests have been granted or have timed out, and until then its callers
+ * cannot use or unlock the locks it was granted. A request is therefore never sent while it shares a lock descriptor
+ * with a request that is in flight, or with an earlier request that is still queued; it waits for the next batch
+ * instead. Otherwise two requests for the same lock, for instance two local transactions committing the same row,
+ * could end up in flight together, and the second would wait out its whole acquire timeout for a lock that the first
+ * had been granted but could not release.
+ */
+@ThreadSafe
+public class LockBatchingTimelockService implements TimelockService {
+
+    private static final int MAX_BATCH_SIZE = 1_000;
+    private static final int DEFAULT_MAX_CONCURRENT_BATCHES = 8;
+
+    private final TimelockService delegate;
+    private final Executor executor;
+    private final int maxConcurrentBatches;
+
+    @GuardedBy("this")
+    private final List<PendingLock> pendingLocks = Lists.newLinkedList();
+    @GuardedBy("this")
+    private final Set<LockDescriptor> inFlightDescriptors = Sets.newHashSet();
+    @GuardedBy("this")
+    private int activeSenders = 0;
+
+    public static LockBatchingTimelockService create(TimelockService delegate) {
+        Executor executor = Executors.newFixedThreadPool(DEFAULT_MAX_CONCURRENT_BATCHES, new ThreadFactoryBuilder()
+                .setNameFormat(LockBatchingTimelockService.class.getSimpleName() + "-%d")
+                .setDaemon(true)
+                .build());
+        return new LockBatchingTimelockService(delegate, executor, DEFAULT_MAX_CONCURRENT_BATCHES);
+    }
+
+    @VisibleForTesting
+    LockBatchingTimelockService(TimelockService delegate, Executor executor, int maxConcurrentBatches) {
+        Preconditions.checkArgument(maxConcurrentBatches > 0, "Must allow at least one batch in flight");
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+
+    @Override
+    public LockResponse lock(LockRequest request) {
+        PendingLock pendingLock = new PendingLock(request);
+        if (enqueue(pendingLock)) {
+            executor.execute(this::sendBatches);
+        }
+
+        try {
+            return pendingLock.response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    /**
+     * Queues the request, and returns whether the caller should start a new sender for it. If every sender is busy,
+     * or the request has to wait for a request for the same locks, a running sender picks it up once a batch returns.
+     */
+    private synchronized boolean enqueue(PendingLock pendingLock) {
+        pendingLocks.add(pendingLock);
+        if (activeSenders >= maxConcurrentBatches || !canSend(pendingLock)) {
+            return false;
+        }
+        activeSenders++;
+        return true;
+    }
+
+    private synchronized boolean canSend(PendingLock pendingLock) {
+        Set<LockDescriptor> descriptors = pendingLock.request.getLockDescriptors();
+        if (!Collections.disjoint(descriptors, inFlightDescriptors)) {
+            return false;
+        }
+        for (PendingLock queued : pendingLocks) {
+            if (queued == pendingLock) {
+                return true;
+            }
+            if (!Collections.disjoint(descriptors, queued.request.getLockDescriptors())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sendBatches() {
+        List<PendingLock> batch = nextBatch(ImmutableList.of());
+        while (!batch.isEmpty()) {
+            send(batch);
+            batch = nextBatch(batch);
+        }
+    }
+
+    /**
+     * Releases the locks of the batch that has just returned, and takes the next batch from the queue, skipping
+     * requests that share a lock descriptor with a request in flight or ahead of them in the queue. If there is nothing
+     * to send, the sender stops.
+     */
+    private synchronized List<PendingLock> nextBatch(List<PendingLock> completedBatch) {
+        completedBatch.forEach(pendingLock -> inFlightDescriptors.removeAll(pendingLock.request.getLockDescriptors()));
+
+        List<PendingLock> batch = Lists.newArrayList();
+        Set<LockDescriptor> skippedDescriptors = Sets.newHashSet();
+        Iterator<PendingLock> iterator = pendingLocks.iterator();
+        while (batch.size() < MAX_BATCH_SIZE && iterator.hasNext()) {
+            PendingLock pendingLock = iterator.next();
+            Set<LockDescriptor> descriptors = pendingLock.request.getLockDescriptors();
+            if (Collections.disjoint(descriptors, inFlightDescriptors)
+                    && Collections.disjoint(descriptors, skippedDescriptors)) {
+                iterator.remove();
+                inFlightDescriptors.addAll(descriptors);
+                batch.add(pendingLock);
+            } else {
+                skippedDescriptors.addAll(descriptors);
+            }
+        }
+        if (batch.isEmpty()) {
+            activeSenders--;
+        }
+        return batch;
+    }
+
+    private void send(List<PendingLock> batch) {
+        try {
+            List<LockResponse> responses = delegate.lockBatch(batch.stream()
+                    .map(pendingLock -> pendingLock.request)
+                    .collect(Collectors.toList()));
+            Preconditions.checkState(responses.size() == batch.size(),
+                    "Expected %s lock responses, but got %s", batch.size(), responses.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).response.complete(responses.get(i));
+            }
+        } catch (Throwable error) {
+            batch.forEach(pendingLock -> pendingLock.response.completeExceptionally(error));
+        }
+    }
+
+    @Override
+    public List<LockResponse> lockBatch(List<LockRequest> requests) {
+        return delegate.lockBatch(requests);
+    }
+
+    @Override
+    public long getFreshTimestamp() {
+        return delegate.getFreshTimestamp();
+    }
+
+    @Override
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+        return delegate.getFreshTimestamps(numTimestampsRequested);
+    }
+
+    @Override
+    public LockImmutableTimestampResponse lockImmutableTimestamp(LockImmutableTimestampRequest request) {
+        return delegate.lockImmutableTimestamp(request);
+    }
+
+    @Override
+    public long getImmutableTimestamp() {
+        return delegate.getImmutableTimestamp();
+    }
+
+    @Override
+    public WaitForLocksResponse waitForLocks(WaitForLocksRequest request) {
+        return delegate.waitForLocks(request);
+    }
+
+    @Override
+    public Set<LockToken> refreshLockLeases(Set<LockToken> tokens) {
+        return delegate.refreshLockLeases(tokens);
+    }
+
+    @Override
+    public Set<LockToken> unlock(Set<LockToken> tokens) {
+        return delegate.unlock(tokens);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return delegate.currentTimeMillis();
+    }
+
+    private static final class PendingLock {
+        private final LockRequest request;
+        private final CompletableFuture<LockResponse> response = new CompletableFuture<>();
+
+        private PendingLock(LockRequest request) {
+            this.request = request;
+        }
+    }
+}
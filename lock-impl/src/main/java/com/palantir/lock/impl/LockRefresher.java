@@ -17,56 +17,191 @@
 package com.palantir.lock.impl;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.palantir.lock.v2.LockToken;
 import com.palantir.lock.v2.TimelockService;
 
+/**
+ * Periodically refreshes the leases of registered lock tokens.
+ * <p>
+ * Each token is refreshed once a refresh interval has passed since its lease was last started or refreshed, rather
+ * than every token being refreshed on every tick, so refreshes of locks taken at different times are spread out.
+ * Large sets of due tokens are split into requests of at most {@link #MAX_TOKENS_PER_REQUEST} tokens.
+ * <p>
+ * Refreshers obtained from {@link #acquireShared} are shared by every client of the same endpoint, so a JVM that
+ * creates many clients of the same timelock service sends one stream of refreshes for all of their locks. Each client
+ * must {@link #release} the refresher when it is closed; refreshes are sent through the most recently acquired client
+ * that has not been released, and once every client has been released, the refresher stops.
+ */
 public class LockRefresher {
 
+    @VisibleForTesting
+    static final int TICKS_PER_REFRESH_INTERVAL = 4;
+    @VisibleForTesting
+    static final int MAX_TOKENS_PER_REQUEST = 10_000;
+
+    @GuardedBy("SHARED_REFRESHERS")
+    private static final Map<TimelockEndpoint, LockRefresher> SHARED_REFRESHERS = Maps.newHashMap();
+
     private final Logger log = LoggerFactory.getLogger(LockRefresher.class);
 
     private final ScheduledExecutorService executor;
-    private final TimelockService timelockService;
-    private final Set<LockToken> tokensToRefresh = Sets.newConcurrentHashSet();
+    private final List<TimelockService> timelockServices = new CopyOnWriteArrayList<>();
+    private final Optional<TimelockEndpoint> sharedEndpoint;
+    private final int maxTokensPerRequest;
+    private final ConcurrentMap<LockToken, Long> lastRefreshTickByToken = Maps.newConcurrentMap();
+
+    // Only written by the refresh task, which never runs concurrently with itself.
+    private volatile long currentTick = 0;
 
     public LockRefresher(ScheduledExecutorService executor, TimelockService timelockService, long refreshIntervalMillis) {
+        this(executor, timelockService, refreshIntervalMillis, MAX_TOKENS_PER_REQUEST);
+    }
+
+    @VisibleForTesting
+    LockRefresher(
+            ScheduledExecutorService executor,
+            TimelockService timelockService,
+            long refreshIntervalMillis,
+            int maxTokensPerRequest) {
+        this(executor, timelockService, refreshIntervalMillis, maxTokensPerRequest, Optional.empty());
+    }
+
+    private LockRefresher(
+            ScheduledExecutorService executor,
+            TimelockService timelockService,
+            long refreshIntervalMillis,
+            int maxTokensPerRequest,
+            Optional<TimelockEndpoint> sharedEndpoint) {
+        Preconditions.checkArgument(refreshIntervalMillis >= TICKS_PER_REFRESH_INTERVAL,
+                "Refresh interval must be at least %s ms", TICKS_PER_REFRESH_INTERVAL);
+        Preconditions.checkArgument(maxTokensPerRequest > 0, "Must refresh at least one token per request");
         this.executor = executor;
-        this.timelockService = timelockService;
+        this.timelockServices.add(timelockService);
+        this.sharedEndpoint = sharedEndpoint;
+        this.maxTokensPerRequest = maxTokensPerRequest;
+
+        scheduleRefresh(refreshIntervalMillis / TICKS_PER_REFRESH_INTERVAL);
+    }
 
-        scheduleRefresh(refreshIntervalMillis);
+    /**
+     * Returns the refresher for the given timelock endpoint, creating it if no client of that endpoint currently holds
+     * one, and adds the given service to those that refreshes may be sent through. The caller must pass the same
+     * service to {@link #release} once it no longer needs the refresher.
+     */
+    public static LockRefresher acquireShared(
+            TimelockEndpoint endpoint,
+            TimelockService timelockService,
+            long refreshIntervalMillis) {
+        return acquireShared(endpoint, timelockService, refreshIntervalMillis,
+                () -> Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat(LockRefresher.class.getSimpleName() + "-shared-%d")
+                        .setDaemon(true)
+                        .build()));
     }
 
-    private void scheduleRefresh(long refreshIntervalMillis) {
-        executor.scheduleAtFixedRate(this::refreshLocks, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    @VisibleForTesting
+    static LockRefresher acquireShared(
+            TimelockEndpoint endpoint,
+            TimelockService timelockService,
+            long refreshIntervalMillis,
+            Supplier<ScheduledExecutorService> executorFactory) {
+        synchronized (SHARED_REFRESHERS) {
+            LockRefresher refresher = SHARED_REFRESHERS.get(endpoint);
+            if (refresher == null) {
+                refresher = new LockRefresher(executorFactory.get(), timelockService, refreshIntervalMillis,
+                        MAX_TOKENS_PER_REQUEST, Optional.of(endpoint));
+                SHARED_REFRESHERS.put(endpoint, refresher);
+            } else {
+                refresher.timelockServices.add(timelockService);
+            }
+            return refresher;
+        }
+    }
+
+    /**
+     * Stops sending refreshes through the given service. Once no service is left, the refresher stops, and a shared
+     * refresher is dropped, so that the next client of its endpoint starts a new one.
+     */
+    public void release(TimelockService timelockService) {
+        synchronized (SHARED_REFRESHERS) {
+            timelockServices.remove(timelockService);
+            if (!timelockServices.isEmpty()) {
+                return;
+            }
+            sharedEndpoint.ifPresent(endpoint -> SHARED_REFRESHERS.remove(endpoint, this));
+        }
+        executor.shutdown();
+    }
+
+    private void scheduleRefresh(long tickIntervalMillis) {
+        executor.scheduleAtFixedRate(this::refreshLocks, tickIntervalMillis, tickIntervalMillis, TimeUnit.MILLISECONDS);
     }
 
     private void refreshLocks() {
         try {
-            Set<LockToken> toRefresh = ImmutableSet.copyOf(tokensToRefresh);
-            if (toRefresh.isEmpty()) {
-                return;
+            long tick = currentTick + 1;
+            currentTick = tick;
+
+            List<LockToken> dueTokens = lastRefreshTickByToken.entrySet().stream()
+                    .filter(entry -> tick - entry.getValue() >= TICKS_PER_REFRESH_INTERVAL)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            for (List<LockToken> batch : Iterables.partition(dueTokens, maxTokensPerRequest)) {
+                refreshBatch(ImmutableSet.copyOf(batch), tick);
             }
+        } catch (Throwable error) {
+            log.warn("Error while refreshing locks. Trying again on next iteration", error);
+        }
+    }
 
+    private void refreshBatch(Set<LockToken> toRefresh, long tick) {
+        try {
+            TimelockService timelockService = Iterators.getLast(timelockServices.iterator(), null);
+            if (timelockService == null) {
+                return;
+            }
             Set<LockToken> refreshed = timelockService.refreshLockLeases(toRefresh);
-            tokensToRefresh.removeAll(Sets.difference(toRefresh, refreshed));
+            for (LockToken token : toRefresh) {
+                if (refreshed.contains(token)) {
+                    lastRefreshTickByToken.replace(token, tick);
+                } else {
+                    lastRefreshTickByToken.remove(token);
+                }
+            }
         } catch (Throwable error) {
-            log.warn("Error while refreshing locks. Trying again on next iteration", error);
+            log.warn("Error while refreshing {} locks. Trying again on next iteration", toRefresh.size(), error);
         }
     }
 
     public void registerLock(LockToken token) {
-        tokensToRefresh.add(token);
+        lastRefreshTickByToken.put(token, currentTick);
     }
 
     public void unregisterLocks(Collection<LockToken> tokens) {
-        tokensToRefresh.removeAll(tokens);
+        lastRefreshTickByToken.keySet().removeAll(tokens);
     }
 }
@@ -16,6 +16,7 @@
 
 package com.palantir.lock.impl;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -33,7 +34,7 @@ import com.palantir.timestamp.TimestampRange;
 
 // TODO(nziebart): probably should make it more obvious that this class should always be used;
 // maybe call this a TimelockClient and require that everywhere? Could also be used for async unlocking..
-public class LockRefreshingTimelockService implements TimelockService {
+public class LockRefreshingTimelockService implements TimelockService, AutoCloseable {
 
     private static final long REFRESH_INTERVAL_MILLIS = 5_000;
 
@@ -49,6 +50,17 @@ public class LockRefreshingTimelockService implements TimelockService {
         return new LockRefreshingTimelockService(timelockService, lockRefresher);
     }
 
+    /**
+     * Creates a service whose locks are refreshed together with those of every other service created by this method
+     * for the same endpoint and not yet closed; see {@link LockRefresher#acquireShared}.
+     */
+    public static LockRefreshingTimelockService createWithSharedRefresher(
+            TimelockService timelockService,
+            TimelockEndpoint endpoint) {
+        LockRefresher lockRefresher = LockRefresher.acquireShared(endpoint, timelockService, REFRESH_INTERVAL_MILLIS);
+        return new LockRefreshingTimelockService(timelockService, lockRefresher);
+    }
+
     public LockRefreshingTimelockService(TimelockService delegate, LockRefresher lockRefresher) {
         this.delegate = delegate;
         this.lockRefresher = lockRefresher;
@@ -85,6 +97,17 @@ public class LockRefreshingTimelockService implements TimelockService {
         return response;
     }
 
+    @Override
+    public List<LockResponse> lockBatch(List<LockRequest> requests) {
+        List<LockResponse> responses = delegate.lockBatch(requests);
+        for (LockResponse response : responses) {
+            if (response.wasSuccessful()) {
+                lockRefresher.registerLock(response.getToken());
+            }
+        }
+        return responses;
+    }
+
     @Override
     public WaitForLocksResponse waitForLocks(WaitForLocksRequest request) {
         return delegate.waitForLocks(request);
@@ -105,4 +128,13 @@ public class LockRefreshingTimelockService implements TimelockService {
     public long currentTimeMillis() {
         return delegate.currentTimeMillis();
     }
+
+    /**
+     * Stops refreshing locks through this service. Locks that have not been unlocked are no longer refreshed, unless
+     * another service still shares the refresher.
+     */
+    @Override
+    public void close() {
+        lockRefresher.release(delegate);
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Set;
+
+import org.immutables.value.Value;
+
+/**
+ * Identifies the timelock servers and namespace that issue a set of locks, so that clients of the same timelock
+ * service can share a {@link LockRefresher}.
+ */
+@Value.Immutable
+public abstract class TimelockEndpoint {
+
+    public static TimelockEndpoint of(Set<String> namespacedServers) {
+        return ImmutableTimelockEndpoint.of(namespacedServers);
+    }
+
+    /**
+     * The URIs of the timelock servers, each including the namespace.
+     */
+    @Value.Parameter
+    public abstract Set<String> namespacedServers();
+}
@@ -16,7 +16,10 @@
 
 package com.palantir.lock.impl;
 
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,6 +35,7 @@ import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Maps;
@@ -135,6 +139,18 @@ public class LegacyTimelockServiceTest {
         verify(lockService).lock(LockClient.ANONYMOUS.getClientId(), legacyRequest);
     }
 
+    @Test
+    public void lockBatchUnlocksGrantedLocksIfALaterRequestFails() throws InterruptedException {
+        LockRequest request = LockRequest.of(ImmutableSet.of(LOCK_A, LOCK_B), TIMEOUT);
+        when(lockService.lock(eq(LockClient.ANONYMOUS.getClientId()), any()))
+                .thenReturn(LOCK_REFRESH_TOKEN)
+                .thenThrow(new IllegalStateException("test"));
+
+        assertThatThrownBy(() -> timelock.lockBatch(ImmutableList.of(request, request)))
+                .isInstanceOf(IllegalStateException.class);
+        verify(lockService).unlock(LOCK_REFRESH_TOKEN);
+    }
+
     @Test
     public void waitForLocksDelegatesToLockService() throws InterruptedException {
         com.palantir.lock.LockRequest legacyRequest = com.palantir.lock.LockRequest.builder(buildLockMap(LockMode.READ)).lockAndRelease().build();
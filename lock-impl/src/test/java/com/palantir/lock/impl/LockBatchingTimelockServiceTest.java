@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+import com.palantir.lock.v2.TimelockService;
+
+public class LockBatchingTimelockServiceTest {
+
+    private static final long TIMEOUT = 10_000;
+
+    private final TimelockService delegate = mock(TimelockService.class);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void sendsRequestImmediatelyIfNoBatchIsInFlight() {
+        LockBatchingTimelockService timelock = new LockBatchingTimelockService(delegate, Runnable::run, 1);
+        LockRequest request = lockRequest("a");
+        when(delegate.lockBatch(ImmutableList.of(request))).thenReturn(ImmutableList.of(successfulResponse(request)));
+
+        assertThat(timelock.lock(request)).isEqualTo(successfulResponse(request));
+    }
+
+    @Test
+    public void coalescesRequestsMadeWhileAllBatchesAreInFlight() throws Exception {
+        Queue<Runnable> senders = new ConcurrentLinkedQueue<>();
+        Executor deferredExecutor = senders::add;
+        LockBatchingTimelockService timelock = new LockBatchingTimelockService(delegate, deferredExecutor, 1);
+        when(delegate.lockBatch(any())).thenAnswer(invocation -> respondSuccessfully(invocation.getArguments()[0]));
+
+        List<LockRequest> requests = ImmutableList.of(lockRequest("a"), lockRequest("b"), lockRequest("c"));
+        List<CompletableFuture<LockResponse>> responses = requests.stream()
+                .map(request -> CompletableFuture.supplyAsync(() -> timelock.lock(request), callers))
+                .collect(Collectors.toList());
+        waitUntilAllCallersAreWaiting(3);
+
+        assertThat(senders).hasSize(1);
+        senders.poll().run();
+
+        for (int i = 0; i < requests.size(); i++) {
+            assertThat(responses.get(i).get(1, TimeUnit.SECONDS)).isEqualTo(successfulResponse(requests.get(i)));
+        }
+        ArgumentCaptor<List> batch = ArgumentCaptor.forClass(List.class);
+        verify(delegate).lockBatch(batch.capture());
+        assertThat(batch.getValue()).containsExactlyInAnyOrder(requests.toArray());
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void sendsRequestsForTheSameLockInSeparateBatches() throws Exception {
+        Queue<Runnable> senders = new ConcurrentLinkedQueue<>();
+        Executor deferredExecutor = senders::add;
+        LockBatchingTimelockService timelock = new LockBatchingTimelockService(delegate, deferredExecutor, 1);
+        when(delegate.lockBatch(any())).thenAnswer(invocation -> respondSuccessfully(invocation.getArguments()[0]));
+
+        LockRequest first = lockRequest("a", "b");
+        LockRequest unrelated = lockRequest("c");
+        LockRequest conflicting = lockRequest("b");
+        List<CompletableFuture<LockResponse>> responses = Lists.newArrayList();
+        for (LockRequest request : ImmutableList.of(first, unrelated, conflicting)) {
+            responses.add(CompletableFuture.supplyAsync(() -> timelock.lock(request), callers));
+            waitUntilAllCallersAreWaiting(responses.size());
+        }
+        senders.poll().run();
+
+        for (CompletableFuture<LockResponse> response : responses) {
+            assertThat(response.get(1, TimeUnit.SECONDS).wasSuccessful()).isTrue();
+        }
+        ArgumentCaptor<List> batches = ArgumentCaptor.forClass(List.class);
+        verify(delegate, times(2)).lockBatch(batches.capture());
+        assertThat(batches.getAllValues().get(0)).containsExactlyInAnyOrder(first, unrelated);
+        assertThat(batches.getAllValues().get(1)).containsExactly(conflicting);
+    }
+
+    @Test
+    public void doesNotSendRequestWhileARequestForTheSameLockIsInFlight() throws Exception {
+        CompletableFuture<List<LockResponse>> firstBatchResponse = new CompletableFuture<>();
+        LockRequest first = lockRequest("a");
+        LockRequest conflicting = lockRequest("a");
+        when(delegate.lockBatch(ImmutableList.of(first))).thenAnswer(invocation -> firstBatchResponse.get());
+        when(delegate.lockBatch(ImmutableList.of(conflicting)))
+                .thenReturn(ImmutableList.of(successfulResponse(conflicting)));
+        LockBatchingTimelockService timelock = new LockBatchingTimelockService(delegate, callers, 2);
+
+        CompletableFuture<LockResponse> firstResponse =
+                CompletableFuture.supplyAsync(() -> timelock.lock(first), callers);
+        verify(delegate, timeout(5_000)).lockBatch(ImmutableList.of(first));
+        CompletableFuture<LockResponse> conflictingResponse =
+                CompletableFuture.supplyAsync(() -> timelock.lock(conflicting), callers);
+        waitUntilAllCallersAreWaiting(2);
+        verify(delegate, never()).lockBatch(ImmutableList.of(conflicting));
+
+        firstBatchResponse.complete(ImmutableList.of(successfulResponse(first)));
+        assertThat(firstResponse.get(1, TimeUnit.SECONDS)).isEqualTo(successfulResponse(first));
+        assertThat(conflictingResponse.get(1, TimeUnit.SECONDS)).isEqualTo(successfulResponse(conflicting));
+    }
+
+    @Test
+    public void propagatesFailuresToCallers() {
+        LockBatchingTimelockService timelock = new LockBatchingTimelockService(delegate, Runnable::run, 1);
+        when(delegate.lockBatch(any())).thenThrow(new IllegalStateException("test"));
+
+        assertThatThrownBy(() -> timelock.lock(lockRequest("a")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("test");
+    }
+
+    @Test
+    public void failsIfTheNumberOfResponsesDoesNotMatch() {
+        LockBatchingTimelockService timelock = new LockBatchingTimelockService(delegate, Runnable::run, 1);
+        when(delegate.lockBatch(any())).thenReturn(ImmutableList.of());
+
+        assertThatThrownBy(() -> timelock.lock(lockRequest("a"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static LockRequest lockRequest(String... lockNames) {
+        return LockRequest.of(
+                Arrays.stream(lockNames).map(StringLockDescriptor::of).collect(Collectors.toSet()),
+                TIMEOUT);
+    }
+
+    private static LockResponse successfulResponse(LockRequest request) {
+        return LockResponse.successful(LockToken.of(request.getRequestId()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<LockResponse> respondSuccessfully(Object requests) {
+        return ((List<LockRequest>) requests).stream()
+                .map(LockBatchingTimelockServiceTest::successfulResponse)
+                .collect(Collectors.toList());
+    }
+
+    private void waitUntilAllCallersAreWaiting(int numCallers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (countWaitingCallers() < numCallers) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static long countWaitingCallers() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getState() == Thread.State.WAITING)
+                .filter(thread -> isWaitingForLock(thread.getStackTrace()))
+                .count();
+    }
+
+    private static boolean isWaitingForLock(StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            if (element.getClassName().equals(LockBatchingTimelockService.class.getName())
+                    && element.getMethodName().equals("lock")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
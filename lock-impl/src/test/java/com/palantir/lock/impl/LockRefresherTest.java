@@ -16,19 +16,27 @@
 
 package com.palantir.lock.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import static com.palantir.lock.impl.LockRefresher.TICKS_PER_REFRESH_INTERVAL;
+
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import org.jmock.lib.concurrent.DeterministicScheduler;
 import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
 
 import com.google.common.collect.ImmutableSet;
 import com.palantir.lock.v2.LockToken;
@@ -42,7 +50,7 @@ public class LockRefresherTest {
     private static final LockToken TOKEN_2 = LockToken.of(UUID.randomUUID());
     private static final Set<LockToken> TOKENS = ImmutableSet.of(TOKEN_1, TOKEN_2);
 
-    private final DeterministicScheduler executor = new DeterministicScheduler();
+    private final DeterministicScheduler executor = spy(new DeterministicScheduler());
     private final TimelockService timelock = mock(TimelockService.class);
     private final LockRefresher refresher = new LockRefresher(executor, timelock, REFRESH_INTERVAL_MILLIS);
 
@@ -101,6 +109,118 @@ public class LockRefresherTest {
         verify(timelock, times(2)).refreshLockLeases(ImmutableSet.of(TOKEN_1));
     }
 
+    @Test
+    public void doesNotRefreshLockUntilARefreshIntervalAfterItWasTaken() {
+        refresher.registerLock(TOKEN_1);
+        tickFraction(TICKS_PER_REFRESH_INTERVAL / 2);
+        refresher.registerLock(TOKEN_2);
+        tickFraction(TICKS_PER_REFRESH_INTERVAL / 2);
+
+        verify(timelock).refreshLockLeases(ImmutableSet.of(TOKEN_1));
+        verifyNoMoreInteractions(timelock);
+    }
+
+    @Test
+    public void refreshesEachLockOnceARefreshIntervalAfterItsLastRefresh() {
+        when(timelock.refreshLockLeases(any())).thenAnswer(invocation -> invocation.getArguments()[0]);
+        refresher.registerLock(TOKEN_1);
+        tickFraction(TICKS_PER_REFRESH_INTERVAL / 2);
+        refresher.registerLock(TOKEN_2);
+
+        tickFraction(TICKS_PER_REFRESH_INTERVAL * 3 / 2);
+
+        InOrder inOrder = Mockito.inOrder(timelock);
+        inOrder.verify(timelock).refreshLockLeases(ImmutableSet.of(TOKEN_1));
+        inOrder.verify(timelock).refreshLockLeases(ImmutableSet.of(TOKEN_2));
+        inOrder.verify(timelock).refreshLockLeases(ImmutableSet.of(TOKEN_1));
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void splitsLargeRefreshesIntoBoundedRequests() {
+        LockRefresher batchingRefresher = new LockRefresher(executor, timelock, REFRESH_INTERVAL_MILLIS, 1);
+        batchingRefresher.registerLock(TOKEN_1);
+        batchingRefresher.registerLock(TOKEN_2);
+
+        tick();
+        verify(timelock).refreshLockLeases(ImmutableSet.of(TOKEN_1));
+        verify(timelock).refreshLockLeases(ImmutableSet.of(TOKEN_2));
+    }
+
+    @Test
+    public void retriesOnlyTheRequestThatFailed() {
+        LockRefresher batchingRefresher = new LockRefresher(executor, timelock, REFRESH_INTERVAL_MILLIS, 1);
+        when(timelock.refreshLockLeases(ImmutableSet.of(TOKEN_1))).thenReturn(ImmutableSet.of(TOKEN_1));
+        when(timelock.refreshLockLeases(ImmutableSet.of(TOKEN_2)))
+                .thenThrow(new RuntimeException("test"))
+                .thenReturn(ImmutableSet.of(TOKEN_2));
+        batchingRefresher.registerLock(TOKEN_1);
+        batchingRefresher.registerLock(TOKEN_2);
+
+        tick();
+        tickFraction(1);
+        verify(timelock).refreshLockLeases(ImmutableSet.of(TOKEN_1));
+        verify(timelock, times(2)).refreshLockLeases(ImmutableSet.of(TOKEN_2));
+    }
+
+    @Test
+    public void sharesRefresherBetweenCallersForTheSameEndpoint() {
+        TimelockEndpoint endpoint = newEndpoint();
+        LockRefresher shared = acquireShared(endpoint, timelock);
+
+        assertThat(acquireShared(TimelockEndpoint.of(endpoint.namespacedServers()), mock(TimelockService.class)))
+                .isSameAs(shared);
+        assertThat(acquireShared(newEndpoint(), timelock)).isNotSameAs(shared);
+    }
+
+    @Test
+    public void refreshesThroughNewerServiceAfterEarlierOneIsReleased() {
+        TimelockEndpoint endpoint = newEndpoint();
+        TimelockService newerTimelock = mock(TimelockService.class);
+        doNothing().when(executor).shutdown();
+        when(newerTimelock.refreshLockLeases(TOKENS)).thenReturn(TOKENS);
+        LockRefresher shared = acquireShared(endpoint, timelock);
+        acquireShared(endpoint, newerTimelock);
+        shared.registerLock(TOKEN_1);
+        shared.registerLock(TOKEN_2);
+
+        shared.release(timelock);
+        tick();
+
+        verify(newerTimelock).refreshLockLeases(TOKENS);
+        verifyNoMoreInteractions(timelock);
+        verify(executor, never()).shutdown();
+    }
+
+    @Test
+    public void stopsSharedRefresherAndDropsItOnceEveryServiceIsReleased() {
+        TimelockEndpoint endpoint = newEndpoint();
+        TimelockService otherTimelock = mock(TimelockService.class);
+        doNothing().when(executor).shutdown();
+        LockRefresher shared = acquireShared(endpoint, timelock);
+        acquireShared(endpoint, otherTimelock);
+        shared.registerLock(TOKEN_1);
+
+        shared.release(timelock);
+        shared.release(otherTimelock);
+
+        verify(executor).shutdown();
+        verifyNoMoreInteractions(timelock, otherTimelock);
+        assertThat(acquireShared(endpoint, timelock)).isNotSameAs(shared);
+    }
+
+    private LockRefresher acquireShared(TimelockEndpoint endpoint, TimelockService timelockService) {
+        return LockRefresher.acquireShared(endpoint, timelockService, REFRESH_INTERVAL_MILLIS, () -> executor);
+    }
+
+    private static TimelockEndpoint newEndpoint() {
+        return TimelockEndpoint.of(ImmutableSet.of("http://localhost:" + UUID.randomUUID() + "/namespace"));
+    }
+
+    private void tickFraction(int ticks) {
+        executor.tick(ticks * (REFRESH_INTERVAL_MILLIS / TICKS_PER_REFRESH_INTERVAL), TimeUnit.MILLISECONDS);
+    }
+
     private void tick() {
         executor.tick(REFRESH_INTERVAL_MILLIS + 1, TimeUnit.MILLISECONDS);
     }
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -30,6 +31,7 @@ import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.StringLockDescriptor;
@@ -75,6 +77,18 @@ public class LockRefreshingTimelockServiceTest {
         verify(refresher).registerLock(TOKEN_1);
     }
 
+    @Test
+    public void registersSuccessfulLocksFromBatch() {
+        List<LockRequest> requests = ImmutableList.of(LockRequest.of(LOCKS, TIMEOUT), LockRequest.of(LOCKS, TIMEOUT));
+        when(delegate.lockBatch(requests)).thenReturn(
+                ImmutableList.of(LockResponse.timedOut(), LockResponse.successful(TOKEN_2)));
+
+        timelock.lockBatch(requests);
+
+        verify(refresher).registerLock(TOKEN_2);
+        verifyNoMoreInteractions(refresher);
+    }
+
     @Test
     public void unregistersLockBeforeUnlocking() {
         InOrder inOrder = Mockito.inOrder(refresher, delegate);
@@ -16,7 +16,14 @@
 
 package com.palantir.atlasdb.timelock;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
@@ -27,8 +34,15 @@ import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.timelock.lock.AsyncResult;
+import com.palantir.atlasdb.timelock.lock.LeaseExpirationTimer;
 import com.palantir.atlasdb.timelock.lock.LockLog;
+import com.palantir.lock.remoting.BinaryTimelockCodec;
 import com.palantir.lock.v2.LockImmutableTimestampRequest;
 import com.palantir.lock.v2.LockImmutableTimestampResponse;
 import com.palantir.lock.v2.LockRequest;
@@ -39,14 +53,25 @@ import com.palantir.lock.v2.WaitForLocksResponse;
 import com.palantir.timestamp.TimestampRange;
 
 @Path("/timelock")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, BinaryTimelockCodec.MEDIA_TYPE})
+@Produces({MediaType.APPLICATION_JSON, BinaryTimelockCodec.MEDIA_TYPE})
 public class AsyncTimelockResource {
 
+    private static final Logger log = LoggerFactory.getLogger(AsyncTimelockResource.class);
+
+    @VisibleForTesting
+    static final long BATCH_LEASE_REFRESH_INTERVAL_MILLIS = LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS / 4;
+
     private final AsyncTimelockService timelock;
+    private final ScheduledExecutorService leaseRefreshExecutor;
 
-    public AsyncTimelockResource(AsyncTimelockService timelock) {
+    /**
+     * The executor refreshes the leases of locks that have been granted to a batch which is still waiting for its
+     * other requests.
+     */
+    public AsyncTimelockResource(AsyncTimelockService timelock, ScheduledExecutorService leaseRefreshExecutor) {
         this.timelock = timelock;
+        this.leaseRefreshExecutor = leaseRefreshExecutor;
     }
 
     @POST
@@ -89,6 +114,76 @@ public class AsyncTimelockResource {
         });
     }
 
+    /**
+     * Responds once every request in the batch has completed. The client only learns about the locks in the batch
+     * when it does, so until then the leases of locks that have already been granted are kept alive here; otherwise
+     * a request that waits for a contended lock for longer than a lease would let the other locks expire.
+     */
+    @POST
+    @Path("lock-batch")
+    public void lockBatch(@Suspended final AsyncResponse response, List<LockRequest> requests) {
+        List<AsyncResult<LockToken>> results = timelock.lockBatch(requests);
+        if (results.isEmpty()) {
+            response.resume(ImmutableList.of());
+            return;
+        }
+
+        ScheduledFuture<?> leaseRefresh = leaseRefreshExecutor.scheduleWithFixedDelay(
+                () -> refreshGrantedLocks(results),
+                BATCH_LEASE_REFRESH_INTERVAL_MILLIS,
+                BATCH_LEASE_REFRESH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        AtomicInteger remaining = new AtomicInteger(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            AsyncResult<LockToken> result = results.get(i);
+            LockLog.registerRequest(requests.get(i), result);
+            result.onComplete(() -> {
+                if (remaining.decrementAndGet() == 0) {
+                    leaseRefresh.cancel(false);
+                    resumeLockBatch(response, results);
+                }
+            });
+        }
+    }
+
+    private void refreshGrantedLocks(List<AsyncResult<LockToken>> results) {
+        Set<LockToken> granted = getGrantedLocks(results);
+        if (granted.isEmpty()) {
+            return;
+        }
+        try {
+            timelock.refreshLockLeases(granted);
+        } catch (Throwable t) {
+            log.warn("Error while refreshing {} locks granted to a pending batch. Trying again on next iteration.",
+                    granted.size(), t);
+        }
+    }
+
+    private static Set<LockToken> getGrantedLocks(List<AsyncResult<LockToken>> results) {
+        return results.stream()
+                .filter(AsyncResult::isCompletedSuccessfully)
+                .map(AsyncResult::get)
+                .collect(Collectors.toSet());
+    }
+
+    private void resumeLockBatch(AsyncResponse response, List<AsyncResult<LockToken>> results) {
+        Optional<Throwable> error = results.stream()
+                .filter(AsyncResult::isFailed)
+                .map(AsyncResult::getError)
+                .findFirst();
+        if (error.isPresent()) {
+            // The client never learns about the locks that were granted, so nothing would unlock them.
+            timelock.unlock(getGrantedLocks(results));
+            response.resume(error.get());
+        } else {
+            response.resume(results.stream()
+                    .map(result -> result.isTimedOut()
+                            ? LockResponse.timedOut()
+                            : LockResponse.successful(result.get()))
+                    .collect(Collectors.toList()));
+        }
+    }
+
     @POST
     @Path("await-locks")
     public void waitForLocks(@Suspended final AsyncResponse response, WaitForLocksRequest request) {
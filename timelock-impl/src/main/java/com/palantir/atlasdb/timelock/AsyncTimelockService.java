@@ -17,6 +17,7 @@
 package com.palantir.atlasdb.timelock;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Set;
 
 import com.palantir.atlasdb.timelock.lock.AsyncResult;
@@ -39,6 +40,8 @@ public interface AsyncTimelockService extends ManagedTimestampService, Closeable
 
     AsyncResult<LockToken> lock(LockRequest request);
 
+    List<AsyncResult<LockToken>> lockBatch(List<LockRequest> requests);
+
     long getImmutableTimestamp();
 
     LockImmutableTimestampResponse lockImmutableTimestamp(LockImmutableTimestampRequest request);
@@ -17,7 +17,9 @@
 package com.palantir.atlasdb.timelock;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.palantir.atlasdb.timelock.lock.AsyncLockService;
 import com.palantir.atlasdb.timelock.lock.AsyncResult;
@@ -75,6 +77,13 @@ public class AsyncTimelockServiceImpl implements AsyncTimelockService {
                 TimeLimit.of(request.getAcquireTimeoutMs()));
     }
 
+    @Override
+    public List<AsyncResult<LockToken>> lockBatch(List<LockRequest> requests) {
+        return requests.stream()
+                .map(this::lock)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public AsyncResult<Void> waitForLocks(WaitForLocksRequest request) {
         return lockService.waitForLocks(
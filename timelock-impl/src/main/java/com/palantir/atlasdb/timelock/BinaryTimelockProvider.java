@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.google.common.io.ByteStreams;
+import com.palantir.lock.remoting.BinaryTimelockCodec;
+
+/**
+ * Reads and writes the bodies of timestamp and lock requests in the {@link BinaryTimelockCodec} format, for clients
+ * that ask for it through the {@code Content-Type} and {@code Accept} headers.
+ */
+@Provider
+@Consumes(BinaryTimelockCodec.MEDIA_TYPE)
+@Produces(BinaryTimelockCodec.MEDIA_TYPE)
+public class BinaryTimelockProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+    private static final MediaType BINARY_MEDIA_TYPE = MediaType.valueOf(BinaryTimelockCodec.MEDIA_TYPE);
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isBinary(mediaType) && BinaryTimelockCodec.canEncode(genericType);
+    }
+
+    @Override
+    public Object readFrom(
+            Class<Object> type,
+            Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders,
+            InputStream entityStream) throws IOException {
+        try {
+            return BinaryTimelockCodec.decode(ByteStreams.toByteArray(entityStream), genericType);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isBinary(mediaType) && BinaryTimelockCodec.canEncode(genericType);
+    }
+
+    @Override
+    public long getSize(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(
+            Object value,
+            Class<?> type,
+            Type genericType,
+            Annotation[] annotations,
+            MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException {
+        entityStream.write(BinaryTimelockCodec.encode(value, genericType));
+    }
+
+    private static boolean isBinary(MediaType mediaType) {
+        // Wildcards are not accepted, so that clients that do not ask for the binary format explicitly get JSON.
+        return mediaType != null
+                && BINARY_MEDIA_TYPE.getType().equals(mediaType.getType())
+                && BINARY_MEDIA_TYPE.getSubtype().equals(mediaType.getSubtype());
+    }
+}
@@ -21,6 +21,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -40,6 +41,8 @@ public class AsyncLockService implements Closeable {
     private final HeldLocksCollection heldLocks;
     private final AwaitedLocksCollection awaitedLocks;
     private final ImmutableTimestampTracker immutableTsTracker;
+    private final boolean shutDownReaperOnClose;
+    private final ScheduledFuture<?> reaperTask;
 
     public static AsyncLockService createDefault(
             ScheduledExecutorService reaperExecutor,
@@ -53,6 +56,21 @@ public class AsyncLockService implements Closeable {
                 reaperExecutor);
     }
 
+    /**
+     * Creates a lock service whose reaper and acquisition timeouts run on the given executor, which may be shared with
+     * other lock services and is not shut down when this service is closed.
+     */
+    public static AsyncLockService createOnSharedExecutor(ScheduledExecutorService sharedExecutor) {
+        return new AsyncLockService(
+                new LockCollection(),
+                new ImmutableTimestampTracker(),
+                new LockAcquirer(sharedExecutor),
+                new HeldLocksCollection(),
+                new AwaitedLocksCollection(),
+                sharedExecutor,
+                false);
+    }
+
     public AsyncLockService(
             LockCollection locks,
             ImmutableTimestampTracker immutableTimestampTracker,
@@ -60,18 +78,30 @@ public class AsyncLockService implements Closeable {
             HeldLocksCollection heldLocks,
             AwaitedLocksCollection awaitedLocks,
             ScheduledExecutorService reaperExecutor) {
+        this(locks, immutableTimestampTracker, acquirer, heldLocks, awaitedLocks, reaperExecutor, true);
+    }
+
+    private AsyncLockService(
+            LockCollection locks,
+            ImmutableTimestampTracker immutableTimestampTracker,
+            LockAcquirer acquirer,
+            HeldLocksCollection heldLocks,
+            AwaitedLocksCollection awaitedLocks,
+            ScheduledExecutorService reaperExecutor,
+            boolean shutDownReaperOnClose) {
         this.locks = locks;
         this.immutableTsTracker = immutableTimestampTracker;
         this.lockAcquirer = acquirer;
         this.heldLocks = heldLocks;
         this.awaitedLocks = awaitedLocks;
         this.reaperExecutor = reaperExecutor;
+        this.shutDownReaperOnClose = shutDownReaperOnClose;
 
-        scheduleExpiredLockReaper();
+        this.reaperTask = scheduleExpiredLockReaper();
     }
 
-    private void scheduleExpiredLockReaper() {
-        reaperExecutor.scheduleAtFixedRate(() -> {
+    private ScheduledFuture<?> scheduleExpiredLockReaper() {
+        return reaperExecutor.scheduleAtFixedRate(() -> {
             try {
                 heldLocks.removeExpired();
             } catch (Throwable t) {
@@ -141,7 +171,10 @@ public class AsyncLockService implements Closeable {
      */
     @Override
     public void close() {
-        reaperExecutor.shutdown();
+        reaperTask.cancel(false);
+        if (shutDownReaperOnClose) {
+            reaperExecutor.shutdown();
+        }
         heldLocks.failAllOutstandingRequestsWithNotCurrentLeaderException();
     }
 }
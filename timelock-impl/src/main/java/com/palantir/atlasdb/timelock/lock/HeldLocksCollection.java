@@ -16,52 +16,80 @@
 
 package com.palantir.atlasdb.timelock.lock;
 
-import java.util.Iterator;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.palantir.common.time.Clock;
 import com.palantir.leader.NotCurrentLeaderException;
 import com.palantir.lock.v2.LockToken;
 
+/**
+ * Tracks the locks held by each request. Leases are indexed by the time they expire, so that {@link #removeExpired()}
+ * only looks at requests whose leases may have expired since it last ran, rather than at every held lock.
+ */
 public class HeldLocksCollection {
 
     @VisibleForTesting
     final ConcurrentMap<UUID, AsyncResult<HeldLocks>> heldLocksById = Maps.newConcurrentMap();
 
+    private final LeaseExpirationBuckets expirations = new LeaseExpirationBuckets();
+    private final Clock clock;
+
+    public HeldLocksCollection() {
+        this(System::currentTimeMillis);
+    }
+
+    @VisibleForTesting
+    HeldLocksCollection(Clock clock) {
+        this.clock = clock;
+    }
+
     public AsyncResult<LockToken> getExistingOrAcquire(
             UUID requestId,
             Supplier<AsyncResult<HeldLocks>> lockAcquirer) {
         AsyncResult<HeldLocks> locksFuture = heldLocksById.computeIfAbsent(
-                requestId, ignored -> lockAcquirer.get());
+                requestId, ignored -> acquireAndTrackExpiration(requestId, lockAcquirer));
         return locksFuture.map(HeldLocks::getToken);
     }
 
     public Set<LockToken> unlock(Set<LockToken> tokens) {
-        Set<LockToken> unlocked = filter(tokens, HeldLocks::unlock);
-        for (LockToken token : unlocked) {
-            heldLocksById.remove(token.getRequestId());
+        Set<LockToken> unlocked = Sets.newHashSetWithExpectedSize(tokens.size());
+        for (LockToken token : tokens) {
+            AsyncResult<HeldLocks> lockResult = heldLocksById.get(token.getRequestId());
+            if (lockResult != null && lockResult.test(HeldLocks::unlock)) {
+                heldLocksById.remove(token.getRequestId());
+                // Only finds the id if the lease was never refreshed; otherwise it is dropped when its bucket is due.
+                expirations.remove(token.getRequestId(), lockResult.get().getLeaseExpirationTimeMillis());
+                unlocked.add(token);
+            }
         }
         return unlocked;
     }
 
+    /**
+     * Extends the leases of the given tokens. Refreshed leases are not moved between expiration buckets here; instead,
+     * a lease that is still live when its bucket comes due is moved to the bucket for its new expiration time. Each
+     * held lease is therefore looked at about once per lease period, however often it is refreshed.
+     */
     public Set<LockToken> refresh(Set<LockToken> tokens) {
-        return filter(tokens, HeldLocks::refresh);
+        Set<LockToken> refreshed = Sets.newHashSetWithExpectedSize(tokens.size());
+        for (LockToken token : tokens) {
+            AsyncResult<HeldLocks> lockResult = heldLocksById.get(token.getRequestId());
+            if (lockResult != null && lockResult.test(HeldLocks::refresh)) {
+                refreshed.add(token);
+            }
+        }
+        return refreshed;
     }
 
     public void removeExpired() {
-        Iterator<AsyncResult<HeldLocks>> iterator = heldLocksById.values().iterator();
-        while (iterator.hasNext()) {
-            AsyncResult<HeldLocks> lockResult = iterator.next();
-            if (shouldRemove(lockResult)) {
-                iterator.remove();
-            }
-        }
+        long nowMillis = clock.getTimeMillis();
+        expirations.removeDue(nowMillis, requestId -> removeIfExpired(requestId, nowMillis));
     }
 
     public void failAllOutstandingRequestsWithNotCurrentLeaderException() {
@@ -69,23 +97,40 @@ public class HeldLocksCollection {
         heldLocksById.values().forEach(result -> result.failIfNotCompleted(ex));
     }
 
-    private boolean shouldRemove(AsyncResult<HeldLocks> lockResult) {
-        return lockResult.isFailed()
-                || lockResult.isTimedOut()
-                || lockResult.test(HeldLocks::unlockIfExpired);
+    private AsyncResult<HeldLocks> acquireAndTrackExpiration(
+            UUID requestId,
+            Supplier<AsyncResult<HeldLocks>> lockAcquirer) {
+        AsyncResult<HeldLocks> lockResult = lockAcquirer.get();
+        lockResult.onComplete(() -> expirations.add(requestId, getExpirationTimeMillis(lockResult)));
+        return lockResult;
     }
 
-    private Set<LockToken> filter(Set<LockToken> tokens, Predicate<HeldLocks> predicate) {
-        Set<LockToken> filtered = Sets.newHashSetWithExpectedSize(tokens.size());
+    private void removeIfExpired(UUID requestId, long nowMillis) {
+        AsyncResult<HeldLocks> lockResult = heldLocksById.get(requestId);
+        if (lockResult == null) {
+            return;
+        }
+        if (shouldRemove(lockResult)) {
+            heldLocksById.remove(requestId, lockResult);
+        } else if (lockResult.isComplete()) {
+            expirations.add(requestId, Math.max(getExpirationTimeMillis(lockResult), nowMillis));
+        }
+    }
 
-        for (LockToken token : tokens) {
-            AsyncResult<HeldLocks> lockResult = heldLocksById.get(token.getRequestId());
-            if (lockResult != null && lockResult.test(predicate)) {
-                filtered.add(token);
-            }
+    /**
+     * Requests that failed or timed out are due for removal as soon as they complete.
+     */
+    private long getExpirationTimeMillis(AsyncResult<HeldLocks> lockResult) {
+        if (lockResult.isCompletedSuccessfully()) {
+            return lockResult.get().getLeaseExpirationTimeMillis();
         }
+        return clock.getTimeMillis();
+    }
 
-        return filtered;
+    private boolean shouldRemove(AsyncResult<HeldLocks> lockResult) {
+        return lockResult.isFailed()
+                || lockResult.isTimedOut()
+                || lockResult.test(HeldLocks::unlockIfExpired);
     }
 
 }
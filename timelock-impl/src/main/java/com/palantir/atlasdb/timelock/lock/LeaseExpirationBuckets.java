@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.lock;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Groups request ids into buckets by the time their leases expire, so that expired leases can be found without
+ * looking at leases that expire later.
+ * <p>
+ * A request id may be in more than one bucket, for example if its lease was extended after it was added. Callers must
+ * therefore check whether the lease of each id returned by {@link #removeDue} has actually expired, and add it again
+ * if it has not.
+ */
+class LeaseExpirationBuckets {
+
+    static final long BUCKET_MILLIS = 1_000;
+
+    private final ConcurrentSkipListMap<Long, Set<UUID>> buckets = new ConcurrentSkipListMap<>();
+
+    static long bucketFor(long timeMillis) {
+        return Math.floorDiv(timeMillis, BUCKET_MILLIS);
+    }
+
+    void add(UUID requestId, long expirationTimeMillis) {
+        long bucket = bucketFor(expirationTimeMillis);
+        while (true) {
+            Set<UUID> requestIds = buckets.computeIfAbsent(bucket, ignored -> ConcurrentHashMap.newKeySet());
+            requestIds.add(requestId);
+            if (buckets.get(bucket) == requestIds) {
+                return;
+            }
+            // The bucket was removed by removeDue before we added to it; add to its replacement instead.
+        }
+    }
+
+    /**
+     * Removes the request id from the bucket for the given expiration time, if present. Short-lived requests should be
+     * removed when they are unlocked, so that they do not stay in memory until their lease would have expired.
+     */
+    void remove(UUID requestId, long expirationTimeMillis) {
+        Set<UUID> requestIds = buckets.get(bucketFor(expirationTimeMillis));
+        if (requestIds != null) {
+            requestIds.remove(requestId);
+        }
+    }
+
+    /**
+     * Removes every bucket up to and including the one containing {@code nowMillis}, passing each request id in them
+     * to {@code consumer}. Ids added to those buckets while this method runs are not necessarily passed to the
+     * consumer, but are kept for the next call.
+     */
+    void removeDue(long nowMillis, Consumer<UUID> consumer) {
+        long currentBucket = bucketFor(nowMillis);
+        Map.Entry<Long, Set<UUID>> entry = buckets.firstEntry();
+        while (entry != null && entry.getKey() <= currentBucket) {
+            long bucket = entry.getKey();
+            Set<UUID> requestIds = buckets.remove(bucket);
+            if (requestIds != null) {
+                requestIds.forEach(consumer);
+            }
+            entry = buckets.higherEntry(bucket);
+        }
+    }
+
+    int numBuckets() {
+        return buckets.size();
+    }
+}
@@ -22,20 +22,27 @@ public class LeaseExpirationTimer {
 
     public static final long LEASE_TIMEOUT_MILLIS = 20_000;
 
-    private volatile long lastRefreshTimeMillis;
+    private volatile long expirationTimeMillis;
     private final Clock clock;
 
     public LeaseExpirationTimer(Clock clock) {
         this.clock = clock;
-        this.lastRefreshTimeMillis = clock.getTimeMillis();
+        this.expirationTimeMillis = clock.getTimeMillis() + LEASE_TIMEOUT_MILLIS;
     }
 
     public void refresh() {
-        lastRefreshTimeMillis = clock.getTimeMillis();
+        expirationTimeMillis = clock.getTimeMillis() + LEASE_TIMEOUT_MILLIS;
     }
 
     public boolean isExpired() {
-        return clock.getTimeMillis() > lastRefreshTimeMillis + LEASE_TIMEOUT_MILLIS;
+        return clock.getTimeMillis() > expirationTimeMillis;
+    }
+
+    /**
+     * Returns the time after which the lease is expired, unless it is refreshed before then.
+     */
+    public long getExpirationTimeMillis() {
+        return expirationTimeMillis;
     }
 
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.lock;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A fixed set of single-threaded executors that run the background work - lease reaping and lock acquisition
+ * timeouts - of the lock services of all clients. Each client is always assigned to the same shard, so the work of a
+ * client runs on one thread, and the number of threads is bounded by the number of shards however many clients the
+ * server has.
+ */
+public final class LockServiceShards {
+
+    private final List<ScheduledExecutorService> executors;
+
+    private LockServiceShards(List<ScheduledExecutorService> executors) {
+        this.executors = executors;
+    }
+
+    public static LockServiceShards create(int numShards) {
+        Preconditions.checkArgument(numShards > 0, "Must have at least one shard, but got %s", numShards);
+        return new LockServiceShards(IntStream.range(0, numShards)
+                .mapToObj(shard -> Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("async-lock-shard-" + shard + "-%d")
+                        .setDaemon(true)
+                        .build()))
+                .collect(Collectors.toList()));
+    }
+
+    public int numShards() {
+        return executors.size();
+    }
+
+    public ScheduledExecutorService getExecutorFor(String client) {
+        return executors.get(Math.floorMod(client.hashCode(), executors.size()));
+    }
+
+    /**
+     * Creates a lock service for the given client whose background work runs on the client's shard.
+     */
+    public AsyncLockService createLockService(String client) {
+        return AsyncLockService.createOnSharedExecutor(getExecutorFor(client));
+    }
+
+    public void shutdown() {
+        executors.forEach(ScheduledExecutorService::shutdown);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.palantir.paxos.BooleanPaxosResponse;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosPromise;
+import com.palantir.paxos.PaxosProposal;
+import com.palantir.paxos.PaxosProposalId;
+import com.palantir.paxos.PaxosQuorumChecker;
+import com.palantir.paxos.PaxosValue;
+
+/**
+ * A remote TimeLock server, as seen by the timestamp bound stores of all clients on this server.
+ * <p>
+ * The acceptors and learners handed out by this class send prepare, accept and learn messages through a shared
+ * {@link BatchPaxosService}, so that concurrent rounds for different clients are sent to the remote server together.
+ * Other calls, which are made rarely, go to the given unbatched per-client remotes.
+ */
+public final class BatchPaxosPeer {
+    static final int MAX_BATCH_SIZE = 1000;
+    static final long RESPONSE_TIMEOUT_MILLIS =
+            TimeUnit.SECONDS.toMillis(PaxosQuorumChecker.DEFAULT_REMOTE_REQUESTS_TIMEOUT_IN_SECONDS);
+
+    private final PaxosRequestBatcher<ClientPrepareRequest, PaxosPromise> prepareBatcher;
+    private final PaxosRequestBatcher<ClientAcceptRequest, BooleanPaxosResponse> acceptBatcher;
+    private final PaxosRequestBatcher<ClientLearnRequest, Void> learnBatcher;
+
+    private BatchPaxosPeer(
+            PaxosRequestBatcher<ClientPrepareRequest, PaxosPromise> prepareBatcher,
+            PaxosRequestBatcher<ClientAcceptRequest, BooleanPaxosResponse> acceptBatcher,
+            PaxosRequestBatcher<ClientLearnRequest, Void> learnBatcher) {
+        this.prepareBatcher = prepareBatcher;
+        this.acceptBatcher = acceptBatcher;
+        this.learnBatcher = learnBatcher;
+    }
+
+    /**
+     * Requests whose batch gets no response within the paxos remote request timeout fail, and so count as no
+     * response from the remote server.
+     *
+     * @param remote the batch paxos service of the remote server
+     * @param executor runs the threads sending batches to the remote server; at most one thread per message type
+     *        is used at any time
+     */
+    public static BatchPaxosPeer create(BatchPaxosService remote, Executor executor) {
+        return new BatchPaxosPeer(
+                new PaxosRequestBatcher<>(remote::prepare, executor, MAX_BATCH_SIZE, RESPONSE_TIMEOUT_MILLIS),
+                new PaxosRequestBatcher<>(remote::accept, executor, MAX_BATCH_SIZE, RESPONSE_TIMEOUT_MILLIS),
+                new PaxosRequestBatcher<>(
+                        requests -> {
+                            remote.learn(requests);
+                            return Collections.<Void>nCopies(requests.size(), null);
+                        },
+                        executor,
+                        MAX_BATCH_SIZE,
+                        RESPONSE_TIMEOUT_MILLIS));
+    }
+
+    public PaxosAcceptor acceptor(String client, PaxosAcceptor unbatchedAcceptor) {
+        return new BatchingPaxosAcceptor(client, unbatchedAcceptor);
+    }
+
+    public PaxosLearner learner(String client, PaxosLearner unbatchedLearner) {
+        return new BatchingPaxosLearner(client, unbatchedLearner);
+    }
+
+    private final class BatchingPaxosAcceptor implements PaxosAcceptor {
+        private final String client;
+        private final PaxosAcceptor delegate;
+
+        BatchingPaxosAcceptor(String client, PaxosAcceptor delegate) {
+            this.client = client;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PaxosPromise prepare(long seq, PaxosProposalId pid) {
+            return prepareBatcher.apply(ClientPrepareRequest.of(client, seq, pid));
+        }
+
+        @Override
+        public BooleanPaxosResponse accept(long seq, PaxosProposal proposal) {
+            return acceptBatcher.apply(ClientAcceptRequest.of(client, seq, proposal));
+        }
+
+        @Override
+        public long getLatestSequencePreparedOrAccepted() {
+            return delegate.getLatestSequencePreparedOrAccepted();
+        }
+    }
+
+    private final class BatchingPaxosLearner implements PaxosLearner {
+        private final String client;
+        private final PaxosLearner delegate;
+
+        BatchingPaxosLearner(String client, PaxosLearner delegate) {
+            this.client = client;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void learn(long seq, PaxosValue val) {
+            learnBatcher.apply(ClientLearnRequest.of(client, seq, val));
+        }
+
+        @Nullable
+        @Override
+        public PaxosValue getLearnedValue(long seq) {
+            return delegate.getLearnedValue(seq);
+        }
+
+        @Nullable
+        @Override
+        public PaxosValue getGreatestLearnedValue() {
+            return delegate.getGreatestLearnedValue();
+        }
+
+        @Override
+        public Collection<PaxosValue> getLearnedValuesSince(long seq) {
+            return delegate.getLearnedValuesSince(seq);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Futures;
+import com.palantir.paxos.BooleanPaxosResponse;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosPromise;
+
+/**
+ * Serves {@link BatchPaxosService} requests by dispatching each message to the acceptor or learner registered for
+ * its client in a {@link PaxosResource}. Messages in a batch are handled concurrently on the given executor, so that
+ * the paxos logs of different clients are written in parallel.
+ */
+public final class BatchPaxosResource implements BatchPaxosService {
+    private static final Logger log = LoggerFactory.getLogger(BatchPaxosResource.class);
+
+    private final PaxosResource paxosResource;
+    private final ExecutorService executor;
+
+    public BatchPaxosResource(PaxosResource paxosResource, ExecutorService executor) {
+        this.paxosResource = paxosResource;
+        this.executor = executor;
+    }
+
+    @Override
+    public List<PaxosPromise> prepare(List<ClientPrepareRequest> requests) {
+        return handleConcurrently(requests, this::prepare);
+    }
+
+    private PaxosPromise prepare(ClientPrepareRequest request) {
+        PaxosAcceptor acceptor = paxosResource.getPaxosAcceptor(request.getClient());
+        if (acceptor == null) {
+            log.warn("Rejecting a prepare request for unknown client {}", request.getClient());
+            return PaxosPromise.reject(request.getProposalId());
+        }
+        try {
+            return acceptor.prepare(request.getSeq(), request.getProposalId());
+        } catch (RuntimeException e) {
+            log.warn("Failed to prepare round {} for client {}", request.getSeq(), request.getClient(), e);
+            return PaxosPromise.reject(request.getProposalId());
+        }
+    }
+
+    @Override
+    public List<BooleanPaxosResponse> accept(List<ClientAcceptRequest> requests) {
+        return handleConcurrently(requests, this::accept);
+    }
+
+    private BooleanPaxosResponse accept(ClientAcceptRequest request) {
+        PaxosAcceptor acceptor = paxosResource.getPaxosAcceptor(request.getClient());
+        if (acceptor == null) {
+            log.warn("Rejecting an accept request for unknown client {}", request.getClient());
+            return new BooleanPaxosResponse(false);
+        }
+        try {
+            return acceptor.accept(request.getSeq(), request.getProposal());
+        } catch (RuntimeException e) {
+            log.warn("Failed to accept round {} for client {}", request.getSeq(), request.getClient(), e);
+            return new BooleanPaxosResponse(false);
+        }
+    }
+
+    @Override
+    public void learn(List<ClientLearnRequest> requests) {
+        handleConcurrently(requests, this::learn);
+    }
+
+    private Void learn(ClientLearnRequest request) {
+        PaxosLearner learner = paxosResource.getPaxosLearner(request.getClient());
+        if (learner == null) {
+            log.warn("Ignoring a learn request for unknown client {}", request.getClient());
+            return null;
+        }
+        try {
+            learner.learn(request.getSeq(), request.getValue());
+        } catch (RuntimeException e) {
+            log.warn("Failed to learn round {} for client {}", request.getSeq(), request.getClient(), e);
+        }
+        return null;
+    }
+
+    private <RequestT, ResponseT> List<ResponseT> handleConcurrently(
+            List<RequestT> requests,
+            Function<RequestT, ResponseT> handler) {
+        List<Future<ResponseT>> responses = requests.stream()
+                .map(request -> executor.submit(() -> handler.apply(request)))
+                .collect(Collectors.toList());
+        return responses.stream()
+                .map(Futures::getUnchecked)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import java.util.List;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.palantir.paxos.BooleanPaxosResponse;
+import com.palantir.paxos.PaxosPromise;
+
+/**
+ * Carries the paxos messages of many clients' timestamp bound stores in a single request, so that the number of
+ * requests between TimeLock servers does not grow with the number of clients.
+ * <p>
+ * Responses are returned in the same order as the requests. A request for a client that the receiving server does
+ * not know about, or that fails on the receiving server, is rejected rather than failing the whole batch.
+ */
+@Path("/" + PaxosTimeLockConstants.INTERNAL_NAMESPACE
+        + "/" + PaxosTimeLockConstants.BATCH_PAXOS_NAMESPACE)
+public interface BatchPaxosService {
+    @POST
+    @Path("acceptor/prepare")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    List<PaxosPromise> prepare(List<ClientPrepareRequest> requests);
+
+    @POST
+    @Path("acceptor/accept")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    List<BooleanPaxosResponse> accept(List<ClientAcceptRequest> requests);
+
+    @POST
+    @Path("learner/learn")
+    @Consumes(MediaType.APPLICATION_JSON)
+    void learn(List<ClientLearnRequest> requests);
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Coalesces requests made concurrently by many threads into batches, and sends the batches one at a time.
+ * <p>
+ * Requests that arrive while no batch is in flight are sent straight away; requests that arrive while a batch is in
+ * flight are queued and sent together as soon as it completes. Batching therefore adds no latency to an idle
+ * batcher, and the number of outstanding requests to the remote is always at most one.
+ * <p>
+ * Callers wait for their response for at most the given timeout, so that a batch stuck on an unresponsive remote
+ * fails the requests waiting on it, as no response from that remote, instead of blocking them indefinitely.
+ */
+final class PaxosRequestBatcher<RequestT, ResponseT> {
+    private final Function<List<RequestT>, List<ResponseT>> sender;
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final long responseTimeoutMillis;
+
+    private final Queue<PendingRequest<RequestT, ResponseT>> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushInProgress = new AtomicBoolean(false);
+
+    /**
+     * Creates a batcher that sends batches of requests with the given sender.
+     *
+     * @param sender sends a batch of requests, returning one response per request in the same order
+     * @param executor runs the thread that sends batches while any requests are pending
+     * @param maxBatchSize the maximum number of requests to send in one batch
+     * @param responseTimeoutMillis how long to wait for the response to a request before failing it
+     */
+    PaxosRequestBatcher(
+            Function<List<RequestT>, List<ResponseT>> sender,
+            Executor executor,
+            int maxBatchSize,
+            long responseTimeoutMillis) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive; found '%s'.", maxBatchSize);
+        Preconditions.checkArgument(responseTimeoutMillis > 0,
+                "responseTimeoutMillis must be positive; found '%s'.", responseTimeoutMillis);
+        this.sender = sender;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
+    /**
+     * Sends the given request as part of the next batch, and blocks until its response is available or the response
+     * timeout has passed.
+     */
+    ResponseT apply(RequestT request) {
+        PendingRequest<RequestT, ResponseT> pendingRequest = new PendingRequest<>(request, new CompletableFuture<>());
+        pendingRequests.add(pendingRequest);
+        scheduleFlushIfNeeded();
+        try {
+            return pendingRequest.getResponse().get(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            pendingRequests.remove(pendingRequest);
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (TimeoutException e) {
+            // Don't send the request later if it is still queued behind the stuck batch.
+            pendingRequests.remove(pendingRequest);
+            throw Throwables.rewrapAndThrowUncheckedException(String.format(
+                    "Timed out after %s ms waiting for the response to a batched paxos request.",
+                    responseTimeoutMillis), e);
+        } catch (ExecutionException e) {
+            throw Throwables.throwUncheckedException(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    int getNumPendingRequests() {
+        return pendingRequests.size();
+    }
+
+    private void scheduleFlushIfNeeded() {
+        if (pendingRequests.isEmpty() || !flushInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            flushInProgress.set(false);
+            failAll(takeBatch(Integer.MAX_VALUE), e);
+        }
+    }
+
+    private void flush() {
+        try {
+            List<PendingRequest<RequestT, ResponseT>> batch = takeBatch(maxBatchSize);
+            while (!batch.isEmpty()) {
+                send(batch);
+                batch = takeBatch(maxBatchSize);
+            }
+        } finally {
+            flushInProgress.set(false);
+            // A request may have been queued after the last batch was taken but before the flag was cleared.
+            scheduleFlushIfNeeded();
+        }
+    }
+
+    private void send(List<PendingRequest<RequestT, ResponseT>> batch) {
+        List<ResponseT> responses;
+        try {
+            responses = sender.apply(Lists.transform(batch, PendingRequest::getRequest));
+            Preconditions.checkState(responses.size() == batch.size(),
+                    "Expected %s responses to a batch of paxos requests, but received %s.",
+                    batch.size(), responses.size());
+        } catch (Throwable t) {
+            failAll(batch, t);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).getResponse().complete(responses.get(i));
+        }
+    }
+
+    private List<PendingRequest<RequestT, ResponseT>> takeBatch(int maxSize) {
+        List<PendingRequest<RequestT, ResponseT>> batch = Lists.newArrayList();
+        while (batch.size() < maxSize) {
+            PendingRequest<RequestT, ResponseT> request = pendingRequests.poll();
+            if (request == null) {
+                break;
+            }
+            batch.add(request);
+        }
+        return batch;
+    }
+
+    private static <RequestT, ResponseT> void failAll(
+            List<PendingRequest<RequestT, ResponseT>> batch,
+            Throwable cause) {
+        for (PendingRequest<RequestT, ResponseT> request : batch) {
+            request.getResponse().completeExceptionally(cause);
+        }
+    }
+
+    private static final class PendingRequest<RequestT, ResponseT> {
+        private final RequestT request;
+        private final CompletableFuture<ResponseT> response;
+
+        PendingRequest(RequestT request, CompletableFuture<ResponseT> response) {
+            this.request = request;
+            this.response = response;
+        }
+
+        RequestT getRequest() {
+            return request;
+        }
+
+        CompletableFuture<ResponseT> getResponse() {
+            return response;
+        }
+    }
+}
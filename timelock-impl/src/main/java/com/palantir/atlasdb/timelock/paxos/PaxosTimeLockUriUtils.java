@@ -37,6 +37,18 @@ public final class PaxosTimeLockUriUtils {
                 client);
     }
 
+    public static String getClientPaxosUri(String address, String client) {
+        return getNamespacedUri(
+                address,
+                PaxosTimeLockConstants.INTERNAL_NAMESPACE,
+                PaxosTimeLockConstants.CLIENT_PAXOS_NAMESPACE,
+                client);
+    }
+
+    private static String getNamespacedUri(String address, String... suffixes) {
+        return String.join("/", address, String.join("/", suffixes));
+    }
+
     private static Set<String> getNamespacedUris(Set<String> addresses, String... suffixes) {
         String joinedSuffix = String.join("/", suffixes);
         return addresses.stream()
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.container.AsyncResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.timelock.lock.AsyncResult;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.v2.LockRequest;
+import com.palantir.lock.v2.LockResponse;
+import com.palantir.lock.v2.LockToken;
+
+public class AsyncTimelockResourceTest {
+
+    private static final LockToken TOKEN = LockToken.of(UUID.randomUUID());
+    private static final List<LockRequest> REQUESTS = ImmutableList.of(
+            LockRequest.of(ImmutableSet.of(StringLockDescriptor.of("a")), 10_000),
+            LockRequest.of(ImmutableSet.of(StringLockDescriptor.of("b")), 10_000),
+            LockRequest.of(ImmutableSet.of(StringLockDescriptor.of("c")), 10_000));
+
+    private final AsyncTimelockService timelock = mock(AsyncTimelockService.class);
+    private final ScheduledExecutorService leaseRefreshExecutor = mock(ScheduledExecutorService.class);
+    private final ScheduledFuture<?> leaseRefresh = mock(ScheduledFuture.class);
+    private final AsyncTimelockResource resource = new AsyncTimelockResource(timelock, leaseRefreshExecutor);
+    private final AsyncResponse response = mock(AsyncResponse.class);
+
+    private final AsyncResult<LockToken> granted = new AsyncResult<>();
+    private final AsyncResult<LockToken> timedOut = new AsyncResult<>();
+    private final AsyncResult<LockToken> failed = new AsyncResult<>();
+    private final AsyncResult<LockToken> grantedLater = new AsyncResult<>();
+
+    @Before
+    public void setUp() {
+        doReturn(leaseRefresh).when(leaseRefreshExecutor)
+                .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void resumesWithEveryOutcomeOnceAllRequestsComplete() {
+        when(timelock.lockBatch(REQUESTS)).thenReturn(ImmutableList.of(granted, timedOut, grantedLater));
+        resource.lockBatch(response, REQUESTS);
+
+        granted.complete(TOKEN);
+        timedOut.timeout();
+        verify(response, never()).resume(any(Object.class));
+
+        grantedLater.complete(TOKEN);
+        verify(response).resume(ImmutableList.of(
+                LockResponse.successful(TOKEN),
+                LockResponse.timedOut(),
+                LockResponse.successful(TOKEN)));
+    }
+
+    @Test
+    public void unlocksGrantedLocksIfAnyRequestFails() {
+        RuntimeException error = new RuntimeException("test");
+        when(timelock.lockBatch(REQUESTS)).thenReturn(ImmutableList.of(granted, timedOut, failed));
+        resource.lockBatch(response, REQUESTS);
+
+        granted.complete(TOKEN);
+        timedOut.timeout();
+        failed.fail(error);
+
+        verify(timelock).unlock(ImmutableSet.of(TOKEN));
+        verify(response).resume(error);
+    }
+
+    @Test
+    public void keepsGrantedLocksAliveWhileAContendedRequestInTheBatchWaits() {
+        LockToken otherToken = LockToken.of(UUID.randomUUID());
+        AsyncResult<LockToken> grantedSecond = new AsyncResult<>();
+        AsyncResult<LockToken> contended = new AsyncResult<>();
+        when(timelock.lockBatch(REQUESTS)).thenReturn(ImmutableList.of(granted, grantedSecond, contended));
+        resource.lockBatch(response, REQUESTS);
+        Runnable refreshTask = captureLeaseRefreshTask();
+
+        refreshTask.run();
+        verify(timelock, never()).refreshLockLeases(any());
+
+        granted.complete(TOKEN);
+        grantedSecond.complete(otherToken);
+        refreshTask.run();
+        refreshTask.run();
+        verify(timelock, times(2)).refreshLockLeases(ImmutableSet.of(TOKEN, otherToken));
+        verify(leaseRefresh, never()).cancel(any(Boolean.class));
+
+        contended.complete(LockToken.of(UUID.randomUUID()));
+        verify(leaseRefresh).cancel(false);
+        verify(response).resume(any(List.class));
+    }
+
+    @Test
+    public void resumesImmediatelyForAnEmptyBatch() {
+        when(timelock.lockBatch(ImmutableList.of())).thenReturn(ImmutableList.of());
+        resource.lockBatch(response, ImmutableList.of());
+
+        verify(response).resume(ImmutableList.of());
+    }
+
+    private Runnable captureLeaseRefreshTask() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(leaseRefreshExecutor).scheduleWithFixedDelay(
+                task.capture(),
+                eq(AsyncTimelockResource.BATCH_LEASE_REFRESH_INTERVAL_MILLIS),
+                eq(AsyncTimelockResource.BATCH_LEASE_REFRESH_INTERVAL_MILLIS),
+                eq(TimeUnit.MILLISECONDS));
+        return task.getValue();
+    }
+}
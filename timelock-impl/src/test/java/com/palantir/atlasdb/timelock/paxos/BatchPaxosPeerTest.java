@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosProposal;
+import com.palantir.paxos.PaxosProposalId;
+import com.palantir.paxos.PaxosProposer;
+import com.palantir.paxos.PaxosProposerImpl;
+import com.palantir.paxos.PaxosValue;
+
+public class BatchPaxosPeerTest {
+    private static final int NUM_NODES = 3;
+    private static final int QUORUM_SIZE = 2;
+    private static final List<String> CLIENTS = ImmutableList.of("alice", "bob", "carol");
+    private static final String UNKNOWN_CLIENT = "dave";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private final List<PaxosResource> resources = Lists.newArrayList();
+    private final List<BatchPaxosPeer> peers = Lists.newArrayList();
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < NUM_NODES; i++) {
+            PaxosResource resource = PaxosResource.create(temporaryFolder.newFolder().getPath());
+            CLIENTS.forEach(resource::addInstrumentedClient);
+            resources.add(resource);
+            peers.add(BatchPaxosPeer.create(new BatchPaxosResource(resource, executor), executor));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentRoundsForManyClientsReachConsensus() throws Exception {
+        List<Future<byte[]>> proposals = Lists.newArrayList();
+        for (String client : CLIENTS) {
+            PaxosProposer proposer = createProposer(client);
+            for (long seq = 0; seq < 5; seq++) {
+                long round = seq;
+                proposals.add(executor.submit(() -> proposer.propose(round, PtBytes.toBytes(round))));
+            }
+        }
+        for (Future<byte[]> proposal : proposals) {
+            proposal.get(10, TimeUnit.SECONDS);
+        }
+
+        for (String client : CLIENTS) {
+            for (PaxosResource resource : resources) {
+                PaxosLearner learner = resource.getPaxosLearner(client);
+                for (long seq = 0; seq < 5; seq++) {
+                    awaitLearned(learner, seq);
+                    assertThat(PtBytes.toLong(learner.getLearnedValue(seq).getData())).isEqualTo(seq);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roundsForOneClientDoNotAffectAnother() throws Exception {
+        createProposer(CLIENTS.get(0)).propose(0, PtBytes.toBytes(42L));
+
+        for (PaxosResource resource : resources) {
+            assertThat(resource.getPaxosAcceptor(CLIENTS.get(1)).getLatestSequencePreparedOrAccepted())
+                    .isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        }
+    }
+
+    @Test
+    public void rejectsRequestsForUnknownClients() {
+        BatchPaxosService service = new BatchPaxosResource(resources.get(0), executor);
+        PaxosProposalId proposalId = new PaxosProposalId(1L, UUID.randomUUID().toString());
+        PaxosValue value = new PaxosValue(proposalId.getProposerUUID(), 0, PtBytes.toBytes(1L));
+
+        assertThat(service.prepare(ImmutableList.of(ClientPrepareRequest.of(UNKNOWN_CLIENT, 0, proposalId))))
+                .extracting(promise -> promise.isSuccessful())
+                .containsExactly(false);
+        assertThat(service.accept(ImmutableList.of(
+                ClientAcceptRequest.of(UNKNOWN_CLIENT, 0, new PaxosProposal(proposalId, value)))))
+                .extracting(response -> response.isSuccessful())
+                .containsExactly(false);
+    }
+
+    private PaxosProposer createProposer(String client) {
+        List<PaxosAcceptor> acceptors = Lists.newArrayList();
+        List<PaxosLearner> learners = Lists.newArrayList();
+        for (int i = 1; i < NUM_NODES; i++) {
+            acceptors.add(peers.get(i).acceptor(client, resources.get(i).getPaxosAcceptor(client)));
+            learners.add(peers.get(i).learner(client, resources.get(i).getPaxosLearner(client)));
+        }
+        acceptors.add(resources.get(0).getPaxosAcceptor(client));
+        PaxosLearner localLearner = resources.get(0).getPaxosLearner(client);
+        learners.add(localLearner);
+        return PaxosProposerImpl.newProposer(
+                localLearner,
+                ImmutableList.copyOf(acceptors),
+                ImmutableList.copyOf(learners),
+                QUORUM_SIZE,
+                UUID.randomUUID(),
+                executor);
+    }
+
+    private static void awaitLearned(PaxosLearner learner, long seq) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (learner.getLearnedValue(seq) == null) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+        }
+    }
+}
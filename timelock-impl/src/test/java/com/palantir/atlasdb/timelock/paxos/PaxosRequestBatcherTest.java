@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class PaxosRequestBatcherTest {
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private final List<List<Integer>> sentBatches = Lists.newCopyOnWriteArrayList();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void returnsResponseToEachRequest() {
+        PaxosRequestBatcher<Integer, String> batcher = new PaxosRequestBatcher<>(
+                this::recordAndEcho, executor, 10, TIMEOUT_MILLIS);
+
+        assertThat(batcher.apply(1)).isEqualTo("1");
+        assertThat(batcher.apply(2)).isEqualTo("2");
+        assertThat(sentBatches).containsExactly(ImmutableList.of(1), ImmutableList.of(2));
+    }
+
+    @Test
+    public void batchesRequestsMadeWhileABatchIsInFlight() throws Exception {
+        CountDownLatch firstBatchSent = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        PaxosRequestBatcher<Integer, String> batcher = new PaxosRequestBatcher<>(
+                requests -> {
+                    if (sentBatches.isEmpty()) {
+                        firstBatchSent.countDown();
+                        Uninterruptibles.awaitUninterruptibly(releaseFirstBatch);
+                    }
+                    return recordAndEcho(requests);
+                },
+                executor,
+                10,
+                TIMEOUT_MILLIS);
+
+        Future<String> first = executor.submit(() -> batcher.apply(0));
+        assertThat(firstBatchSent.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Future<String>> queued = Lists.newArrayList();
+        for (int i = 1; i <= 5; i++) {
+            int request = i;
+            queued.add(executor.submit(() -> batcher.apply(request)));
+        }
+        waitUntilQueued(batcher, queued);
+        releaseFirstBatch.countDown();
+
+        assertThat(first.get()).isEqualTo("0");
+        assertThat(getAll(queued)).containsExactly("1", "2", "3", "4", "5");
+        assertThat(sentBatches).hasSize(2);
+        assertThat(sentBatches.get(1)).containsExactlyInAnyOrder(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void splitsBatchesLargerThanMaxBatchSize() throws Exception {
+        CountDownLatch firstBatchSent = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        PaxosRequestBatcher<Integer, String> batcher = new PaxosRequestBatcher<>(
+                requests -> {
+                    if (sentBatches.isEmpty()) {
+                        firstBatchSent.countDown();
+                        Uninterruptibles.awaitUninterruptibly(releaseFirstBatch);
+                    }
+                    return recordAndEcho(requests);
+                },
+                executor,
+                2,
+                TIMEOUT_MILLIS);
+
+        Future<String> first = executor.submit(() -> batcher.apply(0));
+        assertThat(firstBatchSent.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Future<String>> queued = Lists.newArrayList();
+        for (int i = 1; i <= 5; i++) {
+            int request = i;
+            queued.add(executor.submit(() -> batcher.apply(request)));
+        }
+        waitUntilQueued(batcher, queued);
+        releaseFirstBatch.countDown();
+
+        first.get();
+        getAll(queued);
+        assertThat(sentBatches.stream().mapToInt(List::size).max().getAsInt()).isLessThanOrEqualTo(2);
+        assertThat(sentBatches.stream().mapToInt(List::size).sum()).isEqualTo(6);
+    }
+
+    @Test
+    public void propagatesFailureToAllRequestsInBatch() {
+        RuntimeException failure = new IllegalStateException("remote unavailable");
+        PaxosRequestBatcher<Integer, String> batcher = new PaxosRequestBatcher<>(
+                requests -> {
+                    throw failure;
+                },
+                executor,
+                10,
+                TIMEOUT_MILLIS);
+
+        assertThatThrownBy(() -> batcher.apply(1)).isSameAs(failure);
+        assertThatThrownBy(() -> batcher.apply(2)).isSameAs(failure);
+    }
+
+    @Test
+    public void failsIfResponseCountDoesNotMatch() {
+        PaxosRequestBatcher<Integer, String> batcher = new PaxosRequestBatcher<>(
+                requests -> ImmutableList.of(),
+                executor,
+                10,
+                TIMEOUT_MILLIS);
+
+        assertThatThrownBy(() -> batcher.apply(1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void requestsWaitingOnAStuckBatchTimeOut() throws Exception {
+        CountDownLatch releaseStuckBatch = new CountDownLatch(1);
+        PaxosRequestBatcher<Integer, String> batcher = new PaxosRequestBatcher<>(
+                requests -> {
+                    if (sentBatches.isEmpty()) {
+                        sentBatches.add(ImmutableList.copyOf(requests));
+                        Uninterruptibles.awaitUninterruptibly(releaseStuckBatch);
+                        return ImmutableList.of("late");
+                    }
+                    return recordAndEcho(requests);
+                },
+                executor,
+                10,
+                100);
+
+        assertThatThrownBy(() -> batcher.apply(1)).hasCauseInstanceOf(TimeoutException.class);
+        assertThatThrownBy(() -> batcher.apply(2)).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(batcher.getNumPendingRequests()).isZero();
+
+        releaseStuckBatch.countDown();
+        assertThat(batcher.apply(3)).isEqualTo("3");
+        assertThat(sentBatches).containsExactly(ImmutableList.of(1), ImmutableList.of(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveTimeout() {
+        new PaxosRequestBatcher<>(this::recordAndEcho, executor, 10, 0);
+    }
+
+    private List<String> recordAndEcho(List<Integer> requests) {
+        sentBatches.add(ImmutableList.copyOf(requests));
+        return requests.stream().map(String::valueOf).collect(Collectors.toList());
+    }
+
+    private static void waitUntilQueued(PaxosRequestBatcher<?, ?> batcher, List<Future<String>> requests) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (batcher.getNumPendingRequests() < requests.size()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static List<String> getAll(List<Future<String>> futures) throws Exception {
+        List<String> results = Lists.newArrayList();
+        for (Future<String> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+}
@@ -57,6 +57,29 @@ public abstract class PaxosConfiguration implements TimeLockAlgorithmConfigurati
         return 5000L;
     }
 
+    /**
+     * Whether the paxos messages of all clients' timestamp bound stores should be sent to other servers in shared
+     * batches, with all clients' paxos rounds running on one bounded executor. This must only be enabled once all
+     * servers in the cluster serve the batch paxos endpoint.
+     */
+    @Value.Default
+    public boolean useBatchPaxos() {
+        return false;
+    }
+
+    /**
+     * See {@link com.palantir.atlasdb.config.LeaderConfig#leaderLeaseDurationMs()}.
+     */
+    @Value.Default
+    public long leaderLeaseDurationMs() {
+        return 0L;
+    }
+
+    @Value.Default
+    public long leaderLeaseClockDriftMs() {
+        return 100L;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkArgument(paxosDataDir().exists() || paxosDataDir().mkdirs(),
@@ -67,6 +90,10 @@ public abstract class PaxosConfiguration implements TimeLockAlgorithmConfigurati
                 "Maximum wait before proposal must be positive; found '%s'.", maximumWaitBeforeProposalMs());
         Preconditions.checkArgument(leaderPingResponseWaitMs() > 0,
                 "Leader ping response wait interval must be positive; found '%s'.", leaderPingResponseWaitMs());
+        Preconditions.checkArgument(leaderLeaseDurationMs() >= 0,
+                "Leader lease duration must not be negative; found '%s'.", leaderLeaseDurationMs());
+        Preconditions.checkArgument(leaderLeaseClockDriftMs() >= 0,
+                "Leader lease clock drift must not be negative; found '%s'.", leaderLeaseClockDriftMs());
     }
 
     @Override
@@ -18,13 +18,15 @@ package com.palantir.atlasdb.timelock.paxos;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLSocketFactory;
@@ -37,6 +39,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.palantir.atlasdb.config.ImmutableLeaderConfig;
@@ -44,6 +47,7 @@ import com.palantir.atlasdb.config.LeaderConfig;
 import com.palantir.atlasdb.factory.ImmutableRemotePaxosServerSpec;
 import com.palantir.atlasdb.factory.Leaders;
 import com.palantir.atlasdb.factory.ServiceCreator;
+import com.palantir.atlasdb.http.AtlasDbHttpClients;
 import com.palantir.atlasdb.http.BlockingTimeoutExceptionMapper;
 import com.palantir.atlasdb.http.NotCurrentLeaderExceptionMapper;
 import com.palantir.atlasdb.timelock.AsyncTimelockResource;
@@ -57,13 +61,15 @@ import com.palantir.atlasdb.timelock.clock.ClockSkewMonitor;
 import com.palantir.atlasdb.timelock.config.AsyncLockConfiguration;
 import com.palantir.atlasdb.timelock.config.PaxosConfiguration;
 import com.palantir.atlasdb.timelock.config.TimeLockServerConfiguration;
-import com.palantir.atlasdb.timelock.lock.AsyncLockService;
 import com.palantir.atlasdb.timelock.lock.BlockingTimeLimitedLockService;
 import com.palantir.atlasdb.timelock.lock.BlockingTimeouts;
 import com.palantir.atlasdb.timelock.lock.LockLog;
+import com.palantir.atlasdb.timelock.lock.LockServiceShards;
 import com.palantir.atlasdb.timelock.lock.NonTransactionalLockService;
 import com.palantir.atlasdb.timelock.util.AsyncOrLegacyTimelockService;
 import com.palantir.atlasdb.util.AtlasDbMetrics;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.PingableLeader;
 import com.palantir.leader.proxy.AwaitingLeadershipProxy;
@@ -79,7 +85,7 @@ import com.palantir.paxos.PaxosAcceptor;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosProposer;
 import com.palantir.paxos.PaxosProposerImpl;
-import com.palantir.remoting2.config.ssl.SslSocketFactories;
+import com.palantir.remoting2.tracing.Tracers;
 import com.palantir.timestamp.PersistentTimestampService;
 import com.palantir.timestamp.TimestampBoundStore;
 
@@ -88,6 +94,12 @@ import io.dropwizard.setup.Environment;
 public class PaxosTimeLockServer implements TimeLockServer {
     private static final Logger log = LoggerFactory.getLogger(PaxosTimeLockServer.class);
 
+    private static final int BATCH_PAXOS_EXECUTOR_THREADS = 64;
+    // Paxos rounds queued beyond these limits are rejected rather than left waiting behind an ever longer backlog.
+    // The server queue holds several full batches, as each message of a batch is handled as a separate task.
+    private static final int SHARED_PAXOS_EXECUTOR_QUEUE_SIZE = 1_000;
+    private static final int BATCH_PAXOS_SERVER_EXECUTOR_QUEUE_SIZE = 10 * BatchPaxosPeer.MAX_BATCH_SIZE;
+
     private final PaxosConfiguration paxosConfiguration;
     private final Environment environment;
 
@@ -98,6 +110,12 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private Semaphore sharedThreadPool = new Semaphore(-1);
     private TimeLockServerConfiguration timeLockServerConfiguration;
 
+    private final Map<String, BatchPaxosPeer> batchPaxosPeers = Maps.newConcurrentMap();
+    private final LockServiceShards lockServiceShards =
+            LockServiceShards.create(Runtime.getRuntime().availableProcessors());
+    private ExecutorService sharedPaxosExecutor;
+    private ExecutorService batchPaxosSenderExecutor;
+
     public PaxosTimeLockServer(PaxosConfiguration configuration, Environment environment) {
         this.paxosConfiguration = configuration;
         this.environment = environment;
@@ -130,6 +148,27 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private void registerPaxosResource() {
         paxosResource = PaxosResource.create(paxosConfiguration.paxosDataDir().toString());
         environment.jersey().register(paxosResource);
+        // Always served, so that batching can be turned on once every server in the cluster supports it.
+        environment.jersey().register(new BatchPaxosResource(paxosResource,
+                Tracers.wrap(PTExecutors.newThreadPoolExecutor(
+                        BATCH_PAXOS_EXECUTOR_THREADS,
+                        BATCH_PAXOS_EXECUTOR_THREADS,
+                        1,
+                        TimeUnit.MINUTES,
+                        new LinkedBlockingQueue<>(BATCH_PAXOS_SERVER_EXECUTOR_QUEUE_SIZE),
+                        new NamedThreadFactory("atlas-batch-paxos-server", true)))));
+
+        if (paxosConfiguration.useBatchPaxos()) {
+            sharedPaxosExecutor = Tracers.wrap(PTExecutors.newThreadPoolExecutor(
+                    BATCH_PAXOS_EXECUTOR_THREADS,
+                    BATCH_PAXOS_EXECUTOR_THREADS,
+                    1,
+                    TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<>(SHARED_PAXOS_EXECUTOR_QUEUE_SIZE),
+                    new NamedThreadFactory("atlas-consensus-shared", true)));
+            batchPaxosSenderExecutor = Tracers.wrap(PTExecutors.newCachedThreadPool(
+                    new NamedThreadFactory("atlas-batch-paxos", true)));
+        }
     }
 
     private void registerLeaderElectionService(TimeLockServerConfiguration configuration) {
@@ -182,6 +221,8 @@ public class PaxosTimeLockServer implements TimeLockServer {
                     .quorumSize(getQuorumSize(configuration.cluster().servers()))
                     .leaderPingResponseWaitMs(paxosConfiguration.leaderPingResponseWaitMs())
                     .randomWaitBeforeProposingLeadershipMs(paxosConfiguration.maximumWaitBeforeProposalMs())
+                    .leaderLeaseDurationMs(paxosConfiguration.leaderLeaseDurationMs())
+                    .leaderLeaseClockDriftMs(paxosConfiguration.leaderLeaseClockDriftMs())
                     .build();
     }
 
@@ -192,7 +233,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
 
     private static Optional<SSLSocketFactory> constructOptionalSslSocketFactory(
             PaxosConfiguration configuration) {
-        return configuration.sslConfiguration().map(SslSocketFactories::createSslSocketFactory);
+        return ServiceCreator.createSslSocketFactory(configuration.sslConfiguration());
     }
 
     @Override
@@ -224,7 +265,7 @@ public class PaxosTimeLockServer implements TimeLockServer {
                 timestampService,
                 lockService,
                 AsyncOrLegacyTimelockService.createFromAsyncTimelock(
-                        new AsyncTimelockResource(asyncTimelockService)),
+                        new AsyncTimelockResource(asyncTimelockService, lockServiceShards.getExecutorFor(client))),
                 timestampService);
     }
 
@@ -241,18 +282,8 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private AsyncTimelockService createRawAsyncTimelockService(
             String client,
             Supplier<ManagedTimestampService> timestampServiceSupplier) {
-        ScheduledExecutorService reaperExecutor = Executors.newSingleThreadScheduledExecutor(
-                new ThreadFactoryBuilder()
-                        .setNameFormat("async-lock-reaper-" + client + "-%d")
-                        .setDaemon(true)
-                        .build());
-        ScheduledExecutorService timeoutExecutor = Executors.newSingleThreadScheduledExecutor(
-                new ThreadFactoryBuilder()
-                        .setNameFormat("async-lock-timeouts-" + client + "-%d")
-                        .setDaemon(true)
-                        .build());
         return new AsyncTimelockServiceImpl(
-                AsyncLockService.createDefault(reaperExecutor, timeoutExecutor),
+                lockServiceShards.createLockService(client),
                 timestampServiceSupplier.get());
     }
 
@@ -343,6 +374,10 @@ public class PaxosTimeLockServer implements TimeLockServer {
     private Supplier<ManagedTimestampService> createRawPaxosBackedTimestampServiceSupplier(String client) {
         paxosResource.addInstrumentedClient(client);
 
+        if (paxosConfiguration.useBatchPaxos()) {
+            return createRawBatchPaxosBackedTimestampServiceSupplier(client);
+        }
+
         ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
                 .setNameFormat("atlas-consensus-" + client + "-%d")
                 .setDaemon(true)
@@ -364,7 +399,74 @@ public class PaxosTimeLockServer implements TimeLockServer {
                 PaxosLearner.class,
                 "timestamp-bound-store." + client);
 
-        PaxosProposer proposer = instrument(PaxosProposer.class,
+        PaxosProposer proposer = createPaxosProposer(client, ourLearner, acceptors, learners, executor);
+
+        PaxosSynchronizer.synchronizeLearner(ourLearner, learners);
+
+        return () -> createManagedPaxosTimestampService(proposer, client, acceptors, learners,
+                Tracers.wrap(PTExecutors.newCachedThreadPool(PTExecutors.newNamedThreadFactory(true))));
+    }
+
+    /**
+     * Creates a timestamp service whose paxos messages are sent to other servers together with those of all other
+     * clients, and whose paxos rounds run on an executor shared by all clients.
+     */
+    private Supplier<ManagedTimestampService> createRawBatchPaxosBackedTimestampServiceSupplier(String client) {
+        List<PaxosAcceptor> acceptors = createBatchingProxyAndLocalList(
+                client,
+                paxosResource.getPaxosAcceptor(client),
+                PaxosAcceptor.class,
+                BatchPaxosPeer::acceptor);
+
+        PaxosLearner ourLearner = paxosResource.getPaxosLearner(client);
+        List<PaxosLearner> learners = createBatchingProxyAndLocalList(
+                client,
+                ourLearner,
+                PaxosLearner.class,
+                BatchPaxosPeer::learner);
+
+        PaxosProposer proposer = createPaxosProposer(client, ourLearner, acceptors, learners, sharedPaxosExecutor);
+
+        PaxosSynchronizer.synchronizeLearner(ourLearner, learners);
+
+        return () -> createManagedPaxosTimestampService(proposer, client, acceptors, learners, sharedPaxosExecutor);
+    }
+
+    private <T> List<T> createBatchingProxyAndLocalList(
+            String client,
+            T localObject,
+            Class<T> clazz,
+            BatchingRemoteFactory<T> batchingRemoteFactory) {
+        String userAgent = "timestamp-bound-store." + client;
+        ImmutableList.Builder<T> remotes = ImmutableList.builder();
+        for (String server : remoteServers) {
+            T unbatchedRemote = AtlasDbHttpClients.createProxy(
+                    optionalSecurity,
+                    PaxosTimeLockUriUtils.getClientPaxosUri(server, client),
+                    clazz,
+                    userAgent);
+            remotes.add(batchingRemoteFactory.create(getBatchPaxosPeer(server), client, unbatchedRemote));
+        }
+        return remotes.add(localObject).build();
+    }
+
+    private BatchPaxosPeer getBatchPaxosPeer(String server) {
+        return batchPaxosPeers.computeIfAbsent(server, address -> BatchPaxosPeer.create(
+                AtlasDbHttpClients.createProxy(optionalSecurity, address, BatchPaxosService.class, "batch-paxos"),
+                batchPaxosSenderExecutor));
+    }
+
+    private interface BatchingRemoteFactory<T> {
+        T create(BatchPaxosPeer peer, String client, T unbatchedRemote);
+    }
+
+    private PaxosProposer createPaxosProposer(
+            String client,
+            PaxosLearner ourLearner,
+            List<PaxosAcceptor> acceptors,
+            List<PaxosLearner> learners,
+            ExecutorService executor) {
+        return instrument(PaxosProposer.class,
                 PaxosProposerImpl.newProposer(
                         ourLearner,
                         ImmutableList.copyOf(acceptors),
@@ -373,24 +475,22 @@ public class PaxosTimeLockServer implements TimeLockServer {
                         UUID.randomUUID(),
                         executor),
                 client);
-
-        PaxosSynchronizer.synchronizeLearner(ourLearner, learners);
-
-        return () -> createManagedPaxosTimestampService(proposer, client, acceptors, learners);
     }
 
     private ManagedTimestampService createManagedPaxosTimestampService(
             PaxosProposer proposer,
             String client,
             List<PaxosAcceptor> acceptors,
-            List<PaxosLearner> learners) {
+            List<PaxosLearner> learners,
+            ExecutorService executor) {
         TimestampBoundStore boundStore = instrument(TimestampBoundStore.class,
                 new PaxosTimestampBoundStore(
                         proposer,
                         paxosResource.getPaxosLearner(client),
                         ImmutableList.copyOf(acceptors),
                         ImmutableList.copyOf(learners),
-                        paxosConfiguration.maximumWaitBeforeProposalMs()),
+                        paxosConfiguration.maximumWaitBeforeProposalMs(),
+                        executor),
                 client);
         PersistentTimestampService persistentTimestampService = PersistentTimestampService.create(boundStore);
         return new DelegatingManagedTimestampService(persistentTimestampService, persistentTimestampService);
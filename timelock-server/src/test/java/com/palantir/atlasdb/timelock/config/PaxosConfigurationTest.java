@@ -116,4 +116,18 @@ public class PaxosConfigurationTest {
                 .leaderPingResponseWaitMs(NEGATIVE_LONG)
                 ::build).isInstanceOf(IllegalArgumentException.class);
     }
+
+    @Test
+    public void canSpecifyPositiveLeaderLeaseDuration() {
+        ImmutablePaxosConfiguration.builder()
+                .leaderLeaseDurationMs(POSITIVE_LONG)
+                .build();
+    }
+
+    @Test
+    public void throwOnNegativeLeaderLeaseDuration() {
+        assertThatThrownBy(ImmutablePaxosConfiguration.builder()
+                .leaderLeaseDurationMs(NEGATIVE_LONG)
+                ::build).isInstanceOf(IllegalArgumentException.class);
+    }
 }
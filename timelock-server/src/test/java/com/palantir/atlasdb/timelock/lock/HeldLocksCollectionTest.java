@@ -18,6 +18,7 @@ package com.palantir.atlasdb.timelock.lock;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -27,17 +28,30 @@ import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.palantir.common.time.Clock;
 import com.palantir.lock.v2.LockToken;
 
 public class HeldLocksCollectionTest {
 
     private static final UUID REQUEST_ID = UUID.randomUUID();
 
+    private static final long START_TIME_MILLIS = 1_000_000L;
+
     private final HeldLocksCollection heldLocksCollection = new HeldLocksCollection();
 
+    private final Clock clock = mock(Clock.class);
+    private final HeldLocksCollection timedCollection = new HeldLocksCollection(clock);
+
+    @Before
+    public void before() {
+        when(clock.getTimeMillis()).thenReturn(START_TIME_MILLIS);
+    }
+
     @Test
     public void callsSupplierForNewRequest() {
         Supplier<AsyncResult<HeldLocks>> supplier = mock(Supplier.class);
@@ -121,6 +135,90 @@ public class HeldLocksCollectionTest {
         assertThat(heldLocksCollection.heldLocksById.isEmpty()).isTrue();
     }
 
+    @Test
+    public void doesNotCheckLeasesBeforeTheyAreDueToExpire() {
+        HeldLocks heldLocks = mockHeldLocksExpiringAt(START_TIME_MILLIS + LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS);
+
+        clockAdvancedBy(LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS - LeaseExpirationBuckets.BUCKET_MILLIS);
+        timedCollection.removeExpired();
+
+        verify(heldLocks, never()).unlockIfExpired();
+        assertThat(timedCollection.heldLocksById).containsKey(REQUEST_ID);
+    }
+
+    @Test
+    public void removesLeasesOnceTheyAreDueToExpire() {
+        HeldLocks heldLocks = mockHeldLocksExpiringAt(START_TIME_MILLIS + LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS);
+        when(heldLocks.unlockIfExpired()).thenReturn(true);
+
+        clockAdvancedBy(LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS + 1);
+        timedCollection.removeExpired();
+
+        verify(heldLocks).unlockIfExpired();
+        assertThat(timedCollection.heldLocksById).isEmpty();
+    }
+
+    @Test
+    public void checksRefreshedLeasesAgainOnlyOnceTheirNewExpirationIsDue() {
+        LeaseExpirationTimer timer = new LeaseExpirationTimer(clock);
+        HeldLocks heldLocks = new HeldLocks(ImmutableList.of(), REQUEST_ID, timer);
+        timedCollection.getExistingOrAcquire(REQUEST_ID, () -> completedResult(heldLocks));
+
+        clockAdvancedBy(LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS / 2);
+        assertThat(timedCollection.refresh(ImmutableSet.of(heldLocks.getToken()))).containsExactly(
+                heldLocks.getToken());
+
+        clockAdvancedBy(LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS + 1);
+        timedCollection.removeExpired();
+        assertThat(timedCollection.heldLocksById).containsKey(REQUEST_ID);
+
+        clockAdvancedBy(LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS * 3 / 2 + 1);
+        timedCollection.removeExpired();
+        assertThat(timedCollection.heldLocksById).isEmpty();
+    }
+
+    @Test
+    public void keepsCheckingLeasesThatHaveNotExpiredWhenDue() {
+        HeldLocks heldLocks = mockHeldLocksExpiringAt(START_TIME_MILLIS);
+        when(heldLocks.unlockIfExpired()).thenReturn(false, true);
+
+        timedCollection.removeExpired();
+        assertThat(timedCollection.heldLocksById).containsKey(REQUEST_ID);
+
+        clockAdvancedBy(LeaseExpirationBuckets.BUCKET_MILLIS);
+        timedCollection.removeExpired();
+        assertThat(timedCollection.heldLocksById).isEmpty();
+    }
+
+    @Test
+    public void removesRequestsThatFailAfterBeingTracked() {
+        AsyncResult<HeldLocks> result = new AsyncResult<>();
+        timedCollection.getExistingOrAcquire(REQUEST_ID, () -> result);
+        timedCollection.removeExpired();
+        assertThat(timedCollection.heldLocksById).containsKey(REQUEST_ID);
+
+        timedCollection.failAllOutstandingRequestsWithNotCurrentLeaderException();
+        timedCollection.removeExpired();
+        assertThat(timedCollection.heldLocksById).isEmpty();
+    }
+
+    private HeldLocks mockHeldLocksExpiringAt(long expirationTimeMillis) {
+        HeldLocks heldLocks = mock(HeldLocks.class);
+        when(heldLocks.getLeaseExpirationTimeMillis()).thenReturn(expirationTimeMillis);
+        timedCollection.getExistingOrAcquire(REQUEST_ID, () -> completedResult(heldLocks));
+        return heldLocks;
+    }
+
+    private static AsyncResult<HeldLocks> completedResult(HeldLocks heldLocks) {
+        AsyncResult<HeldLocks> result = new AsyncResult<>();
+        result.complete(heldLocks);
+        return result;
+    }
+
+    private void clockAdvancedBy(long offsetMillis) {
+        when(clock.getTimeMillis()).thenReturn(START_TIME_MILLIS + offsetMillis);
+    }
+
     private LockToken mockExpiredRequest() {
         return mockHeldLocksForNewRequest(
                 heldLocks -> {
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.lock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class LeaseExpirationBucketsTest {
+
+    private static final long BUCKET_MILLIS = LeaseExpirationBuckets.BUCKET_MILLIS;
+    private static final long NOW = 100 * BUCKET_MILLIS;
+
+    private final LeaseExpirationBuckets buckets = new LeaseExpirationBuckets();
+
+    @Test
+    public void returnsOnlyIdsInDueBuckets() {
+        UUID expired = UUID.randomUUID();
+        UUID dueThisBucket = UUID.randomUUID();
+        UUID notDue = UUID.randomUUID();
+        buckets.add(expired, NOW - BUCKET_MILLIS);
+        buckets.add(dueThisBucket, NOW + BUCKET_MILLIS - 1);
+        buckets.add(notDue, NOW + BUCKET_MILLIS);
+
+        assertThat(removeDue(NOW)).containsExactlyInAnyOrder(expired, dueThisBucket);
+        assertThat(removeDue(NOW)).isEmpty();
+        assertThat(removeDue(NOW + BUCKET_MILLIS)).containsExactly(notDue);
+    }
+
+    @Test
+    public void removedIdsAreNotReturned() {
+        UUID requestId = UUID.randomUUID();
+        buckets.add(requestId, NOW);
+        buckets.remove(requestId, NOW);
+
+        assertThat(removeDue(NOW)).isEmpty();
+    }
+
+    @Test
+    public void idsAddedToADueBucketWhileRemovingAreKeptForTheNextCall() {
+        UUID first = UUID.randomUUID();
+        UUID addedDuringRemoval = UUID.randomUUID();
+        buckets.add(first, NOW);
+
+        assertThat(collect(consumer -> buckets.removeDue(NOW, requestId -> {
+            consumer.add(requestId);
+            buckets.add(addedDuringRemoval, NOW);
+        }))).containsExactly(first);
+        assertThat(removeDue(NOW)).containsExactly(addedDuringRemoval);
+    }
+
+    @Test
+    public void concurrentlyAddedIdsAreNeverLost() throws Exception {
+        int numThreads = 4;
+        int idsPerThread = 10_000;
+        Set<UUID> added = ConcurrentHashMap.newKeySet();
+        Set<UUID> removed = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < idsPerThread; j++) {
+                        UUID requestId = UUID.randomUUID();
+                        buckets.add(requestId, NOW);
+                        added.add(requestId);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            while (!futures.stream().allMatch(Future::isDone)) {
+                buckets.removeDue(NOW, removed::add);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        buckets.removeDue(NOW, removed::add);
+
+        assertThat(removed).isEqualTo(added);
+        assertThat(buckets.numBuckets()).isZero();
+    }
+
+    private Set<UUID> removeDue(long nowMillis) {
+        return collect(consumer -> buckets.removeDue(nowMillis, consumer::add));
+    }
+
+    private static Set<UUID> collect(Consumer<Set<UUID>> action) {
+        Set<UUID> result = ConcurrentHashMap.newKeySet();
+        action.accept(result);
+        return result;
+    }
+}
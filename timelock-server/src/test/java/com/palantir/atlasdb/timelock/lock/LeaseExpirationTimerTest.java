@@ -61,6 +61,18 @@ public class LeaseExpirationTimerTest {
         assertThat(timer.isExpired()).isFalse();
     }
 
+    @Test
+    public void expirationTimeIsOneLeaseAfterLastRefresh() {
+        assertThat(timer.getExpirationTimeMillis())
+                .isEqualTo(START_TIME_MILLIS + LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS);
+
+        mockOffsetFromStartTime(5L);
+        timer.refresh();
+
+        assertThat(timer.getExpirationTimeMillis())
+                .isEqualTo(START_TIME_MILLIS + 5L + LeaseExpirationTimer.LEASE_TIMEOUT_MILLIS);
+    }
+
     private void mockOffsetFromStartTime(long offset) {
         when(clock.getTimeMillis()).thenReturn(START_TIME_MILLIS + offset);
     }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.lock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class LockServiceShardsTest {
+
+    private static final int NUM_SHARDS = 4;
+
+    private final LockServiceShards shards = LockServiceShards.create(NUM_SHARDS);
+
+    @After
+    public void after() {
+        shards.shutdown();
+    }
+
+    @Test
+    public void assignsEachClientToTheSameShard() {
+        assertThat(shards.getExecutorFor("client")).isSameAs(shards.getExecutorFor("client"));
+    }
+
+    @Test
+    public void spreadsClientsOverAllShards() {
+        Set<ScheduledExecutorService> executors = IntStream.range(0, 100)
+                .mapToObj(client -> shards.getExecutorFor("client-" + client))
+                .collect(Collectors.toSet());
+
+        assertThat(executors).hasSize(NUM_SHARDS);
+    }
+
+    @Test
+    public void closingALockServiceDoesNotShutDownItsShard() {
+        AsyncLockService lockService = shards.createLockService("client");
+        lockService.close();
+
+        assertThat(shards.getExecutorFor("client").isShutdown()).isFalse();
+    }
+}
@@ -15,15 +15,22 @@
  */
 package com.palantir.timestamp;
 
+import java.util.concurrent.ExecutorService;
+
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.google.common.base.Preconditions;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 
 @ThreadSafe
 public class PersistentTimestampService implements TimestampService, TimestampManagementService {
 
     private static final int MAX_TIMESTAMPS_PER_REQUEST = 10_000;
 
+    private static final ExecutorService UPPER_LIMIT_EXTENSION_EXECUTOR = PTExecutors.newCachedThreadPool(
+            new NamedThreadFactory("timestamp-upper-limit-extension", true));
+
     private final PersistentTimestamp timestamp;
 
     public static PersistentTimestampService create(TimestampBoundStore store) {
@@ -32,7 +39,7 @@ public class PersistentTimestampService implements TimestampService, TimestampMa
 
     public static PersistentTimestampService create(ErrorCheckingTimestampBoundStore store) {
         long latestTimestamp = store.getUpperLimit();
-        PersistentUpperLimit upperLimit = new PersistentUpperLimit(store);
+        PersistentUpperLimit upperLimit = new PersistentUpperLimit(store, UPPER_LIMIT_EXTENSION_EXECUTOR);
         PersistentTimestamp timestamp = new PersistentTimestamp(upperLimit, latestTimestamp);
         return new PersistentTimestampService(timestamp);
     }
@@ -15,18 +15,66 @@
  */
 package com.palantir.timestamp;
 
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.google.common.annotations.VisibleForTesting;
 
+/**
+ * Keeps track of the upper limit of timestamps that may be handed out, persisting a new limit, a buffer above the
+ * highest timestamp requested, whenever timestamps beyond the current limit are requested.
+ * <p>
+ * If an executor is provided, the limit is also extended in the background once half of the buffer above the highest
+ * timestamp requested has been used, so that callers only wait for the bound store if timestamps are handed out
+ * faster than a background extension completes. In this mode the buffer also adapts to the rate at which timestamps
+ * are handed out, so that each buffer lasts about {@link #BUFFER_DURATION_MILLIS}.
+ */
 public class PersistentUpperLimit {
+    private static final Logger log = LoggerFactory.getLogger(PersistentUpperLimit.class);
 
     @VisibleForTesting
     static final long BUFFER = 1_000_000;
+    @VisibleForTesting
+    static final long MAX_BUFFER = 100 * BUFFER;
+    @VisibleForTesting
+    static final long BUFFER_DURATION_MILLIS = 10_000;
+
+    private static final long NO_PREVIOUS_REQUEST = Long.MIN_VALUE;
 
     private volatile long currentLimit;
+    private volatile long buffer = BUFFER;
     private final TimestampBoundStore store;
+    private final Optional<Executor> extensionExecutor;
+    private final LongSupplier nanoClock;
+    private final AtomicBoolean extensionInProgress = new AtomicBoolean(false);
+
+    @GuardedBy("this")
+    private long previousRequestedLimit = NO_PREVIOUS_REQUEST;
+    @GuardedBy("this")
+    private long previousStoreNanos;
 
     public PersistentUpperLimit(TimestampBoundStore boundStore) {
+        this(boundStore, Optional.empty(), System::nanoTime);
+    }
+
+    public PersistentUpperLimit(TimestampBoundStore boundStore, Executor extensionExecutor) {
+        this(boundStore, Optional.of(extensionExecutor), System::nanoTime);
+    }
+
+    @VisibleForTesting
+    PersistentUpperLimit(TimestampBoundStore boundStore, Optional<Executor> extensionExecutor, LongSupplier nanoClock) {
         this.store = boundStore;
+        this.extensionExecutor = extensionExecutor;
+        this.nanoClock = nanoClock;
         this.currentLimit = boundStore.getUpperLimit();
     }
 
@@ -37,17 +85,84 @@ public class PersistentUpperLimit {
     public void increaseToAtLeast(long newLimit) {
         if (newLimit > currentLimit) {
             updateLimit(newLimit);
+        } else if (shouldExtendInBackground(newLimit)) {
+            extendInBackground(newLimit);
+        }
+    }
+
+    @VisibleForTesting
+    long getBuffer() {
+        return buffer;
+    }
+
+    private boolean shouldExtendInBackground(long requestedLimit) {
+        return extensionExecutor.isPresent()
+                && currentLimit - requestedLimit < buffer / 2
+                && !extensionInProgress.get();
+    }
+
+    private void extendInBackground(long requestedLimit) {
+        if (!extensionInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            extensionExecutor.get().execute(() -> {
+                try {
+                    extendIfLessThanHalfOfBufferRemains(requestedLimit);
+                } catch (Throwable t) {
+                    log.info("Failed to extend the timestamp upper limit in the background. It will be extended"
+                            + " when the timestamps below the current limit have been handed out.", t);
+                } finally {
+                    extensionInProgress.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            extensionInProgress.set(false);
+        }
+    }
+
+    private synchronized void extendIfLessThanHalfOfBufferRemains(long requestedLimit) {
+        if (currentLimit - requestedLimit >= buffer / 2) {
+            return;
         }
+        storeLimitWithBuffer(requestedLimit);
     }
 
     private synchronized void updateLimit(long newLimit) {
         if (currentLimit >= newLimit) {
             return;
         }
+        storeLimitWithBuffer(newLimit);
+    }
+
+    @GuardedBy("this")
+    private void storeLimitWithBuffer(long requestedLimit) {
+        long nowNanos = nanoClock.getAsLong();
+        if (extensionExecutor.isPresent()) {
+            adaptBuffer(requestedLimit, nowNanos);
+        }
+
+        // Timestamps up to the current limit may already have been handed out, so the stored limit must never go
+        // down, even if the buffer has just shrunk below what remains of the current one.
+        long newLimitWithBuffer = requestedLimit + buffer;
+        if (newLimitWithBuffer > currentLimit) {
+            storeUpperLimit(newLimitWithBuffer);
+            currentLimit = newLimitWithBuffer;
+        }
 
-        long newLimitWithBuffer = newLimit + BUFFER;
-        storeUpperLimit(newLimitWithBuffer);
-        currentLimit = newLimitWithBuffer;
+        previousRequestedLimit = requestedLimit;
+        previousStoreNanos = nowNanos;
+    }
+
+    @GuardedBy("this")
+    private void adaptBuffer(long requestedLimit, long nowNanos) {
+        long elapsedNanos = nowNanos - previousStoreNanos;
+        if (previousRequestedLimit == NO_PREVIOUS_REQUEST || elapsedNanos <= 0) {
+            return;
+        }
+        double timestampsPerNano = (double) (requestedLimit - previousRequestedLimit) / elapsedNanos;
+        double bufferForDuration = timestampsPerNano * TimeUnit.MILLISECONDS.toNanos(BUFFER_DURATION_MILLIS);
+        buffer = (long) Math.max(BUFFER, Math.min(MAX_BUFFER, bufferForDuration));
     }
 
     private void storeUpperLimit(long upperLimit) {
@@ -16,14 +16,28 @@
 package com.palantir.timestamp;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,6 +47,7 @@ public class PersistentUpperLimitTest {
     private static final long TIMESTAMP = 12345L;
     private static final long INITIAL_UPPER_LIMIT = 10L;
     private static final long BUFFER = PersistentUpperLimit.BUFFER;
+    private static final long BUFFER_DURATION_MILLIS = PersistentUpperLimit.BUFFER_DURATION_MILLIS;
 
     private TimestampBoundStore boundStore;
     private PersistentUpperLimit upperLimit;
@@ -112,4 +127,154 @@ public class PersistentUpperLimitTest {
         assertThat(upperLimit.get(), is(INITIAL_UPPER_LIMIT));
     }
 
+    @Test
+    public void shouldNotExtendInTheBackgroundBeforeHalfOfTheBufferIsUsed() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        PersistentUpperLimit proactiveLimit = proactiveUpperLimit(tasks);
+
+        proactiveLimit.increaseToAtLeast(TIMESTAMP);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER / 2);
+
+        assertThat(tasks.isEmpty(), is(true));
+        assertThat(proactiveLimit.get(), is(TIMESTAMP + BUFFER));
+    }
+
+    @Test
+    public void shouldExtendInTheBackgroundOnceHalfOfTheBufferIsUsed() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        PersistentUpperLimit proactiveLimit = proactiveUpperLimit(tasks);
+
+        proactiveLimit.increaseToAtLeast(TIMESTAMP);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER / 2 + 1);
+        assertThat(proactiveLimit.get(), is(TIMESTAMP + BUFFER));
+
+        tasks.remove().run();
+        verify(boundStore).storeUpperLimit(TIMESTAMP + BUFFER / 2 + 1 + BUFFER);
+        assertThat(proactiveLimit.get(), is(TIMESTAMP + BUFFER / 2 + 1 + BUFFER));
+    }
+
+    @Test
+    public void shouldOnlyExtendInTheBackgroundOnceAtATime() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        PersistentUpperLimit proactiveLimit = proactiveUpperLimit(tasks);
+
+        proactiveLimit.increaseToAtLeast(TIMESTAMP);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER / 2 + 1);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER / 2 + 2);
+
+        assertThat(tasks.size(), is(1));
+    }
+
+    @Test
+    public void shouldKeepTheCurrentLimitIfBackgroundExtensionFails() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        PersistentUpperLimit proactiveLimit = proactiveUpperLimit(tasks);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP);
+        doThrow(RuntimeException.class).when(boundStore).storeUpperLimit(anyLong());
+
+        proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER / 2 + 1);
+        tasks.remove().run();
+        assertThat(proactiveLimit.get(), is(TIMESTAMP + BUFFER));
+
+        proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER / 2 + 2);
+        assertThat(tasks.size(), is(1));
+    }
+
+    @Test
+    public void shouldWaitForABackgroundExtensionInsteadOfStoringAgain() throws Exception {
+        CountDownLatch storeStarted = new CountDownLatch(1);
+        CountDownLatch allowStore = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PersistentUpperLimit proactiveLimit = new PersistentUpperLimit(
+                    boundStore, Optional.of(executor), System::nanoTime);
+            proactiveLimit.increaseToAtLeast(TIMESTAMP);
+            doAnswer(invocation -> {
+                storeStarted.countDown();
+                allowStore.await();
+                return null;
+            }).when(boundStore).storeUpperLimit(anyLong());
+
+            proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER - 1);
+            storeStarted.await();
+            Thread caller = new Thread(() -> proactiveLimit.increaseToAtLeast(TIMESTAMP + BUFFER + 1));
+            caller.start();
+            caller.join(100);
+            assertThat(caller.isAlive(), is(true));
+
+            allowStore.countDown();
+            caller.join();
+            verify(boundStore, times(2)).storeUpperLimit(anyLong());
+            assertThat(proactiveLimit.get(), is(greaterThan(TIMESTAMP + BUFFER + 1)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldGrowTheBufferWithTheRateAtWhichTimestampsAreHandedOut() {
+        AtomicLong nanos = new AtomicLong();
+        PersistentUpperLimit proactiveLimit = new PersistentUpperLimit(
+                boundStore, Optional.of(Runnable::run), nanos::get);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP);
+
+        long timestampsPerBufferDuration = 5 * BUFFER;
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(BUFFER_DURATION_MILLIS));
+        proactiveLimit.increaseToAtLeast(TIMESTAMP + timestampsPerBufferDuration);
+
+        assertThat(proactiveLimit.getBuffer(), is(timestampsPerBufferDuration));
+        assertThat(proactiveLimit.get(), is(TIMESTAMP + 2 * timestampsPerBufferDuration));
+    }
+
+    @Test
+    public void shouldKeepTheBufferWithinBounds() {
+        AtomicLong nanos = new AtomicLong();
+        PersistentUpperLimit proactiveLimit = new PersistentUpperLimit(
+                boundStore, Optional.of(Runnable::run), nanos::get);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP);
+
+        nanos.incrementAndGet();
+        proactiveLimit.increaseToAtLeast(proactiveLimit.get() + 1);
+        assertThat(proactiveLimit.getBuffer(), is(PersistentUpperLimit.MAX_BUFFER));
+
+        nanos.addAndGet(TimeUnit.DAYS.toNanos(1));
+        proactiveLimit.increaseToAtLeast(proactiveLimit.get() + 1);
+        assertThat(proactiveLimit.getBuffer(), is(BUFFER));
+    }
+
+    @Test
+    public void shouldNeverLowerTheStoredLimitWhenTheBufferShrinks() {
+        List<Long> storedLimits = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> storedLimits.add((Long) invocation.getArguments()[0]))
+                .when(boundStore).storeUpperLimit(anyLong());
+        AtomicLong nanos = new AtomicLong();
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        PersistentUpperLimit proactiveLimit = new PersistentUpperLimit(boundStore, Optional.of(tasks::add), nanos::get);
+        proactiveLimit.increaseToAtLeast(TIMESTAMP);
+        nanos.incrementAndGet();
+        proactiveLimit.increaseToAtLeast(proactiveLimit.get() + 1);
+        assertThat(proactiveLimit.getBuffer(), is(PersistentUpperLimit.MAX_BUFFER));
+        long limitWithLargeBuffer = proactiveLimit.get();
+
+        // Using up half of the buffer schedules a background extension...
+        long halfOfBufferUsed = limitWithLargeBuffer - PersistentUpperLimit.MAX_BUFFER / 2 + 1;
+        proactiveLimit.increaseToAtLeast(halfOfBufferUsed);
+        assertThat(tasks.size(), is(1));
+        // ...while timestamps up to the current limit are handed out without storing anything...
+        proactiveLimit.increaseToAtLeast(limitWithLargeBuffer);
+        // ...and by the time the extension runs, the rate has dropped far enough to shrink the buffer.
+        nanos.addAndGet(TimeUnit.DAYS.toNanos(1));
+        tasks.remove().run();
+
+        assertThat(proactiveLimit.getBuffer(), is(BUFFER));
+        assertThat(proactiveLimit.get(), is(greaterThanOrEqualTo(limitWithLargeBuffer)));
+        for (int i = 1; i < storedLimits.size(); i++) {
+            assertThat(storedLimits.get(i), is(greaterThan(storedLimits.get(i - 1))));
+        }
+        assertThat(storedLimits.get(storedLimits.size() - 1), is(greaterThanOrEqualTo(limitWithLargeBuffer)));
+    }
+
+    private PersistentUpperLimit proactiveUpperLimit(Queue<Runnable> tasks) {
+        return new PersistentUpperLimit(boundStore, Optional.of(tasks::add), () -> 0L);
+    }
 }